@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+
+/**
+ * Compresses each block with one of several codecs, chosen by compressing some
+ * blocks with all of them: the one of the best ratio among those that compress
+ * at least as fast as required, or else the fastest one. Blocks are sampled at
+ * first, and then once every {@link #RESAMPLE_INTERVAL} blocks, so that the
+ * choice follows the data.
+ * <p/>
+ * The codec of each block is written after its data, as its index among the
+ * codecs, whose names are written to the metadata of files under
+ * {@link DataFileConstants#ADAPTIVE_CODECS}. Files are named as of the
+ * {@code adaptive} codec, which other implementations may not read.
+ */
+public class AdaptiveCodec extends Codec {
+
+  /** The number of blocks sampled first. */
+  public static final int SAMPLE_BLOCKS = 4;
+  /** The number of blocks after which another one is sampled. */
+  public static final int RESAMPLE_INTERVAL = 64;
+
+  static class Option extends CodecFactory {
+    private final double minMegabytesPerSecond;
+    private final List<CodecFactory> codecs;
+
+    Option(double minMegabytesPerSecond, List<CodecFactory> codecs) {
+      this.minMegabytesPerSecond = minMegabytesPerSecond;
+      this.codecs = codecs;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      if (codecs.isEmpty()) {
+        throw new AvroRuntimeException("The adaptive codec needs the codecs of a file");
+      }
+      Codec[] instances = new Codec[codecs.size()];
+      for (int i = 0; i < instances.length; i++) {
+        instances[i] = codecs.get(i).createInstance();
+      }
+      return new AdaptiveCodec(minMegabytesPerSecond, instances);
+    }
+
+    @Override
+    Map<String, byte[]> getFileMeta() {
+      Map<String, byte[]> meta = new HashMap<>();
+      for (CodecFactory codec : codecs) {
+        meta.putAll(codec.getFileMeta());
+      }
+      meta.put(DataFileConstants.ADAPTIVE_CODECS, names(createInstance()).getBytes(StandardCharsets.UTF_8));
+      return meta;
+    }
+
+    @Override
+    CodecFactory forFile(Map<String, byte[]> meta) {
+      byte[] names = meta.get(DataFileConstants.ADAPTIVE_CODECS);
+      if (names == null) {
+        throw new AvroRuntimeException("No codecs of the adaptive codec");
+      }
+      List<CodecFactory> fileCodecs = new ArrayList<>();
+      for (String name : new String(names, StandardCharsets.UTF_8).split(",")) {
+        fileCodecs.add(CodecFactory.fromString(name).forFile(meta));
+      }
+      return new Option(minMegabytesPerSecond, fileCodecs);
+    }
+  }
+
+  private final double minMegabytesPerSecond;
+  private final Codec[] codecs;
+  /** the bytes each codec compressed in samples, decaying by half each time */
+  private final double[] sampledIn;
+  private final double[] sampledOut;
+  private final double[] sampledNanos;
+  private long blocks;
+  private int chosen;
+
+  AdaptiveCodec(double minMegabytesPerSecond, Codec[] codecs) {
+    if (codecs.length == 0 || codecs.length > 255) {
+      throw new IllegalArgumentException("Invalid number of codecs: " + codecs.length);
+    }
+    this.minMegabytesPerSecond = minMegabytesPerSecond;
+    this.codecs = codecs;
+    this.sampledIn = new double[codecs.length];
+    this.sampledOut = new double[codecs.length];
+    this.sampledNanos = new double[codecs.length];
+  }
+
+  private static String names(Codec codec) {
+    StringBuilder names = new StringBuilder();
+    for (Codec c : ((AdaptiveCodec) codec).codecs) {
+      names.append(names.length() == 0 ? "" : ",").append(c.getName());
+    }
+    return names.toString();
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.ADAPTIVE_CODEC;
+  }
+
+  /** Returns the index of the codec that compresses blocks not sampled. */
+  public int getChosenCodec() {
+    return chosen;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data) throws IOException {
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    long block = blocks++;
+    if (codecs.length > 1 && (block < SAMPLE_BLOCKS || block % RESAMPLE_INTERVAL == 0)) {
+      return tag(sample(data), chosen, data);
+    }
+    return tag(codecs[chosen].compress(data, reuse), chosen, data);
+  }
+
+  /** Compresses a block with each codec, and returns the result of the best. */
+  private ByteBuffer sample(ByteBuffer data) throws IOException {
+    ByteBuffer[] results = new ByteBuffer[codecs.length];
+    for (int i = 0; i < codecs.length; i++) {
+      long start = System.nanoTime();
+      results[i] = codecs[i].compress(data.duplicate());
+      long nanos = Math.max(1, System.nanoTime() - start);
+      sampledIn[i] = sampledIn[i] / 2 + data.remaining();
+      sampledOut[i] = sampledOut[i] / 2 + results[i].remaining();
+      sampledNanos[i] = sampledNanos[i] / 2 + nanos;
+    }
+    int best = -1;
+    int fastest = 0;
+    for (int i = 0; i < codecs.length; i++) {
+      double megabytesPerSecond = sampledIn[i] * 1000 / sampledNanos[i];
+      if (megabytesPerSecond > sampledIn[fastest] * 1000 / sampledNanos[fastest]) {
+        fastest = i;
+      }
+      if (megabytesPerSecond >= minMegabytesPerSecond
+          && (best < 0 || sampledOut[i] / sampledIn[i] < sampledOut[best] / sampledIn[best])) {
+        best = i;
+      }
+    }
+    chosen = best >= 0 ? best : fastest;
+    return results[chosen];
+  }
+
+  /** Appends the index of the codec to its result, without changing the input. */
+  private static ByteBuffer tag(ByteBuffer result, int codec, ByteBuffer input) {
+    ByteBuffer tagged = result;
+    if (!result.hasArray() || result.array() == (input.hasArray() ? input.array() : null)
+        || result.limit() == result.capacity()) {
+      tagged = ByteBuffer.allocate(result.remaining() + 1);
+      tagged.put(result.duplicate());
+      ((Buffer) tagged).flip();
+    }
+    int end = tagged.limit();
+    ((Buffer) tagged).limit(end + 1);
+    tagged.put(end, (byte) codec);
+    return tagged;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data) throws IOException {
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    if (!data.hasRemaining()) {
+      throw new IOException("Block without codec");
+    }
+    int codec = data.get(data.limit() - 1) & 0xff;
+    if (codec >= codecs.length) {
+      throw new IOException("Invalid codec of block: " + codec);
+    }
+    ByteBuffer compressed = data.duplicate();
+    ((Buffer) compressed).limit(data.limit() - 1);
+    return codecs[codec].decompress(compressed.slice(), reuse);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(codecs);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    // blocks are read alike if their codecs are
+    return Arrays.equals(codecs, ((AdaptiveCodec) obj).codecs);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + Arrays.toString(codecs);
+  }
+}
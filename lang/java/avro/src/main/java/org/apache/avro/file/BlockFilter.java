@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+/**
+ * A predicate on the statistics of blocks, held by a {@link DataFileIndex},
+ * that {@link DataFileReader#setBlockFilter(BlockFilter)} uses to skip blocks
+ * without reading them.
+ */
+public interface BlockFilter {
+
+  /**
+   * Returns false only if no entry of a block can match. Blocks whose statistics
+   * are not known may always match.
+   */
+  boolean mayMatch(DataFileIndex index, int block);
+
+  /** Returns a filter of the blocks that both this one and another may match. */
+  default BlockFilter and(BlockFilter other) {
+    return (index, block) -> mayMatch(index, block) && other.mayMatch(index, block);
+  }
+
+  /**
+   * Returns a filter of the blocks that may hold a value of a field from
+   * <i>min</i> to <i>max</i>, inclusive, where a null bound is no bound. Values
+   * are compared as held in statistics, so the bounds of timestamps, for
+   * instance, are longs.
+   */
+  static BlockFilter range(String field, Object min, Object max) {
+    return (index, block) -> {
+      if (!index.hasStatistics(block) || !index.getStatisticsFields().contains(field)) {
+        return true;
+      }
+      Object blockMin = index.getMin(block, field);
+      Object blockMax = index.getMax(block, field);
+      if (blockMin == null) {
+        // all values are null
+        return false;
+      }
+      return (min == null || DataFileIndex.compare(blockMax, min) >= 0)
+          && (max == null || DataFileIndex.compare(blockMin, max) <= 0);
+    };
+  }
+}
@@ -20,6 +20,8 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+
 /**
  * Interface for Avro-supported compression codecs for data files.
  *
@@ -36,6 +38,26 @@ public abstract class Codec {
   /** Decompress the data */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
 
+  /**
+   * Compresses the input data into the array of <i>reuse</i>, if it has one large
+   * enough, or else into a new one. The whole array may be overwritten, so it
+   * must not hold the input. The result may be passed as <i>reuse</i> again once
+   * it is no longer needed. By default, <i>reuse</i> is ignored.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer reuse) throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompresses the data into the array of <i>reuse</i>, if it has one large
+   * enough, or else into a new one. The whole array may be overwritten, so it
+   * must not hold the input. The result may be passed as <i>reuse</i> again once
+   * it is no longer needed. By default, <i>reuse</i> is ignored.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    return decompress(compressedData);
+  }
+
   /**
    * Codecs must implement an equals() method. Two codecs, A and B are equal if:
    * the result of A and B decompressing content compressed by A is the same AND
@@ -61,4 +83,22 @@ public abstract class Codec {
   protected static int computeOffset(ByteBuffer data) {
     return data.arrayOffset() + data.position();
   }
+
+  /**
+   * Returns the array of <i>reuse</i>, if it has <i>size</i> bytes, or a new one.
+   */
+  protected static byte[] reusableArray(ByteBuffer reuse, int size) {
+    return reuse != null && reuse.hasArray() && reuse.array().length >= size ? reuse.array() : new byte[size];
+  }
+
+  /**
+   * Returns a stream that writes to the array of <i>reuse</i>, if it has one, or
+   * else to a new one of <i>size</i> bytes, and to larger ones once full.
+   */
+  protected static NonCopyingByteArrayOutputStream outputStream(ByteBuffer reuse, int size) {
+    if (reuse != null && reuse.hasArray() && reuse.array().length > 0) {
+      return new NonCopyingByteArrayOutputStream(reuse.array());
+    }
+    return new NonCopyingByteArrayOutputStream(size);
+  }
 }
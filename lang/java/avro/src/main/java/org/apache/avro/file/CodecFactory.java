@@ -17,6 +17,8 @@
  */
 package org.apache.avro.file;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.Deflater;
@@ -117,9 +119,59 @@ public abstract class CodecFactory {
     return new ZstandardCodec.Option(level, useChecksum, useBufferPool);
   }
 
+  /**
+   * zstandard codec that compresses each block with a dictionary, such as one
+   * from {@link ZstandardCodec#trainDictionary}, so that small blocks compress
+   * about as well as large ones. The dictionary is written to the metadata of
+   * files, under {@link DataFileConstants#ZSTANDARD_DICTIONARY}, and files are
+   * named as of the {@code zstandard-dictionary} codec, which other
+   * implementations may not read.
+   *
+   * @param level      The compression level should be between -5 and 22,
+   *                   inclusive.
+   * @param dictionary the dictionary
+   */
+  public static CodecFactory zstandardCodec(int level, byte[] dictionary) {
+    if (dictionary == null) {
+      throw new IllegalArgumentException("No dictionary");
+    }
+    return new ZstandardCodec.DictionaryOption(level, false, dictionary.clone());
+  }
+
+  /**
+   * Codec that compresses each block with one of several codecs, or levels of a
+   * codec: the one of the best ratio among those that compress at least
+   * <i>minMegabytesPerSecond</i> of data a second, in blocks sampled regularly,
+   * or else the fastest one. Include {@link #nullCodec()} for data that may be
+   * compressed already. The codec of each block is written with it, and files are
+   * named as of the {@code adaptive} codec, which other implementations may not
+   * read.
+   *
+   * @see AdaptiveCodec
+   */
+  public static CodecFactory adaptiveCodec(double minMegabytesPerSecond, CodecFactory... codecs) {
+    if (codecs.length == 0 || codecs.length > 255) {
+      throw new IllegalArgumentException("Invalid number of codecs: " + codecs.length);
+    }
+    return new AdaptiveCodec.Option(minMegabytesPerSecond, Arrays.asList(codecs.clone()));
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
+  /**
+   * Returns the metadata, besides the codec name, of the files whose blocks are
+   * compressed by the codecs of this.
+   */
+  Map<String, byte[]> getFileMeta() {
+    return Collections.emptyMap();
+  }
+
+  /** Returns the factory of the codecs of a file, given its metadata. */
+  CodecFactory forFile(Map<String, byte[]> meta) {
+    return this;
+  }
+
   /**
    * Mapping of string names (stored as metas) and codecs. Note that currently
    * options (like compression level) are not recoverable.
@@ -138,12 +190,15 @@ public abstract class CodecFactory {
     addCodec(DataFileConstants.XZ_CODEC, xzCodec(DEFAULT_XZ_LEVEL));
     addCodec(DataFileConstants.ZSTANDARD_CODEC, zstandardCodec(DEFAULT_ZSTANDARD_LEVEL, DEFAULT_ZSTANDARD_BUFFERPOOL));
     addCodec(DataFileConstants.SNAPPY_CODEC, snappyCodec());
+    addCodec(DataFileConstants.ZSTANDARD_DICTIONARY_CODEC,
+        new ZstandardCodec.DictionaryOption(DEFAULT_ZSTANDARD_LEVEL, false, null));
+    addCodec(DataFileConstants.ADAPTIVE_CODEC, new AdaptiveCodec.Option(0, Collections.emptyList()));
   }
 
   /**
    * Maps a codec name into a CodecFactory.
    *
-   * Currently there are six codecs registered by default:
+   * Currently there are eight codecs registered by default:
    * <ul>
    * <li>{@code null}</li>
    * <li>{@code deflate}</li>
@@ -151,6 +206,8 @@ public abstract class CodecFactory {
    * <li>{@code bzip2}</li>
    * <li>{@code xz}</li>
    * <li>{@code zstandard}</li>
+   * <li>{@code zstandard-dictionary}</li>
+   * <li>{@code adaptive}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
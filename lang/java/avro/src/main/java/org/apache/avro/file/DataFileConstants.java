@@ -39,5 +39,11 @@ public class DataFileConstants {
   public static final String BZIP2_CODEC = "bzip2";
   public static final String XZ_CODEC = "xz";
   public static final String ZSTANDARD_CODEC = "zstandard";
+  public static final String ZSTANDARD_DICTIONARY_CODEC = "zstandard-dictionary";
+  /** The metadata key of the dictionary of the zstandard-dictionary codec. */
+  public static final String ZSTANDARD_DICTIONARY = "avro.codec.zstandard.dictionary";
+  public static final String ADAPTIVE_CODEC = "adaptive";
+  /** The metadata key of the names of the codecs of the adaptive codec. */
+  public static final String ADAPTIVE_CODECS = "avro.codec.adaptive.codecs";
 
 }
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+
+/**
+ * Reads a data file while it is still being written, in the manner of
+ * <code>tail -f</code>. Entries are returned as soon as the block holding them
+ * is completely written, e.g. after {@link DataFileWriter#flush()},
+ * {@link DataFileWriter#sync()} or with
+ * {@link DataFileWriter#setFlushOnEveryBlock(boolean)}. A block is only read
+ * once its header, data and synchronization marker are all present, so a block
+ * the writer is part way through is never seen.
+ *
+ * <p>
+ * The input must report its current length from {@link SeekableInput#length()},
+ * as {@link SeekableFileInput} does; inputs with a fixed length, such as
+ * {@link SeekableMappedFileInput}, never see appended data. Waiting for new
+ * data checks the length every {@link #setPollInterval(long) poll interval}.
+ *
+ * <p>
+ * {@link #getPosition()} may be saved and passed to {@link #seek(long)} to
+ * resume following after a restart.
+ */
+public class DataFileFollower<D> implements Closeable {
+  private static final long DEFAULT_POLL_INTERVAL = 100;
+
+  private final SeekableInput in;
+  private final DatumReader<D> datumReader;
+  private final boolean closeInput;
+  private final LimitedInput limited;
+  private final byte[] scratch = new byte[20];
+
+  private DataFileReader<D> reader;
+  private long headerEnd;
+  private long limit; // end of the last complete block
+  private long start = -1; // position to start from once the header is read
+  private long pollInterval = DEFAULT_POLL_INTERVAL;
+
+  /** Follow a file. The file is closed by {@link #close()}. */
+  public DataFileFollower(File file, DatumReader<D> datumReader) throws IOException {
+    this(new SeekableFileInput(file), datumReader, true);
+  }
+
+  /** Follow an input. The input is not closed by {@link #close()}. */
+  public DataFileFollower(SeekableInput in, DatumReader<D> datumReader) {
+    this(in, datumReader, false);
+  }
+
+  private DataFileFollower(SeekableInput in, DatumReader<D> datumReader, boolean closeInput) {
+    this.in = in;
+    this.datumReader = datumReader;
+    this.closeInput = closeInput;
+    this.limited = new LimitedInput(in);
+  }
+
+  /** Set how often, in milliseconds, to check for new data while waiting. */
+  public void setPollInterval(long millis) {
+    if (millis <= 0)
+      throw new IllegalArgumentException("Poll interval must be positive: " + millis);
+    this.pollInterval = millis;
+  }
+
+  /** Return the schema of the file, or null if its header is not yet written. */
+  public Schema getSchema() throws IOException {
+    return open() ? reader.getSchema() : null;
+  }
+
+  /**
+   * Return the synchronization point of the block holding the next entry. Passed
+   * to {@link #seek(long)}, entries of that block already returned are read
+   * again.
+   */
+  public long getPosition() throws IOException {
+    if (!open())
+      return Math.max(start, 0);
+    return reader.previousSync();
+  }
+
+  /**
+   * Move to a synchronization point, one returned from {@link #getPosition()} or
+   * {@link DataFileWriter#sync()}.
+   */
+  public void seek(long position) throws IOException {
+    if (!open()) {
+      start = position;
+      return;
+    }
+    if (position < headerEnd || position > in.length())
+      throw new IOException("Position outside file data: " + position);
+    limit = position;
+    limited.limit = position;
+    reader.seek(position);
+  }
+
+  /**
+   * Return true if an entry can be returned without waiting for more data to be
+   * written.
+   */
+  public boolean hasNext() throws IOException {
+    if (!open())
+      return false;
+    if (reader.hasNext())
+      return true;
+    if (!advance())
+      return false;
+    return reader.hasNext();
+  }
+
+  /** Return the next entry, waiting for it to be written if needed. */
+  public D next() throws IOException, InterruptedException {
+    return next(null);
+  }
+
+  /**
+   * Return the next entry, waiting for it to be written if needed.
+   *
+   * @param reuse an entry to reuse, or null
+   */
+  public D next(D reuse) throws IOException, InterruptedException {
+    while (!hasNext()) {
+      Thread.sleep(pollInterval);
+    }
+    return reader.next(reuse);
+  }
+
+  /**
+   * Return the next entry, or null if none is written within a timeout.
+   *
+   * @param reuse an entry to reuse, or null
+   */
+  public D next(D reuse, long timeout, TimeUnit unit) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!hasNext()) {
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining <= 0)
+        return null;
+      Thread.sleep(Math.min(pollInterval, remaining));
+    }
+    return reader.next(reuse);
+  }
+
+  /** Read the header, if not yet read. Return false if it is not yet written. */
+  private boolean open() throws IOException {
+    if (reader != null)
+      return true;
+    long length = in.length();
+    if (length < DataFileConstants.MAGIC.length)
+      return false;
+    limited.limit = length;
+    in.seek(0);
+    try {
+      reader = new DataFileReader<>(limited, datumReader);
+    } catch (EOFException e) {
+      return false;
+    } catch (IOException e) {
+      if (e.getCause() instanceof EOFException)
+        return false;
+      throw e;
+    }
+    headerEnd = reader.previousSync();
+    if (start >= 0 && start < headerEnd)
+      throw new IOException("Position outside file data: " + start);
+    // a position past the end of the file is caught by advance()
+    limit = start >= 0 ? start : headerEnd;
+    limited.limit = limit;
+    reader.seek(limit); // drop anything read past the header
+    return true;
+  }
+
+  /**
+   * Extend the readable part of the input over the blocks written completely
+   * since the last call. Only called once the reader has consumed everything
+   * before the limit. Return true if any block was added.
+   */
+  private boolean advance() throws IOException {
+    long length = in.length();
+    if (length < limit)
+      throw new IOException("File truncated to " + length + " bytes, expected at least " + limit);
+    long end = limit;
+    long blockEnd;
+    while ((blockEnd = completeBlockEnd(end, length)) > 0) {
+      end = blockEnd;
+    }
+    boolean advanced = end > limit;
+    long position = limit;
+    limit = end;
+    limited.limit = end;
+    // the reader saw the end of input, and the scan moved the position
+    reader.seek(position);
+    return advanced;
+  }
+
+  /**
+   * Return the end of the block starting at a position, or 0 if it is not yet
+   * completely written.
+   */
+  private long completeBlockEnd(long position, long length) throws IOException {
+    int n = readFully(position, scratch, (int) Math.min(scratch.length, length - position));
+    long[] header = new long[2]; // entry count, byte count
+    int offset = 0;
+    for (int i = 0; i < header.length; i++) {
+      long value = 0;
+      int shift = 0;
+      int b;
+      do {
+        if (offset == n)
+          return 0; // block header not yet written
+        if (shift > 63)
+          throw new IOException("Invalid block header at " + position);
+        b = scratch[offset++] & 0xff;
+        value |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      header[i] = (value >>> 1) ^ -(value & 1);
+    }
+    if (header[0] < 0 || header[1] < 0)
+      throw new IOException("Invalid block header at " + position);
+    long end = position + offset + header[1] + DataFileConstants.SYNC_SIZE;
+    if (end > length)
+      return 0;
+    byte[] sync = new byte[DataFileConstants.SYNC_SIZE];
+    if (readFully(end - sync.length, sync, sync.length) != sync.length)
+      return 0;
+    if (!Arrays.equals(sync, reader.getHeader().sync))
+      throw new IOException("Invalid sync at " + (end - sync.length));
+    return end;
+  }
+
+  private int readFully(long position, byte[] b, int len) throws IOException {
+    in.seek(position);
+    int total = 0;
+    while (total < len) {
+      int n = in.read(b, total, len - total);
+      if (n < 0)
+        break;
+      total += n;
+    }
+    return total;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null)
+      reader.close();
+    if (closeInput)
+      in.close();
+  }
+
+  /** An input that ends at the last completely written block. */
+  private static class LimitedInput implements SeekableInput {
+    private final SeekableInput in;
+    private long limit;
+
+    LimitedInput(SeekableInput in) {
+      this.in = in;
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      in.seek(p);
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return in.tell();
+    }
+
+    @Override
+    public long length() throws IOException {
+      return limit;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      long remaining = limit - in.tell();
+      if (remaining <= 0)
+        return -1;
+      return in.read(b, off, (int) Math.min(len, remaining));
+    }
+
+    @Override
+    public void close() throws IOException {
+      // the underlying input is closed by the follower
+    }
+  }
+}
@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+
+/**
+ * An index of the blocks of a data file: the position of each block, and the
+ * number of entries before it. With it, {@link DataFileReader#seekToRecord}
+ * finds an entry by its number without reading the blocks before it.
+ * <p/>
+ * The index of a file is built by {@link DataFileReader#buildIndex()}, or while
+ * the file is written, by a {@link DataFileWriter} given a sidecar file with
+ * {@link DataFileWriter#setIndexFile(File)}. Sidecar files are themselves data
+ * files, of a record per block.
+ * <p/>
+ * Indexes written by a {@link DataFileWriter} may also hold the minimum,
+ * maximum and number of nulls of some top-level fields in each block, with
+ * which {@link DataFileReader#setBlockFilter(BlockFilter)} skips the blocks
+ * that cannot match a query. Ints are held as longs, and floats as doubles.
+ */
+public final class DataFileIndex {
+
+  /** The schema of the records of sidecar files. */
+  public static final Schema SCHEMA;
+  private static final Schema FIELD_SCHEMA;
+
+  static {
+    Schema value = SchemaBuilder.unionOf().nullType().and().longType().and().doubleType().and().stringType().endUnion();
+    FIELD_SCHEMA = SchemaBuilder.record("FieldStatistics").namespace("org.apache.avro.file").fields()
+        .requiredLong("nullCount").name("min").type(value).withDefault(null).name("max").type(value).withDefault(null)
+        .endRecord();
+    SCHEMA = SchemaBuilder.record("BlockIndexEntry").namespace("org.apache.avro.file").fields().requiredLong("position")
+        .requiredLong("count").name("statistics").type().optional().array().items(FIELD_SCHEMA).endRecord();
+  }
+
+  private static final String SYNC_META = "index.sync";
+  private static final String END_META = "index.end";
+  private static final String FIELDS_META = "index.fields";
+
+  private final byte[] sync;
+  private final long[] positions;
+  /** the number of entries before each block, and finally in all blocks */
+  private final long[] firstRecords;
+  private final long end;
+  private final List<String> fields;
+  /** the statistics of each block, or null where not known */
+  private final Statistics[] statistics;
+
+  private DataFileIndex(byte[] sync, long[] positions, long[] firstRecords, long end, List<String> fields,
+      Statistics[] statistics) {
+    this.sync = sync;
+    this.positions = positions;
+    this.firstRecords = firstRecords;
+    this.end = end;
+    this.fields = fields;
+    this.statistics = statistics;
+  }
+
+  /** Return the number of blocks in the file. */
+  public int getBlockCount() {
+    return positions.length;
+  }
+
+  /** Return the number of entries in the file. */
+  public long getRecordCount() {
+    return firstRecords[positions.length];
+  }
+
+  /** Return the position of a block, as passed to {@link DataFileReader#seek}. */
+  public long getBlockPosition(int block) {
+    return positions[block];
+  }
+
+  /** Return the number of entries in the blocks before a block. */
+  public long getFirstRecord(int block) {
+    return firstRecords[block];
+  }
+
+  /** Return the position after the last block. */
+  public long getEndPosition() {
+    return end;
+  }
+
+  /** Return the synchronization marker of the indexed file. */
+  public byte[] getSync() {
+    return sync.clone();
+  }
+
+  /** Return the fields whose statistics are held for blocks. */
+  public List<String> getStatisticsFields() {
+    return fields;
+  }
+
+  /** Return true if the statistics of a block are known. */
+  public boolean hasStatistics(int block) {
+    return statistics[block] != null;
+  }
+
+  /**
+   * Return the least value of a field in a block, or null if it is not known or
+   * all values are null.
+   */
+  public Object getMin(int block, String field) {
+    int i = fields.indexOf(field);
+    return i < 0 || statistics[block] == null ? null : statistics[block].mins[i];
+  }
+
+  /**
+   * Return the greatest value of a field in a block, or null if it is not known
+   * or all values are null.
+   */
+  public Object getMax(int block, String field) {
+    int i = fields.indexOf(field);
+    return i < 0 || statistics[block] == null ? null : statistics[block].maxes[i];
+  }
+
+  /** Return the number of nulls of a field in a block, or -1 if not known. */
+  public long getNullCount(int block, String field) {
+    int i = fields.indexOf(field);
+    return i < 0 || statistics[block] == null ? -1 : statistics[block].nullCounts[i];
+  }
+
+  /** Returns the block at a position, or -1 if no block starts there. */
+  int findBlockAt(long position) {
+    int block = Arrays.binarySearch(positions, position);
+    return block < 0 ? -1 : block;
+  }
+
+  boolean isIndexOf(byte[] sync) {
+    return Arrays.equals(this.sync, sync);
+  }
+
+  /**
+   * Returns the block with the entry of the given number, counting from zero, or
+   * {@link #getBlockCount()} if it is the number of entries in the file.
+   */
+  public int findBlock(long record) {
+    if (record < 0 || record > getRecordCount()) {
+      throw new IndexOutOfBoundsException("No entry " + record + " in " + getRecordCount());
+    }
+    if (record == getRecordCount()) {
+      return positions.length;
+    }
+    // the last block starting at or before the entry
+    int low = 0;
+    int high = positions.length - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (firstRecords[mid] <= record) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /** Writes this index to a sidecar file. */
+  public void write(File file) throws IOException {
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setMeta(SYNC_META, sync);
+      writer.setMeta(END_META, end);
+      writer.setMeta(FIELDS_META, String.join(",", fields));
+      writer.create(SCHEMA, file);
+      GenericRecord entry = new GenericData.Record(SCHEMA);
+      for (int i = 0; i < positions.length; i++) {
+        entry.put(0, positions[i]);
+        entry.put(1, firstRecords[i + 1] - firstRecords[i]);
+        List<GenericRecord> blockStatistics = null;
+        if (statistics[i] != null) {
+          blockStatistics = new ArrayList<>(fields.size());
+          for (int f = 0; f < fields.size(); f++) {
+            GenericRecord field = new GenericData.Record(FIELD_SCHEMA);
+            field.put(0, statistics[i].nullCounts[f]);
+            field.put(1, statistics[i].mins[f]);
+            field.put(2, statistics[i].maxes[f]);
+            blockStatistics.add(field);
+          }
+        }
+        entry.put(2, blockStatistics);
+        writer.append(entry);
+      }
+    }
+  }
+
+  /** Reads an index from a sidecar file. */
+  public static DataFileIndex read(File file) throws IOException {
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      byte[] sync = reader.getMeta(SYNC_META);
+      if (sync == null) {
+        throw new IOException("Not a data file index: " + file);
+      }
+      String names = reader.getMetaString(FIELDS_META);
+      Builder builder = new Builder(names == null || names.isEmpty() ? new String[0] : names.split(","));
+      GenericRecord entry = null;
+      while (reader.hasNext()) {
+        entry = reader.next(entry);
+        @SuppressWarnings("unchecked")
+        List<GenericRecord> blockStatistics = (List<GenericRecord>) entry.get(2);
+        Statistics read = null;
+        if (blockStatistics != null && blockStatistics.size() == builder.fields.length) {
+          read = new Statistics(builder.fields.length);
+          for (int f = 0; f < builder.fields.length; f++) {
+            GenericRecord field = blockStatistics.get(f);
+            read.nullCounts[f] = (Long) field.get(0);
+            read.mins[f] = field.get(1) instanceof CharSequence ? field.get(1).toString() : field.get(1);
+            read.maxes[f] = field.get(2) instanceof CharSequence ? field.get(2).toString() : field.get(2);
+          }
+        }
+        builder.add((Long) entry.get(0), (Long) entry.get(1), read);
+      }
+      return builder.build(sync, reader.getMetaLong(END_META));
+    }
+  }
+
+  /**
+   * Compares values held in statistics, or bounds given for them: numbers by
+   * value, and strings as UTF-8 bytes.
+   *
+   * @throws AvroRuntimeException if they are not comparable.
+   */
+  static int compare(Object a, Object b) {
+    if (a instanceof Number && b instanceof Number) {
+      if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+        return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+      }
+      return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+    }
+    if (a instanceof CharSequence && b instanceof CharSequence) {
+      Utf8 u1 = a instanceof Utf8 ? (Utf8) a : new Utf8(a.toString());
+      Utf8 u2 = b instanceof Utf8 ? (Utf8) b : new Utf8(b.toString());
+      return u1.compareTo(u2);
+    }
+    throw new AvroRuntimeException("Not comparable: " + a + " and " + b);
+  }
+
+  /** The statistics of the fields of a block. */
+  static final class Statistics {
+    final Object[] mins;
+    final Object[] maxes;
+    final long[] nullCounts;
+
+    Statistics(int fields) {
+      this.mins = new Object[fields];
+      this.maxes = new Object[fields];
+      this.nullCounts = new long[fields];
+    }
+  }
+
+  /** Collects the statistics of the block being written. */
+  static final class Collector {
+    private final GenericData data;
+    private final Schema.Field[] fields;
+    private Statistics current;
+    private boolean known = true;
+
+    /**
+     * @throws AvroRuntimeException if a field is not a top-level field of a numeric
+     *                              or string type, or an optional one.
+     */
+    Collector(GenericData data, Schema schema, String[] names) {
+      this.data = data;
+      this.fields = new Schema.Field[names.length];
+      if (schema.getType() != Schema.Type.RECORD) {
+        throw new AvroRuntimeException("Statistics need a record schema: " + schema);
+      }
+      for (int i = 0; i < names.length; i++) {
+        Schema.Field field = schema.getField(names[i]);
+        if (field == null) {
+          throw new AvroRuntimeException("No field named " + names[i] + " in " + schema.getFullName());
+        }
+        switch (valueSchema(field.schema()).getType()) {
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+        case STRING:
+          break;
+        default:
+          throw new AvroRuntimeException("No statistics for field " + names[i] + " of type " + field.schema());
+        }
+        fields[i] = field;
+      }
+      this.current = new Statistics(names.length);
+    }
+
+    /** Returns the non-null branch of an optional field, or its schema. */
+    private static Schema valueSchema(Schema schema) {
+      if (schema.getType() == Schema.Type.UNION && schema.getTypes().size() == 2) {
+        List<Schema> types = schema.getTypes();
+        if (types.get(0).getType() == Schema.Type.NULL) {
+          return types.get(1);
+        }
+        if (types.get(1).getType() == Schema.Type.NULL) {
+          return types.get(0);
+        }
+      }
+      return schema;
+    }
+
+    /** Adds an entry of the block. */
+    void add(Object datum) {
+      for (int i = 0; i < fields.length; i++) {
+        Object value = data.getField(datum, fields[i].name(), fields[i].pos());
+        if (value == null) {
+          current.nullCounts[i]++;
+          continue;
+        }
+        Schema schema = valueSchema(fields[i].schema());
+        LogicalType logicalType = schema.getLogicalType();
+        if (logicalType != null && !(value instanceof Number || value instanceof CharSequence)) {
+          Conversion<?> conversion = data.getConversionByClass(value.getClass(), logicalType);
+          value = Conversions.convertToRawType(value, schema, logicalType, conversion);
+        }
+        if (value instanceof Float || value instanceof Double) {
+          if (Double.isNaN(((Number) value).doubleValue())) {
+            continue;
+          }
+        }
+        if (current.mins[i] == null || compare(value, current.mins[i]) < 0) {
+          current.mins[i] = held(value);
+        }
+        if (current.maxes[i] == null || compare(value, current.maxes[i]) > 0) {
+          current.maxes[i] = held(value);
+        }
+      }
+    }
+
+    /** Returns a value as held in statistics, not shared with the entry. */
+    private static Object held(Object value) {
+      if (value instanceof Integer) {
+        return ((Integer) value).longValue();
+      }
+      if (value instanceof Float) {
+        return ((Float) value).doubleValue();
+      }
+      if (value instanceof CharSequence) {
+        return value.toString();
+      }
+      return value;
+    }
+
+    /** Marks the statistics of the block as not known. */
+    void invalidate() {
+      known = false;
+    }
+
+    /** Returns the statistics of the block, if known, and starts another. */
+    Statistics finishBlock() {
+      Statistics result = known ? current : null;
+      current = new Statistics(fields.length);
+      known = true;
+      return result;
+    }
+  }
+
+  /** Collects the blocks of a file, in order. */
+  static class Builder {
+    private final String[] fields;
+    private long[] positions = new long[16];
+    private long[] firstRecords = new long[17];
+    private Statistics[] statistics = new Statistics[16];
+    private int size;
+
+    Builder() {
+      this(new String[0]);
+    }
+
+    Builder(String[] fields) {
+      this.fields = fields;
+    }
+
+    void add(long position, long count) {
+      add(position, count, null);
+    }
+
+    void add(long position, long count, Statistics blockStatistics) {
+      if (size == positions.length) {
+        positions = Arrays.copyOf(positions, size * 2);
+        firstRecords = Arrays.copyOf(firstRecords, size * 2 + 1);
+        statistics = Arrays.copyOf(statistics, size * 2);
+      }
+      positions[size] = position;
+      firstRecords[size + 1] = firstRecords[size] + count;
+      statistics[size] = blockStatistics;
+      size++;
+    }
+
+    /**
+     * Adds the blocks of another index, with their statistics if it has those of
+     * the same fields.
+     */
+    void addAll(DataFileIndex other) {
+      boolean sameFields = other.fields.equals(Arrays.asList(fields));
+      for (int i = 0; i < other.getBlockCount(); i++) {
+        add(other.positions[i], other.firstRecords[i + 1] - other.firstRecords[i],
+            sameFields ? other.statistics[i] : null);
+      }
+    }
+
+    DataFileIndex build(byte[] sync, long end) {
+      return new DataFileIndex(sync.clone(), Arrays.copyOf(positions, size), Arrays.copyOf(firstRecords, size + 1), end,
+          Collections.unmodifiableList(Arrays.asList(fields.clone())), Arrays.copyOf(statistics, size));
+    }
+  }
+}
@@ -21,8 +21,14 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.compress.utils.IOUtils;
@@ -39,6 +45,8 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
   private SeekableInputStream sin;
   private long blockStart;
   private int[] partialMatchTable;
+  private DataFileIndex index;
+  private BlockFilter blockFilter;
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
@@ -166,6 +174,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
    * not saved while writing a file, use {@link #sync(long)} instead.
    */
   public void seek(long position) throws IOException {
+    resetPrefetch();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
@@ -215,6 +224,120 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     blockStart = sin.tell();
   }
 
+  /**
+   * Sets the index of this file, as built by {@link #buildIndex()} or written by
+   * {@link DataFileWriter#setIndexFile(File)}, for {@link #seekToRecord(long)}
+   * and {@link #setBlockFilter(BlockFilter)}.
+   *
+   * @throws IllegalArgumentException if it is the index of another file.
+   */
+  public void setIndex(DataFileIndex index) {
+    if (index != null && !index.isIndexOf(getHeader().sync)) {
+      throw new IllegalArgumentException("Index of another file");
+    }
+    this.index = index;
+  }
+
+  /**
+   * Skips the blocks that a filter finds cannot match, with the statistics held
+   * by the index of {@link #setIndex}, so that they are neither read nor
+   * decompressed. Entries of the blocks that may match are all returned, so they
+   * must still be tested. Pass null to read all blocks again.
+   */
+  public void setBlockFilter(BlockFilter filter) {
+    this.blockFilter = filter;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (blockFilter != null && index != null && blockRemaining == 0) {
+      try {
+        skipFilteredBlocks();
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+    return super.hasNext();
+  }
+
+  /** Moves past the blocks from the next one that the filter cannot match. */
+  private void skipFilteredBlocks() throws IOException {
+    int block = index.findBlockAt(blockStart);
+    if (block < 0) {
+      return;
+    }
+    int next = block;
+    while (next < index.getBlockCount() && !blockFilter.mayMatch(index, next)) {
+      next++;
+    }
+    if (next != block) {
+      seek(next == index.getBlockCount() ? index.getEndPosition() : index.getBlockPosition(next));
+    }
+  }
+
+  /**
+   * Builds the index of this file by reading the head of each block, skipping
+   * their data, and positions this reader at the first block.
+   */
+  public DataFileIndex buildIndex() throws IOException {
+    seek(0);
+    vin.skipFixed(MAGIC.length);
+    for (long l = vin.readMapStart(); l > 0; l = vin.mapNext()) {
+      for (long i = 0; i < l; i++) {
+        vin.skipString();
+        vin.skipBytes();
+      }
+    }
+    vin.skipFixed(SYNC_SIZE);
+    long first = rawPosition();
+    long position = first;
+    DataFileIndex.Builder builder = new DataFileIndex.Builder();
+    while (!vin.isEnd()) {
+      long count = vin.readLong();
+      long size = vin.readLong();
+      if (size > Integer.MAX_VALUE || size < 0) {
+        throw new IOException("Block size invalid or too large for this " + "implementation: " + size);
+      }
+      vin.skipFixed((int) size);
+      vin.readFixed(syncBuffer);
+      if (!Arrays.equals(syncBuffer, getHeader().sync))
+        throw new IOException("Invalid sync!");
+      builder.add(position, count);
+      position = rawPosition();
+    }
+    seek(first);
+    return builder.build(getHeader().sync, position);
+  }
+
+  /**
+   * Moves to the entry of the given number, counting from zero, so that it is
+   * returned by the next call to {@link #next()}. The blocks before it are not
+   * read, but found with the index of {@link #setIndex}, or else with the one
+   * built by {@link #buildIndex()}.
+   *
+   * @throws IndexOutOfBoundsException if there are not as many entries.
+   */
+  public void seekToRecord(long record) throws IOException {
+    if (index == null) {
+      index = buildIndex();
+    }
+    int block = index.findBlock(record);
+    if (block == index.getBlockCount()) {
+      seek(index.getEndPosition());
+      return;
+    }
+    seek(index.getBlockPosition(block));
+    // the block of the entry is read even if filtered
+    BlockFilter filter = blockFilter;
+    blockFilter = null;
+    try {
+      hasNext();
+      skipEntries(record - index.getFirstRecord(block));
+    } finally {
+      blockFilter = filter;
+    }
+  }
+
   /**
    * Compute that Knuth-Morris-Pratt partial match table.
    *
@@ -242,7 +365,58 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    blockStart = isPrefetching() ? blockEnd : rawPosition();
+  }
+
+  @Override
+  long rawPosition() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
+  @Override
+  ByteBuffer readMapped(int length) throws IOException {
+    if (!(sin.in instanceof SeekableMappedFileInput)) {
+      return null;
+    }
+    ByteBuffer mapped = ((SeekableMappedFileInput) sin.in).slice(rawPosition(), length);
+    if (mapped != null) {
+      // skips the bytes vin has buffered, and seeks past the others
+      vin.skipFixed(length);
+    }
+    return mapped;
+  }
+
+  /**
+   * Returns a spliterator of the entries from the current position on, that
+   * splits the rest of the file at synchronization points, as splits of files are
+   * read by MapReduce. Splits are read by readers of their own, that inherit the
+   * index and block filter of this one, through views of the input with positions
+   * of their own. The input must be a {@link SeekableFileInput},
+   * {@link SeekableMappedFileInput} or {@link SeekableByteArrayInput} for the
+   * file to be split.
+   * <p/>
+   * Splits read in parallel share the {@link DatumReader}, which must then be
+   * thread-safe, as {@link org.apache.avro.generic.GenericDatumReader}s are. This
+   * reader is used for the first split, and should be closed once the entries
+   * were read.
+   */
+  @Override
+  public Spliterator<D> spliterator() {
+    try {
+      return new SyncSpliterator<>(this, previousSync(), sin.length());
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns a stream of the entries from the current position on, that may be
+   * made parallel.
+   *
+   * @see #spliterator()
+   */
+  public Stream<D> stream() {
+    return StreamSupport.stream(spliterator(), false);
   }
 
   /** Return the last synchronization point before our current position. */
@@ -261,6 +435,108 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     return sin.tell();
   }
 
+  /**
+   * Reads the blocks whose synchronization marker is in a range of the file, and
+   * splits in two ranges at the middle.
+   */
+  private static class SyncSpliterator<D> implements Spliterator<D> {
+    /** splits are not smaller than a few default blocks */
+    private static final long MIN_SPLIT_SIZE = 1L << 18;
+
+    private final DataFileReader<D> owner;
+    private final long end;
+    private long start;
+    /** reads the range from start, or null until it is read */
+    private DataFileReader<D> reader;
+
+    SyncSpliterator(DataFileReader<D> owner, long start, long end) {
+      this.owner = owner;
+      this.start = start;
+      this.end = end;
+      this.reader = owner;
+    }
+
+    private SyncSpliterator(DataFileReader<D> owner, long start, long end, DataFileReader<D> reader) {
+      this.owner = owner;
+      this.start = start;
+      this.end = end;
+      this.reader = reader;
+    }
+
+    /** Returns a view of the input of the owner, or null if there is none. */
+    private SeekableInput view() {
+      SeekableInput in = owner.sin.in;
+      if (in instanceof SeekableMappedFileInput) {
+        return ((SeekableMappedFileInput) in).view();
+      } else if (in instanceof SeekableFileInput) {
+        return ((SeekableFileInput) in).view();
+      } else if (in instanceof SeekableByteArrayInput) {
+        return ((SeekableByteArrayInput) in).view();
+      }
+      return null;
+    }
+
+    private DataFileReader<D> reader() throws IOException {
+      if (reader == null) {
+        reader = new DataFileReader<>(view(), owner.getDatumReader(), owner.getHeader());
+        reader.sync(start);
+        reader.index = owner.index;
+        reader.blockFilter = owner.blockFilter;
+      }
+      return reader;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super D> action) {
+      try {
+        DataFileReader<D> r = reader();
+        if (r.hasNext() && !r.pastSync(end)) {
+          action.accept(r.next());
+          return true;
+        }
+        return false;
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super D> action) {
+      try {
+        DataFileReader<D> r = reader();
+        while (r.hasNext() && !r.pastSync(end)) {
+          action.accept(r.next());
+        }
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    }
+
+    @Override
+    public Spliterator<D> trySplit() {
+      long from = reader != null ? reader.previousSync() : start;
+      if (end - from < 2 * MIN_SPLIT_SIZE || view() == null) {
+        return null;
+      }
+      // the prefix continues from where this was read, and this reads the rest
+      long middle = from + (end - from) / 2;
+      Spliterator<D> prefix = new SyncSpliterator<>(owner, from, middle, reader);
+      this.start = middle;
+      this.reader = null;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return Math.max(0, end - (reader != null ? reader.previousSync() : start));
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
+  }
+
   static class SeekableInputStream extends InputStream implements SeekableInput {
     private final byte[] oneByte = new byte[1];
     private SeekableInput in;
@@ -309,15 +585,9 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     @Override
     public long skip(long skip) throws IOException {
       long position = in.tell();
-      long length = in.length();
-      long remaining = length - position;
-      if (remaining > skip) {
-        in.seek(skip);
-        return in.tell() - position;
-      } else {
-        in.seek(remaining);
-        return in.tell() - position;
-      }
+      long remaining = in.length() - position;
+      in.seek(position + Math.max(0, Math.min(skip, remaining)));
+      return in.tell() - position;
     }
 
     @Override
@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+
+/**
+ * Sorts the entries of data files, in the order given by a schema's field
+ * <code>order</code> attributes, using bounded memory.
+ *
+ * <p>
+ * Entries are collected in their binary encoding and compared with
+ * {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)}, so
+ * they are never deserialized when the input is written with the sort schema.
+ * Entries that do not fit in the memory limit are sorted in runs that are
+ * written to temporary data files, then merged. The sort is stable: equal
+ * entries keep their input order.
+ */
+public class DataFileSorter {
+  private static final long DEFAULT_MEMORY_LIMIT = 64 * 1024 * 1024;
+  private static final int DEFAULT_MERGE_FACTOR = 64;
+  private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+  private static final int ENTRY_OVERHEAD = 16; // offset, length and two sort indexes
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private Schema schema;
+  private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+  private int mergeFactor = DEFAULT_MERGE_FACTOR;
+  private File tempDirectory;
+  private CodecFactory codec = CodecFactory.nullCodec();
+  private CodecFactory spillCodec = CodecFactory.nullCodec();
+
+  private final List<File> tempFiles = new ArrayList<>();
+
+  /**
+   * Set the schema to sort with. Inputs are read with it as their reader schema,
+   * and the output is written with it. By default the schema of the first input
+   * is used.
+   */
+  public DataFileSorter setSchema(Schema schema) {
+    this.schema = schema;
+    return this;
+  }
+
+  /**
+   * Set the approximate number of bytes of entries to hold in memory. The default
+   * is 64MB.
+   */
+  public DataFileSorter setMemoryLimit(long bytes) {
+    if (bytes <= 0)
+      throw new IllegalArgumentException("Invalid memory limit: " + bytes);
+    this.memoryLimit = bytes;
+    return this;
+  }
+
+  /** Set the maximum number of runs to merge at once. The default is 64. */
+  public DataFileSorter setMergeFactor(int runs) {
+    if (runs < 2)
+      throw new IllegalArgumentException("Invalid merge factor: " + runs);
+    this.mergeFactor = runs;
+    return this;
+  }
+
+  /**
+   * Set the directory for temporary files. By default the system temporary
+   * directory is used.
+   */
+  public DataFileSorter setTempDirectory(File directory) {
+    this.tempDirectory = directory;
+    return this;
+  }
+
+  /** Set the codec of the output. The default is no compression. */
+  public DataFileSorter setCodec(CodecFactory codec) {
+    this.codec = codec;
+    return this;
+  }
+
+  /**
+   * Set the codec of temporary files. The default is no compression, trading disk
+   * space for speed.
+   */
+  public DataFileSorter setSpillCodec(CodecFactory codec) {
+    this.spillCodec = codec;
+    return this;
+  }
+
+  /** Sort a file into another. Returns the number of entries written. */
+  public long sort(File input, File output) throws IOException {
+    try (OutputStream out = new FileOutputStream(output)) {
+      return sort(Collections.singletonList(new FileInputStream(input)), out);
+    }
+  }
+
+  /**
+   * Sort the entries of data files into a new data file. The inputs are read to
+   * their end and closed; the output is not closed. The non-reserved metadata of
+   * the first input is copied to the output. Returns the number of entries
+   * written.
+   */
+  public long sort(List<? extends InputStream> inputs, OutputStream output) throws IOException {
+    Schema sortSchema = schema;
+    DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setCodec(codec);
+    try {
+      List<File> runs = new ArrayList<>();
+      Buffer buffer = new Buffer();
+      boolean first = true;
+      for (InputStream input : inputs) {
+        // entries are resolved to the sort schema, if they are decoded at all
+        GenericDatumReader<Object> reader = new GenericDatumReader<>(null, sortSchema);
+        try (DataFileStream<Object> stream = new DataFileStream<>(input, reader)) {
+          if (first) {
+            for (String key : stream.getMetaKeys()) {
+              if (!DataFileWriter.isReservedMeta(key))
+                writer.setMeta(key, stream.getMeta(key));
+            }
+            if (sortSchema == null)
+              sortSchema = stream.getSchema();
+            first = false;
+          }
+          read(stream, sortSchema, buffer, runs);
+        }
+      }
+      if (sortSchema == null)
+        throw new IllegalArgumentException("No schema to sort with");
+
+      writer.create(sortSchema, output);
+      long count;
+      if (runs.isEmpty()) {
+        count = buffer.count;
+        buffer.sort(sortSchema);
+        buffer.writeTo(writer);
+      } else {
+        if (buffer.count > 0)
+          runs.add(spill(buffer, sortSchema));
+        count = merge(runs, sortSchema, writer);
+      }
+      writer.flush();
+      return count;
+    } finally {
+      for (File file : tempFiles)
+        file.delete();
+      tempFiles.clear();
+    }
+  }
+
+  /** Add the entries of an input to the buffer, spilling it when full. */
+  private void read(DataFileStream<Object> stream, Schema sortSchema, Buffer buffer, List<File> runs)
+      throws IOException {
+    Schema writerSchema = stream.getSchema();
+    if (!SchemaNormalization.toParsingForm(writerSchema).equals(SchemaNormalization.toParsingForm(sortSchema))) {
+      // resolve to the sort schema, and encode the result
+      GenericDatumWriter<Object> datumWriter = new GenericDatumWriter<>(sortSchema);
+      NonCopyingByteArrayOutputStream bytes = new NonCopyingByteArrayOutputStream(1024);
+      BinaryEncoder encoder = null;
+      Object datum = null;
+      while (stream.hasNext()) {
+        datum = stream.next(datum);
+        bytes.reset();
+        encoder = EncoderFactory.get().binaryEncoder(bytes, encoder);
+        datumWriter.write(datum, encoder);
+        encoder.flush();
+        ByteBuffer encoded = bytes.asByteBuffer();
+        add(buffer, encoded.array(), encoded.arrayOffset() + encoded.position(), encoded.remaining(), sortSchema, runs);
+      }
+      return;
+    }
+
+    // the encoding is the same: split blocks into entries without decoding them
+    Codec blockCodec = stream.resolveCodec();
+    DataFileStream.DataBlock block = null;
+    BinaryDecoder decoder = null;
+    while (stream.hasNextBlock()) {
+      block = stream.nextRawBlock(block);
+      block.decompressUsing(blockCodec);
+      ByteBuffer data = block.getAsByteBuffer();
+      byte[] array = data.array();
+      int end = data.arrayOffset() + data.limit();
+      decoder = DecoderFactory.get().binaryDecoder(array, data.arrayOffset() + data.position(), data.remaining(),
+          decoder);
+      for (long i = block.getNumEntries(); i > 0; i--) {
+        int start = end - decoder.inputStream().available();
+        GenericDatumReader.skip(sortSchema, decoder);
+        add(buffer, array, start, end - decoder.inputStream().available() - start, sortSchema, runs);
+      }
+    }
+  }
+
+  private void add(Buffer buffer, byte[] b, int start, int length, Schema sortSchema, List<File> runs)
+      throws IOException {
+    if (buffer.count > 0 && buffer.size(length) > memoryLimit)
+      runs.add(spill(buffer, sortSchema));
+    buffer.add(b, start, length);
+  }
+
+  /** Sort the buffer into a temporary file, and empty it. */
+  private File spill(Buffer buffer, Schema sortSchema) throws IOException {
+    buffer.sort(sortSchema);
+    File run = tempFile();
+    try (DataFileWriter<Object> writer = spillWriter(sortSchema, run)) {
+      buffer.writeTo(writer);
+    }
+    buffer.clear();
+    return run;
+  }
+
+  /**
+   * Merge runs, at most {@link #setMergeFactor(int)} at a time, into a writer.
+   * Returns the number of entries written.
+   */
+  private long merge(List<File> runs, Schema sortSchema, DataFileWriter<Object> writer) throws IOException {
+    while (runs.size() > mergeFactor) {
+      List<File> merged = new ArrayList<>();
+      for (int i = 0; i < runs.size(); i += mergeFactor) {
+        List<File> group = runs.subList(i, Math.min(i + mergeFactor, runs.size()));
+        if (group.size() == 1) {
+          merged.add(group.get(0));
+          continue;
+        }
+        File run = tempFile();
+        try (DataFileWriter<Object> runWriter = spillWriter(sortSchema, run)) {
+          mergeRuns(group, sortSchema, runWriter);
+        }
+        for (File file : group)
+          file.delete();
+        merged.add(run);
+      }
+      runs = merged;
+    }
+    return mergeRuns(runs, sortSchema, writer);
+  }
+
+  private long mergeRuns(List<File> runs, Schema sortSchema, DataFileWriter<Object> writer) throws IOException {
+    PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(), (a, b) -> {
+      int c = BinaryData.compare(a.data, a.start, a.length, b.data, b.start, b.length, sortSchema);
+      return c != 0 ? c : Integer.compare(a.index, b.index); // keep input order of equal entries
+    });
+    List<Run> open = new ArrayList<>();
+    long count = 0;
+    try {
+      for (File file : runs) {
+        Run run = new Run(file, open.size(), sortSchema);
+        open.add(run);
+        if (run.next())
+          queue.add(run);
+      }
+      Run run;
+      while ((run = queue.poll()) != null) {
+        writer.appendEncoded(ByteBuffer.wrap(run.data, run.start, run.length));
+        count++;
+        if (run.next())
+          queue.add(run);
+      }
+    } finally {
+      for (Run run : open)
+        run.close();
+    }
+    return count;
+  }
+
+  private DataFileWriter<Object> spillWriter(Schema sortSchema, File file) throws IOException {
+    return new DataFileWriter<>(new GenericDatumWriter<>()).setCodec(spillCodec).create(sortSchema, file);
+  }
+
+  private File tempFile() throws IOException {
+    File file = File.createTempFile("avro-sort", ".avro", tempDirectory);
+    tempFiles.add(file);
+    return file;
+  }
+
+  /** Sorted entries of a temporary file, read in their binary encoding. */
+  private static class Run {
+    private final DataFileStream<Object> stream;
+    private final int index;
+    private final Schema schema;
+    private final Codec codec;
+    private DataFileStream.DataBlock block;
+    private BinaryDecoder decoder;
+    private long remaining;
+    private int end;
+
+    byte[] data;
+    int start;
+    int length;
+
+    Run(File file, int index, Schema schema) throws IOException {
+      this.stream = new DataFileStream<>(new FileInputStream(file), new GenericDatumReader<>());
+      this.index = index;
+      this.schema = schema;
+      this.codec = stream.resolveCodec();
+    }
+
+    /** Move to the next entry. Returns false at the end of the run. */
+    boolean next() throws IOException {
+      while (remaining == 0) {
+        if (!stream.hasNextBlock())
+          return false;
+        block = stream.nextRawBlock(block);
+        block.decompressUsing(codec);
+        ByteBuffer buffer = block.getAsByteBuffer();
+        data = buffer.array();
+        end = buffer.arrayOffset() + buffer.limit();
+        decoder = DecoderFactory.get().binaryDecoder(data, buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+            decoder);
+        remaining = block.getNumEntries();
+      }
+      start = end - decoder.inputStream().available();
+      GenericDatumReader.skip(schema, decoder);
+      length = end - decoder.inputStream().available() - start;
+      remaining--;
+      return true;
+    }
+
+    void close() throws IOException {
+      stream.close();
+    }
+  }
+
+  /** Entries held in memory, in their binary encoding. */
+  private static class Buffer {
+    private byte[] data = new byte[8192];
+    private int[] offsets = new int[1024];
+    private int[] lengths = new int[1024];
+    private int[] order = new int[0];
+    private int position;
+    int count;
+
+    /** The memory used once an entry of a length is added. */
+    long size(int length) {
+      return (long) position + length + (long) (count + 1) * ENTRY_OVERHEAD;
+    }
+
+    void add(byte[] b, int start, int length) {
+      if (data.length - position < length) {
+        long needed = (long) position + length;
+        if (needed > MAX_BUFFER_SIZE)
+          throw new IllegalStateException("Sort buffer too large: " + needed);
+        data = Arrays.copyOf(data, (int) Math.min(MAX_BUFFER_SIZE, Math.max(needed, 2L * data.length)));
+      }
+      if (count == offsets.length) {
+        offsets = Arrays.copyOf(offsets, 2 * count);
+        lengths = Arrays.copyOf(lengths, 2 * count);
+      }
+      System.arraycopy(b, start, data, position, length);
+      offsets[count] = position;
+      lengths[count] = length;
+      position += length;
+      count++;
+    }
+
+    void sort(Schema schema) {
+      order = new int[count];
+      for (int i = 0; i < count; i++)
+        order[i] = i;
+      mergeSort(order, new int[count], 0, count, schema);
+    }
+
+    /** A stable sort of entry indexes. */
+    private void mergeSort(int[] a, int[] tmp, int from, int to, Schema schema) {
+      if (to - from <= INSERTION_SORT_THRESHOLD) {
+        for (int i = from + 1; i < to; i++) {
+          int entry = a[i];
+          int j = i;
+          for (; j > from && compare(a[j - 1], entry, schema) > 0; j--)
+            a[j] = a[j - 1];
+          a[j] = entry;
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      mergeSort(a, tmp, from, mid, schema);
+      mergeSort(a, tmp, mid, to, schema);
+      if (compare(a[mid - 1], a[mid], schema) <= 0)
+        return; // already in order
+      System.arraycopy(a, from, tmp, from, to - from);
+      int i = from;
+      int j = mid;
+      for (int k = from; k < to; k++) {
+        if (j >= to || (i < mid && compare(tmp[i], tmp[j], schema) <= 0))
+          a[k] = tmp[i++];
+        else
+          a[k] = tmp[j++];
+      }
+    }
+
+    private int compare(int x, int y, Schema schema) {
+      return BinaryData.compare(data, offsets[x], lengths[x], data, offsets[y], lengths[y], schema);
+    }
+
+    /** Write the entries, in the order of the last sort. */
+    void writeTo(DataFileWriter<Object> writer) throws IOException {
+      for (int i = 0; i < count; i++) {
+        int entry = order[i];
+        writer.appendEncoded(ByteBuffer.wrap(data, offsets[entry], lengths[entry]));
+      }
+    }
+
+    void clear() {
+      position = 0;
+      count = 0;
+      order = new int[0];
+    }
+  }
+}
@@ -21,9 +21,11 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Closeable;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -31,6 +33,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
@@ -38,6 +45,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.io.DatumReader;
 
 /**
@@ -75,10 +83,30 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   BinaryDecoder datumIn = null;
 
   ByteBuffer blockBuffer;
+  /** direct buffer snappy blocks of mapped inputs are decompressed into */
+  private ByteBuffer directBlock;
   long blockCount; // # entries in block
   long blockRemaining; // # entries remaining in block
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
+  /** creates the codecs of this file, that share what they load from it */
+  private CodecFactory codecFactory;
+
+  private Executor prefetchExecutor;
+  private int prefetchBlocks;
+  private boolean prefetchDecode;
+  /** blocks read ahead, in file order, being decompressed */
+  private final Queue<FutureTask<DataBlock>> prefetched = new ArrayDeque<>();
+  /** idle codecs for decompressing prefetched blocks */
+  private final Queue<Codec> prefetchCodecs = new ConcurrentLinkedQueue<>();
+  /** arrays of blocks read ahead that were returned, to read others into */
+  private final Queue<byte[]> prefetchArrays = new ConcurrentLinkedQueue<>();
+  /** the block read ahead whose entries are returned */
+  private DataBlock prefetchedBlock;
+  /** entries of the current block, if decoded ahead */
+  private Object[] prefetchedEntries;
+  /** position after the current block, if read ahead, or else -1 */
+  long blockEnd = -1;
 
   /**
    * Construct a reader for an input stream. For file-based input, use
@@ -141,6 +169,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     header.metaKeyList = Collections.unmodifiableList(header.metaKeyList);
     header.schema = new Schema.Parser().setValidate(false).setValidateDefaults(false)
         .parse(getMetaString(DataFileConstants.SCHEMA));
+    this.codecFactory = null;
     this.codec = resolveCodec();
     reader.setSchema(header.schema);
   }
@@ -148,17 +177,18 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Initialize the stream without reading from it. */
   void initialize(Header header) throws IOException {
     this.header = header;
+    this.codecFactory = null;
     this.codec = resolveCodec();
     reader.setSchema(header.schema);
   }
 
   Codec resolveCodec() {
-    String codecStr = getMetaString(DataFileConstants.CODEC);
-    if (codecStr != null) {
-      return CodecFactory.fromString(codecStr).createInstance();
-    } else {
-      return CodecFactory.nullCodec().createInstance();
+    if (codecFactory == null) {
+      String codecStr = getMetaString(DataFileConstants.CODEC);
+      CodecFactory factory = codecStr != null ? CodecFactory.fromString(codecStr) : CodecFactory.nullCodec();
+      codecFactory = factory.forFile(header.meta);
     }
+    return codecFactory.createInstance();
   }
 
   /**
@@ -168,6 +198,10 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return header;
   }
 
+  DatumReader<D> getDatumReader() {
+    return reader;
+  }
+
   /** Return the schema used in this file. */
   public Schema getSchema() {
     return header.schema;
@@ -209,11 +243,219 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
 
   private DataBlock block = null;
 
+  /**
+   * Reads, and decompresses using <i>executor</i>, up to <i>blocks</i> blocks
+   * ahead of the one whose entries are returned, so that blocks are decompressed
+   * in parallel and memory stays bounded. Blocks are still returned in file
+   * order. Pass zero blocks to read one block at a time again.
+   * <p/>
+   * If <i>decode</i> is true, the entries of blocks are read ahead too, so the
+   * {@link DatumReader} must be thread-safe, as
+   * {@link org.apache.avro.generic.GenericDatumReader}s are, and instances passed
+   * to {@link #next(Object)} are not reused.
+   * <p/>
+   * The input is read ahead as well, so {@link DataFileReader#tell()} is past the
+   * current block, while {@link DataFileReader#previousSync()} is not.
+   */
+  public void setPrefetch(Executor executor, int blocks, boolean decode) {
+    if (blocks < 0) {
+      throw new IllegalArgumentException("Invalid number of blocks: " + blocks);
+    }
+    if (blocks > 0 && executor == null) {
+      throw new IllegalArgumentException("Prefetching needs an executor");
+    }
+    if (blocks == 0) {
+      // blocks already read ahead are still returned
+      prefetchBlocks = 0;
+      return;
+    }
+    this.prefetchExecutor = executor;
+    this.prefetchBlocks = blocks;
+    this.prefetchDecode = decode;
+  }
+
+  /** Drops the blocks read ahead, once the input was repositioned. */
+  void resetPrefetch() {
+    for (FutureTask<DataBlock> task : prefetched) {
+      task.cancel(false);
+    }
+    prefetched.clear();
+    prefetchedEntries = null;
+    prefetchedBlock = null;
+    blockEnd = -1;
+  }
+
+  /** Returns true if blocks are read ahead. */
+  boolean isPrefetching() {
+    return prefetchBlocks > 0 || !prefetched.isEmpty();
+  }
+
+  /**
+   * Returns the position in the input after the last block read from it, if
+   * known, or else -1.
+   */
+  long rawPosition() throws IOException {
+    return -1;
+  }
+
+  /** Reads blocks ahead until as many as configured are being decompressed. */
+  private void fillPrefetch() throws IOException {
+    while (prefetched.size() < prefetchBlocks) {
+      FutureTask<DataBlock> task;
+      try {
+        DataBlock raw = readAhead();
+        if (raw == null) {
+          return;
+        }
+        task = new FutureTask<>(() -> decompressAhead(raw));
+        prefetched.add(task);
+      } catch (IOException e) {
+        // reported once the blocks before were read
+        task = new FutureTask<>(() -> {
+          throw e;
+        });
+        task.run();
+        prefetched.add(task);
+        prefetchBlocks = 0;
+        return;
+      }
+      prefetchExecutor.execute(task);
+    }
+  }
+
+  /** Reads the next block, without changing the current one. */
+  private DataBlock readAhead() throws IOException {
+    long count;
+    long size;
+    if (availableBlock) {
+      count = blockRemaining;
+      size = blockSize;
+      availableBlock = false;
+    } else {
+      try {
+        if (vin.isEnd()) {
+          return null;
+        }
+        count = vin.readLong();
+      } catch (EOFException e) {
+        return null;
+      }
+      size = vin.readLong();
+      if (size > Integer.MAX_VALUE || size < 0) {
+        throw new IOException("Block size invalid or too large for this " + "implementation: " + size);
+      }
+    }
+    byte[] array = prefetchArrays.poll();
+    if (array == null || array.length < size) {
+      array = new byte[(int) size];
+    }
+    DataBlock raw = new DataBlock(ByteBuffer.wrap(array, 0, (int) size), count);
+    readBlockData(raw.data, raw.blockSize);
+    byte[] sync = new byte[DataFileConstants.SYNC_SIZE];
+    vin.readFixed(sync);
+    if (!Arrays.equals(sync, header.sync))
+      throw new IOException("Invalid sync!");
+    raw.end = rawPosition();
+    return raw;
+  }
+
+  /** Decompresses, and maybe decodes, a block read ahead. */
+  private DataBlock decompressAhead(DataBlock raw) throws IOException {
+    Codec c = prefetchCodecs.poll();
+    if (c == null) {
+      c = resolveCodec();
+    }
+    byte[] spare = prefetchArrays.poll();
+    raw.spare = spare != null ? ByteBuffer.wrap(spare) : null;
+    // the codec leaves its input alone, so it stays available to nextRawBlock
+    raw.compressed = raw.getAsByteBuffer();
+    try {
+      raw.decompressUsing(c);
+    } finally {
+      prefetchCodecs.add(c);
+    }
+    if (prefetchDecode && raw.numEntries <= Integer.MAX_VALUE) {
+      BinaryDecoder in = DecoderFactory.get().binaryDecoder(raw.data, raw.offset, raw.blockSize, null);
+      Object[] entries = new Object[(int) raw.numEntries];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = reader.read(null, in);
+      }
+      if (!in.isEnd()) {
+        throw new IOException("Block read partially, the data may be corrupt");
+      }
+      raw.entries = entries;
+    }
+    return raw;
+  }
+
+  /** Makes the next block read ahead the current one. */
+  private void nextPrefetched() throws IOException {
+    fillPrefetch();
+    DataBlock next = takePrefetched();
+    if (next == null) {
+      return;
+    }
+    // keep the pipeline full while this block is read
+    fillPrefetch();
+    releasePrefetched();
+    prefetchedBlock = next;
+    blockCount = blockRemaining = next.numEntries;
+    blockSize = next.blockSize;
+    blockEnd = next.end;
+    blockBuffer = next.getAsByteBuffer();
+    prefetchedEntries = next.entries;
+    datumIn = next.entries != null ? null
+        : DecoderFactory.get().binaryDecoder(next.data, next.offset, next.blockSize, datumIn);
+  }
+
+  /**
+   * Waits for the next block read ahead, and returns it, or null if there is
+   * none.
+   */
+  private DataBlock takePrefetched() throws IOException {
+    FutureTask<DataBlock> task = prefetched.poll();
+    if (task == null) {
+      return null;
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /** Lets the arrays of the current block read ahead be read into again. */
+  private void releasePrefetched() {
+    if (prefetchedBlock != null) {
+      prefetchArrays.add(prefetchedBlock.data);
+      if (prefetchedBlock.spare != null) {
+        prefetchArrays.add(prefetchedBlock.spare.array());
+      }
+      prefetchedBlock = null;
+    }
+  }
+
   /** True if more entries remain in this file. */
   @Override
   public boolean hasNext() {
     try {
-      if (blockRemaining == 0) {
+      if (blockRemaining == 0 && isPrefetching()) {
+        if (null != datumIn && !datumIn.isEnd()) {
+          throw new IOException("Block read partially, the data may be corrupt");
+        }
+        prefetchedEntries = null;
+        nextPrefetched();
+      } else if (blockRemaining == 0) {
         // check that the previous block was finished
         if (null != datumIn) {
           boolean atEnd = datumIn.isEnd();
@@ -222,11 +464,24 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
           }
         }
         if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
-              blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+          ByteBuffer mapped = codec instanceof NullCodec || codec instanceof SnappyCodec ? nextMappedBlock() : null;
+          if (mapped != null) {
+            // decode uncompressed blocks in place, and decompress snappy ones
+            // straight from the mapping
+            if (codec instanceof NullCodec) {
+              blockBuffer = mapped;
+            } else {
+              directBlock = codec.decompress(mapped, directBlock);
+              blockBuffer = directBlock;
+            }
+            datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.duplicate(), datumIn);
+          } else {
+            block = nextRawBlock(block);
+            block.decompressUsing(codec);
+            blockBuffer = block.getAsByteBuffer();
+            datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
+                blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+          }
         }
       }
       return blockRemaining != 0;
@@ -260,13 +515,37 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   public D next(D reuse) throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
-    D result = reader.read(reuse, datumIn);
+    D result;
+    if (prefetchedEntries != null) {
+      @SuppressWarnings("unchecked")
+      D entry = (D) prefetchedEntries[(int) (blockCount - blockRemaining)];
+      result = entry;
+    } else {
+      result = reader.read(reuse, datumIn);
+    }
     if (0 == --blockRemaining) {
       blockFinished();
     }
     return result;
   }
 
+  /** Skips <i>n</i> entries, without reading them into datums. */
+  void skipEntries(long n) throws IOException {
+    while (n > 0 && hasNext()) {
+      long skip = Math.min(n, blockRemaining);
+      if (prefetchedEntries == null) {
+        for (long i = 0; i < skip; i++) {
+          GenericDatumReader.skip(header.schema, datumIn);
+        }
+      }
+      blockRemaining -= skip;
+      n -= skip;
+      if (blockRemaining == 0) {
+        blockFinished();
+      }
+    }
+  }
+
   /** Expert: Return the next block in the file, as binary-encoded data. */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
@@ -275,6 +554,13 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
       throw new IllegalStateException("Not at block start.");
     blockRemaining = 0;
     datumIn = null;
+    prefetchedEntries = null;
+    if (!blockBuffer.hasArray()) {
+      ByteBuffer copy = ByteBuffer.allocate(blockBuffer.remaining());
+      copy.put(blockBuffer.duplicate());
+      ((Buffer) copy).flip();
+      blockBuffer = copy;
+    }
     return blockBuffer;
   }
 
@@ -292,9 +578,14 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     // nothing for the stream impl
   }
 
+  /**
+   * Returns true if another raw block follows. Blocks already read ahead by
+   * {@link #setPrefetch} come first, so that raw blocks are returned in file
+   * order.
+   */
   boolean hasNextBlock() {
     try {
-      if (availableBlock)
+      if (availableBlock || !prefetched.isEmpty())
         return true;
       if (vin.isEnd())
         return false;
@@ -317,14 +608,21 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
+    if (!prefetched.isEmpty()) {
+      return nextPrefetchedRawBlock(reuse);
+    }
+    if (reuse == null) {
       reuse = new DataBlock(blockRemaining, (int) blockSize);
     } else {
+      if (reuse.data.length < (int) blockSize) {
+        reuse.data = new byte[(int) blockSize];
+      }
       reuse.numEntries = blockRemaining;
       reuse.blockSize = (int) blockSize;
+      reuse.offset = 0;
     }
     // throws if it can't read the size requested
-    vin.readFixed(reuse.data, 0, reuse.blockSize);
+    readBlockData(reuse.data, reuse.blockSize);
     vin.readFixed(syncBuffer);
     availableBlock = false;
     if (!Arrays.equals(syncBuffer, header.sync))
@@ -332,6 +630,63 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return reuse;
   }
 
+  /** Returns the next block read ahead, still compressed, in <i>reuse</i>. */
+  private DataBlock nextPrefetchedRawBlock(DataBlock reuse) throws IOException {
+    DataBlock next = takePrefetched();
+    ByteBuffer compressed = next.compressed;
+    int size = compressed.remaining();
+    if (reuse == null) {
+      reuse = new DataBlock(next.numEntries, size);
+    } else {
+      if (reuse.data.length < size) {
+        reuse.data = new byte[size];
+      }
+      reuse.numEntries = next.numEntries;
+      reuse.blockSize = size;
+      reuse.offset = 0;
+    }
+    compressed.get(reuse.data, 0, size);
+    blockCount = blockRemaining = next.numEntries;
+    blockSize = size;
+    // the entries of the current block are not returned anymore
+    releasePrefetched();
+    prefetchedBlock = next;
+    prefetchedEntries = null;
+    datumIn = null;
+    return reuse;
+  }
+
+  /**
+   * Returns the next <i>length</i> bytes of the input, in place, and skips them,
+   * if the input is memory-mapped and they are not buffered already, or else
+   * returns null.
+   */
+  ByteBuffer readMapped(int length) throws IOException {
+    return null;
+  }
+
+  /** Reads the data of a block, copying it only once if the input is mapped. */
+  private void readBlockData(byte[] data, int length) throws IOException {
+    ByteBuffer mapped = readMapped(length);
+    if (mapped != null) {
+      mapped.get(data, 0, length);
+    } else {
+      vin.readFixed(data, 0, length);
+    }
+  }
+
+  /** Returns the data of the next block, in place, if the input is mapped. */
+  private ByteBuffer nextMappedBlock() throws IOException {
+    ByteBuffer mapped = readMapped((int) blockSize);
+    if (mapped != null) {
+      vin.readFixed(syncBuffer);
+      availableBlock = false;
+      if (!Arrays.equals(syncBuffer, header.sync))
+        throw new IOException("Invalid sync!");
+    }
+    return mapped;
+  }
+
   /** Not supported. */
   @Override
   public void remove() {
@@ -341,6 +696,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    resetPrefetch();
     vin.inputStream().close();
   }
 
@@ -350,6 +706,14 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     private int blockSize;
     private int offset = 0;
     private boolean flushOnWrite = true;
+    /** position in the input after this block, if read ahead */
+    private long end = -1;
+    /** the entries of this block, if decoded ahead */
+    private Object[] entries;
+    /** the data of this block before it was decompressed, if read ahead */
+    private ByteBuffer compressed;
+    /** an array to compress or decompress into, that does not hold the data */
+    private ByteBuffer spare;
 
     private DataBlock(long numEntries, int blockSize) {
       this.data = new byte[blockSize];
@@ -388,16 +752,31 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
+    /** Sets an array to compress or decompress into, that is not the data. */
+    void setSpare(ByteBuffer spare) {
+      this.spare = spare;
+    }
+
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      setResult(c.decompress(getAsByteBuffer(), spare));
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
+      setResult(c.compress(getAsByteBuffer(), spare));
+    }
+
+    /**
+     * Makes a result the data of this block, so that, if it is in another array,
+     * the next result goes to the one of the data before.
+     */
+    private void setResult(ByteBuffer result) {
+      byte[] input = data;
       data = result.array();
+      offset = result.arrayOffset() + result.position();
       blockSize = result.remaining();
+      if (data != input) {
+        spare = ByteBuffer.wrap(input);
+      }
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
@@ -30,14 +30,22 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
@@ -74,10 +82,29 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   private int syncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
 
   private boolean isOpen;
+  private CodecFactory codecFactory;
   private Codec codec;
 
   private boolean flushOnEveryBlock = true;
 
+  private Executor compressionExecutor;
+  private int maxPendingBlocks;
+  /** blocks being compressed, in file order */
+  private final Queue<PendingBlock> pendingBlocks = new ArrayDeque<>();
+  /** idle codecs for compressing blocks, each used by one worker at a time */
+  private final Queue<Codec> compressionCodecs = new ConcurrentLinkedQueue<>();
+  /** buffers of blocks that were written, to be reused */
+  private final Queue<NonCopyingByteArrayOutputStream> freeBuffers = new ArrayDeque<>();
+  /** arrays that blocks were compressed into, to compress others into */
+  private final Queue<ByteBuffer> compressedBuffers = new ConcurrentLinkedQueue<>();
+
+  private File indexFile;
+  private DataFileIndex.Builder index;
+  private String[] statisticsFields;
+  private DataFileIndex.Collector statistics;
+  /** the position in the file of the start of the output */
+  private long indexBase;
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -99,8 +126,61 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
+    for (Map.Entry<String, byte[]> entry : c.getFileMeta().entrySet()) {
+      setMetaInternal(entry.getKey(), entry.getValue());
+    }
+    return this;
+  }
+
+  /**
+   * Configures this writer to compress blocks using <i>executor</i>, with a
+   * {@link Codec} instance per worker, while further data is appended. Blocks are
+   * still written in order. Once <i>maxPendingBlocks</i> blocks are being
+   * compressed, appending waits for the first of them to be written, which bounds
+   * the memory in use. Pass zero blocks to compress blocks on the appending
+   * thread, which is the default. May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setCompressionExecutor(Executor executor, int maxPendingBlocks) {
+    assertNotOpen();
+    if (maxPendingBlocks < 0) {
+      throw new IllegalArgumentException("Invalid number of blocks: " + maxPendingBlocks);
+    }
+    if (maxPendingBlocks > 0 && executor == null) {
+      throw new IllegalArgumentException("Compressing blocks in parallel needs an executor");
+    }
+    this.compressionExecutor = executor;
+    this.maxPendingBlocks = maxPendingBlocks;
+    return this;
+  }
+
+  /**
+   * Configures this writer to write the {@link DataFileIndex} of the file to a
+   * sidecar file when closed. May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setIndexFile(File indexFile) {
+    assertNotOpen();
+    this.indexFile = indexFile;
+    return this;
+  }
+
+  /**
+   * Configures this writer to hold in its index the minimum, maximum and number
+   * of nulls of some top-level fields in each block, for
+   * {@link DataFileReader#setBlockFilter(BlockFilter)}. Fields must be of a
+   * numeric or string type, or optional ones. May not be reset after writes have
+   * begun.
+   * <p/>
+   * Statistics are only held by the sidecar index file of
+   * {@link #setIndexFile(File)}: the metadata of a data file is written before
+   * its blocks, so the file itself is not changed, and readers that do not know
+   * the index see none of it. Creating the file fails if no index file is set.
+   */
+  public DataFileWriter<D> setStatisticsFields(String... fields) {
+    assertNotOpen();
+    this.statisticsFields = fields.length == 0 ? null : fields.clone();
     return this;
   }
 
@@ -218,16 +298,34 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public DataFileWriter<D> appendTo(SeekableInput in, OutputStream out) throws IOException {
     assertNotOpen();
     DataFileReader<D> reader = new DataFileReader<>(in, new GenericDatumReader<>());
+    if (indexFile != null) {
+      // the blocks already in the file are indexed too, with their statistics if
+      // the index file is up to date
+      DataFileIndex existing = null;
+      if (indexFile.exists()) {
+        existing = DataFileIndex.read(indexFile);
+        if (!existing.isIndexOf(reader.getHeader().sync) || existing.getEndPosition() != in.length()) {
+          existing = null;
+        }
+      }
+      if (existing == null) {
+        existing = reader.buildIndex();
+      }
+      this.index = new DataFileIndex.Builder(statisticsFields != null ? statisticsFields : new String[0]);
+      index.addAll(existing);
+      this.indexBase = in.length();
+    }
     this.schema = reader.getSchema();
     this.sync = reader.getHeader().sync;
     this.meta.putAll(reader.getHeader().meta);
     byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
     if (codecBytes != null) {
       String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
+      this.codecFactory = CodecFactory.fromString(strCodec).forFile(meta);
     } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
     }
+    this.codec = codecFactory.createInstance();
 
     init(out);
 
@@ -235,19 +333,35 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   }
 
   private void init(OutputStream outs) throws IOException {
+    if (statisticsFields != null) {
+      if (indexFile == null) {
+        throw new AvroRuntimeException("Statistics are written to an index file, but none is set");
+      }
+      GenericData data = dout instanceof GenericDatumWriter ? ((GenericDatumWriter<D>) dout).getData()
+          : GenericData.get();
+      this.statistics = new DataFileIndex.Collector(data, schema, statisticsFields);
+    }
     this.underlyingStream = outs;
     this.out = new BufferedFileOutputStream(outs);
     EncoderFactory efactory = new EncoderFactory();
     this.vout = efactory.directBinaryEncoder(out, null);
     dout.setSchema(schema);
-    buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
+    buffer = newBuffer();
     this.bufOut = efactory.directBinaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
+    }
+    if (indexFile != null && index == null) {
+      this.index = new DataFileIndex.Builder(statisticsFields != null ? statisticsFields : new String[0]);
     }
     this.isOpen = true;
   }
 
+  private NonCopyingByteArrayOutputStream newBuffer() {
+    return new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
+  }
+
   private static byte[] generateSync() {
     try {
       MessageDigest digester = MessageDigest.getInstance("MD5");
@@ -312,6 +426,10 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     int usedBuffer = bufferInUse();
     try {
       dout.write(datum, bufOut);
+      if (statistics != null) {
+        // statistics may only be wider than the block if adding them fails
+        statistics.add(datum);
+      }
     } catch (IOException | RuntimeException e) {
       resetBufferTo(usedBuffer);
       throw new AppendWriteException(e);
@@ -338,6 +456,9 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public void appendEncoded(ByteBuffer datum) throws IOException {
     assertOpen();
     bufOut.writeFixed(datum);
+    if (statistics != null) {
+      statistics.invalidate();
+    }
     blockCount++;
     writeIfBlockFull();
   }
@@ -379,33 +500,49 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePendingBlocks(0);
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
       // copy raw bytes
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        writeBlockTo(nextBlockRaw, null);
       }
     } else {
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
         nextBlockRaw.decompressUsing(otherCodec);
         nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        writeBlockTo(nextBlockRaw, null);
       }
     }
   }
 
   private void writeBlock() throws IOException {
-    if (blockCount > 0) {
+    if (blockCount > 0 && maxPendingBlocks > 0) {
+      bufOut.flush();
+      DataBlock block = new DataBlock(buffer.asByteBuffer(), blockCount);
+      block.setFlushOnWrite(flushOnEveryBlock);
+      FutureTask<DataBlock> task = new FutureTask<>(() -> compressInParallel(block));
+      pendingBlocks.add(new PendingBlock(buffer, task, finishStatistics()));
+      // further data is appended to another buffer while this one is compressed
+      NonCopyingByteArrayOutputStream next = freeBuffers.poll();
+      buffer = next != null ? next : newBuffer();
+      bufOut = EncoderFactory.get().directBinaryEncoder(buffer, bufOut);
+      blockCount = 0;
+      compressionExecutor.execute(task);
+      writePendingBlocks(maxPendingBlocks - 1);
+    } else if (blockCount > 0) {
       try {
         bufOut.flush();
         ByteBuffer uncompressed = buffer.asByteBuffer();
         DataBlock block = new DataBlock(uncompressed, blockCount);
         block.setFlushOnWrite(flushOnEveryBlock);
+        block.setSpare(compressedBuffers.poll());
         block.compressUsing(codec);
-        block.writeBlockTo(vout, sync);
+        writeBlockTo(block, finishStatistics());
+        releaseCompressed(block, uncompressed);
       } finally {
         buffer.reset();
         blockCount = 0;
@@ -413,6 +550,82 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  private DataFileIndex.Statistics finishStatistics() {
+    return statistics != null ? statistics.finishBlock() : null;
+  }
+
+  private void writeBlockTo(DataBlock block, DataFileIndex.Statistics blockStatistics) throws IOException {
+    if (index != null) {
+      index.add(indexBase + out.tell(), block.getNumEntries(), blockStatistics);
+    }
+    block.writeBlockTo(vout, sync);
+  }
+
+  private DataBlock compressInParallel(DataBlock block) throws IOException {
+    Codec c = compressionCodecs.poll();
+    if (c == null) {
+      c = codecFactory.createInstance();
+    }
+    block.setSpare(compressedBuffers.poll());
+    try {
+      block.compressUsing(c);
+    } finally {
+      compressionCodecs.add(c);
+    }
+    return block;
+  }
+
+  /** Keeps the array a block was compressed into, once written. */
+  private void releaseCompressed(DataBlock block, ByteBuffer uncompressed) {
+    if (block.getData() != uncompressed.array()) {
+      compressedBuffers.add(ByteBuffer.wrap(block.getData()));
+    }
+  }
+
+  /**
+   * Writes the blocks whose compression is done, in order, and waits for more
+   * until no more than <i>maxPending</i> remain.
+   */
+  private void writePendingBlocks(int maxPending) throws IOException {
+    PendingBlock pending;
+    while ((pending = pendingBlocks.peek()) != null && (pendingBlocks.size() > maxPending || pending.task.isDone())) {
+      pendingBlocks.remove();
+      try {
+        DataBlock block = pending.task.get();
+        writeBlockTo(block, pending.statistics);
+        releaseCompressed(block, pending.buffer.asByteBuffer());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new IOException(cause);
+      }
+      pending.buffer.reset();
+      freeBuffers.add(pending.buffer);
+    }
+  }
+
+  /** A block handed to the compression executor, and its buffer. */
+  private static class PendingBlock {
+    private final NonCopyingByteArrayOutputStream buffer;
+    private final FutureTask<DataBlock> task;
+    private final DataFileIndex.Statistics statistics;
+
+    PendingBlock(NonCopyingByteArrayOutputStream buffer, FutureTask<DataBlock> task,
+        DataFileIndex.Statistics statistics) {
+      this.buffer = buffer;
+      this.task = task;
+      this.statistics = statistics;
+    }
+  }
+
   /**
    * Return the current position as a value that may be passed to
    * {@link DataFileReader#seek(long)}. Forces the end of the current block,
@@ -426,6 +639,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePendingBlocks(0);
     return out.tell();
   }
 
@@ -458,8 +672,13 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public void close() throws IOException {
     if (isOpen) {
       flush();
+      long end = indexBase + out.tell();
       out.close();
       isOpen = false;
+      if (index != null) {
+        index.build(sync, end).write(indexFile);
+        index = null;
+      }
     }
   }
 
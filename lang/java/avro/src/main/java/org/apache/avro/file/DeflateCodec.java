@@ -18,14 +18,12 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
-
-import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import java.util.zip.ZipException;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -69,20 +67,59 @@ public class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Deflater deflater = getDeflater();
+    deflater.setInput(data.array(), computeOffset(data), data.remaining());
+    deflater.finish();
+    byte[] out = reusableArray(reuse, DEFAULT_BUFFER_SIZE);
+    int size = 0;
+    while (!deflater.finished()) {
+      if (size == out.length) {
+        out = grow(out);
+      }
+      size += deflater.deflate(out, size, out.length - size);
     }
-    return baos.asByteBuffer();
+    return ByteBuffer.wrap(out, 0, size);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Inflater inflater = getInflater();
+    inflater.setInput(data.array(), computeOffset(data), data.remaining());
+    byte[] out = reusableArray(reuse, DEFAULT_BUFFER_SIZE);
+    int size = 0;
+    try {
+      while (!inflater.finished()) {
+        if (size == out.length) {
+          out = grow(out);
+        }
+        int n = inflater.inflate(out, size, out.length - size);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          // truncated data is read as far as it goes
+          break;
+        }
+        size += n;
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    }
+    return ByteBuffer.wrap(out, 0, size);
+  }
+
+  private static byte[] grow(byte[] out) {
+    if (out.length >= Integer.MAX_VALUE - 8) {
+      throw new OutOfMemoryError("Block too large to decompress");
     }
-    return baos.asByteBuffer();
+    return Arrays.copyOf(out, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(DEFAULT_BUFFER_SIZE, 2L * out.length)));
   }
 
   // get and initialize the inflater for use.
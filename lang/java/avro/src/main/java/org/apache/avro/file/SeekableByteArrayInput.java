@@ -42,4 +42,9 @@ public class SeekableByteArrayInput extends ByteArrayInputStream implements Seek
   public long tell() throws IOException {
     return this.pos;
   }
+
+  /** Returns an input of the same data, with its own position. */
+  SeekableByteArrayInput view() {
+    return new SeekableByteArrayInput(buf);
+  }
 }
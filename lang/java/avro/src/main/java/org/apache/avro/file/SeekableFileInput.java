@@ -21,6 +21,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileDescriptor;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /** A {@link FileInputStream} that implements {@link SeekableInput}. */
 public class SeekableFileInput extends FileInputStream implements SeekableInput {
@@ -47,4 +49,50 @@ public class SeekableFileInput extends FileInputStream implements SeekableInput
   public long length() throws IOException {
     return getChannel().size();
   }
+
+  /**
+   * Returns an input of the same file, with its own position, that reads without
+   * moving the position of this one. It is not closed separately.
+   */
+  SeekableInput view() {
+    return new View(getChannel());
+  }
+
+  private static class View implements SeekableInput {
+    private final FileChannel channel;
+    private long position;
+
+    View(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      position = p;
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return position;
+    }
+
+    @Override
+    public long length() throws IOException {
+      return channel.size();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = channel.read(ByteBuffer.wrap(b, off, len), position);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      // the channel is closed with the input
+    }
+  }
 }
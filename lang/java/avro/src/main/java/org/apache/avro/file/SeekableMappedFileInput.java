@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file that implements {@link SeekableInput}. Reads and seeks
+ * do not call the operating system, and {@link DataFileReader} reads blocks in
+ * place, without copying them, when the file is not compressed. Blocks of
+ * snappy compressed files are decompressed straight from the mapping.
+ * <p/>
+ * Files larger than 1GB are mapped as a sequence of 1GB regions. Each mapping
+ * overlaps the next one by 64MB, so that blocks that are not larger than that
+ * are always within a single mapping. Larger blocks that cross the end of a
+ * region are not read in place, but copied, as from other inputs.
+ */
+public class SeekableMappedFileInput implements SeekableInput {
+
+  private static final long REGION_SIZE = 1L << 30;
+  private static final long OVERLAP = 1L << 26;
+
+  private final FileChannel channel;
+  private final long regionSize;
+  private final long length;
+  private final MappedByteBuffer[] mappings;
+  private long position;
+
+  public SeekableMappedFileInput(File file) throws IOException {
+    this(file, REGION_SIZE, OVERLAP);
+  }
+
+  /**
+   * Maps <i>file</i> as regions of <i>regionSize</i> bytes, each mapped with the
+   * <i>overlap</i> bytes after it. For tests.
+   */
+  SeekableMappedFileInput(File file, long regionSize, long overlap) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.regionSize = regionSize;
+    try {
+      this.length = channel.size();
+      int count = (int) Math.max(1, (length + regionSize - 1) / regionSize);
+      this.mappings = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * regionSize;
+        mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize + overlap, length - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private SeekableMappedFileInput(SeekableMappedFileInput shared) {
+    this.channel = null;
+    this.regionSize = shared.regionSize;
+    this.length = shared.length;
+    this.mappings = shared.mappings;
+  }
+
+  /**
+   * Returns an input of the same mappings, with its own position. It is not
+   * closed separately.
+   */
+  SeekableMappedFileInput view() {
+    return new SeekableMappedFileInput(this);
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length)
+      throw new IOException("Illegal seek: " + p);
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (position >= length) {
+      return -1;
+    }
+    int region = (int) (position / regionSize);
+    ByteBuffer mapping = mappings[region].duplicate();
+    int start = (int) (position - region * regionSize);
+    int n = Math.min(len, mapping.capacity() - start);
+    ((Buffer) mapping).position(start);
+    mapping.get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Returns the <i>length</i> bytes at <i>position</i>, in place, or null if they
+   * are not within a single mapping, which only happens to ranges larger than the
+   * overlap of mappings. Callers then copy the bytes through {@link #read}.
+   */
+  ByteBuffer slice(long position, int length) {
+    if (position < 0 || position + length > this.length) {
+      return null;
+    }
+    int region = (int) (position / regionSize);
+    ByteBuffer mapping = mappings[region].duplicate();
+    int start = (int) (position - region * regionSize);
+    if (start + length > mapping.capacity()) {
+      return null;
+    }
+    ((Buffer) mapping).position(start);
+    ((Buffer) mapping).limit(start + length);
+    return mapping.slice();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the mappings are released once they are garbage collected
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
@@ -51,8 +51,13 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer reuse) throws IOException {
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4);
+    ByteBuffer out = ByteBuffer.wrap(reusableArray(reuse, Snappy.maxCompressedLength(in.remaining()) + 4));
     int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), 0);
     crc32.reset();
     crc32.update(in.array(), offset, in.remaining());
@@ -65,8 +70,17 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer reuse) throws IOException {
+    if (in.isDirect()) {
+      return decompressDirect(in, reuse);
+    }
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4));
+    ByteBuffer out = ByteBuffer
+        .wrap(reusableArray(reuse, Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4)));
     int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), 0);
     ((Buffer) out).limit(size);
 
@@ -78,6 +92,27 @@ public class SnappyCodec extends Codec {
     return out;
   }
 
+  /**
+   * Decompresses a direct buffer, like a slice of a memory-mapped file, into a
+   * direct buffer, reusing <i>reuse</i> if it is a large enough direct one.
+   */
+  private ByteBuffer decompressDirect(ByteBuffer in, ByteBuffer reuse) throws IOException {
+    ByteBuffer compressed = in.duplicate();
+    ((Buffer) compressed).limit(compressed.limit() - 4);
+    int length = Snappy.uncompressedLength(compressed);
+    ByteBuffer out = reuse != null && reuse.isDirect() && !reuse.isReadOnly() && reuse.capacity() >= length ? reuse
+        : ByteBuffer.allocateDirect(length);
+    ((Buffer) out).clear();
+    Snappy.uncompress(compressed, out);
+
+    crc32.reset();
+    crc32.update(out.duplicate());
+    if (in.getInt(((Buffer) in).limit() - 4) != (int) crc32.getValue())
+      throw new IOException("Checksum failure");
+
+    return out;
+  }
+
   @Override
   public int hashCode() {
     return getName().hashCode();
@@ -22,6 +22,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
@@ -48,9 +52,45 @@ public class ZstandardCodec extends Codec {
     }
   }
 
+  /**
+   * Creates codecs that compress each block with a dictionary, held in the
+   * metadata of files. The one registered by name has none, and gets that of the
+   * file read with {@link #forFile(Map)}.
+   */
+  static class DictionaryOption extends CodecFactory {
+    private final int compressionLevel;
+    private final boolean useChecksum;
+    private final ZstandardDictionary dictionary;
+
+    DictionaryOption(int compressionLevel, boolean useChecksum, byte[] dictionary) {
+      this.compressionLevel = compressionLevel;
+      this.useChecksum = useChecksum;
+      this.dictionary = dictionary == null ? null : new ZstandardDictionary(dictionary, compressionLevel);
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new ZstandardCodec(compressionLevel, useChecksum, dictionary);
+    }
+
+    @Override
+    Map<String, byte[]> getFileMeta() {
+      return dictionary == null ? Collections.emptyMap()
+          : Collections.singletonMap(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary.getBytes());
+    }
+
+    @Override
+    CodecFactory forFile(Map<String, byte[]> meta) {
+      return new DictionaryOption(compressionLevel, useChecksum, meta.get(DataFileConstants.ZSTANDARD_DICTIONARY));
+    }
+  }
+
   private final int compressionLevel;
   private final boolean useChecksum;
   private final boolean useBufferPool;
+  private final boolean usesDictionary;
+  private final ZstandardDictionary dictionary;
+  private ZstandardDictionary.Context dictionaryContext;
 
   /**
    * Create a ZstandardCodec instance with the given compressionLevel, checksum,
@@ -60,16 +100,57 @@ public class ZstandardCodec extends Codec {
     this.compressionLevel = compressionLevel;
     this.useChecksum = useChecksum;
     this.useBufferPool = useBufferPool;
+    this.usesDictionary = false;
+    this.dictionary = null;
+  }
+
+  private ZstandardCodec(int compressionLevel, boolean useChecksum, ZstandardDictionary dictionary) {
+    this.compressionLevel = compressionLevel;
+    this.useChecksum = useChecksum;
+    this.useBufferPool = false;
+    this.usesDictionary = true;
+    this.dictionary = dictionary;
+  }
+
+  /**
+   * Trains a dictionary of at most <i>size</i> bytes, for
+   * {@link CodecFactory#zstandardCodec(int, byte[])}, on samples of the
+   * uncompressed data of blocks, such as those of an earlier file returned by
+   * {@link DataFileStream#nextBlock()}. Some hundred samples make a good
+   * dictionary, and 16KB to 112KB is a usual size.
+   *
+   * @throws IOException if there are too few samples to train on.
+   */
+  public static byte[] trainDictionary(List<ByteBuffer> samples, int size) throws IOException {
+    return ZstandardDictionary.train(samples, size);
+  }
+
+  private ZstandardDictionary.Context dictionaryContext() throws IOException {
+    if (dictionary == null) {
+      throw new IOException("No zstandard dictionary");
+    }
+    if (dictionaryContext == null) {
+      dictionaryContext = dictionary.new Context(useChecksum);
+    }
+    return dictionaryContext;
   }
 
   @Override
   public String getName() {
-    return DataFileConstants.ZSTANDARD_CODEC;
+    return usesDictionary ? DataFileConstants.ZSTANDARD_DICTIONARY_CODEC : DataFileConstants.ZSTANDARD_CODEC;
   }
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    if (usesDictionary) {
+      return dictionaryContext().compress(data, reuse);
+    }
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse, DEFAULT_BUFFER_SIZE);
     try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool)) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
     }
@@ -78,7 +159,15 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    return decompress(compressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    if (usesDictionary) {
+      return dictionaryContext().decompress(compressedData, reuse);
+    }
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse, DEFAULT_BUFFER_SIZE);
     InputStream bytesIn = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
         compressedData.remaining());
     try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool)) {
@@ -94,7 +183,14 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public boolean equals(Object obj) {
-    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+    if (this == obj)
+      return true;
+    if (obj == null || obj.getClass() != getClass())
+      return false;
+    ZstandardCodec other = (ZstandardCodec) obj;
+    // blocks compressed with a dictionary are only read with the same one
+    return usesDictionary == other.usesDictionary && (!usesDictionary || (dictionary != null && other.dictionary != null
+        && Arrays.equals(dictionary.getBytes(), other.dictionary.getBytes())));
   }
 
   @Override
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+
+/**
+ * A zstandard dictionary, digested once for the codecs of a file, which each
+ * compress and decompress with a {@link Context} of their own.
+ */
+final class ZstandardDictionary {
+  private final byte[] bytes;
+  private final int level;
+  private ZstdDictCompress compressDictionary;
+  private ZstdDictDecompress decompressDictionary;
+
+  ZstandardDictionary(byte[] bytes, int level) {
+    this.bytes = bytes;
+    this.level = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+  }
+
+  byte[] getBytes() {
+    return bytes;
+  }
+
+  private synchronized ZstdDictCompress compressDictionary() {
+    if (compressDictionary == null) {
+      compressDictionary = new ZstdDictCompress(bytes, level);
+    }
+    return compressDictionary;
+  }
+
+  private synchronized ZstdDictDecompress decompressDictionary() {
+    if (decompressDictionary == null) {
+      decompressDictionary = new ZstdDictDecompress(bytes);
+    }
+    return decompressDictionary;
+  }
+
+  /** Trains a dictionary of at most <i>size</i> bytes on samples. */
+  static byte[] train(List<ByteBuffer> samples, int size) throws IOException {
+    byte[][] arrays = new byte[samples.size()][];
+    for (int i = 0; i < arrays.length; i++) {
+      ByteBuffer sample = samples.get(i).duplicate();
+      arrays[i] = new byte[sample.remaining()];
+      sample.get(arrays[i]);
+    }
+    byte[] dictionary = new byte[size];
+    long result;
+    try {
+      result = Zstd.trainFromBuffer(arrays, dictionary);
+    } catch (ZstdException e) {
+      throw new IOException("Dictionary training failed: " + e.getMessage(), e);
+    }
+    if (Zstd.isError(result)) {
+      throw new IOException("Dictionary training failed: " + Zstd.getErrorName(result));
+    }
+    return Arrays.copyOf(dictionary, (int) result);
+  }
+
+  /** Compresses and decompresses with the dictionary, from a single thread. */
+  final class Context {
+    private final boolean checksum;
+    private ZstdCompressCtx compressor;
+    private ZstdDecompressCtx decompressor;
+
+    Context(boolean checksum) {
+      this.checksum = checksum;
+    }
+
+    ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+      if (compressor == null) {
+        compressor = new ZstdCompressCtx().loadDict(compressDictionary()).setChecksum(checksum);
+      }
+      byte[] out = Codec.reusableArray(reuse,
+          (int) Math.min(Integer.MAX_VALUE - 8, Zstd.compressBound(data.remaining())));
+      try {
+        int size = compressor.compressByteArray(out, 0, out.length, data.array(), Codec.computeOffset(data),
+            data.remaining());
+        return ByteBuffer.wrap(out, 0, size);
+      } catch (ZstdException e) {
+        throw new IOException(e);
+      }
+    }
+
+    ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+      if (decompressor == null) {
+        decompressor = new ZstdDecompressCtx().loadDict(decompressDictionary());
+      }
+      int offset = Codec.computeOffset(data);
+      long size = Zstd.decompressedSize(data.array(), offset, data.remaining());
+      if (size < 0 || size > Integer.MAX_VALUE - 8) {
+        throw new IOException("Invalid decompressed size: " + size);
+      }
+      byte[] out = Codec.reusableArray(reuse, (int) size);
+      try {
+        int decompressed = decompressor.decompressByteArray(out, 0, (int) size, data.array(), offset, data.remaining());
+        return ByteBuffer.wrap(out, 0, decompressed);
+      } catch (ZstdException e) {
+        throw new IOException(e);
+      }
+    }
+  }
+}
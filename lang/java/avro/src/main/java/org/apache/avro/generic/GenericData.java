@@ -55,6 +55,7 @@ import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.FastWriterBuilder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.internal.Accessor;
 
@@ -225,6 +226,26 @@ public class GenericData {
     return this.fastReaderBuilder;
   }
 
+  public static final String FAST_WRITER_PROP = "org.apache.avro.fastwrite";
+  private boolean fastWriterEnabled = "true".equalsIgnoreCase(System.getProperty(FAST_WRITER_PROP));
+  private FastWriterBuilder fastWriterBuilder = null;
+
+  public GenericData setFastWriterEnabled(boolean flag) {
+    this.fastWriterEnabled = flag;
+    return this;
+  }
+
+  public boolean isFastWriterEnabled() {
+    return fastWriterEnabled && FastWriterBuilder.isSupportedData(this);
+  }
+
+  public FastWriterBuilder getFastWriterBuilder() {
+    if (fastWriterBuilder == null) {
+      fastWriterBuilder = new FastWriterBuilder(this);
+    }
+    return this.fastWriterBuilder;
+  }
+
   /**
    * Default implementation of {@link GenericRecord}. Note that this
    * implementation does not fill in default values for fields if they are not
@@ -1489,18 +1510,25 @@ public class GenericData {
 
   /*
    * Called to create new array instances. Subclasses may override to use a
-   * different array implementation. By default, this returns a {@link
-   * GenericData.Array}.
+   * different array implementation. By default, this returns one of the {@link
+   * PrimitivesArrays} for arrays of int, long, float, double and boolean without
+   * a logical type, and a {@link GenericData.Array} otherwise.
    */
   public Object newArray(Object old, int size, Schema schema) {
+    if (old instanceof PrimitivesArrays.PrimitiveArray && !PrimitivesArrays.isFor(old, schema)) {
+      // a primitive array cannot hold elements of another type
+      old = null;
+    }
     if (old instanceof GenericArray) {
       ((GenericArray<?>) old).reset();
       return old;
     } else if (old instanceof Collection) {
       ((Collection<?>) old).clear();
       return old;
-    } else
-      return new GenericData.Array<Object>(size, schema);
+    } else {
+      GenericArray<?> primitives = PrimitivesArrays.newArray(size, schema);
+      return primitives != null ? primitives : new GenericData.Array<Object>(size, schema);
+    }
   }
 
   /**
@@ -34,7 +34,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolverCache;
 import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
@@ -47,6 +47,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private Schema expected;
   private DatumReader<D> fastDatumReader = null;
 
+  private ResolverCache.Entry resolverEntry = null;
   private ResolvingDecoder creatorResolver = null;
   private final Thread creator;
 
@@ -91,6 +92,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     if (expected == null) {
       expected = actual;
     }
+    resolverEntry = null;
     creatorResolver = null;
     fastDatumReader = null;
   }
@@ -103,6 +105,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   /** Set the reader's schema. */
   public void setExpected(Schema reader) {
     this.expected = reader;
+    resolverEntry = null;
     creatorResolver = null;
   }
 
@@ -112,11 +115,10 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   /**
    * Gets a resolving decoder for use by this GenericDatumReader. Unstable API.
    * Currently uses a thread local cache to prevent constructing the resolvers too
-   * often, because that is very expensive.
+   * often. Their grammar is shared through the {@link ResolverCache}.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
     Thread currThread = Thread.currentThread();
-    ResolvingDecoder resolver;
     if (currThread == creator && creatorResolver != null) {
       return creatorResolver;
     }
@@ -126,19 +128,29 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       cache = new WeakIdentityHashMap<>();
       RESOLVER_CACHE.get().put(actual, cache);
     }
-    resolver = cache.get(expected);
+    ResolvingDecoder resolver = cache.get(expected);
     if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(Schema.applyAliases(actual, expected), expected, null);
+      resolver = getResolverEntry(actual, expected).newResolvingDecoder(null);
       cache.put(expected, resolver);
     }
 
     if (currThread == creator) {
       creatorResolver = resolver;
     }
-
     return resolver;
   }
 
+  private ResolverCache.Entry getResolverEntry(Schema actual, Schema expected) {
+    ResolverCache.Entry entry = resolverEntry;
+    if (entry == null || actual != this.actual || expected != this.expected) {
+      entry = ResolverCache.get().getEntry(actual, expected);
+      if (actual == this.actual && expected == this.expected) {
+        resolverEntry = entry;
+      }
+    }
+    return entry;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
@@ -149,11 +161,24 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       return fastDatumReader.read(reuse, in);
     }
 
-    ResolvingDecoder resolver = getResolver(actual, expected);
-    resolver.configure(in);
-    D result = (D) read(reuse, expected, resolver);
-    resolver.drain();
-    return result;
+    if (Thread.currentThread() == creator) {
+      ResolvingDecoder resolver = getResolver(actual, expected);
+      resolver.configure(in);
+      D result = (D) read(reuse, expected, resolver);
+      resolver.drain();
+      return result;
+    }
+
+    // other threads borrow the per use state of a shared resolver
+    ResolverCache.Entry entry = getResolverEntry(actual, expected);
+    ResolvingDecoder resolver = entry.acquire(in);
+    try {
+      D result = (D) read(reuse, expected, resolver);
+      resolver.drain();
+      return result;
+    } finally {
+      entry.release(resolver);
+    }
   }
 
   /** Called to read data. */
@@ -287,7 +312,18 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     if (l > 0) {
       LogicalType logicalType = expectedType.getLogicalType();
       Conversion<?> conversion = getData().getConversionFor(logicalType);
+      if (old instanceof PrimitivesArrays.PrimitiveArray && !PrimitivesArrays.isFor(old, expected)) {
+        old = null; // holds elements of another type, cannot be reused
+      }
       Object array = newArray(old, (int) l, expected);
+      if (PrimitivesArrays.isFor(array, expected)) {
+        // read unboxed, in bulk, straight into the backing array
+        PrimitivesArrays.PrimitiveArray<?> primitives = (PrimitivesArrays.PrimitiveArray<?>) array;
+        do {
+          primitives.readItems(in, (int) l);
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
       do {
         if (logicalType != null && conversion != null) {
           for (long i = 0; i < l; i++) {
@@ -48,6 +48,7 @@ import org.apache.avro.util.SchemaUtil;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private DatumWriter<D> fastDatumWriter = null;
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -74,10 +75,18 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    fastDatumWriter = null;
   }
 
   public void write(D datum, Encoder out) throws IOException {
     Objects.requireNonNull(out, "Encoder cannot be null");
+    if (data.isFastWriterEnabled() && isFastWriterSupported()) {
+      if (this.fastDatumWriter == null) {
+        this.fastDatumWriter = data.getFastWriterBuilder().createDatumWriter(root);
+      }
+      fastDatumWriter.write(datum, out);
+      return;
+    }
     try {
       write(root, datum, out);
     } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
@@ -85,6 +94,16 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     }
   }
 
+  /**
+   * Returns true if {@link #write(Object, Encoder)} may hand off to the writers
+   * compiled by {@link GenericData#getFastWriterBuilder()}. Those bypass the
+   * protected write methods, so this is only true for this class itself, and
+   * subclasses that override any of them should not return true.
+   */
+  protected boolean isFastWriterSupported() {
+    return getClass() == GenericDatumWriter.class;
+  }
+
   /** Called to write data. */
   protected void write(Schema schema, Object datum, Encoder out) throws IOException {
     LogicalType logicalType = schema.getLogicalType();
@@ -282,15 +301,20 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     long actualSize = 0;
     out.writeArrayStart();
     out.setItemCount(size);
-    for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
-      out.startItem();
-      try {
-        write(element, it.next(), out);
-      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
-        e.tracePath(new ArrayPositionPredicate(actualSize));
-        throw e;
+    if (PrimitivesArrays.isFor(datum, schema)) {
+      // write unboxed, in bulk, straight from the backing array
+      actualSize = ((PrimitivesArrays.PrimitiveArray<?>) datum).writeItems(out);
+    } else {
+      for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
+        out.startItem();
+        try {
+          write(element, it.next(), out);
+        } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+          e.tracePath(new ArrayPositionPredicate(actualSize));
+          throw e;
+        }
+        actualSize++;
       }
-      actualSize++;
     }
     out.writeArrayEnd();
     if (actualSize != size) {
@@ -0,0 +1,756 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * {@link GenericArray} implementations that store their elements in an array of
+ * primitives rather than an <tt>Object[]</tt>, so that elements of arrays of
+ * <tt>int</tt>, <tt>long</tt>, <tt>float</tt>, <tt>double</tt> and
+ * <tt>boolean</tt> are not boxed. {@link GenericData#newArray} returns one of
+ * these for such arrays.
+ * <p/>
+ * Each implementation is a {@link java.util.List} of the boxed type, and adds
+ * unboxed accessors such as {@link IntArray#getInt(int)} and
+ * {@link IntArray#addInt(int)}. Elements cannot be null.
+ */
+public class PrimitivesArrays {
+
+  private PrimitivesArrays() {
+  }
+
+  /**
+   * Returns a new primitive array for <i>schema</i>, or null if its elements are
+   * not of a primitive type without a logical type.
+   */
+  static GenericArray<?> newArray(int capacity, Schema schema) {
+    Schema element = schema.getElementType();
+    if (element.getLogicalType() != null) {
+      return null;
+    }
+    switch (element.getType()) {
+    case INT:
+      return new IntArray(capacity, schema);
+    case LONG:
+      return new LongArray(capacity, schema);
+    case FLOAT:
+      return new FloatArray(capacity, schema);
+    case DOUBLE:
+      return new DoubleArray(capacity, schema);
+    case BOOLEAN:
+      return new BooleanArray(capacity, schema);
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * Returns true if <i>array</i> is a primitive array that can hold the elements
+   * of arrays of <i>schema</i>, so that it may be reused to read them.
+   */
+  public static boolean isFor(Object array, Schema schema) {
+    Schema element = schema.getElementType();
+    if (element.getLogicalType() != null) {
+      return false;
+    }
+    switch (element.getType()) {
+    case INT:
+      return array instanceof IntArray;
+    case LONG:
+      return array instanceof LongArray;
+    case FLOAT:
+      return array instanceof FloatArray;
+    case DOUBLE:
+      return array instanceof DoubleArray;
+    case BOOLEAN:
+      return array instanceof BooleanArray;
+    default:
+      return false;
+    }
+  }
+
+  /** Common base of the primitive arrays, which holds the schema and size. */
+  public abstract static class PrimitiveArray<T> extends AbstractList<T>
+      implements GenericArray<T>, Comparable<GenericArray<T>> {
+    private final Schema schema;
+    protected int size;
+
+    PrimitiveArray(Schema schema) {
+      if (schema == null || !Schema.Type.ARRAY.equals(schema.getType()))
+        throw new AvroRuntimeException("Not an array schema: " + schema);
+      this.schema = schema;
+    }
+
+    @Override
+    public Schema getSchema() {
+      return schema;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      // there are no references to release
+      size = 0;
+    }
+
+    @Override
+    public void reset() {
+      size = 0;
+    }
+
+    /** Primitive elements cannot be reused, so there is never one to peek at. */
+    @Override
+    public T peek() {
+      return null;
+    }
+
+    @Override
+    public int compareTo(GenericArray<T> that) {
+      return GenericData.get().compare(this, that, this.getSchema());
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        swap(left, right);
+      }
+    }
+
+    protected abstract void swap(int i, int j);
+
+    protected abstract int capacity();
+
+    protected abstract void resize(int capacity);
+
+    /** Makes room for <i>n</i> more elements, growing by 1.5x + 1 at least. */
+    protected void ensureCapacity(int n) {
+      if (size + n > capacity()) {
+        resize(Math.max(size + n, size + (size >> 1) + 1));
+      }
+    }
+
+    protected void checkIndex(int i) {
+      if (i >= size || i < 0)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+    }
+
+    /** Opens a gap at <i>location</i> for one new element. */
+    protected void insertAt(int location) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      ensureCapacity(1);
+      Object elements = elements();
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      size++;
+    }
+
+    /** Closes the gap left by removing the element at <i>i</i>. */
+    protected void removeAt(int i) {
+      Object elements = elements();
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, size - i);
+    }
+
+    protected abstract Object elements();
+
+    /**
+     * Appends <i>count</i> values read from <i>in</i>, such as one block of items
+     * of an array, using the bulk reads of {@link Decoder} where there is one.
+     */
+    public abstract void readItems(Decoder in, int count) throws IOException;
+
+    /**
+     * Writes all elements to <i>out</i> as items of the current array, using the
+     * bulk writes of {@link Encoder} where there is one. Must follow a matching
+     * {@link Encoder#setItemCount}. Returns the number of elements written.
+     */
+    public abstract int writeItems(Encoder out) throws IOException;
+  }
+
+  /**
+   * A {@link GenericArray} of <tt>int</tt> values, backed by a <tt>int[]</tt>.
+   */
+  public static class IntArray extends PrimitiveArray<Integer> {
+    private static final int[] EMPTY = new int[0];
+    private int[] elements = EMPTY;
+
+    public IntArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new int[capacity];
+    }
+
+    public IntArray(Schema schema, Collection<Integer> c) {
+      super(schema);
+      if (c != null) {
+        elements = new int[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Integer get(int i) {
+      return getInt(i);
+    }
+
+    /** Returns the element at <i>i</i> without boxing it. */
+    public int getInt(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    @Override
+    public Integer set(int i, Integer o) {
+      return setInt(i, o);
+    }
+
+    /** Replaces the element at <i>i</i>, returning the previous one. */
+    public int setInt(int i, int value) {
+      checkIndex(i);
+      int response = elements[i];
+      elements[i] = value;
+      return response;
+    }
+
+    @Override
+    public void add(int location, Integer o) {
+      int value = o;
+      insertAt(location);
+      elements[location] = value;
+    }
+
+    /** Appends <i>value</i> without boxing it. */
+    public void addInt(int value) {
+      if (size == elements.length) {
+        ensureCapacity(1);
+      }
+      elements[size++] = value;
+    }
+
+    @Override
+    public Integer remove(int i) {
+      checkIndex(i);
+      int result = elements[i];
+      removeAt(i);
+      return result;
+    }
+
+    /** Returns a copy of the elements as a <tt>int[]</tt>. */
+    public int[] toIntArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      ensureCapacity(count);
+      in.readInts(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    public int writeItems(Encoder out) throws IOException {
+      int count = size;
+      out.writeInts(elements, 0, count);
+      return count;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+      int tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override
+    protected int capacity() {
+      return elements.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    protected Object elements() {
+      return elements;
+    }
+  }
+
+  /**
+   * A {@link GenericArray} of <tt>long</tt> values, backed by a <tt>long[]</tt>.
+   */
+  public static class LongArray extends PrimitiveArray<Long> {
+    private static final long[] EMPTY = new long[0];
+    private long[] elements = EMPTY;
+
+    public LongArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new long[capacity];
+    }
+
+    public LongArray(Schema schema, Collection<Long> c) {
+      super(schema);
+      if (c != null) {
+        elements = new long[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Long get(int i) {
+      return getLong(i);
+    }
+
+    /** Returns the element at <i>i</i> without boxing it. */
+    public long getLong(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    @Override
+    public Long set(int i, Long o) {
+      return setLong(i, o);
+    }
+
+    /** Replaces the element at <i>i</i>, returning the previous one. */
+    public long setLong(int i, long value) {
+      checkIndex(i);
+      long response = elements[i];
+      elements[i] = value;
+      return response;
+    }
+
+    @Override
+    public void add(int location, Long o) {
+      long value = o;
+      insertAt(location);
+      elements[location] = value;
+    }
+
+    /** Appends <i>value</i> without boxing it. */
+    public void addLong(long value) {
+      if (size == elements.length) {
+        ensureCapacity(1);
+      }
+      elements[size++] = value;
+    }
+
+    @Override
+    public Long remove(int i) {
+      checkIndex(i);
+      long result = elements[i];
+      removeAt(i);
+      return result;
+    }
+
+    /** Returns a copy of the elements as a <tt>long[]</tt>. */
+    public long[] toLongArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      ensureCapacity(count);
+      in.readLongs(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    public int writeItems(Encoder out) throws IOException {
+      int count = size;
+      out.writeLongs(elements, 0, count);
+      return count;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+      long tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override
+    protected int capacity() {
+      return elements.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    protected Object elements() {
+      return elements;
+    }
+  }
+
+  /**
+   * A {@link GenericArray} of <tt>float</tt> values, backed by a
+   * <tt>float[]</tt>.
+   */
+  public static class FloatArray extends PrimitiveArray<Float> {
+    private static final float[] EMPTY = new float[0];
+    private float[] elements = EMPTY;
+
+    public FloatArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new float[capacity];
+    }
+
+    public FloatArray(Schema schema, Collection<Float> c) {
+      super(schema);
+      if (c != null) {
+        elements = new float[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Float get(int i) {
+      return getFloat(i);
+    }
+
+    /** Returns the element at <i>i</i> without boxing it. */
+    public float getFloat(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    @Override
+    public Float set(int i, Float o) {
+      return setFloat(i, o);
+    }
+
+    /** Replaces the element at <i>i</i>, returning the previous one. */
+    public float setFloat(int i, float value) {
+      checkIndex(i);
+      float response = elements[i];
+      elements[i] = value;
+      return response;
+    }
+
+    @Override
+    public void add(int location, Float o) {
+      float value = o;
+      insertAt(location);
+      elements[location] = value;
+    }
+
+    /** Appends <i>value</i> without boxing it. */
+    public void addFloat(float value) {
+      if (size == elements.length) {
+        ensureCapacity(1);
+      }
+      elements[size++] = value;
+    }
+
+    @Override
+    public Float remove(int i) {
+      checkIndex(i);
+      float result = elements[i];
+      removeAt(i);
+      return result;
+    }
+
+    /** Returns a copy of the elements as a <tt>float[]</tt>. */
+    public float[] toFloatArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      ensureCapacity(count);
+      in.readFloats(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    public int writeItems(Encoder out) throws IOException {
+      int count = size;
+      out.writeFloats(elements, 0, count);
+      return count;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+      float tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override
+    protected int capacity() {
+      return elements.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    protected Object elements() {
+      return elements;
+    }
+  }
+
+  /**
+   * A {@link GenericArray} of <tt>double</tt> values, backed by a
+   * <tt>double[]</tt>.
+   */
+  public static class DoubleArray extends PrimitiveArray<Double> {
+    private static final double[] EMPTY = new double[0];
+    private double[] elements = EMPTY;
+
+    public DoubleArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new double[capacity];
+    }
+
+    public DoubleArray(Schema schema, Collection<Double> c) {
+      super(schema);
+      if (c != null) {
+        elements = new double[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Double get(int i) {
+      return getDouble(i);
+    }
+
+    /** Returns the element at <i>i</i> without boxing it. */
+    public double getDouble(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    @Override
+    public Double set(int i, Double o) {
+      return setDouble(i, o);
+    }
+
+    /** Replaces the element at <i>i</i>, returning the previous one. */
+    public double setDouble(int i, double value) {
+      checkIndex(i);
+      double response = elements[i];
+      elements[i] = value;
+      return response;
+    }
+
+    @Override
+    public void add(int location, Double o) {
+      double value = o;
+      insertAt(location);
+      elements[location] = value;
+    }
+
+    /** Appends <i>value</i> without boxing it. */
+    public void addDouble(double value) {
+      if (size == elements.length) {
+        ensureCapacity(1);
+      }
+      elements[size++] = value;
+    }
+
+    @Override
+    public Double remove(int i) {
+      checkIndex(i);
+      double result = elements[i];
+      removeAt(i);
+      return result;
+    }
+
+    /** Returns a copy of the elements as a <tt>double[]</tt>. */
+    public double[] toDoubleArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      ensureCapacity(count);
+      in.readDoubles(elements, size, count);
+      size += count;
+    }
+
+    @Override
+    public int writeItems(Encoder out) throws IOException {
+      int count = size;
+      out.writeDoubles(elements, 0, count);
+      return count;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+      double tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override
+    protected int capacity() {
+      return elements.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    protected Object elements() {
+      return elements;
+    }
+  }
+
+  /**
+   * A {@link GenericArray} of <tt>boolean</tt> values, backed by a
+   * <tt>boolean[]</tt>.
+   */
+  public static class BooleanArray extends PrimitiveArray<Boolean> {
+    private static final boolean[] EMPTY = new boolean[0];
+    private boolean[] elements = EMPTY;
+
+    public BooleanArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new boolean[capacity];
+    }
+
+    public BooleanArray(Schema schema, Collection<Boolean> c) {
+      super(schema);
+      if (c != null) {
+        elements = new boolean[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Boolean get(int i) {
+      return getBoolean(i);
+    }
+
+    /** Returns the element at <i>i</i> without boxing it. */
+    public boolean getBoolean(int i) {
+      checkIndex(i);
+      return elements[i];
+    }
+
+    @Override
+    public Boolean set(int i, Boolean o) {
+      return setBoolean(i, o);
+    }
+
+    /** Replaces the element at <i>i</i>, returning the previous one. */
+    public boolean setBoolean(int i, boolean value) {
+      checkIndex(i);
+      boolean response = elements[i];
+      elements[i] = value;
+      return response;
+    }
+
+    @Override
+    public void add(int location, Boolean o) {
+      boolean value = o;
+      insertAt(location);
+      elements[location] = value;
+    }
+
+    /** Appends <i>value</i> without boxing it. */
+    public void addBoolean(boolean value) {
+      if (size == elements.length) {
+        ensureCapacity(1);
+      }
+      elements[size++] = value;
+    }
+
+    @Override
+    public Boolean remove(int i) {
+      checkIndex(i);
+      boolean result = elements[i];
+      removeAt(i);
+      return result;
+    }
+
+    /** Returns a copy of the elements as a <tt>boolean[]</tt>. */
+    public boolean[] toBooleanArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public void readItems(Decoder in, int count) throws IOException {
+      ensureCapacity(count);
+      for (int i = size, end = size + count; i < end; i++) {
+        elements[i] = in.readBoolean();
+      }
+      size += count;
+    }
+
+    @Override
+    public int writeItems(Encoder out) throws IOException {
+      int count = size;
+      for (int i = 0; i < count; i++) {
+        out.startItem();
+        out.writeBoolean(elements[i]);
+      }
+      return count;
+    }
+
+    @Override
+    protected void swap(int i, int j) {
+      boolean tmp = elements[i];
+      elements[i] = elements[j];
+      elements[j] = tmp;
+    }
+
+    @Override
+    protected int capacity() {
+      return elements.length;
+    }
+
+    @Override
+    protected void resize(int capacity) {
+      elements = Arrays.copyOf(elements, capacity);
+    }
+
+    @Override
+    protected Object elements() {
+      return elements;
+    }
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+/**
+ * Compares binary encoded data of one schema. The schema is compiled once into
+ * a plan: field orders and ignored fields are resolved up front, and runs of
+ * fixed width values are compared or skipped as a single span of bytes. A
+ * comparison does not allocate, and orders data exactly like
+ * {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)}.
+ * <p/>
+ * Instances are immutable and may be shared by threads. Use
+ * {@link BinaryData#comparator(Schema)} to compile one, and keep it for as long
+ * as data of its schema is compared.
+ */
+public final class BinaryComparator {
+
+  private final Schema schema;
+  final Node root;
+
+  BinaryComparator(Schema schema) {
+    this.schema = schema;
+    this.root = compile(schema);
+  }
+
+  /** Return the schema of the compared data. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Compare binary encoded data. If equal, return zero. If greater-than, return a
+   * positive value, if less than return a negative value.
+   */
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    return BinaryData.compare(b1, s1, l1, b2, s2, l2, this);
+  }
+
+  /**
+   * Compiles <i>schema</i>. Unlike comparators, the compiled schema does not
+   * reference it, so that it can be cached by schema in a weak map.
+   */
+  static Node compile(Schema schema) {
+    return compile(schema, new IdentityHashMap<>());
+  }
+
+  private static Node compile(Schema schema, Map<Schema, Node> records) {
+    switch (schema.getType()) {
+    case RECORD:
+      Node node = records.get(schema);
+      if (node == null) {
+        // registered before its fields are compiled, to terminate recursive types
+        RecordNode record = new RecordNode();
+        records.put(schema, record);
+        record.init(schema, records);
+        node = record;
+      }
+      return node;
+    case ENUM:
+    case INT:
+      return IntNode.INSTANCE;
+    case LONG:
+      return LongNode.INSTANCE;
+    case FLOAT:
+      return FloatNode.INSTANCE;
+    case DOUBLE:
+      return DoubleNode.INSTANCE;
+    case BOOLEAN:
+      return new SpanNode(1);
+    case NULL:
+      return new SpanNode(0);
+    case FIXED:
+      return new SpanNode(schema.getFixedSize());
+    case STRING:
+    case BYTES:
+      return BytesNode.INSTANCE;
+    case ARRAY:
+      return new ArrayNode(compile(schema.getElementType(), records));
+    case MAP:
+      return new MapNode(compile(schema.getValueType(), records));
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      Node[] branches = new Node[types.size()];
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compile(types.get(i), records);
+      }
+      return new UnionNode(branches);
+    default:
+      throw new AvroRuntimeException("Unexpected schema to compare!");
+    }
+  }
+
+  /** A compiled schema. */
+  abstract static class Node {
+    /** the encoded size of all values, or -1 if it varies */
+    int width;
+
+    Node(int width) {
+      this.width = width;
+    }
+
+    /**
+     * If equal, consumes both values and returns zero. Otherwise returns the
+     * comparison; the decoders are then left anywhere.
+     */
+    abstract int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException;
+
+    abstract void skip(BinaryDecoder d) throws IOException;
+
+    /** Returns true if values compare like their encoded bytes. */
+    boolean isSpan() {
+      return false;
+    }
+  }
+
+  /** Fixed width values that compare like their bytes: fixed, boolean, null. */
+  private static final class SpanNode extends Node {
+    SpanNode(int width) {
+      super(width);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      if (width == 0) {
+        return 0;
+      }
+      int c = BinaryData.compareBytes(d1.getBuf(), d1.getPos(), width, d2.getBuf(), d2.getPos(), width);
+      if (c == 0) {
+        d1.skipFixed(width);
+        d2.skipFixed(width);
+      }
+      return c;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.skipFixed(width);
+    }
+
+    @Override
+    boolean isSpan() {
+      return true;
+    }
+  }
+
+  /** Fixed width values skipped as a whole. */
+  private static final class SkipNode extends Node {
+    SkipNode(int width) {
+      super(width);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      d1.skipFixed(width);
+      d2.skipFixed(width);
+      return 0;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.skipFixed(width);
+    }
+  }
+
+  private static final class IntNode extends Node {
+    static final IntNode INSTANCE = new IntNode();
+
+    private IntNode() {
+      super(-1);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      return Integer.compare(d1.readInt(), d2.readInt());
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.readInt();
+    }
+  }
+
+  private static final class LongNode extends Node {
+    static final LongNode INSTANCE = new LongNode();
+
+    private LongNode() {
+      super(-1);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      return Long.compare(d1.readLong(), d2.readLong());
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.readLong();
+    }
+  }
+
+  private static final class FloatNode extends Node {
+    static final FloatNode INSTANCE = new FloatNode();
+
+    private FloatNode() {
+      super(4);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      return Float.compare(d1.readFloat(), d2.readFloat());
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.skipFixed(4);
+    }
+  }
+
+  private static final class DoubleNode extends Node {
+    static final DoubleNode INSTANCE = new DoubleNode();
+
+    private DoubleNode() {
+      super(8);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      return Double.compare(d1.readDouble(), d2.readDouble());
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.skipFixed(8);
+    }
+  }
+
+  /** Strings and bytes. */
+  private static final class BytesNode extends Node {
+    static final BytesNode INSTANCE = new BytesNode();
+
+    private BytesNode() {
+      super(-1);
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      int l1 = d1.readInt();
+      int l2 = d2.readInt();
+      int c = BinaryData.compareBytes(d1.getBuf(), d1.getPos(), l1, d2.getBuf(), d2.getPos(), l2);
+      if (c == 0) {
+        d1.skipFixed(l1);
+        d2.skipFixed(l2);
+      }
+      return c;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      d.skipBytes();
+    }
+  }
+
+  private static final class UnionNode extends Node {
+    private final Node[] branches;
+
+    UnionNode(Node[] branches) {
+      super(-1);
+      this.branches = branches;
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      int i1 = d1.readInt();
+      int i2 = d2.readInt();
+      int c = Integer.compare(i1, i2);
+      return c == 0 ? branches[i1].compare(d1, d2) : c;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      branches[d.readInt()].skip(d);
+    }
+  }
+
+  private static final class ArrayNode extends Node {
+    private final Node element;
+
+    ArrayNode(Node element) {
+      super(-1);
+      this.element = element;
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      long i = 0; // position in array
+      long r1 = 0, r2 = 0; // remaining in current block
+      long l1 = 0, l2 = 0; // total array length
+      while (true) {
+        if (r1 == 0) { // refill blocks(s)
+          r1 = d1.readLong();
+          if (r1 < 0) {
+            r1 = -r1;
+            d1.readLong();
+          }
+          l1 += r1;
+        }
+        if (r2 == 0) {
+          r2 = d2.readLong();
+          if (r2 < 0) {
+            r2 = -r2;
+            d2.readLong();
+          }
+          l2 += r2;
+        }
+        if (r1 == 0 || r2 == 0) // empty block: done
+          return Long.compare(l1, l2);
+        long l = Math.min(l1, l2);
+        while (i < l) { // compare to end of block
+          int c = element.compare(d1, d2);
+          if (c != 0)
+            return c;
+          i++;
+          r1--;
+          r2--;
+        }
+      }
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      for (long l = d.skipArray(); l > 0; l = d.skipArray()) {
+        if (element.width >= 0) {
+          d.skipFixed(Math.toIntExact(l * element.width));
+        } else {
+          for (long i = 0; i < l; i++) {
+            element.skip(d);
+          }
+        }
+      }
+    }
+  }
+
+  /** Maps can be skipped, but not compared. */
+  private static final class MapNode extends Node {
+    private final Node value;
+
+    MapNode(Node value) {
+      super(-1);
+      this.value = value;
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      throw new AvroRuntimeException("Can't compare maps!");
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      for (long l = d.skipMap(); l > 0; l = d.skipMap()) {
+        for (long i = 0; i < l; i++) {
+          d.skipString();
+          value.skip(d);
+        }
+      }
+    }
+  }
+
+  private static final class RecordNode extends Node {
+    private Node[] steps;
+    /** per step, whether its field is sorted in descending order */
+    private boolean[] descending;
+
+    RecordNode() {
+      super(-1);
+    }
+
+    void init(Schema schema, Map<Schema, Node> records) {
+      List<Node> nodes = new ArrayList<>();
+      List<Boolean> orders = new ArrayList<>();
+      Node last = null;
+      boolean lastDescending = false;
+      for (Field field : schema.getFields()) {
+        Node node = compile(field.schema(), records);
+        boolean ignored = field.order() == Field.Order.IGNORE;
+        boolean isDescending = field.order() == Field.Order.DESCENDING;
+        if (ignored) {
+          node = node.width >= 0 ? new SkipNode(node.width) : new IgnoredNode(node);
+        }
+        // merge runs of fixed width fields into one span
+        if (last != null && (ignored ? last instanceof SkipNode && node instanceof SkipNode
+            : last.isSpan() && node.isSpan() && lastDescending == isDescending)) {
+          node = ignored ? new SkipNode(last.width + node.width) : new SpanNode(last.width + node.width);
+          nodes.set(nodes.size() - 1, node);
+        } else {
+          nodes.add(node);
+          orders.add(isDescending);
+        }
+        last = node;
+        lastDescending = isDescending;
+      }
+      this.steps = nodes.toArray(new Node[0]);
+      this.descending = new boolean[steps.length];
+      int recordWidth = 0;
+      for (int i = 0; i < steps.length; i++) {
+        descending[i] = orders.get(i);
+        recordWidth = recordWidth < 0 || steps[i].width < 0 ? -1 : recordWidth + steps[i].width;
+      }
+      this.width = recordWidth;
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      final Node[] steps = this.steps;
+      for (int i = 0; i < steps.length; i++) {
+        int c = steps[i].compare(d1, d2);
+        if (c != 0) {
+          return descending[i] ? -c : c;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      for (Node step : steps) {
+        step.skip(d);
+      }
+    }
+  }
+
+  /** A variable width field that is skipped rather than compared. */
+  private static final class IgnoredNode extends Node {
+    private final Node node;
+
+    IgnoredNode(Node node) {
+      super(-1);
+      this.node = node;
+    }
+
+    @Override
+    int compare(BinaryDecoder d1, BinaryDecoder d2) throws IOException {
+      node.skip(d1);
+      node.skip(d2);
+      return 0;
+    }
+
+    @Override
+    void skip(BinaryDecoder d) throws IOException {
+      node.skip(d);
+    }
+  }
+}
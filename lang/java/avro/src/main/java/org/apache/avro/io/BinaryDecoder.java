@@ -127,11 +127,30 @@ public class BinaryDecoder extends Decoder {
     return this;
   }
 
+  BinaryDecoder(ByteBuffer data, int bufferSize) {
+    this();
+    configure(data, bufferSize);
+  }
+
   BinaryDecoder configure(byte[] data, int offset, int length) {
     configureSource(DecoderFactory.DEFAULT_BUFFER_SIZE, new ByteArrayByteSource(data, offset, length));
     return this;
   }
 
+  /**
+   * Reads the bytes between the position and the limit of <i>data</i>. A buffer
+   * backed by an accessible array is used in place, like a byte[] source; any
+   * other buffer (direct or read-only) is drained in chunks of up to
+   * <i>bufferSize</i> bytes. The position of <i>data</i> is not modified.
+   */
+  BinaryDecoder configure(ByteBuffer data, int bufferSize) {
+    if (data.hasArray()) {
+      return configure(data.array(), data.arrayOffset() + data.position(), data.remaining());
+    }
+    configureSource(bufferSize, new ByteBufferByteSource(data));
+    return this;
+  }
+
   /**
    * Initializes this decoder with a new ByteSource. Detaches the old source (if
    * it exists) from this Decoder. The old source's state no longer depends on
@@ -298,6 +317,101 @@ public class BinaryDecoder extends Decoder {
     return Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
   }
 
+  // The bulk reads below decode straight out of the buffer for as long as the
+  // widest possible value is known to be buffered, and fall back to the single
+  // value reads, which refill the buffer, for the remainder.
+
+  @Override
+  public void readInts(int[] dst, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      final byte[] b = buf;
+      final int safeLimit = limit - 5;
+      int p = pos;
+      while (i < end && p <= safeLimit) {
+        int v = b[p++] & 0xff;
+        int n = v & 0x7f;
+        for (int shift = 7; v > 0x7f; shift += 7) {
+          if (shift > 28) {
+            throw new InvalidNumberEncodingException("Invalid int encoding");
+          }
+          v = b[p++] & 0xff;
+          n ^= (v & 0x7f) << shift;
+        }
+        dst[i++] = (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+      pos = p;
+      if (i < end) {
+        dst[i++] = readInt();
+      }
+    }
+  }
+
+  @Override
+  public void readLongs(long[] dst, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      final byte[] b = buf;
+      final int safeLimit = limit - 10;
+      int p = pos;
+      while (i < end && p <= safeLimit) {
+        int v = b[p++] & 0xff;
+        long l = v & 0x7f;
+        for (int shift = 7; v > 0x7f; shift += 7) {
+          if (shift > 63) {
+            throw new InvalidNumberEncodingException("Invalid long encoding");
+          }
+          v = b[p++] & 0xff;
+          l ^= (v & 0x7fL) << shift;
+        }
+        dst[i++] = (l >>> 1) ^ -(l & 1); // back to two's-complement
+      }
+      pos = p;
+      if (i < end) {
+        dst[i++] = readLong();
+      }
+    }
+  }
+
+  @Override
+  public void readFloats(float[] dst, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (limit - p) >> 2); i < stop; i++, p += 4) {
+        dst[i] = Float.intBitsToFloat(
+            (b[p] & 0xff) | ((b[p + 1] & 0xff) << 8) | ((b[p + 2] & 0xff) << 16) | ((b[p + 3] & 0xff) << 24));
+      }
+      pos = p;
+      if (i < end) {
+        dst[i++] = readFloat();
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] dst, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (limit - p) >> 3); i < stop; i++, p += 8) {
+        int n1 = (b[p] & 0xff) | ((b[p + 1] & 0xff) << 8) | ((b[p + 2] & 0xff) << 16) | ((b[p + 3] & 0xff) << 24);
+        int n2 = (b[p + 4] & 0xff) | ((b[p + 5] & 0xff) << 8) | ((b[p + 6] & 0xff) << 16) | ((b[p + 7] & 0xff) << 24);
+        dst[i] = Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
+      }
+      pos = p;
+      if (i < end) {
+        dst[i++] = readDouble();
+      }
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     long length = readLong();
@@ -1044,4 +1158,74 @@ public class BinaryDecoder extends Decoder {
       return (remaining == 0);
     }
   }
+
+  /**
+   * A byte source over a {@link ByteBuffer} without an accessible backing array,
+   * such as a direct buffer. Bytes are copied straight from the buffer into the
+   * decoder's buffer, or into the destination array for large reads, without an
+   * intermediate heap copy of the whole message.
+   */
+  private static class ByteBufferByteSource extends ByteSource {
+    private final ByteBuffer data;
+
+    private ByteBufferByteSource(ByteBuffer data) {
+      super();
+      // use an independent position so the caller's buffer is not mutated
+      this.data = data.duplicate();
+    }
+
+    @Override
+    protected void attach(int bufferSize, BinaryDecoder decoder) {
+      // no need for a buffer larger than the data, but it must be large enough
+      // for ensureBounds to compact into
+      super.attach(Math.max(32, Math.min(bufferSize, data.remaining())), decoder);
+    }
+
+    @Override
+    protected void skipSourceBytes(long length) throws IOException {
+      long skipped = trySkipBytes(length);
+      if (skipped < length) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    protected long trySkipBytes(long length) throws IOException {
+      int n = (int) Math.min(length, data.remaining());
+      ((Buffer) data).position(data.position() + n);
+      return n;
+    }
+
+    @Override
+    protected void readRaw(byte[] data, int off, int len) throws IOException {
+      int read = tryReadRaw(data, off, len);
+      if (read < len) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    protected int tryReadRaw(byte[] data, int off, int len) throws IOException {
+      int n = Math.min(len, this.data.remaining());
+      this.data.get(data, off, n);
+      return n;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (ba.getLim() - ba.getPos() == 0) {
+        return data.hasRemaining() ? data.get() & 0xff : -1;
+      } else {
+        int position = ba.getPos();
+        int result = ba.getBuf()[position] & 0xff;
+        ba.setPos(position + 1);
+        return result;
+      }
+    }
+
+    @Override
+    public boolean isEof() {
+      return !data.hasRemaining();
+    }
+  }
 }
@@ -277,6 +277,42 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  // Items must be counted by startItem() for blocking, and the bulk writes of
+  // BufferedBinaryEncoder use its buffer, not this one's, so write one item at
+  // a time.
+
+  @Override
+  public void writeInts(int[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeInt(src[i]);
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeLong(src[i]);
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeFloat(src[i]);
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeDouble(src[i]);
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     doWriteBytes(bytes, start, len);
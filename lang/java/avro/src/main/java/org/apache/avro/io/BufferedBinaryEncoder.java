@@ -149,6 +149,69 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  // The bulk writes below encode as many values as are guaranteed to fit in the
+  // buffer before checking its bounds again. startItem() is a no-op here.
+
+  @Override
+  public void writeInts(int[] src, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureBounds(5);
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (b.length - p) / 5); i < stop; i++) {
+        p += BinaryData.encodeInt(src[i], b, p);
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] src, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureBounds(10);
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (b.length - p) / 10); i < stop; i++) {
+        p += BinaryData.encodeLong(src[i], b, p);
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] src, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureBounds(4);
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (b.length - p) >> 2); i < stop; i++) {
+        p += BinaryData.encodeFloat(src[i], b, p);
+      }
+      pos = p;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] src, int off, int len) throws IOException {
+    final int end = off + len;
+    int i = off;
+    while (i < end) {
+      ensureBounds(8);
+      final byte[] b = buf;
+      int p = pos;
+      for (int stop = i + Math.min(end - i, (b.length - p) >> 3); i < stop; i++) {
+        p += BinaryData.encodeDouble(src[i], b, p);
+      }
+      pos = p;
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
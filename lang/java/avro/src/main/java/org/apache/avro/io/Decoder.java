@@ -92,6 +92,66 @@ public abstract class Decoder {
    */
   public abstract double readDouble() throws IOException;
 
+  /**
+   * Reads <tt>len</tt> consecutive integers written by {@link Encoder#writeInt}
+   * or {@link Encoder#writeInts} into <tt>dst</tt>, starting at <tt>off</tt>.
+   * Typically used to read a block of items of an array of <tt>int</tt>, after
+   * {@link #readArrayStart} or {@link #arrayNext} returned the block's count.
+   * <p/>
+   * The default implementation calls {@link #readInt} once per value;
+   * implementations may override it with a faster bulk loop.
+   *
+   * @throws AvroTypeException If this is a stateful reader and an integer is not
+   *                           the type of each of the next values to be read
+   */
+  public void readInts(int[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readInt();
+    }
+  }
+
+  /**
+   * Reads <tt>len</tt> consecutive longs written by {@link Encoder#writeLong} or
+   * {@link Encoder#writeLongs} into <tt>dst</tt>, starting at <tt>off</tt>. See
+   * {@link #readInts} for usage information.
+   *
+   * @throws AvroTypeException If this is a stateful reader and a long is not the
+   *                           type of each of the next values to be read
+   */
+  public void readLongs(long[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readLong();
+    }
+  }
+
+  /**
+   * Reads <tt>len</tt> consecutive floats written by {@link Encoder#writeFloat}
+   * or {@link Encoder#writeFloats} into <tt>dst</tt>, starting at <tt>off</tt>.
+   * See {@link #readInts} for usage information.
+   *
+   * @throws AvroTypeException If this is a stateful reader and a float is not the
+   *                           type of each of the next values to be read
+   */
+  public void readFloats(float[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readFloat();
+    }
+  }
+
+  /**
+   * Reads <tt>len</tt> consecutive doubles written by {@link Encoder#writeDouble}
+   * or {@link Encoder#writeDoubles} into <tt>dst</tt>, starting at <tt>off</tt>.
+   * See {@link #readInts} for usage information.
+   *
+   * @throws AvroTypeException If this is a stateful reader and a double is not
+   *                           the type of each of the next values to be read
+   */
+  public void readDoubles(double[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readDouble();
+    }
+  }
+
   /**
    * Reads a char-string written by {@link Encoder#writeString}.
    * 
@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -238,6 +239,36 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} with the bytes between the
+   * position and the limit of <i>buffer</i> as the source of data. If
+   * <i>reuse</i> is provided, it will attempt to reinitialize <i>reuse</i> to the
+   * new buffer.
+   * <p/>
+   * A heap buffer is read in place, exactly like
+   * {@link #binaryDecoder(byte[], int, int, BinaryDecoder)}. A direct or
+   * read-only buffer is read in chunks of up to
+   * {@link #getConfiguredBufferSize()} bytes, so the caller does not need to copy
+   * it onto the heap first. The position of <i>buffer</i> is not modified, and
+   * its contents must not change while the decoder is in use.
+   *
+   * @param buffer The ByteBuffer to initialize to
+   * @param reuse  The BinaryDecoder to attempt to reinitialize. if null a new
+   *               BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned. Clients must not assume that <i>reuse</i> is reinitialized
+   *         and returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(BinaryDecoder.class)) {
+      return new BinaryDecoder(buffer, binaryDecoderBufferSize);
+    } else {
+      return reuse.configure(buffer, binaryDecoderBufferSize);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStream provided for reading data
    * that conforms to the Schema provided.
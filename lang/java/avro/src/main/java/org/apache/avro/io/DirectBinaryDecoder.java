@@ -169,6 +169,37 @@ class DirectBinaryDecoder extends BinaryDecoder {
     return Double.longBitsToDouble(n);
   }
 
+  // The bulk reads of BinaryDecoder work on its buffer, which this class does
+  // not use, so read one value at a time instead.
+
+  @Override
+  public void readInts(int[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readInt();
+    }
+  }
+
+  @Override
+  public void readLongs(long[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readLong();
+    }
+  }
+
+  @Override
+  public void readFloats(float[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readFloat();
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] dst, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      dst[i] = readDouble();
+    }
+  }
+
   @Override
   public ByteBuffer readBytes(ByteBuffer old) throws IOException {
     long length = readLong();
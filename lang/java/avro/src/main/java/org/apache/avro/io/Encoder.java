@@ -253,6 +253,70 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void startItem() throws IOException;
 
+  /**
+   * Writes <tt>len</tt> integers from <tt>src</tt>, starting at <tt>off</tt>, as
+   * consecutive items of the current array. This is equivalent to calling
+   * {@link #startItem()} followed by {@link #writeInt} for each value, and must
+   * be preceded by a matching {@link #setItemCount}.
+   * <p/>
+   * The default implementation does exactly that; implementations may override it
+   * with a faster bulk loop.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           integers is not expected
+   */
+  public void writeInts(int[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeInt(src[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>len</tt> longs from <tt>src</tt>, starting at <tt>off</tt>, as
+   * consecutive items of the current array. See {@link #writeInts} for usage
+   * information.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of longs
+   *                           is not expected
+   */
+  public void writeLongs(long[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeLong(src[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>len</tt> floats from <tt>src</tt>, starting at <tt>off</tt>, as
+   * consecutive items of the current array. See {@link #writeInts} for usage
+   * information.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of floats
+   *                           is not expected
+   */
+  public void writeFloats(float[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeFloat(src[i]);
+    }
+  }
+
+  /**
+   * Writes <tt>len</tt> doubles from <tt>src</tt>, starting at <tt>off</tt>, as
+   * consecutive items of the current array. See {@link #writeInts} for usage
+   * information.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           doubles is not expected
+   */
+  public void writeDoubles(double[] src, int off, int len) throws IOException {
+    for (int i = off, end = off + len; i < end; i++) {
+      startItem();
+      writeDouble(src[i]);
+    }
+  }
+
   /**
    * Call this method to finish writing an array. See {@link #writeArrayStart} for
    * usage information.
@@ -29,7 +29,6 @@ import java.util.function.IntFunction;
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Conversion;
 import org.apache.avro.Conversions;
-import org.apache.avro.Resolver;
 import org.apache.avro.Resolver.Action;
 import org.apache.avro.Resolver.Container;
 import org.apache.avro.Resolver.EnumAdjust;
@@ -47,8 +46,10 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
 import org.apache.avro.io.FastReaderBuilder.RecordReader.Stage;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.apache.avro.reflect.ReflectData;
 import org.apache.avro.reflect.ReflectionUtil;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificRecordBase;
@@ -58,6 +59,12 @@ import org.apache.avro.util.internal.Accessor;
 
 public class FastReaderBuilder {
 
+  /**
+   * System property that enables {@link #withCompiledRecordsEnabled compiled
+   * records} by default.
+   */
+  public static final String COMPILED_RECORDS_PROP = "org.apache.avro.fastread.compiled";
+
   /**
    * Generic/SpecificData instance that contains basic functionalities like
    * instantiation of objects
@@ -72,6 +79,8 @@ public class FastReaderBuilder {
 
   private boolean classPropEnabled = true;
 
+  private boolean compiledRecordsEnabled = "true".equalsIgnoreCase(System.getProperty(COMPILED_RECORDS_PROP));
+
   public static FastReaderBuilder get() {
     return new FastReaderBuilder(GenericData.get());
   }
@@ -81,13 +90,19 @@ public class FastReaderBuilder {
   }
 
   public static boolean isSupportedData(GenericData data) {
-    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class
+        || data.getClass() == ReflectData.class || data.getClass() == ReflectData.AllowNull.class;
   }
 
   public FastReaderBuilder(GenericData parentData) {
     this.data = parentData;
   }
 
+  /** Return the {@link GenericData} implementation. */
+  protected GenericData getData() {
+    return data;
+  }
+
   public FastReaderBuilder withKeyClassEnabled(boolean enabled) {
     this.keyClassEnabled = enabled;
     return this;
@@ -106,22 +121,35 @@ public class FastReaderBuilder {
     return this.classPropEnabled;
   }
 
+  /**
+   * Enables compiled records. A compiled record reader runs all of its fields
+   * from a single flat program: reads of primitive fields, promotions, skipped
+   * fields and constant defaults are executed inline by one method, instead of
+   * through one {@link ExecutionStep} and one {@link FieldReader} call each. This
+   * mostly pays off for wide records with many primitive fields. Disabled by
+   * default, unless the {@value #COMPILED_RECORDS_PROP} system property is
+   * <tt>true</tt>.
+   */
+  public FastReaderBuilder withCompiledRecordsEnabled(boolean enabled) {
+    this.compiledRecordsEnabled = enabled;
+    return this;
+  }
+
+  public boolean isCompiledRecordsEnabled() {
+    return this.compiledRecordsEnabled;
+  }
+
   public <D> DatumReader<D> createDatumReader(Schema schema) throws IOException {
     return createDatumReader(schema, schema);
   }
 
   @SuppressWarnings("unchecked")
   public <D> DatumReader<D> createDatumReader(Schema writerSchema, Schema readerSchema) throws IOException {
-    Schema resolvedWriterSchema = Schema.applyAliases(writerSchema, readerSchema);
-    return (DatumReader<D>) getReaderFor(readerSchema, resolvedWriterSchema);
-  }
-
-  private FieldReader getReaderFor(Schema readerSchema, Schema writerSchema) throws IOException {
-    Action resolvedAction = Resolver.resolve(writerSchema, readerSchema, data);
-    return getReaderFor(resolvedAction, null);
+    Action resolvedAction = ResolverCache.get().getAction(writerSchema, readerSchema, data);
+    return (DatumReader<D>) getReaderFor(resolvedAction, null);
   }
 
-  private FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
+  protected FieldReader getReaderFor(Action action, Conversion<?> explicitConversion) throws IOException {
     final FieldReader baseReader = getNonConvertedReader(action);
     return applyConversions(action.reader, baseReader, explicitConversion);
   }
@@ -149,6 +177,11 @@ public class FastReaderBuilder {
 
     ExecutionStep[] readSteps = new ExecutionStep[action.fieldActions.length + action.readerOrder.length
         - action.firstDefault];
+    if (isCompiledRecordsEnabled() && testInstance instanceof IndexedRecord) {
+      readSteps = new ExecutionStep[] { compileRecordSteps(action, conversionSupplier, readSteps.length) };
+      recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
+      return recordReader;
+    }
 
     int i = 0;
     int fieldCounter = 0;
@@ -160,20 +193,40 @@ public class FastReaderBuilder {
       } else {
         Field readerField = action.readerOrder[fieldCounter++];
         Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
-        FieldReader reader = getReaderFor(fieldAction, conversion);
-        readSteps[i] = createFieldSetter(readerField, reader);
+        readSteps[i] = createFieldStep(action.reader, testInstance, readerField, fieldAction, conversion);
       }
     }
 
     // add defaulting if required
     for (; i < readSteps.length; i++) {
-      readSteps[i] = getDefaultingStep(action.readerOrder[fieldCounter++]);
+      readSteps[i] = createDefaultingStep(action.reader, testInstance, action.readerOrder[fieldCounter++]);
     }
 
     recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
     return recordReader;
   }
 
+  /**
+   * Returns the step that reads the value of <i>readerField</i>, resolved by
+   * <i>fieldAction</i>, into records of <i>recordSchema</i> like
+   * <i>testInstance</i>. The default implementation sets the field of an
+   * {@link IndexedRecord}.
+   */
+  protected ExecutionStep createFieldStep(Schema recordSchema, Object testInstance, Field readerField,
+      Action fieldAction, Conversion<?> conversion) throws IOException {
+    return createFieldSetter(readerField, getReaderFor(fieldAction, conversion));
+  }
+
+  /**
+   * Returns the step that sets <i>readerField</i>, which is missing from the
+   * writer's schema, to its default value in records of <i>recordSchema</i> like
+   * <i>testInstance</i>.
+   */
+  protected ExecutionStep createDefaultingStep(Schema recordSchema, Object testInstance, Field readerField)
+      throws IOException {
+    return getDefaultingStep(readerField);
+  }
+
   private ExecutionStep createFieldSetter(Field field, FieldReader reader) {
     int pos = field.pos();
     if (reader.canReuse()) {
@@ -190,25 +243,115 @@ public class FastReaderBuilder {
   }
 
   private ExecutionStep getDefaultingStep(Schema.Field field) throws IOException {
-    Object defaultValue = data.getDefaultValue(field);
+    return createFieldSetter(field, getDefaultReader(field, data.getDefaultValue(field)));
+  }
 
+  private FieldReader getDefaultReader(Schema.Field field, Object defaultValue) throws IOException {
     if (isObjectImmutable(defaultValue)) {
-      return createFieldSetter(field, (old, d) -> defaultValue);
+      return (old, d) -> defaultValue;
     } else if (defaultValue instanceof Utf8) {
-      return createFieldSetter(field, reusingReader((old, d) -> readUtf8(old, (Utf8) defaultValue)));
+      return reusingReader((old, d) -> readUtf8(old, (Utf8) defaultValue));
     } else if (defaultValue instanceof List && ((List<?>) defaultValue).isEmpty()) {
-      return createFieldSetter(field, reusingReader((old, d) -> data.newArray(old, 0, field.schema())));
+      return reusingReader((old, d) -> data.newArray(old, 0, field.schema()));
     } else if (defaultValue instanceof Map && ((Map<?, ?>) defaultValue).isEmpty()) {
-      return createFieldSetter(field, reusingReader((old, d) -> data.newMap(old, 0)));
+      return reusingReader((old, d) -> data.newMap(old, 0));
     } else {
       DatumReader<Object> datumReader = createDatumReader(field.schema());
       byte[] encoded = getEncodedValue(field);
-      FieldReader fieldReader = reusingReader(
-          (old, decoder) -> datumReader.read(old, DecoderFactory.get().binaryDecoder(encoded, null)));
-      return createFieldSetter(field, fieldReader);
+      return reusingReader((old, decoder) -> datumReader.read(old, DecoderFactory.get().binaryDecoder(encoded, null)));
     }
   }
 
+  /**
+   * Compiles the fields of a record into one {@link CompiledRecordSteps}. Fields
+   * whose value can be read with a single {@link Decoder} call, skipped writer
+   * fields and immutable defaults become inline instructions; everything else
+   * becomes a call to its regular {@link FieldReader}.
+   */
+  private ExecutionStep compileRecordSteps(RecordAdjust action, IntFunction<Conversion<?>> conversionSupplier,
+      int length) throws IOException {
+    CompiledRecordSteps steps = new CompiledRecordSteps(length);
+    int i = 0;
+    int fieldCounter = 0;
+    for (; i < action.fieldActions.length; i++) {
+      Action fieldAction = action.fieldActions[i];
+      if (fieldAction instanceof Skip) {
+        steps.set(i, CompiledRecordSteps.SKIP, -1, fieldAction.writer);
+      } else {
+        Field readerField = action.readerOrder[fieldCounter++];
+        Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
+        byte op = conversion == null ? getInlineOp(fieldAction) : CompiledRecordSteps.READER;
+        if (op == CompiledRecordSteps.READER) {
+          FieldReader reader = getReaderFor(fieldAction, conversion);
+          steps.set(i, reader.canReuse() ? CompiledRecordSteps.REUSING_READER : CompiledRecordSteps.READER,
+              readerField.pos(), reader);
+        } else {
+          steps.set(i, op, readerField.pos(), null);
+        }
+      }
+    }
+    for (; i < length; i++) {
+      Field readerField = action.readerOrder[fieldCounter++];
+      Object defaultValue = data.getDefaultValue(readerField);
+      if (isObjectImmutable(defaultValue)) {
+        steps.set(i, CompiledRecordSteps.CONSTANT, readerField.pos(), defaultValue);
+      } else {
+        FieldReader reader = getDefaultReader(readerField, defaultValue);
+        steps.set(i, reader.canReuse() ? CompiledRecordSteps.REUSING_READER : CompiledRecordSteps.READER,
+            readerField.pos(), reader);
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * Returns the inline instruction of {@link CompiledRecordSteps} that reads the
+   * value of <i>action</i> exactly like {@link #getReaderFor(Action, Conversion)}
+   * would, or {@link CompiledRecordSteps#READER} if there is none. Schemas with a
+   * logical type or a <tt>java-class</tt> always use their field reader, as
+   * {@link #getReaderForBaseType} may map them to other Java types.
+   */
+  private byte getInlineOp(Action action) {
+    Schema reader = action.reader;
+    if (reader.getLogicalType() != null || reader.getProp(SpecificData.CLASS_PROP) != null) {
+      return CompiledRecordSteps.READER;
+    }
+    if (action.type == Action.Type.DO_NOTHING) {
+      switch (reader.getType()) {
+      case NULL:
+        return CompiledRecordSteps.NULL;
+      case BOOLEAN:
+        return CompiledRecordSteps.BOOLEAN;
+      case INT:
+        return CompiledRecordSteps.INT;
+      case LONG:
+        return CompiledRecordSteps.LONG;
+      case FLOAT:
+        return CompiledRecordSteps.FLOAT;
+      case DOUBLE:
+        return CompiledRecordSteps.DOUBLE;
+      case STRING:
+        return isJavaString(reader) ? CompiledRecordSteps.STRING : CompiledRecordSteps.UTF8;
+      default:
+        return CompiledRecordSteps.READER;
+      }
+    } else if (action.type == Action.Type.PROMOTE) {
+      Schema.Type writer = action.writer.getType();
+      switch (reader.getType()) {
+      case LONG:
+        return CompiledRecordSteps.INT_AS_LONG;
+      case FLOAT:
+        return writer == Schema.Type.INT ? CompiledRecordSteps.INT_AS_FLOAT : CompiledRecordSteps.LONG_AS_FLOAT;
+      case DOUBLE:
+        return writer == Schema.Type.INT ? CompiledRecordSteps.INT_AS_DOUBLE
+            : writer == Schema.Type.LONG ? CompiledRecordSteps.LONG_AS_DOUBLE : CompiledRecordSteps.FLOAT_AS_DOUBLE;
+      default:
+        return CompiledRecordSteps.READER;
+      }
+    }
+    return CompiledRecordSteps.READER;
+  }
+
   private boolean isObjectImmutable(Object object) {
     return object == null || object instanceof Number || object instanceof String || object instanceof GenericEnumSymbol
         || object.getClass().isEnum();
@@ -224,7 +367,8 @@ public class FastReaderBuilder {
     }
   }
 
-  private byte[] getEncodedValue(Field field) throws IOException {
+  /** Returns the default value of <i>field</i>, in the binary encoding. */
+  protected byte[] getEncodedValue(Field field) throws IOException {
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
 
@@ -265,7 +409,7 @@ public class FastReaderBuilder {
         readerSchema.getLogicalType(), finalConversion);
   }
 
-  private FieldReader getNonConvertedReader(Action action) throws IOException {
+  protected FieldReader getNonConvertedReader(Action action) throws IOException {
     switch (action.type) {
     case CONTAINER:
       switch (action.reader.getType()) {
@@ -297,7 +441,7 @@ public class FastReaderBuilder {
     }
   }
 
-  private FieldReader getReaderForBaseType(Schema readerSchema, Schema writerSchema) throws IOException {
+  protected FieldReader getReaderForBaseType(Schema readerSchema, Schema writerSchema) throws IOException {
     switch (readerSchema.getType()) {
     case NULL:
       return (old, decoder) -> {
@@ -373,9 +517,16 @@ public class FastReaderBuilder {
     }
   }
 
+  /**
+   * Returns true if strings of <i>readerSchema</i> are read as {@link String}
+   * rather than {@link Utf8}.
+   */
+  protected boolean isJavaString(Schema readerSchema) {
+    return GenericData.StringType.String.name().equals(readerSchema.getProp(GenericData.STRING_PROP));
+  }
+
   private FieldReader createSimpleStringReader(Schema readerSchema) {
-    String stringProperty = readerSchema.getProp(GenericData.STRING_PROP);
-    if (GenericData.StringType.String.name().equals(stringProperty)) {
+    if (isJavaString(readerSchema)) {
       return (old, decoder) -> decoder.readString();
     } else {
       return (old, decoder) -> decoder.readString(old instanceof Utf8 ? (Utf8) old : null);
@@ -383,8 +534,7 @@ public class FastReaderBuilder {
   }
 
   private FieldReader createBytesPromotingToStringReader(Schema readerSchema) {
-    String stringProperty = readerSchema.getProp(GenericData.STRING_PROP);
-    if (GenericData.StringType.String.name().equals(stringProperty)) {
+    if (isJavaString(readerSchema)) {
       return (old, decoder) -> getStringFromByteBuffer(decoder.readBytes(null));
     } else {
       return (old, decoder) -> getUtf8FromByteBuffer(old, decoder.readBytes(null));
@@ -454,15 +604,28 @@ public class FastReaderBuilder {
   }
 
   @SuppressWarnings("unchecked")
-  private FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
+  protected FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
     FieldReader elementReader = getReaderFor(action.elementAction, null);
+    Schema elementSchema = readerSchema.getElementType();
+    // items that need no resolution can be read unboxed, in bulk
+    boolean plainItems = action.elementAction.type == Action.Type.DO_NOTHING && elementSchema.getLogicalType() == null;
 
     return reusingReader((reuse, decoder) -> {
+      if (reuse instanceof PrimitivesArrays.PrimitiveArray && !PrimitivesArrays.isFor(reuse, readerSchema)) {
+        reuse = null; // holds elements of another type, cannot be reused
+      }
       if (reuse instanceof GenericArray) {
         GenericArray<Object> reuseArray = (GenericArray<Object>) reuse;
         long l = decoder.readArrayStart();
         reuseArray.clear();
 
+        if (plainItems && PrimitivesArrays.isFor(reuse, readerSchema)) {
+          while (l > 0) {
+            ((PrimitivesArrays.PrimitiveArray<?>) reuse).readItems(decoder, (int) l);
+            l = decoder.arrayNext();
+          }
+          return reuseArray;
+        }
         while (l > 0) {
           for (long i = 0; i < l; i++) {
             reuseArray.add(elementReader.read(reuseArray.peek(), decoder));
@@ -473,8 +636,15 @@ public class FastReaderBuilder {
       } else {
         long l = decoder.readArrayStart();
         List<Object> array = (reuse instanceof List) ? (List<Object>) reuse
-            : new GenericData.Array<>((int) l, readerSchema);
+            : (List<Object>) data.newArray(null, (int) l, readerSchema);
         array.clear();
+        if (plainItems && PrimitivesArrays.isFor(array, readerSchema)) {
+          while (l > 0) {
+            ((PrimitivesArrays.PrimitiveArray<?>) array).readItems(decoder, (int) l);
+            l = decoder.arrayNext();
+          }
+          return array;
+        }
         while (l > 0) {
           for (long i = 0; i < l; i++) {
             array.add(elementReader.read(null, decoder));
@@ -611,4 +781,117 @@ public class FastReaderBuilder {
     public void execute(Object record, Decoder decoder) throws IOException;
   }
 
+  /**
+   * All fields of a record as one flat program of instructions, executed by a
+   * single switch. This keeps the per field work of the common cases inside one
+   * method the JIT can compile as a whole, instead of dispatching through a
+   * megamorphic {@link ExecutionStep} and {@link FieldReader} call per field.
+   */
+  static class CompiledRecordSteps implements ExecutionStep {
+    static final byte SKIP = 0;
+    static final byte CONSTANT = 1;
+    static final byte READER = 2;
+    static final byte REUSING_READER = 3;
+    static final byte NULL = 4;
+    static final byte BOOLEAN = 5;
+    static final byte INT = 6;
+    static final byte LONG = 7;
+    static final byte FLOAT = 8;
+    static final byte DOUBLE = 9;
+    static final byte STRING = 10;
+    static final byte UTF8 = 11;
+    static final byte INT_AS_LONG = 12;
+    static final byte INT_AS_FLOAT = 13;
+    static final byte LONG_AS_FLOAT = 14;
+    static final byte INT_AS_DOUBLE = 15;
+    static final byte LONG_AS_DOUBLE = 16;
+    static final byte FLOAT_AS_DOUBLE = 17;
+
+    private final byte[] ops;
+    private final int[] positions;
+    /** the skipped schema, constant or reader of each instruction, if any */
+    private final Object[] operands;
+
+    CompiledRecordSteps(int length) {
+      this.ops = new byte[length];
+      this.positions = new int[length];
+      this.operands = new Object[length];
+    }
+
+    void set(int i, byte op, int position, Object operand) {
+      ops[i] = op;
+      positions[i] = position;
+      operands[i] = operand;
+    }
+
+    @Override
+    public void execute(Object object, Decoder decoder) throws IOException {
+      IndexedRecord record = (IndexedRecord) object;
+      final byte[] ops = this.ops;
+      for (int i = 0; i < ops.length; i++) {
+        int pos = positions[i];
+        switch (ops[i]) {
+        case SKIP:
+          GenericDatumReader.skip((Schema) operands[i], decoder);
+          break;
+        case CONSTANT:
+          record.put(pos, operands[i]);
+          break;
+        case READER:
+          record.put(pos, ((FieldReader) operands[i]).read(null, decoder));
+          break;
+        case REUSING_READER:
+          record.put(pos, ((FieldReader) operands[i]).read(record.get(pos), decoder));
+          break;
+        case NULL:
+          decoder.readNull();
+          record.put(pos, null);
+          break;
+        case BOOLEAN:
+          record.put(pos, decoder.readBoolean());
+          break;
+        case INT:
+          record.put(pos, decoder.readInt());
+          break;
+        case LONG:
+          record.put(pos, decoder.readLong());
+          break;
+        case FLOAT:
+          record.put(pos, decoder.readFloat());
+          break;
+        case DOUBLE:
+          record.put(pos, decoder.readDouble());
+          break;
+        case STRING:
+          record.put(pos, decoder.readString());
+          break;
+        case UTF8:
+          Object old = record.get(pos);
+          record.put(pos, decoder.readString(old instanceof Utf8 ? (Utf8) old : null));
+          break;
+        case INT_AS_LONG:
+          record.put(pos, (long) decoder.readInt());
+          break;
+        case INT_AS_FLOAT:
+          record.put(pos, (float) decoder.readInt());
+          break;
+        case LONG_AS_FLOAT:
+          record.put(pos, (float) decoder.readLong());
+          break;
+        case INT_AS_DOUBLE:
+          record.put(pos, (double) decoder.readInt());
+          break;
+        case LONG_AS_DOUBLE:
+          record.put(pos, (double) decoder.readLong());
+          break;
+        case FLOAT_AS_DOUBLE:
+          record.put(pos, (double) decoder.readFloat());
+          break;
+        default:
+          throw new IllegalStateException("Unknown instruction " + ops[i]);
+        }
+      }
+    }
+  }
+
 }
@@ -0,0 +1,462 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericContainer;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.path.ArrayPositionPredicate;
+import org.apache.avro.path.LocationStep;
+import org.apache.avro.path.MapKeyPredicate;
+import org.apache.avro.path.PathElement;
+import org.apache.avro.path.PathTracingException;
+import org.apache.avro.path.TracingAvroTypeException;
+import org.apache.avro.path.TracingClassCastException;
+import org.apache.avro.path.TracingNullPointException;
+import org.apache.avro.path.UnionTypePredicate;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificFixed;
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.ClassUtils;
+import org.apache.avro.util.SchemaUtil;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * The write side counterpart of {@link FastReaderBuilder}. Compiles a schema
+ * once into a tree of {@link FieldWriter}s, with the field positions, union
+ * branch writers and logical type handling of each node worked out up front, so
+ * writing a datum no longer dispatches on the schema type or looks up fields
+ * and conversions for every value.
+ * <p/>
+ * Used by {@link org.apache.avro.generic.GenericDatumWriter} and
+ * {@link org.apache.avro.specific.SpecificDatumWriter} when
+ * {@link GenericData#isFastWriterEnabled()}. Errors are reported like those
+ * writers do, with the path to the value that could not be written.
+ */
+public class FastWriterBuilder {
+
+  /**
+   * Generic/SpecificData instance that contains basic functionalities like
+   * conversions and union resolution
+   */
+  private final GenericData data;
+
+  /** record writers by schema, so that recursive schemas terminate */
+  private final Map<Schema, RecordWriter> writerCache = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  public static FastWriterBuilder get() {
+    return new FastWriterBuilder(GenericData.get());
+  }
+
+  public static FastWriterBuilder getSpecific() {
+    return new FastWriterBuilder(SpecificData.get());
+  }
+
+  /**
+   * Returns true if data is a plain {@link GenericData} or {@link SpecificData}.
+   * The custom coders of specific records are already compiled writers, so
+   * {@link SpecificData} is not supported while they are enabled.
+   */
+  public static boolean isSupportedData(GenericData data) {
+    return data.getClass() == GenericData.class
+        || (data.getClass() == SpecificData.class && !((SpecificData) data).useCustomCoders());
+  }
+
+  public FastWriterBuilder(GenericData parentData) {
+    this.data = parentData;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    FieldWriter writer = getWriterFor(schema);
+    FieldWriter root = (datum, out) -> {
+      try {
+        writer.write(datum, out);
+      } catch (RuntimeException e) {
+        RuntimeException traced = trace(e, datum, schema);
+        if (traced instanceof PathTracingException) {
+          throw (RuntimeException) ((PathTracingException<?>) traced).summarize(schema);
+        }
+        throw traced;
+      }
+    };
+    return (DatumWriter<D>) root;
+  }
+
+  /**
+   * Returns what writing <i>datum</i> of <i>schema</i> threw as
+   * {@link org.apache.avro.generic.GenericDatumWriter} does: null pointers, class
+   * casts and type errors become exceptions that trace the path to the value.
+   */
+  private static RuntimeException trace(RuntimeException e, Object datum, Schema schema) {
+    if (e instanceof PathTracingException) {
+      return e;
+    } else if (e instanceof NullPointerException) {
+      return new TracingNullPointException((NullPointerException) e, schema, false);
+    } else if (e instanceof ClassCastException) {
+      return new TracingClassCastException((ClassCastException) e, datum, schema, false);
+    } else if (e instanceof AvroTypeException) {
+      return new TracingAvroTypeException((AvroTypeException) e);
+    }
+    return e;
+  }
+
+  /** Like {@link #trace}, and adds <i>step</i> to the traced path. */
+  private static RuntimeException trace(RuntimeException e, Object datum, Schema schema, PathElement step) {
+    RuntimeException traced = trace(e, datum, schema);
+    if (traced instanceof PathTracingException) {
+      ((PathTracingException<?>) traced).tracePath(step);
+    }
+    return traced;
+  }
+
+  private FieldWriter getWriterFor(Schema schema) {
+    return applyConversions(schema, getNonConvertedWriter(schema));
+  }
+
+  private FieldWriter applyConversions(Schema schema, FieldWriter writer) {
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return writer;
+    }
+    return (datum, out) -> {
+      if (datum != null) {
+        Conversion<?> conversion = data.getConversionByClass(datum.getClass(), logicalType);
+        if (conversion != null) {
+          datum = Conversions.convertToRawType(datum, schema, logicalType, conversion);
+        }
+      }
+      writer.write(datum, out);
+    };
+  }
+
+  private FieldWriter getNonConvertedWriter(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD:
+      return createRecordWriter(schema);
+    case ENUM:
+      return createEnumWriter(schema);
+    case ARRAY:
+      return createArrayWriter(schema);
+    case MAP:
+      return createMapWriter(schema);
+    case UNION:
+      return createUnionWriter(schema);
+    case FIXED:
+      int size = schema.getFixedSize();
+      return (datum, out) -> out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+    case STRING:
+      return createStringWriter(schema);
+    case BYTES:
+      return (datum, out) -> out.writeBytes((ByteBuffer) datum);
+    case INT:
+      return (datum, out) -> out.writeInt(((Number) datum).intValue());
+    case LONG:
+      return (datum, out) -> out.writeLong(((Number) datum).longValue());
+    case FLOAT:
+      return (datum, out) -> out.writeFloat(((Number) datum).floatValue());
+    case DOUBLE:
+      return (datum, out) -> out.writeDouble(((Number) datum).doubleValue());
+    case BOOLEAN:
+      return (datum, out) -> out.writeBoolean((Boolean) datum);
+    case NULL:
+      return (datum, out) -> out.writeNull();
+    default:
+      throw new IllegalStateException("Error getting writer for type " + schema.getFullName());
+    }
+  }
+
+  private RecordWriter createRecordWriter(Schema schema) {
+    // record writers are registered before they are initialized, to prevent
+    // endless loops on recursive types
+    RecordWriter recordWriter = writerCache.computeIfAbsent(schema, k -> new RecordWriter());
+    synchronized (recordWriter) {
+      if (recordWriter.fields == null) {
+        List<Field> fields = schema.getFields();
+        recordWriter.fields = fields.toArray(new Field[0]);
+        FieldWriter[] writers = new FieldWriter[fields.size()];
+        FieldWriter[] rawWriters = new FieldWriter[fields.size()];
+        for (Field field : fields) {
+          rawWriters[field.pos()] = getNonConvertedWriter(field.schema());
+          writers[field.pos()] = applyConversions(field.schema(), rawWriters[field.pos()]);
+        }
+        recordWriter.rawWriters = rawWriters;
+        recordWriter.writers = writers;
+      }
+    }
+    return recordWriter;
+  }
+
+  private FieldWriter createEnumWriter(Schema schema) {
+    boolean specific = data instanceof SpecificData;
+    return (datum, out) -> {
+      if (specific && datum instanceof Enum) {
+        out.writeEnum(((Enum<?>) datum).ordinal());
+      } else if (datum instanceof GenericEnumSymbol) {
+        out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+      } else {
+        throw new AvroTypeException("value " + SchemaUtil.describe(datum) + " is not a " + SchemaUtil.describe(schema));
+      }
+    };
+  }
+
+  private FieldWriter createArrayWriter(Schema schema) {
+    Schema element = schema.getElementType();
+    FieldWriter elementWriter = getWriterFor(element);
+    // arrays read as primitive arrays are written back in bulk
+    boolean plainItems = element.getLogicalType() == null;
+
+    return (datum, out) -> {
+      Collection<?> array = (Collection<?>) datum;
+      long size = array.size();
+      out.writeArrayStart();
+      out.setItemCount(size);
+      long actualSize = 0;
+      if (plainItems && PrimitivesArrays.isFor(datum, schema)) {
+        actualSize = ((PrimitivesArrays.PrimitiveArray<?>) datum).writeItems(out);
+      } else {
+        for (Object item : array) {
+          out.startItem();
+          try {
+            elementWriter.write(item, out);
+          } catch (RuntimeException e) {
+            throw trace(e, item, element, new ArrayPositionPredicate(actualSize));
+          }
+          actualSize++;
+        }
+      }
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+      }
+      out.writeArrayEnd();
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private FieldWriter createMapWriter(Schema schema) {
+    Schema valueSchema = schema.getValueType();
+    FieldWriter valueWriter = getWriterFor(valueSchema);
+    return (datum, out) -> {
+      Map<Object, Object> map = (Map<Object, Object>) datum;
+      int size = map.size();
+      int actualSize = 0;
+      out.writeMapStart();
+      out.setItemCount(size);
+      for (Map.Entry<Object, Object> entry : map.entrySet()) {
+        out.startItem();
+        Object key = entry.getKey();
+        if (key == null) {
+          TracingNullPointException e = new TracingNullPointException(new NullPointerException(),
+              Schema.create(Schema.Type.STRING), false);
+          e.tracePath(new MapKeyPredicate(null));
+          throw e;
+        }
+        String name = key.toString();
+        out.writeString(name);
+        Object value = entry.getValue();
+        try {
+          valueWriter.write(value, out);
+        } catch (RuntimeException e) {
+          throw trace(e, value, valueSchema, new MapKeyPredicate(name));
+        }
+        actualSize++;
+      }
+      out.writeMapEnd();
+      if (actualSize != size) {
+        throw new ConcurrentModificationException(
+            "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+      }
+    };
+  }
+
+  private FieldWriter createUnionWriter(Schema schema) {
+    List<Schema> types = schema.getTypes();
+    FieldWriter[] branchWriters = new FieldWriter[types.size()];
+    for (int i = 0; i < branchWriters.length; i++) {
+      branchWriters[i] = getWriterFor(types.get(i));
+    }
+    return new UnionWriter(schema, branchWriters);
+  }
+
+  /**
+   * Writes the branch of a union that a value resolves to. The branches of values
+   * whose class alone determines it, all but generic records, enums and fixed,
+   * are resolved once per class.
+   */
+  private class UnionWriter implements FieldWriter {
+    private static final int MAX_CLASSES = 8;
+
+    private final Schema schema;
+    private final FieldWriter[] branchWriters;
+    private final int nullBranch;
+    /** the branches that values of classes resolved to */
+    private volatile Branch[] resolved = new Branch[0];
+
+    UnionWriter(Schema schema, FieldWriter[] branchWriters) {
+      this.schema = schema;
+      this.branchWriters = branchWriters;
+      Integer nullIndex = schema.getIndexNamed(Schema.Type.NULL.getName());
+      this.nullBranch = nullIndex == null ? -1 : nullIndex;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      int index = (datum == null && nullBranch >= 0) ? nullBranch : resolve(datum);
+      out.writeIndex(index);
+      try {
+        branchWriters[index].write(datum, out);
+      } catch (RuntimeException e) {
+        Schema branch = schema.getTypes().get(index);
+        throw trace(e, datum, branch, new UnionTypePredicate(branch.getName()));
+      }
+    }
+
+    private int resolve(Object datum) {
+      if (datum == null) {
+        return data.resolveUnion(schema, null);
+      }
+      Class<?> type = datum.getClass();
+      Branch[] resolved = this.resolved;
+      for (Branch branch : resolved) {
+        if (branch.type == type) {
+          return branch.index;
+        }
+      }
+      int index = data.resolveUnion(schema, datum);
+      boolean byClass = !(datum instanceof GenericContainer) || datum instanceof SpecificRecord
+          || datum instanceof SpecificFixed;
+      if (byClass && resolved.length < MAX_CLASSES) {
+        synchronized (this) {
+          Branch[] more = Arrays.copyOf(this.resolved, this.resolved.length + 1);
+          more[more.length - 1] = new Branch(type, index);
+          this.resolved = more;
+        }
+      }
+      return index;
+    }
+  }
+
+  private static final class Branch {
+    private final Class<?> type;
+    private final int index;
+
+    Branch(Class<?> type, int index) {
+      this.type = type;
+      this.index = index;
+    }
+  }
+
+  private FieldWriter createStringWriter(Schema schema) {
+    if (!(data instanceof SpecificData)
+        || GenericData.StringType.String.name().equals(schema.getProp(GenericData.STRING_PROP))) {
+      return (datum, out) -> out.writeString((CharSequence) datum);
+    }
+    SpecificData specific = (SpecificData) data;
+    Class<?> javaClass = findClass(schema.getProp(SpecificData.CLASS_PROP));
+    if (javaClass != null && specific.isStringableClass(javaClass)) {
+      // values of a stringable java-class are written with toString()
+      return (datum, out) -> out.writeString(datum.toString());
+    }
+    // other stringable values are written with toString() too, like
+    // SpecificDatumWriter.writeString does
+    return (datum, out) -> {
+      if (!(datum instanceof CharSequence) && datum != null && specific.isStringableClass(datum.getClass())) {
+        datum = datum.toString();
+      }
+      out.writeString((CharSequence) datum);
+    };
+  }
+
+  private Class<?> findClass(String className) {
+    if (className == null) {
+      return null;
+    }
+    try {
+      return ClassUtils.forName(data.getClassLoader(), className);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  public interface FieldWriter extends DatumWriter<Object> {
+    @Override
+    void write(Object datum, Encoder out) throws IOException;
+
+    @Override
+    default void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Writes the fields of an {@link IndexedRecord} in order. Conversions declared
+   * by a {@link SpecificRecordBase} take precedence over those registered by
+   * class, as in {@link org.apache.avro.specific.SpecificDatumWriter}.
+   */
+  public static class RecordWriter implements FieldWriter {
+    private Field[] fields;
+    private FieldWriter[] writers;
+    private FieldWriter[] rawWriters;
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      IndexedRecord record = (IndexedRecord) datum;
+      SpecificRecordBase specific = datum instanceof SpecificRecordBase ? (SpecificRecordBase) datum : null;
+      for (int i = 0; i < writers.length; i++) {
+        Object value = record.get(i);
+        try {
+          if (specific != null) {
+            Conversion<?> conversion = specific.getConversion(i);
+            Schema fieldSchema = fields[i].schema();
+            if (conversion != null && fieldSchema.getLogicalType() != null) {
+              value = Conversions.convertToRawType(value, fieldSchema, fieldSchema.getLogicalType(), conversion);
+            }
+            rawWriters[i].write(value, out);
+          } else {
+            writers[i].write(value, out);
+          }
+        } catch (final UnresolvedUnionException uue) { // recreate it with the right field info
+          final UnresolvedUnionException unresolvedUnionException = new UnresolvedUnionException(fields[i].schema(),
+              fields[i], value);
+          unresolvedUnionException.addSuppressed(uue);
+          throw unresolvedUnionException;
+        } catch (RuntimeException e) {
+          throw trace(e, value, fields[i].schema(), new LocationStep(".", fields[i].name()));
+        }
+      }
+    }
+  }
+}
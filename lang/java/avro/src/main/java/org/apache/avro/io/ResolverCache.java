@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.avro.Resolver;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * A process wide, size bounded cache of schema resolutions. For each pair of
+ * writer's and reader's schema it holds the resolving grammar used by
+ * {@link ResolvingDecoder} and the {@link Resolver.Action} trees used by
+ * {@link FastReaderBuilder}, so that these are built once per process rather
+ * than once per thread. The per use state of a {@link ResolvingDecoder} is
+ * cheap, and is pooled by each {@link Entry}.
+ * <p/>
+ * Entries are keyed by 64-bit fingerprints of the full JSON of both schemas,
+ * including defaults, aliases and properties, since all of them affect
+ * resolution. The least recently used entries are evicted once there are more
+ * than {@value #DEFAULT_MAX_ENTRIES} of them, or as many as set by the
+ * {@value #MAX_ENTRIES_PROP} system property.
+ * <p/>
+ * The fingerprint of a schema is computed once per schema instance, so schemas
+ * must not be modified after their first use, as with the other caches of
+ * resolvers. As a safeguard, a schema whose own hash code changed since, for
+ * example through {@link Schema#addProp}, is fingerprinted again; changes to
+ * the schemas nested in it are not detected.
+ */
+public final class ResolverCache {
+
+  public static final String MAX_ENTRIES_PROP = "org.apache.avro.resolvercache.maxentries";
+
+  public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  private static final ResolverCache INSTANCE = new ResolverCache(
+      Integer.getInteger(MAX_ENTRIES_PROP, DEFAULT_MAX_ENTRIES));
+
+  /** Number of idle decoders kept by each entry. */
+  private static final int IDLE_DECODERS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  /** Return the process wide instance. */
+  public static ResolverCache get() {
+    return INSTANCE;
+  }
+
+  private final Map<Key, Entry> entries;
+
+  private final Map<Schema, Fingerprint> fingerprints = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  public ResolverCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Invalid maximum number of entries: " + maxEntries);
+    }
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the entry for data written with <i>writer</i> and read with
+   * <i>reader</i>. Aliases of the reader's schema are applied to the writer's.
+   * The entry is cheap to look up again, but callers that resolve the same pair
+   * repeatedly should keep it.
+   */
+  public Entry getEntry(Schema writer, Schema reader) {
+    Key key = new Key(fingerprint(writer), fingerprint(reader));
+    synchronized (entries) {
+      return entries.computeIfAbsent(key, k -> new Entry(writer, reader));
+    }
+  }
+
+  /**
+   * Returns the resolution of <i>writer</i> to <i>reader</i> for the data model
+   * <i>data</i>, as returned by
+   * {@link Resolver#resolve(Schema, Schema, GenericData)}.
+   */
+  public Resolver.Action getAction(Schema writer, Schema reader, GenericData data) {
+    return getEntry(writer, reader).getAction(data);
+  }
+
+  /** Returns the number of cached entries. */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** Removes all cached entries. */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private long fingerprint(Schema schema) {
+    int hashCode = schema.hashCode(); // cached by the schema, reset when it changes
+    Fingerprint fingerprint = fingerprints.get(schema);
+    if (fingerprint == null || fingerprint.hashCode != hashCode) {
+      fingerprint = new Fingerprint(hashCode,
+          SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8)));
+      fingerprints.put(schema, fingerprint);
+    }
+    return fingerprint.value;
+  }
+
+  private static final class Fingerprint {
+    private final int hashCode;
+    private final long value;
+
+    Fingerprint(int hashCode, long value) {
+      this.hashCode = hashCode;
+      this.value = value;
+    }
+  }
+
+  private static final class Key {
+    private final long writer;
+    private final long reader;
+
+    Key(long writer, long reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return writer == that.writer && reader == that.reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(writer) * 31 + Long.hashCode(reader);
+    }
+  }
+
+  /**
+   * The cached resolution of one pair of schemas. Its grammar and actions are
+   * built lazily, by the first thread that needs them.
+   */
+  public static final class Entry {
+    private final Schema writer;
+    private final Schema reader;
+    private volatile Object grammar;
+    private final Map<GenericData, Resolver.Action> actions = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+    private final AtomicReferenceArray<ResolvingDecoder> idle = new AtomicReferenceArray<>(IDLE_DECODERS);
+
+    private Entry(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    private Object getGrammar() throws IOException {
+      Object result = grammar;
+      if (result == null) {
+        synchronized (this) {
+          result = grammar;
+          if (result == null) {
+            result = ResolvingDecoder.resolve(Schema.applyAliases(writer, reader), reader);
+            grammar = result;
+          }
+        }
+      }
+      return result;
+    }
+
+    /** Returns a new {@link ResolvingDecoder} reading from <i>in</i>. */
+    public ResolvingDecoder newResolvingDecoder(Decoder in) throws IOException {
+      return new ResolvingDecoder(getGrammar(), in);
+    }
+
+    /**
+     * Returns an idle {@link ResolvingDecoder}, or a new one, configured to read
+     * from <i>in</i>. Hand it back with {@link #release} once done.
+     */
+    public ResolvingDecoder acquire(Decoder in) throws IOException {
+      int start = (int) (Thread.currentThread().getId() % IDLE_DECODERS);
+      for (int i = 0; i < IDLE_DECODERS; i++) {
+        ResolvingDecoder decoder = idle.getAndSet((start + i) % IDLE_DECODERS, null);
+        if (decoder != null) {
+          decoder.configure(in);
+          return decoder;
+        }
+      }
+      return newResolvingDecoder(in);
+    }
+
+    /**
+     * Hands back a decoder returned by {@link #acquire}. It must not be used
+     * afterwards.
+     */
+    public void release(ResolvingDecoder decoder) throws IOException {
+      decoder.configure(null); // drop the underlying decoder
+      int start = (int) (Thread.currentThread().getId() % IDLE_DECODERS);
+      for (int i = 0; i < IDLE_DECODERS; i++) {
+        if (idle.compareAndSet((start + i) % IDLE_DECODERS, null, decoder)) {
+          return;
+        }
+      }
+    }
+
+    /** Returns the resolution for the data model <i>data</i>. */
+    public Resolver.Action getAction(GenericData data) {
+      return actions.computeIfAbsent(data, d -> Resolver.resolve(writer, reader, d));
+    }
+  }
+}
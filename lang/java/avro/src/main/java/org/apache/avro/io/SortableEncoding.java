@@ -0,0 +1,626 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+
+/**
+ * A byte comparable encoding of the datums of one schema: encoded datums
+ * compare with {@link #compare(byte[], int, int, byte[], int, int)}, a plain
+ * unsigned byte comparison, exactly like
+ * {@link BinaryData#compare(byte[], int, int, byte[], int, int, Schema)}
+ * compares their binary encodings, honoring each field's {@link Field.Order}.
+ * <p/>
+ * Values are encoded as follows:
+ * <ul>
+ * <li>ints, enums and longs as 4 or 8 big endian bytes with the sign bit
+ * flipped;</li>
+ * <li>floats and doubles as their IEEE 754 bits, with the sign bit flipped if
+ * positive and all bits flipped if negative;</li>
+ * <li>booleans as one byte, fixed as their bytes and nulls as nothing;</li>
+ * <li>strings and bytes with zero bytes escaped as <tt>00 FF</tt>, and
+ * terminated by <tt>00 01</tt>;</li>
+ * <li>arrays and maps as their items, each preceded by <tt>01</tt>, and
+ * terminated by <tt>00</tt>;</li>
+ * <li>unions as the index of the branch, in one byte if there are no more than
+ * 256 branches, followed by the value;</li>
+ * <li>records as their fields, with all the bytes of descending fields
+ * flipped.</li>
+ * </ul>
+ * Fields whose order is {@link Field.Order#IGNORE} must not affect the
+ * comparison, so they are written in the binary encoding after all other values
+ * of the datum, and followed by the length of the other values as 4 big endian
+ * bytes, which {@link #compare} compares up to.
+ * <p/>
+ * Datums are written and read by any binary {@link DatumWriter} and
+ * {@link DatumReader}, wrapped by {@link #writer} and {@link #reader}.
+ */
+public final class SortableEncoding {
+
+  private static final int MIN_INT = 0x80000000;
+  private static final long MIN_LONG = 0x8000000000000000L;
+
+  private final Schema schema;
+  private final boolean hasIgnoredFields;
+
+  public SortableEncoding(Schema schema) {
+    this.schema = schema;
+    this.hasIgnoredFields = hasIgnoredFields(schema, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  /** Return the schema of the encoded datums. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns true if the schema has fields that are ignored when sorting, so that
+   * the encodings are followed by their length.
+   */
+  public boolean hasIgnoredFields() {
+    return hasIgnoredFields;
+  }
+
+  /**
+   * Compare encoded datums. If equal, return zero. If greater-than, return a
+   * positive value, if less than return a negative value.
+   */
+  public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+    if (hasIgnoredFields) {
+      l1 = getInt(b1, s1 + l1 - 4);
+      l2 = getInt(b2, s2 + l2 - 4);
+    }
+    return BinaryData.compareBytes(b1, s1, l1, b2, s2, l2);
+  }
+
+  /**
+   * Returns a writer of sortable encodings of the datums written by
+   * <i>binaryWriter</i>. The returned writer is not thread-safe.
+   */
+  public <D> DatumWriter<D> writer(DatumWriter<D> binaryWriter) {
+    return new SortableWriter<>(binaryWriter);
+  }
+
+  /**
+   * Returns a reader of sortable encodings of the datums read by
+   * <i>binaryReader</i>. The returned reader is not thread-safe.
+   */
+  public <D> DatumReader<D> reader(DatumReader<D> binaryReader) {
+    return new SortableReader<>(binaryReader);
+  }
+
+  private static boolean hasIgnoredFields(Schema schema, Set<Schema> seen) {
+    switch (schema.getType()) {
+    case RECORD:
+      if (!seen.add(schema)) {
+        return false;
+      }
+      for (Field field : schema.getFields()) {
+        if (field.order() == Field.Order.IGNORE || hasIgnoredFields(field.schema(), seen)) {
+          return true;
+        }
+      }
+      return false;
+    case ARRAY:
+      return hasIgnoredFields(schema.getElementType(), seen);
+    case MAP:
+      return hasIgnoredFields(schema.getValueType(), seen);
+    case UNION:
+      for (Schema branch : schema.getTypes()) {
+        if (hasIgnoredFields(branch, seen)) {
+          return true;
+        }
+      }
+      return false;
+    default:
+      return false;
+    }
+  }
+
+  private static int getInt(byte[] b, int pos) {
+    return ((b[pos] & 0xff) << 24) | ((b[pos + 1] & 0xff) << 16) | ((b[pos + 2] & 0xff) << 8) | (b[pos + 3] & 0xff);
+  }
+
+  /** A {@link ByteArrayOutputStream} whose buffer can be read in place. */
+  private static final class Buffer extends ByteArrayOutputStream {
+    byte[] buf() {
+      return buf;
+    }
+
+    void writeInt(int n, int mask) {
+      write((n >>> 24) ^ mask);
+      write((n >>> 16) ^ mask);
+      write((n >>> 8) ^ mask);
+      write(n ^ mask);
+    }
+
+    void writeLong(long n, int mask) {
+      writeInt((int) (n >>> 32), mask);
+      writeInt((int) n, mask);
+    }
+  }
+
+  /**
+   * Copies a value of <i>schema</i> from <i>in</i> to <i>out</i>, both in the
+   * binary encoding.
+   */
+  private static void copy(Schema schema, Decoder in, Encoder out, ByteBuffer scratch) throws IOException {
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field field : schema.getFields()) {
+        copy(field.schema(), in, out, scratch);
+      }
+      break;
+    case ENUM:
+      out.writeEnum(in.readEnum());
+      break;
+    case ARRAY:
+      out.writeArrayStart();
+      for (long l = in.readArrayStart(); l > 0; l = in.arrayNext()) {
+        out.setItemCount(l);
+        for (long i = 0; i < l; i++) {
+          out.startItem();
+          copy(schema.getElementType(), in, out, scratch);
+        }
+      }
+      out.writeArrayEnd();
+      break;
+    case MAP:
+      out.writeMapStart();
+      for (long l = in.readMapStart(); l > 0; l = in.mapNext()) {
+        out.setItemCount(l);
+        for (long i = 0; i < l; i++) {
+          out.startItem();
+          // keys are encoded like bytes
+          scratch = in.readBytes(scratch);
+          out.writeBytes(scratch);
+          copy(schema.getValueType(), in, out, scratch);
+        }
+      }
+      out.writeMapEnd();
+      break;
+    case UNION:
+      int index = in.readIndex();
+      out.writeIndex(index);
+      copy(schema.getTypes().get(index), in, out, scratch);
+      break;
+    case FIXED:
+      byte[] fixed = new byte[schema.getFixedSize()];
+      in.readFixed(fixed);
+      out.writeFixed(fixed);
+      break;
+    case STRING:
+    case BYTES:
+      scratch = in.readBytes(scratch);
+      out.writeBytes(scratch);
+      break;
+    case INT:
+      out.writeInt(in.readInt());
+      break;
+    case LONG:
+      out.writeLong(in.readLong());
+      break;
+    case FLOAT:
+      out.writeFloat(in.readFloat());
+      break;
+    case DOUBLE:
+      out.writeDouble(in.readDouble());
+      break;
+    case BOOLEAN:
+      out.writeBoolean(in.readBoolean());
+      break;
+    case NULL:
+      in.readNull();
+      out.writeNull();
+      break;
+    default:
+      throw new AvroRuntimeException("Unknown type: " + schema);
+    }
+  }
+
+  private final class SortableWriter<D> implements DatumWriter<D> {
+    private final DatumWriter<D> binaryWriter;
+    private final Buffer binary = new Buffer();
+    private final Buffer sortable = new Buffer();
+    private final Buffer ignored = new Buffer();
+    private BinaryEncoder binaryEncoder;
+    private BinaryEncoder ignoredEncoder;
+    private BinaryDecoder decoder;
+
+    SortableWriter(DatumWriter<D> binaryWriter) {
+      this.binaryWriter = binaryWriter;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      binaryWriter.setSchema(schema);
+    }
+
+    @Override
+    public void write(D datum, Encoder out) throws IOException {
+      binary.reset();
+      binaryEncoder = EncoderFactory.get().directBinaryEncoder(binary, binaryEncoder);
+      binaryWriter.write(datum, binaryEncoder);
+      binaryEncoder.flush();
+
+      sortable.reset();
+      ignored.reset();
+      ignoredEncoder = EncoderFactory.get().directBinaryEncoder(ignored, ignoredEncoder);
+      decoder = DecoderFactory.get().binaryDecoder(binary.buf(), 0, binary.size(), decoder);
+      encode(schema, 0);
+
+      int length = sortable.size();
+      if (hasIgnoredFields) {
+        sortable.write(ignored.buf(), 0, ignored.size());
+        sortable.writeInt(length, 0);
+      }
+      out.writeFixed(sortable.buf(), 0, sortable.size());
+    }
+
+    /**
+     * Transcodes a value from the binary encoding. Bytes are written xor'ed with
+     * <i>mask</i>, so that they are flipped in descending fields.
+     */
+    private void encode(Schema s, int mask) throws IOException {
+      switch (s.getType()) {
+      case RECORD:
+        for (Field field : s.getFields()) {
+          if (field.order() == Field.Order.IGNORE) {
+            copy(field.schema(), decoder, ignoredEncoder, null);
+          } else {
+            encode(field.schema(), field.order() == Field.Order.DESCENDING ? mask ^ 0xff : mask);
+          }
+        }
+        break;
+      case ENUM:
+      case INT:
+        sortable.writeInt(decoder.readInt() ^ MIN_INT, mask);
+        break;
+      case LONG:
+        sortable.writeLong(decoder.readLong() ^ MIN_LONG, mask);
+        break;
+      case FLOAT:
+        int floatBits = Float.floatToIntBits(decoder.readFloat());
+        sortable.writeInt(floatBits < 0 ? ~floatBits : floatBits ^ MIN_INT, mask);
+        break;
+      case DOUBLE:
+        long doubleBits = Double.doubleToLongBits(decoder.readDouble());
+        sortable.writeLong(doubleBits < 0 ? ~doubleBits : doubleBits ^ MIN_LONG, mask);
+        break;
+      case BOOLEAN:
+        sortable.write((decoder.readBoolean() ? 1 : 0) ^ mask);
+        break;
+      case NULL:
+        break;
+      case FIXED:
+        writeBytes(s.getFixedSize(), false, mask);
+        break;
+      case STRING:
+      case BYTES:
+        writeBytes(decoder.readInt(), true, mask);
+        sortable.write(mask);
+        sortable.write(1 ^ mask);
+        break;
+      case ARRAY:
+        for (long l = decoder.readArrayStart(); l > 0; l = decoder.arrayNext()) {
+          for (long i = 0; i < l; i++) {
+            sortable.write(1 ^ mask);
+            encode(s.getElementType(), mask);
+          }
+        }
+        sortable.write(mask);
+        break;
+      case MAP:
+        for (long l = decoder.readMapStart(); l > 0; l = decoder.mapNext()) {
+          for (long i = 0; i < l; i++) {
+            sortable.write(1 ^ mask);
+            writeBytes(decoder.readInt(), true, mask);
+            sortable.write(mask);
+            sortable.write(1 ^ mask);
+            encode(s.getValueType(), mask);
+          }
+        }
+        sortable.write(mask);
+        break;
+      case UNION:
+        int index = decoder.readIndex();
+        if (s.getTypes().size() <= 256) {
+          sortable.write(index ^ mask);
+        } else {
+          sortable.writeInt(index, mask);
+        }
+        encode(s.getTypes().get(index), mask);
+        break;
+      default:
+        throw new AvroRuntimeException("Unknown type: " + s);
+      }
+    }
+
+    /** Writes <i>length</i> bytes of the binary encoding. */
+    private void writeBytes(int length, boolean escape, int mask) throws IOException {
+      byte[] buf = decoder.getBuf();
+      int pos = decoder.getPos();
+      for (int i = pos, end = pos + length; i < end; i++) {
+        int b = buf[i] & 0xff;
+        sortable.write(b ^ mask);
+        if (b == 0 && escape) {
+          sortable.write(0xff ^ mask);
+        }
+      }
+      decoder.skipFixed(length);
+    }
+  }
+
+  private final class SortableReader<D> implements DatumReader<D> {
+    private final DatumReader<D> binaryReader;
+    private final Buffer binary = new Buffer();
+    private final Buffer ignored = new Buffer();
+    private final Buffer datum = new Buffer();
+    private final List<Object> splices = new ArrayList<>();
+    private final byte[] bytes = new byte[8];
+    private byte[] scratch = new byte[256];
+    private BinaryEncoder binaryEncoder;
+    private BinaryEncoder ignoredEncoder;
+    private BinaryDecoder datumDecoder;
+    private Decoder in;
+
+    SortableReader(DatumReader<D> binaryReader) {
+      this.binaryReader = binaryReader;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+      binaryReader.setSchema(schema);
+    }
+
+    @Override
+    public D read(D reuse, Decoder in) throws IOException {
+      this.in = in;
+      binary.reset();
+      binaryEncoder = EncoderFactory.get().directBinaryEncoder(binary, binaryEncoder);
+      splices.clear();
+      decode(schema, 0);
+
+      Buffer result = binary;
+      if (hasIgnoredFields) {
+        // splice the ignored fields, which follow, back into their places
+        ignored.reset();
+        ignoredEncoder = EncoderFactory.get().directBinaryEncoder(ignored, ignoredEncoder);
+        int[] ends = new int[splices.size() / 2];
+        for (int i = 0; i < ends.length; i++) {
+          copy((Schema) splices.get(2 * i + 1), in, ignoredEncoder, null);
+          ends[i] = ignored.size();
+        }
+        in.readFixed(bytes, 0, 4);
+        datum.reset();
+        int binaryPos = 0;
+        int ignoredPos = 0;
+        for (int i = 0; i < ends.length; i++) {
+          int splice = (Integer) splices.get(2 * i);
+          datum.write(binary.buf(), binaryPos, splice - binaryPos);
+          datum.write(ignored.buf(), ignoredPos, ends[i] - ignoredPos);
+          binaryPos = splice;
+          ignoredPos = ends[i];
+        }
+        datum.write(binary.buf(), binaryPos, binary.size() - binaryPos);
+        result = datum;
+      }
+      this.in = null;
+      datumDecoder = DecoderFactory.get().binaryDecoder(result.buf(), 0, result.size(), datumDecoder);
+      return binaryReader.read(reuse, datumDecoder);
+    }
+
+    private int read(int mask) throws IOException {
+      in.readFixed(bytes, 0, 1);
+      return (bytes[0] ^ mask) & 0xff;
+    }
+
+    private int readInt(int mask) throws IOException {
+      in.readFixed(bytes, 0, 4);
+      return getInt(bytes, 0) ^ (mask == 0 ? 0 : -1);
+    }
+
+    private long readLong(int mask) throws IOException {
+      long high = readInt(mask);
+      return (high << 32) | (readInt(mask) & 0xffffffffL);
+    }
+
+    /** Transcodes a value to the binary encoding. */
+    private void decode(Schema s, int mask) throws IOException {
+      switch (s.getType()) {
+      case RECORD:
+        for (Field field : s.getFields()) {
+          if (field.order() == Field.Order.IGNORE) {
+            splices.add(binary.size());
+            splices.add(field.schema());
+          } else {
+            decode(field.schema(), field.order() == Field.Order.DESCENDING ? mask ^ 0xff : mask);
+          }
+        }
+        break;
+      case ENUM:
+        binaryEncoder.writeEnum(readInt(mask) ^ MIN_INT);
+        break;
+      case INT:
+        binaryEncoder.writeInt(readInt(mask) ^ MIN_INT);
+        break;
+      case LONG:
+        binaryEncoder.writeLong(readLong(mask) ^ MIN_LONG);
+        break;
+      case FLOAT:
+        int floatBits = readInt(mask);
+        binaryEncoder.writeFloat(Float.intBitsToFloat(floatBits < 0 ? floatBits ^ MIN_INT : ~floatBits));
+        break;
+      case DOUBLE:
+        long doubleBits = readLong(mask);
+        binaryEncoder.writeDouble(Double.longBitsToDouble(doubleBits < 0 ? doubleBits ^ MIN_LONG : ~doubleBits));
+        break;
+      case BOOLEAN:
+        binaryEncoder.writeBoolean(read(mask) != 0);
+        break;
+      case NULL:
+        binaryEncoder.writeNull();
+        break;
+      case FIXED:
+        int size = s.getFixedSize();
+        if (scratch.length < size) {
+          scratch = new byte[size];
+        }
+        in.readFixed(scratch, 0, size);
+        write(binary, scratch, 0, size, mask);
+        break;
+      case STRING:
+      case BYTES:
+        readBytes(mask);
+        break;
+      case ARRAY:
+        // items are written in blocks of one, as their number is not known
+        binaryEncoder.writeArrayStart();
+        while (read(mask) != 0) {
+          binaryEncoder.setItemCount(1);
+          binaryEncoder.startItem();
+          decode(s.getElementType(), mask);
+        }
+        binaryEncoder.writeArrayEnd();
+        break;
+      case MAP:
+        binaryEncoder.writeMapStart();
+        while (read(mask) != 0) {
+          binaryEncoder.setItemCount(1);
+          binaryEncoder.startItem();
+          readBytes(mask);
+          decode(s.getValueType(), mask);
+        }
+        binaryEncoder.writeMapEnd();
+        break;
+      case UNION:
+        int index = s.getTypes().size() <= 256 ? read(mask) : readInt(mask);
+        binaryEncoder.writeIndex(index);
+        decode(s.getTypes().get(index), mask);
+        break;
+      default:
+        throw new AvroRuntimeException("Unknown type: " + s);
+      }
+    }
+
+    /** Reads escaped bytes, and writes them length prefixed. */
+    private void readBytes(int mask) throws IOException {
+      datum.reset();
+      readRun(mask);
+      while (read(mask) == 0xff) { // an escaped zero, not the terminator
+        datum.write(0);
+        readRun(mask);
+      }
+      binaryEncoder.writeInt(datum.size());
+      binary.write(datum.buf(), 0, datum.size());
+    }
+
+    /**
+     * Reads the bytes up to and including the next zero byte, and writes those
+     * before it to {@link #datum}. Runs are found in bulk, in the buffer of a
+     * {@link BinaryDecoder}, or by reading ahead from the input stream of a direct
+     * one if it supports {@link InputStream#mark}; otherwise bytes are read one at
+     * a time.
+     */
+    private void readRun(int mask) throws IOException {
+      byte zero = (byte) mask;
+      if (in instanceof BinaryDecoder && !(in instanceof DirectBinaryDecoder)) {
+        BinaryDecoder decoder = (BinaryDecoder) in;
+        while (true) {
+          byte[] buf = decoder.getBuf();
+          int pos = decoder.getPos();
+          int limit = decoder.getLimit();
+          int end = indexOf(buf, pos, limit, zero);
+          write(datum, buf, pos, end - pos, mask);
+          if (end < limit) {
+            decoder.skipFixed(end - pos + 1);
+            return;
+          }
+          decoder.skipFixed(end - pos);
+          if (decoder.isEnd()) {
+            throw new EOFException();
+          }
+        }
+      }
+      InputStream stream = in instanceof BinaryDecoder ? ((BinaryDecoder) in).inputStream() : null;
+      if (stream != null && stream.markSupported()) {
+        while (true) {
+          stream.mark(scratch.length);
+          int n = stream.read(scratch, 0, scratch.length);
+          if (n <= 0) {
+            throw new EOFException();
+          }
+          int end = indexOf(scratch, 0, n, zero);
+          write(datum, scratch, 0, end, mask);
+          if (end < n) {
+            stream.reset();
+            skipFully(stream, end + 1);
+            return;
+          }
+        }
+      }
+      for (int b = read(mask); b != 0; b = read(mask)) {
+        datum.write(b);
+      }
+    }
+  }
+
+  private static int indexOf(byte[] buf, int start, int end, byte b) {
+    while (start < end && buf[start] != b) {
+      start++;
+    }
+    return start;
+  }
+
+  /** Writes bytes xor'ed with <i>mask</i> to <i>out</i>. */
+  private static void write(Buffer out, byte[] buf, int start, int length, int mask) {
+    if (mask == 0) {
+      out.write(buf, start, length);
+    } else {
+      for (int i = start, end = start + length; i < end; i++) {
+        out.write(buf[i] ^ mask);
+      }
+    }
+  }
+
+  private static void skipFully(InputStream stream, long n) throws IOException {
+    while (n > 0) {
+      long skipped = stream.skip(n);
+      if (skipped <= 0) {
+        if (stream.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      n -= skipped;
+    }
+  }
+}
@@ -100,6 +100,53 @@ public class ValidatingDecoder extends ParsingDecoder implements Parser.ActionHa
     return in.readDouble();
   }
 
+  @Override
+  public void readInts(int[] dst, int off, int len) throws IOException {
+    if (isRepeatedItem(Symbol.INT)) {
+      in.readInts(dst, off, len);
+    } else {
+      super.readInts(dst, off, len);
+    }
+  }
+
+  @Override
+  public void readLongs(long[] dst, int off, int len) throws IOException {
+    if (isRepeatedItem(Symbol.LONG)) {
+      in.readLongs(dst, off, len);
+    } else {
+      super.readLongs(dst, off, len);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] dst, int off, int len) throws IOException {
+    if (isRepeatedItem(Symbol.FLOAT)) {
+      in.readFloats(dst, off, len);
+    } else {
+      super.readFloats(dst, off, len);
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] dst, int off, int len) throws IOException {
+    if (isRepeatedItem(Symbol.DOUBLE)) {
+      in.readDoubles(dst, off, len);
+    } else {
+      super.readDoubles(dst, off, len);
+    }
+  }
+
+  /**
+   * Returns true if the parser is positioned between the items of an array whose
+   * items consist of the single terminal <tt>item</tt>. Advancing the parser over
+   * such an item leaves it in the same state, so a run of them can be read from
+   * the wrapped decoder without consulting the parser for each one.
+   */
+  private boolean isRepeatedItem(Symbol item) {
+    Symbol top = parser.topSymbol();
+    return top.kind == Symbol.Kind.REPEATER && top.production.length == 2 && top.production[1] == item;
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     parser.advance(Symbol.STRING);
@@ -20,8 +20,8 @@ package org.apache.avro.reflect;
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
-import org.apache.avro.io.ResolvingDecoder;
 
 /**
  * Helper class to provide native array access whenever possible. It is much
@@ -61,40 +61,28 @@ class ArrayAccessor {
   static void writeArray(int[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (int datum : data) {
-      out.startItem();
-      out.writeInt(datum);
-    }
+    out.writeInts(data, 0, size);
   }
 
   static void writeArray(long[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (long datum : data) {
-      out.startItem();
-      out.writeLong(datum);
-    }
+    out.writeLongs(data, 0, size);
   }
 
   static void writeArray(float[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (float datum : data) {
-      out.startItem();
-      out.writeFloat(datum);
-    }
+    out.writeFloats(data, 0, size);
   }
 
   static void writeArray(double[] data, Encoder out) throws IOException {
     int size = data.length;
     out.setItemCount(size);
-    for (double datum : data) {
-      out.startItem();
-      out.writeDouble(datum);
-    }
+    out.writeDoubles(data, 0, size);
   }
 
-  static Object readArray(Object array, Class<?> elementType, long l, ResolvingDecoder in) throws IOException {
+  static Object readArray(Object array, Class<?> elementType, long l, Decoder in) throws IOException {
     if (elementType == int.class)
       return readArray((int[]) array, l, in);
     if (elementType == long.class)
@@ -112,7 +100,7 @@ class ArrayAccessor {
     return null;
   }
 
-  static boolean[] readArray(boolean[] array, long l, ResolvingDecoder in) throws IOException {
+  static boolean[] readArray(boolean[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
@@ -127,22 +115,20 @@ class ArrayAccessor {
     return array;
   }
 
-  static int[] readArray(int[] array, long l, ResolvingDecoder in) throws IOException {
+  static int[] readArray(int[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readInt();
-        index++;
-      }
+      in.readInts(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
 
-  static short[] readArray(short[] array, long l, ResolvingDecoder in) throws IOException {
+  static short[] readArray(short[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
@@ -157,7 +143,7 @@ class ArrayAccessor {
     return array;
   }
 
-  static char[] readArray(char[] array, long l, ResolvingDecoder in) throws IOException {
+  static char[] readArray(char[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
@@ -172,47 +158,41 @@ class ArrayAccessor {
     return array;
   }
 
-  static long[] readArray(long[] array, long l, ResolvingDecoder in) throws IOException {
+  static long[] readArray(long[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readLong();
-        index++;
-      }
+      in.readLongs(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
 
-  static float[] readArray(float[] array, long l, ResolvingDecoder in) throws IOException {
+  static float[] readArray(float[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readFloat();
-        index++;
-      }
+      in.readFloats(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
 
-  static double[] readArray(double[] array, long l, ResolvingDecoder in) throws IOException {
+  static double[] readArray(double[] array, long l, Decoder in) throws IOException {
     int index = 0;
     do {
       int limit = index + (int) l;
       if (array.length < limit) {
         array = Arrays.copyOf(array, limit);
       }
-      while (index < limit) {
-        array[index] = in.readDouble();
-        index++;
-      }
+      in.readDoubles(array, index, limit - index);
+      index = limit;
     } while ((l = in.arrayNext()) > 0);
     return array;
   }
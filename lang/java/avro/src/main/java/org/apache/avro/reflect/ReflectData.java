@@ -33,6 +33,7 @@ import org.apache.avro.generic.IndexedRecord;
 import org.apache.avro.io.BinaryData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.FastReaderBuilder;
 import org.apache.avro.specific.FixedSize;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.util.ClassUtils;
@@ -120,6 +121,20 @@ public class ReflectData extends SpecificData {
     return INSTANCE;
   }
 
+  private FastReaderBuilder fastReflectReaderBuilder = null;
+
+  /**
+   * Returns a {@link FastReaderBuilder} that reads into Java objects like
+   * {@link ReflectDatumReader} does.
+   */
+  @Override
+  public FastReaderBuilder getFastReaderBuilder() {
+    if (fastReflectReaderBuilder == null) {
+      fastReflectReaderBuilder = new ReflectFastReaderBuilder(this);
+    }
+    return this.fastReflectReaderBuilder;
+  }
+
   /**
    * Cause a class to be treated as though it had an {@link Stringable} *
    * annotation.
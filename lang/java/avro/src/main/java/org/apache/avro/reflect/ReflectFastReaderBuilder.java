@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Resolver;
+import org.apache.avro.Resolver.Action;
+import org.apache.avro.Resolver.Container;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.specific.SpecificData;
+
+/**
+ * {@link FastReaderBuilder} for {@link ReflectData}. Fields of plain Java
+ * objects are set through their {@link FieldAccessor}, and arrays, strings,
+ * bytes and ints are read into the Java types {@link ReflectDatumReader} would
+ * produce. Records that are {@link IndexedRecord}s are read as by the
+ * {@link FastReaderBuilder}.
+ */
+class ReflectFastReaderBuilder extends FastReaderBuilder {
+
+  ReflectFastReaderBuilder(ReflectData data) {
+    super(data);
+  }
+
+  @Override
+  protected ExecutionStep createFieldStep(Schema recordSchema, Object testInstance, Field readerField,
+      Action fieldAction, Conversion<?> conversion) throws IOException {
+    FieldAccessor accessor = getAccessor(recordSchema, testInstance, readerField);
+    if (accessor == null) {
+      return super.createFieldStep(recordSchema, testInstance, readerField, fieldAction, conversion);
+    }
+    return createAccessorStep(readerField, accessor, fieldAction);
+  }
+
+  @Override
+  protected ExecutionStep createDefaultingStep(Schema recordSchema, Object testInstance, Field readerField)
+      throws IOException {
+    FieldAccessor accessor = getAccessor(recordSchema, testInstance, readerField);
+    if (accessor == null) {
+      return super.createDefaultingStep(recordSchema, testInstance, readerField);
+    }
+    // defaults are read from their encoding, so that they get the same Java
+    // types as values read from the writer
+    Schema schema = readerField.schema();
+    ExecutionStep step = createAccessorStep(readerField, accessor, Resolver.resolve(schema, schema, getData()));
+    byte[] encoded = getEncodedValue(readerField);
+    return (record, decoder) -> step.execute(record, DecoderFactory.get().binaryDecoder(encoded, null));
+  }
+
+  private FieldAccessor getAccessor(Schema recordSchema, Object testInstance, Field readerField) {
+    if (testInstance instanceof IndexedRecord) {
+      return null;
+    }
+    FieldAccessor[] accessors = (FieldAccessor[]) ((ReflectData) getData()).getRecordState(testInstance, recordSchema);
+    return accessors == null ? null : accessors[readerField.pos()];
+  }
+
+  /**
+   * Returns the step that reads a field of a Java object, following
+   * {@link ReflectDatumReader#readField}.
+   */
+  private ExecutionStep createAccessorStep(Field field, FieldAccessor accessor, Action action) throws IOException {
+    if (accessor.isCustomEncoded()) {
+      return createCustomEncodedStep(accessor, action);
+    }
+    if (accessor.supportsIO() && action.type == Action.Type.DO_NOTHING
+        && field.schema().getType() != Schema.Type.UNION) {
+      return accessor::read;
+    }
+
+    Class<?> fieldClass = accessor.getField().getType();
+    FieldReader reader;
+    Function<Object, Object> transformer = null;
+    if (accessor.isStringable()) {
+      reader = getReaderFor(action, null);
+      Function<String, Object> constructor = getStringConstructor(fieldClass);
+      transformer = value -> value == null ? null : constructor.apply(value.toString());
+    } else {
+      LogicalType logicalType = field.schema().getLogicalType();
+      Conversion<?> conversion = logicalType == null ? null : getData().getConversionByClass(fieldClass, logicalType);
+      if (conversion != null) {
+        reader = getReaderFor(action, conversion);
+      } else {
+        reader = getNonConvertedReader(action);
+        if (Optional.class.isAssignableFrom(fieldClass)) {
+          transformer = Optional::ofNullable;
+        }
+      }
+    }
+
+    boolean reuse = transformer == null && reader.canReuse();
+    Function<Object, Object> finalTransformer = transformer;
+    return (record, decoder) -> {
+      try {
+        Object value = reader.read(reuse ? accessor.get(record) : null, decoder);
+        accessor.set(record, finalTransformer == null ? value : finalTransformer.apply(value));
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException("Failed to set " + field);
+      }
+    };
+  }
+
+  /**
+   * {@link CustomEncoding}s read straight from the decoder, so if the writer's
+   * schema differs they read through a {@link ResolvingDecoder}.
+   */
+  private ExecutionStep createCustomEncodedStep(FieldAccessor accessor, Action action) {
+    if (action.writer.equals(action.reader)) {
+      return accessor::read;
+    }
+    ThreadLocal<ResolvingDecoder> resolvers = ThreadLocal.withInitial(() -> {
+      try {
+        return DecoderFactory.get().resolvingDecoder(action.writer, action.reader, null);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    return (record, decoder) -> {
+      ResolvingDecoder resolver = resolvers.get();
+      resolver.configure(decoder);
+      accessor.read(record, resolver);
+      resolver.drain();
+    };
+  }
+
+  private static Function<String, Object> getStringConstructor(Class<?> c) {
+    @SuppressWarnings("unchecked")
+    Function<String, Object> constructor = ReflectionUtil.getConstructorAsFunction(String.class, (Class<Object>) c);
+    if (constructor != null) {
+      return constructor;
+    }
+    return value -> {
+      try {
+        Constructor<?> ctor = c.getDeclaredConstructor(String.class);
+        ctor.setAccessible(true);
+        return ctor.newInstance(value);
+      } catch (ReflectiveOperationException e) {
+        throw new AvroRuntimeException("Failed to read Stringable", e);
+      }
+    };
+  }
+
+  @Override
+  protected boolean isJavaString(Schema readerSchema) {
+    return true;
+  }
+
+  @Override
+  protected FieldReader getReaderForBaseType(Schema readerSchema, Schema writerSchema) throws IOException {
+    switch (readerSchema.getType()) {
+    case INT:
+      String intClass = readerSchema.getProp(SpecificData.CLASS_PROP);
+      if (Byte.class.getName().equals(intClass)) {
+        return (old, decoder) -> (byte) decoder.readInt();
+      } else if (Short.class.getName().equals(intClass)) {
+        return (old, decoder) -> (short) decoder.readInt();
+      } else if (Character.class.getName().equals(intClass)) {
+        return (old, decoder) -> (char) decoder.readInt();
+      }
+      break;
+    case BYTES:
+      Class<?> bytesClass = ReflectData.getClassProp(readerSchema, SpecificData.CLASS_PROP);
+      if (bytesClass != null && bytesClass.isArray()) {
+        return (old, decoder) -> {
+          ByteBuffer bytes = decoder.readBytes(null);
+          byte[] result = new byte[bytes.remaining()];
+          bytes.get(result);
+          return result;
+        };
+      }
+      break;
+    default:
+    }
+    return super.getReaderForBaseType(readerSchema, writerSchema);
+  }
+
+  @Override
+  protected FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
+    Class<?> collectionClass = ReflectData.getClassProp(readerSchema, SpecificData.CLASS_PROP);
+    Class<?> elementClass = ReflectData.getClassProp(readerSchema, SpecificData.ELEMENT_PROP);
+    if (elementClass == null) {
+      // logical types cannot conflict with java-element-class
+      Conversion<?> elementConversion = getData().getConversionFor(readerSchema.getElementType().getLogicalType());
+      if (elementConversion != null) {
+        elementClass = elementConversion.getConvertedType();
+      }
+    }
+    if (collectionClass == null && elementClass == null) {
+      return super.createArrayReader(readerSchema, action);
+    }
+
+    FieldReader elementReader = getReaderFor(action.elementAction, null);
+    if (collectionClass != null && !collectionClass.isArray()) {
+      return createCollectionReader(readerSchema, collectionClass, elementReader);
+    }
+
+    if (elementClass == null) {
+      elementClass = collectionClass.getComponentType();
+    }
+    if (elementClass == null) {
+      elementClass = ((ReflectData) getData()).getClass(readerSchema.getElementType());
+    }
+    Class<?> componentType = elementClass;
+    // primitive arrays of the writer's type are read in bulk
+    boolean bulk = componentType.isPrimitive() && componentType != byte.class
+        && action.elementAction.type == Action.Type.DO_NOTHING;
+    return (reuse, decoder) -> {
+      long l = decoder.readArrayStart();
+      Object array = Array.newInstance(componentType, (int) Math.max(l, 0));
+      if (l <= 0) {
+        return array;
+      }
+      if (bulk) {
+        return ArrayAccessor.readArray(array, componentType, l, decoder);
+      }
+      int index = 0;
+      do {
+        int limit = index + (int) l;
+        if (Array.getLength(array) < limit) {
+          Object grown = Array.newInstance(componentType, limit);
+          System.arraycopy(array, 0, grown, 0, index);
+          array = grown;
+        }
+        if (array instanceof Object[]) {
+          Object[] objects = (Object[]) array;
+          while (index < limit) {
+            objects[index++] = elementReader.read(null, decoder);
+          }
+        } else {
+          while (index < limit) {
+            Array.set(array, index++, elementReader.read(null, decoder));
+          }
+        }
+      } while ((l = decoder.arrayNext()) > 0);
+      return array;
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private FieldReader createCollectionReader(Schema readerSchema, Class<?> collectionClass, FieldReader elementReader) {
+    boolean nonStringMap = ReflectData.isNonStringMapSchema(readerSchema);
+    return reusingReader((reuse, decoder) -> {
+      long l = decoder.readArrayStart();
+      Object container = newCollection(reuse, collectionClass, readerSchema);
+      if (l <= 0) {
+        return container;
+      }
+      if (container instanceof Collection) {
+        Collection<Object> collection = (Collection<Object>) container;
+        do {
+          for (long i = 0; i < l; i++) {
+            collection.add(elementReader.read(null, decoder));
+          }
+        } while ((l = decoder.arrayNext()) > 0);
+        return collection;
+      }
+      if (container instanceof Map && nonStringMap) {
+        // Only for non-string keys, we can use NS_MAP_* fields
+        Map<Object, Object> map = (Map<Object, Object>) container;
+        do {
+          for (long i = 0; i < l; i++) {
+            IndexedRecord entry = (IndexedRecord) elementReader.read(null, decoder);
+            map.put(entry.get(ReflectData.NS_MAP_KEY_INDEX), entry.get(ReflectData.NS_MAP_VALUE_INDEX));
+          }
+        } while ((l = decoder.arrayNext()) > 0);
+        return map;
+      }
+      throw new AvroRuntimeException("Expected a schema of map with non-string keys but got " + readerSchema);
+    });
+  }
+
+  private static Object newCollection(Object old, Class<?> collectionClass, Schema schema) {
+    if (old instanceof Collection) {
+      ((Collection<?>) old).clear();
+      return old;
+    }
+    if (collectionClass.isAssignableFrom(ArrayList.class)) {
+      return new ArrayList<>();
+    }
+    if (collectionClass.isAssignableFrom(HashSet.class)) {
+      return new HashSet<>();
+    }
+    if (collectionClass.isAssignableFrom(HashMap.class)) {
+      return new HashMap<>();
+    }
+    return SpecificData.newInstance(collectionClass, schema);
+  }
+}
@@ -448,6 +448,15 @@ public class SpecificData extends GenericData {
     return stringableClasses.contains(c);
   }
 
+  /**
+   * True if values of a class are written with toString(), as decided by
+   * {@link #isStringable(Class)}. For writers outside this package, like
+   * {@link org.apache.avro.io.FastWriterBuilder}.
+   */
+  public final boolean isStringableClass(Class<?> c) {
+    return isStringable(c);
+  }
+
   /** True if a class IS a string type */
   protected boolean isStringType(Class<?> c) {
     // this will return true for String, Utf8, CharSequence
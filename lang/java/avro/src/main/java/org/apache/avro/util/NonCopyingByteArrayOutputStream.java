@@ -38,6 +38,17 @@ public class NonCopyingByteArrayOutputStream extends ByteArrayOutputStream {
     super(size);
   }
 
+  /**
+   * Creates a new byte array output stream that writes to an array, until it is
+   * full and replaced by a larger one.
+   *
+   * @param buf the array to write to
+   */
+  public NonCopyingByteArrayOutputStream(byte[] buf) {
+    super(0);
+    this.buf = buf;
+  }
+
   /**
    * Get the contents of this ByteArrayOutputStream wrapped as a ByteBuffer. This
    * is a shallow copy. Changes to this ByteArrayOutputstream "write through" to
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+/** Writes the data files that the tests of this package read. */
+final class DataFileFixture {
+
+  private DataFileFixture() {
+  }
+
+  /** Returns a file of records, in blocks of about the sync interval. */
+  static byte[] write(Schema schema, CodecFactory codec, int syncInterval, Iterable<? extends GenericRecord> records)
+      throws IOException {
+    return write(schema, codec, syncInterval, Collections.emptyMap(), records);
+  }
+
+  /** Returns a file of records, with metadata. */
+  static byte[] write(Schema schema, CodecFactory codec, int syncInterval, Map<String, String> meta,
+      Iterable<? extends GenericRecord> records) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(schema))) {
+      writer.setCodec(codec);
+      writer.setSyncInterval(syncInterval);
+      for (Map.Entry<String, String> entry : meta.entrySet()) {
+        writer.setMeta(entry.getKey(), entry.getValue());
+      }
+      writer.create(schema, out);
+      for (GenericRecord r : records) {
+        writer.append(r);
+      }
+    }
+    return out.toByteArray();
+  }
+}
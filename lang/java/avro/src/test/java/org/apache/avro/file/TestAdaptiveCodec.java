@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+public class TestAdaptiveCodec {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredInt("i").requiredBytes("b")
+      .endRecord();
+  private static final CodecFactory[] CODECS = { CodecFactory.nullCodec(), CodecFactory.deflateCodec(1),
+      CodecFactory.deflateCodec(9), CodecFactory.zstandardCodec(3) };
+  private static final int COUNT = 3000;
+
+  private static ByteBuffer block(boolean compressible, int size, Random random) {
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) (compressible ? i % 11 : random.nextInt());
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  /** Records of random bytes in some runs, and of repeated bytes in others. */
+  private static GenericRecord record(int i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("i", i);
+    r.put("b", block((i / 500) % 2 == 0, 50, new Random(i)));
+    return r;
+  }
+
+  private static byte[] write(CodecFactory codec) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      records.add(record(i));
+    }
+    return DataFileFixture.write(SCHEMA, codec, 1000, records);
+  }
+
+  private static void check(byte[] file) throws IOException {
+    int i = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++), r);
+      }
+    }
+    assertEquals(COUNT, i);
+    i = 0;
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new SeekableByteArrayInput(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++), r);
+      }
+    }
+    assertEquals(COUNT, i);
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    byte[] file = write(CodecFactory.adaptiveCodec(0, CODECS));
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      assertEquals(DataFileConstants.ADAPTIVE_CODEC, reader.getMetaString(DataFileConstants.CODEC));
+      assertEquals("null,deflate,deflate,zstandard", reader.getMetaString(DataFileConstants.ADAPTIVE_CODECS));
+    }
+    check(file);
+    // a single codec is never sampled
+    check(write(CodecFactory.adaptiveCodec(0, CodecFactory.deflateCodec(1))));
+  }
+
+  @Test
+  public void blocksAreTaggedWithTheirCodec() throws IOException {
+    Codec adaptive = CodecFactory.adaptiveCodec(0, CODECS).createInstance();
+    Random random = new Random(1);
+    for (int b = 0; b < 10; b++) {
+      ByteBuffer data = block(b % 2 == 0, 4096, random);
+      ByteBuffer compressed = adaptive.compress(data.duplicate());
+      int tag = compressed.get(compressed.limit() - 1);
+      assertTrue(tag >= 0 && tag < CODECS.length);
+      // the data before the tag is as compressed by the codec alone
+      ByteBuffer untagged = compressed.duplicate();
+      ((Buffer) untagged).limit(compressed.limit() - 1);
+      assertEquals(data, CODECS[tag].createInstance().decompress(untagged.slice()));
+      assertEquals(data, adaptive.decompress(compressed.duplicate()));
+      assertEquals(data, CodecFactory.adaptiveCodec(0, CODECS).createInstance().decompress(compressed.duplicate()));
+    }
+  }
+
+  @Test
+  public void chooseByRatio() throws IOException {
+    Random random = new Random(2);
+    AdaptiveCodec adaptive = (AdaptiveCodec) CodecFactory
+        .adaptiveCodec(0, CodecFactory.nullCodec(), CodecFactory.deflateCodec(6)).createInstance();
+    for (int b = 0; b < AdaptiveCodec.SAMPLE_BLOCKS; b++) {
+      adaptive.compress(block(true, 4096, random));
+    }
+    assertEquals(1, adaptive.getChosenCodec());
+    // the choice follows data that is no longer compressible
+    int blocks = 0;
+    while (adaptive.getChosenCodec() != 0 && blocks < 40 * AdaptiveCodec.RESAMPLE_INTERVAL) {
+      adaptive.compress(block(false, 4096, random));
+      blocks++;
+    }
+    assertEquals(0, adaptive.getChosenCodec());
+    assertTrue(blocks > AdaptiveCodec.RESAMPLE_INTERVAL - AdaptiveCodec.SAMPLE_BLOCKS);
+  }
+
+  @Test
+  public void chooseFastestIfNoneIsFastEnough() throws IOException {
+    Random random = new Random(3);
+    AdaptiveCodec adaptive = (AdaptiveCodec) CodecFactory
+        .adaptiveCodec(1e12, CodecFactory.xzCodec(6), CodecFactory.nullCodec()).createInstance();
+    for (int b = 0; b < AdaptiveCodec.SAMPLE_BLOCKS; b++) {
+      adaptive.compress(block(true, 4096, random));
+    }
+    assertEquals(1, adaptive.getChosenCodec());
+  }
+
+  @Test
+  public void appendAllFrom() throws IOException {
+    byte[] source = write(CodecFactory.adaptiveCodec(0, CODECS));
+    for (CodecFactory codec : new CodecFactory[] { CodecFactory.adaptiveCodec(0, CODECS),
+        CodecFactory.adaptiveCodec(0, CodecFactory.nullCodec(), CodecFactory.snappyCodec()),
+        CodecFactory.deflateCodec(1) }) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA));
+          DataFileStream<GenericRecord> in = new DataFileStream<>(new ByteArrayInputStream(source),
+              new GenericDatumReader<>(SCHEMA))) {
+        writer.setCodec(codec);
+        writer.create(SCHEMA, out);
+        writer.appendAllFrom(in, false);
+      }
+      check(out.toByteArray());
+    }
+  }
+
+  @Test
+  public void invalidCodecs() throws IOException {
+    assertThrows(IllegalArgumentException.class, () -> CodecFactory.adaptiveCodec(0));
+    CodecFactory registered = CodecFactory.fromString(DataFileConstants.ADAPTIVE_CODEC);
+    assertThrows(AvroRuntimeException.class, registered::createInstance);
+    assertThrows(AvroRuntimeException.class, () -> registered.forFile(Collections.emptyMap()));
+    Codec fromFile = registered.forFile(
+        Collections.singletonMap(DataFileConstants.ADAPTIVE_CODECS, "null,deflate".getBytes(StandardCharsets.UTF_8)))
+        .createInstance();
+    assertEquals(CodecFactory.adaptiveCodec(0, CodecFactory.nullCodec(), CodecFactory.deflateCodec(1)).createInstance(),
+        fromFile);
+    assertNotEquals(CodecFactory.adaptiveCodec(0, CodecFactory.deflateCodec(1)).createInstance(), fromFile);
+    assertThrows(IOException.class, () -> fromFile.decompress(ByteBuffer.allocate(0)));
+    assertThrows(IOException.class, () -> fromFile.decompress(ByteBuffer.wrap(new byte[] { 1, 2, 7 })));
+  }
+}
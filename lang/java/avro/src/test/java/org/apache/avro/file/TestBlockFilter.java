@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestBlockFilter {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("Event").fields().requiredLong("ts").optionalInt("n")
+      .requiredString("name").endRecord();
+  private static final int COUNT = 3000;
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static GenericRecord record(long i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("ts", i * 10);
+    r.put("n", i % 3 == 0 ? null : (int) (i % 100));
+    r.put("name", "name" + (char) ('a' + i / 200));
+    return r;
+  }
+
+  private File write(File indexFile) throws IOException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setSyncInterval(1000);
+      writer.setIndexFile(indexFile);
+      writer.setStatisticsFields("ts", "n", "name");
+      writer.create(SCHEMA, file);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+      }
+    }
+    return file;
+  }
+
+  private static List<GenericRecord> read(File file, DataFileIndex index, BlockFilter filter) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      reader.setIndex(index);
+      reader.setBlockFilter(filter);
+      for (GenericRecord r : reader) {
+        records.add(r);
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void statisticsOfBlocks() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    File file = write(indexFile);
+    DataFileIndex index = DataFileIndex.read(indexFile);
+    assertTrue(index.getBlockCount() > 10);
+    for (int b = 0; b < index.getBlockCount(); b++) {
+      long first = index.getFirstRecord(b);
+      long last = index.getFirstRecord(b + 1) - 1;
+      assertTrue(index.hasStatistics(b));
+      assertEquals(first * 10, index.getMin(b, "ts"));
+      assertEquals(last * 10, index.getMax(b, "ts"));
+      assertEquals(0L, index.getNullCount(b, "ts"));
+      long nulls = 0;
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (long i = first; i <= last; i++) {
+        if (i % 3 == 0) {
+          nulls++;
+        } else {
+          min = Math.min(min, i % 100);
+          max = Math.max(max, i % 100);
+        }
+      }
+      assertEquals(nulls, index.getNullCount(b, "n"));
+      // ints are held as longs
+      assertEquals(min, index.getMin(b, "n"));
+      assertEquals(max, index.getMax(b, "n"));
+      assertEquals(record(first).get("name"), index.getMin(b, "name"));
+      assertEquals(record(last).get("name"), index.getMax(b, "name"));
+      assertEquals(-1, index.getNullCount(b, "other"));
+    }
+    // old readers of the data file see all records
+    assertEquals(COUNT, read(file, null, null).size());
+  }
+
+  @Test
+  public void skipBlocks() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    File file = write(indexFile);
+    DataFileIndex index = DataFileIndex.read(indexFile);
+
+    List<GenericRecord> range = read(file, index, BlockFilter.range("ts", 12000L, 12990L));
+    List<Long> matches = new ArrayList<>();
+    for (GenericRecord r : range) {
+      long ts = (Long) r.get("ts");
+      if (ts >= 12000 && ts <= 12990) {
+        matches.add(ts);
+      }
+    }
+    assertEquals(100, matches.size());
+    assertTrue("whole blocks skipped: " + range.size(), range.size() < COUNT / 10);
+
+    List<GenericRecord> strings = read(file, index, BlockFilter.range("name", "namec", "namec"));
+    assertTrue(strings.size() < COUNT / 5);
+    assertEquals(200, strings.stream().filter(r -> r.get("name").toString().equals("namec")).count());
+
+    List<GenericRecord> both = read(file, index,
+        BlockFilter.range("ts", 0L, 2000L).and(BlockFilter.range("name", "namez", null)));
+    assertTrue(both.isEmpty());
+
+    // without an index, or with unknown fields, all blocks are read
+    assertEquals(COUNT, read(file, null, BlockFilter.range("ts", 0L, 0L)).size());
+    assertEquals(COUNT, read(file, index, BlockFilter.range("other", 0L, 0L)).size());
+    assertEquals(COUNT, read(file, index, null).size());
+  }
+
+  @Test
+  public void seekToFilteredRecord() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    File file = write(indexFile);
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      reader.setIndex(DataFileIndex.read(indexFile));
+      reader.setBlockFilter(BlockFilter.range("ts", 29000L, null));
+      // the block of the entry is read even if filtered out
+      reader.seekToRecord(5);
+      assertEquals(record(5), reader.next());
+    }
+  }
+
+  @Test
+  public void failedAppendKeepsStatistics() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setIndexFile(indexFile);
+      writer.setStatisticsFields("ts");
+      writer.create(SCHEMA, dir.newFile());
+      writer.append(record(1));
+      GenericRecord bad = record(2);
+      bad.put("ts", Long.MAX_VALUE);
+      bad.put("name", null);
+      assertThrows(DataFileWriter.AppendWriteException.class, () -> writer.append(bad));
+      writer.append(record(3));
+    }
+    DataFileIndex index = DataFileIndex.read(indexFile);
+    assertEquals(2, index.getRecordCount());
+    assertEquals(10L, index.getMin(0, "ts"));
+    assertEquals(30L, index.getMax(0, "ts"));
+  }
+
+  @Test
+  public void statisticsNeedAnIndexFile() {
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA));
+    writer.setStatisticsFields("ts");
+    assertThrows(AvroRuntimeException.class, () -> writer.create(SCHEMA, dir.newFile()));
+    assertFalse(new File(dir.getRoot(), "index.avro").exists());
+  }
+}
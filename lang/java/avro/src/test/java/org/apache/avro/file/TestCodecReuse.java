@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+public class TestCodecReuse {
+
+  private static final CodecFactory[] CODECS = { CodecFactory.nullCodec(), CodecFactory.deflateCodec(1),
+      CodecFactory.deflateCodec(9), CodecFactory.snappyCodec(), CodecFactory.xzCodec(1), CodecFactory.bzip2Codec(),
+      CodecFactory.zstandardCodec(3), CodecFactory.zstandardCodec(3, true, true) };
+
+  /** Inputs of many sizes, compressible or not, as slices of larger arrays. */
+  private static List<ByteBuffer> inputs() {
+    Random random = new Random(42);
+    List<ByteBuffer> inputs = new ArrayList<>();
+    for (int size : new int[] { 0, 1, 100, 8191, 8192, 8193, 100_000 }) {
+      for (boolean compressible : new boolean[] { false, true }) {
+        byte[] array = new byte[size + 20];
+        for (int i = 0; i < array.length; i++) {
+          array[i] = (byte) (compressible ? i % 7 : random.nextInt());
+        }
+        inputs.add(ByteBuffer.wrap(array, 13, size).slice());
+      }
+    }
+    return inputs;
+  }
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    for (CodecFactory factory : CODECS) {
+      Codec codec = factory.createInstance();
+      ByteBuffer compressReuse = null;
+      ByteBuffer decompressReuse = ByteBuffer.allocate(10);
+      for (ByteBuffer input : inputs()) {
+        byte[] expected = bytes(input);
+        ByteBuffer compressed = codec.compress(input.duplicate());
+        ByteBuffer reused = codec.compress(input.duplicate(), compressReuse);
+        String name = codec + " of " + expected.length + " bytes";
+        assertArrayEquals(name, bytes(compressed), bytes(reused));
+        // through the old and the new way, in both directions
+        assertArrayEquals(name, expected, bytes(codec.decompress(reused.duplicate())));
+        ByteBuffer decompressed = codec.decompress(compressed.duplicate(), decompressReuse);
+        assertArrayEquals(name, expected, bytes(decompressed));
+        assertArrayEquals(name, expected, bytes(factory.createInstance().decompress(reused.duplicate())));
+        compressReuse = reused;
+        decompressReuse = decompressed;
+      }
+    }
+  }
+
+  @Test
+  public void largeEnoughArraysAreReused() throws IOException {
+    // the largest compressible input
+    ByteBuffer input = inputs().get(13);
+    for (CodecFactory factory : CODECS) {
+      Codec codec = factory.createInstance();
+      if (codec instanceof NullCodec) {
+        continue;
+      }
+      ByteBuffer compressReuse = ByteBuffer.allocate(1 << 20);
+      ByteBuffer compressed = codec.compress(input.duplicate(), compressReuse);
+      assertSame(codec.toString(), compressReuse.array(), compressed.array());
+      ByteBuffer decompressReuse = ByteBuffer.allocate(1 << 20);
+      ByteBuffer decompressed = codec.decompress(compressed, decompressReuse);
+      assertSame(codec.toString(), decompressReuse.array(), decompressed.array());
+      assertArrayEquals(bytes(input), bytes(decompressed));
+    }
+  }
+
+  @Test
+  public void snappyFromDirectBuffers() throws IOException {
+    Codec codec = CodecFactory.snappyCodec().createInstance();
+    ByteBuffer reuse = null;
+    for (ByteBuffer input : inputs()) {
+      byte[] expected = bytes(input);
+      ByteBuffer compressed = codec.compress(input.duplicate());
+      // as sliced from a memory-mapped file
+      ByteBuffer direct = ByteBuffer.allocateDirect(compressed.remaining());
+      direct.put(compressed.duplicate());
+      direct.flip();
+      ByteBuffer decompressed = codec.decompress(direct, reuse);
+      assertTrue(decompressed.isDirect());
+      assertArrayEquals(expected, bytes(decompressed));
+      if (reuse != null && reuse.capacity() >= expected.length) {
+        assertSame(reuse, decompressed);
+      }
+      reuse = decompressed;
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void snappyChecksumOfDirectBuffers() throws IOException {
+    Codec codec = CodecFactory.snappyCodec().createInstance();
+    ByteBuffer compressed = codec.compress(inputs().get(5));
+    ByteBuffer direct = ByteBuffer.allocateDirect(compressed.remaining());
+    direct.put(compressed.duplicate());
+    direct.put(direct.limit() - 1, (byte) (direct.get(direct.limit() - 1) + 1));
+    direct.flip();
+    codec.decompress(direct, null);
+  }
+
+  @Test
+  public void deflateAsStreams() throws IOException {
+    for (int level : new int[] { 1, 6, 9 }) {
+      Codec codec = CodecFactory.deflateCodec(level).createInstance();
+      for (ByteBuffer input : inputs()) {
+        byte[] expected = bytes(input);
+        // as compressed by the stream wrappers before
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(level, true))) {
+          deflater.write(expected);
+        }
+        assertArrayEquals(out.toByteArray(), bytes(codec.compress(input.duplicate(), null)));
+
+        ByteBuffer compressed = codec.compress(input.duplicate());
+        ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(bytes(compressed)),
+            new Inflater(true))) {
+          byte[] buffer = new byte[4096];
+          for (int n = inflater.read(buffer); n > 0; n = inflater.read(buffer)) {
+            inflated.write(buffer, 0, n);
+          }
+        }
+        assertArrayEquals(expected, inflated.toByteArray());
+      }
+    }
+  }
+
+  @Test
+  public void dataFiles() throws IOException {
+    Schema schema = SchemaBuilder.record("R").fields().requiredInt("i").requiredString("s").endRecord();
+    for (CodecFactory codec : CODECS) {
+      List<GenericRecord> records = new ArrayList<>();
+      // blocks that grow and shrink, so arrays are both reused and replaced
+      for (int i = 0; i < 300; i++) {
+        GenericRecord r = new GenericData.Record(schema);
+        r.put("i", i);
+        StringBuilder s = new StringBuilder();
+        for (int j = 0; j < (i * 37) % 5000; j++) {
+          s.append((char) ('a' + (i + j) % 26));
+        }
+        r.put("s", s.toString());
+        records.add(r);
+      }
+      byte[] file = DataFileFixture.write(schema, codec, 1000, records);
+      List<GenericRecord> read = new ArrayList<>();
+      try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+          new GenericDatumReader<>(schema))) {
+        reader.forEach(read::add);
+      }
+      assertEquals(codec.toString(), records, read);
+      read.clear();
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new SeekableByteArrayInput(file),
+          new GenericDatumReader<>(schema))) {
+        reader.forEach(read::add);
+      }
+      assertEquals(codec.toString(), records, read);
+    }
+  }
+}
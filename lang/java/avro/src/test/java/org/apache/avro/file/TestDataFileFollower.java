@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileFollower {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredLong("l").requiredString("s")
+      .endRecord();
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static GenericRecord record(long i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("l", i);
+    r.put("s", "record " + i);
+    return r;
+  }
+
+  private static DataFileWriter<GenericRecord> writer() {
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA));
+    writer.setCodec(CodecFactory.deflateCodec(1));
+    return writer;
+  }
+
+  private static DataFileFollower<GenericRecord> follow(File file) throws IOException {
+    DataFileFollower<GenericRecord> follower = new DataFileFollower<>(file, new GenericDatumReader<>(SCHEMA));
+    follower.setPollInterval(1);
+    return follower;
+  }
+
+  /** Reads the entries available, checking they follow <i>next</i>. */
+  private static long drain(DataFileFollower<GenericRecord> follower, long next)
+      throws IOException, InterruptedException {
+    while (follower.hasNext()) {
+      assertEquals(record(next++), follower.next());
+    }
+    return next;
+  }
+
+  @Test
+  public void flushedBlocks() throws IOException, InterruptedException {
+    File file = dir.newFile();
+    try (DataFileFollower<GenericRecord> follower = follow(file); DataFileWriter<GenericRecord> writer = writer()) {
+      assertFalse(follower.hasNext());
+      assertNull(follower.getSchema());
+      writer.create(SCHEMA, file);
+      assertEquals(SCHEMA, follower.getSchema());
+      assertFalse(follower.hasNext());
+
+      long next = 0;
+      for (long i = 0; i < 10; i++) {
+        writer.append(record(i));
+      }
+      // buffered by the writer only
+      assertFalse(follower.hasNext());
+      writer.flush();
+      next = drain(follower, next);
+      assertEquals(10, next);
+
+      for (long i = 10; i < 25; i++) {
+        writer.append(record(i));
+      }
+      writer.sync();
+      next = drain(follower, next);
+      assertEquals(25, next);
+      assertNull(follower.next(null, 10, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Test
+  public void partiallyWrittenBlocks() throws IOException, InterruptedException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = writer()) {
+      writer.setSyncInterval(200);
+      writer.create(SCHEMA, out);
+      for (long i = 0; i < 500; i++) {
+        writer.append(record(i));
+      }
+    }
+    byte[] bytes = out.toByteArray();
+    File file = dir.newFile();
+    long next = 0;
+    // the file grows a few bytes at a time, through headers, data and markers
+    try (FileOutputStream grow = new FileOutputStream(file); DataFileFollower<GenericRecord> follower = follow(file)) {
+      for (int written = 0; written < bytes.length; written += 13) {
+        grow.write(bytes, written, Math.min(13, bytes.length - written));
+        grow.flush();
+        next = drain(follower, next);
+      }
+    }
+    assertEquals(500, next);
+  }
+
+  @Test
+  public void resumeFromPosition() throws IOException, InterruptedException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = writer()) {
+      writer.setSyncInterval(200);
+      writer.create(SCHEMA, file);
+      for (long i = 0; i < 300; i++) {
+        writer.append(record(i));
+      }
+    }
+    long position;
+    long read = 0;
+    try (DataFileFollower<GenericRecord> follower = follow(file)) {
+      for (; read < 123; read++) {
+        assertEquals(record(read), follower.next());
+      }
+      position = follower.getPosition();
+    }
+    try (DataFileFollower<GenericRecord> follower = follow(file)) {
+      follower.seek(position);
+      // the entries of the block already returned are read again
+      long first = (Long) follower.next().get("l");
+      assertTrue(first <= read);
+      assertEquals(300, drain(follower, first + 1));
+      assertThrows(IOException.class, () -> follower.seek(3));
+      assertThrows(IOException.class, () -> follower.seek(file.length() + 1));
+    }
+  }
+
+  @Test
+  public void waitForWriter() throws Exception {
+    File file = dir.newFile();
+    long count = 2000;
+    Thread writing = new Thread(() -> {
+      try (DataFileWriter<GenericRecord> writer = writer()) {
+        writer.setSyncInterval(100);
+        writer.create(SCHEMA, file);
+        for (long i = 0; i < count; i++) {
+          writer.append(record(i));
+          if (i % 100 == 0) {
+            Thread.sleep(1);
+          }
+        }
+      } catch (IOException | InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    writing.start();
+    try (DataFileFollower<GenericRecord> follower = follow(file)) {
+      GenericRecord reuse = null;
+      for (long i = 0; i < count; i++) {
+        reuse = follower.next(reuse, 10, TimeUnit.SECONDS);
+        assertEquals(record(i), reuse);
+      }
+    } finally {
+      writing.join();
+    }
+  }
+
+  @Test
+  public void truncatedFile() throws IOException, InterruptedException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = writer()) {
+      writer.create(SCHEMA, file);
+      for (long i = 0; i < 10; i++) {
+        writer.append(record(i));
+      }
+    }
+    try (DataFileFollower<GenericRecord> follower = follow(file)) {
+      assertEquals(10, drain(follower, 0));
+      try (RandomAccessFile truncate = new RandomAccessFile(file, "rw")) {
+        truncate.setLength(file.length() - 5);
+      }
+      assertThrows(IOException.class, follower::hasNext);
+    }
+  }
+
+  @Test
+  public void invalidPollInterval() throws IOException {
+    try (DataFileFollower<GenericRecord> follower = follow(dir.newFile())) {
+      assertThrows(IllegalArgumentException.class, () -> follower.setPollInterval(0));
+    }
+  }
+}
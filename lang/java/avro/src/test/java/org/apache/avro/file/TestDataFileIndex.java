@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileIndex {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredLong("l").requiredString("s")
+      .endRecord();
+  private static final int COUNT = 2000;
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static GenericRecord record(long i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("l", i);
+    r.put("s", "record " + i);
+    return r;
+  }
+
+  /** Writes the records, and their index to <i>indexFile</i>. */
+  private File write(File indexFile, ExecutorService executor) throws IOException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(CodecFactory.deflateCodec(1));
+      writer.setSyncInterval(500);
+      writer.setIndexFile(indexFile);
+      if (executor != null) {
+        writer.setCompressionExecutor(executor, 4);
+      }
+      writer.create(SCHEMA, file);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+        if (i % 701 == 0) {
+          writer.sync();
+        }
+      }
+    }
+    return file;
+  }
+
+  private static DataFileReader<GenericRecord> open(File file) throws IOException {
+    return new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA));
+  }
+
+  private static void assertSameIndex(DataFileIndex expected, DataFileIndex actual) {
+    assertEquals(expected.getBlockCount(), actual.getBlockCount());
+    assertEquals(expected.getRecordCount(), actual.getRecordCount());
+    assertEquals(expected.getEndPosition(), actual.getEndPosition());
+    assertArrayEquals(expected.getSync(), actual.getSync());
+    for (int b = 0; b < expected.getBlockCount(); b++) {
+      assertEquals(expected.getBlockPosition(b), actual.getBlockPosition(b));
+      assertEquals(expected.getFirstRecord(b), actual.getFirstRecord(b));
+    }
+  }
+
+  @Test
+  public void sidecarMatchesBuiltIndex() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (ExecutorService e : new ExecutorService[] { null, executor }) {
+        File indexFile = new File(dir.getRoot(), "index" + (e == null ? "" : "-parallel") + ".avro");
+        File file = write(indexFile, e);
+        DataFileIndex sidecar = DataFileIndex.read(indexFile);
+        try (DataFileReader<GenericRecord> reader = open(file)) {
+          DataFileIndex built = reader.buildIndex();
+          assertEquals(COUNT, built.getRecordCount());
+          assertEquals(file.length(), built.getEndPosition());
+          assertSameIndex(built, sidecar);
+          // the reader is at the first block after building the index
+          assertEquals(record(0), reader.next());
+        }
+        // the sidecar is a data file of its own
+        int blocks = 0;
+        try (DataFileReader<GenericRecord> entries = new DataFileReader<>(indexFile,
+            new GenericDatumReader<>(DataFileIndex.SCHEMA))) {
+          assertEquals(DataFileIndex.SCHEMA, entries.getSchema());
+          for (GenericRecord entry : entries) {
+            assertEquals(sidecar.getBlockPosition(blocks), entry.get("position"));
+            blocks++;
+          }
+        }
+        assertEquals(sidecar.getBlockCount(), blocks);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void findBlock() throws IOException {
+    File file = write(dir.newFile(), null);
+    try (DataFileReader<GenericRecord> reader = open(file)) {
+      DataFileIndex index = reader.buildIndex();
+      assertEquals(0, index.findBlock(0));
+      for (int b = 0; b < index.getBlockCount(); b++) {
+        long first = index.getFirstRecord(b);
+        assertEquals(b, index.findBlock(first));
+        if (first > 0) {
+          assertEquals(b - 1, index.findBlock(first - 1));
+        }
+      }
+      assertEquals(index.getBlockCount(), index.findBlock(COUNT));
+      assertThrows(IndexOutOfBoundsException.class, () -> index.findBlock(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> index.findBlock(COUNT + 1));
+    }
+  }
+
+  @Test
+  public void seekToRecord() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    File file = write(indexFile, null);
+    long[] records = { 0, 1, 499, 1999, 700, 701, 702, 1234, 3 };
+    for (boolean sidecar : new boolean[] { false, true }) {
+      try (DataFileReader<GenericRecord> reader = open(file)) {
+        if (sidecar) {
+          reader.setIndex(DataFileIndex.read(indexFile));
+        }
+        for (long record : records) {
+          reader.seekToRecord(record);
+          assertEquals(record(record), reader.next());
+          if (record + 1 < COUNT) {
+            assertEquals(record(record + 1), reader.next());
+          }
+        }
+        reader.seekToRecord(COUNT);
+        assertFalse(reader.hasNext());
+        assertThrows(IndexOutOfBoundsException.class, () -> reader.seekToRecord(COUNT + 1));
+        // reading on after seeking returns the rest of the file
+        reader.seekToRecord(COUNT - 10);
+        long i = COUNT - 10;
+        while (reader.hasNext()) {
+          assertEquals(record(i++), reader.next());
+        }
+        assertEquals(COUNT, i);
+      }
+    }
+  }
+
+  @Test
+  public void indexOfAnotherFile() throws IOException {
+    File indexFile = new File(dir.getRoot(), "index.avro");
+    write(indexFile, null);
+    File other = write(new File(dir.getRoot(), "other.avro"), null);
+    try (DataFileReader<GenericRecord> reader = open(other)) {
+      DataFileIndex index = DataFileIndex.read(indexFile);
+      assertThrows(IllegalArgumentException.class, () -> reader.setIndex(index));
+    }
+  }
+
+  @Test
+  public void notAnIndex() throws IOException {
+    File file = write(new File(dir.getRoot(), "index.avro"), null);
+    assertThrows(IOException.class, () -> DataFileIndex.read(file));
+  }
+}
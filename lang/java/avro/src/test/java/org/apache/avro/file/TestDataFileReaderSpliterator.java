@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileReaderSpliterator {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredLong("l").requiredString("s")
+      .endRecord();
+  private static final int COUNT = 40000;
+
+  @ClassRule
+  public static TemporaryFolder dir = new TemporaryFolder();
+
+  private static File file;
+  private static List<Long> expected = new ArrayList<>();
+
+  @BeforeClass
+  public static void write() throws IOException {
+    file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setSyncInterval(4096);
+      writer.create(SCHEMA, file);
+      GenericRecordBuilder builder = new GenericRecordBuilder(SCHEMA).set("s", "some padding to fill blocks");
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(builder.set("l", i).build());
+        expected.add(i);
+      }
+    }
+    // large enough for a few splits
+    assertTrue(file.length() > 1 << 20);
+  }
+
+  private static List<SeekableInput> inputs() throws IOException {
+    List<SeekableInput> inputs = new ArrayList<>();
+    inputs.add(new SeekableFileInput(file));
+    inputs.add(new SeekableMappedFileInput(file));
+    inputs.add(new SeekableByteArrayInput(Files.readAllBytes(file.toPath())));
+    return inputs;
+  }
+
+  private static DataFileReader<GenericRecord> open(SeekableInput in) throws IOException {
+    return new DataFileReader<>(in, new GenericDatumReader<>(SCHEMA));
+  }
+
+  private static List<Long> values(List<GenericRecord> records) {
+    return records.stream().map(r -> (Long) r.get("l")).collect(Collectors.toList());
+  }
+
+  @Test
+  public void sequentialStream() throws IOException {
+    for (SeekableInput in : inputs()) {
+      try (DataFileReader<GenericRecord> reader = open(in)) {
+        assertEquals(expected, values(reader.stream().collect(Collectors.toList())));
+      }
+    }
+  }
+
+  @Test
+  public void parallelStream() throws IOException {
+    for (SeekableInput in : inputs()) {
+      try (DataFileReader<GenericRecord> reader = open(in)) {
+        // ordered, so the entries of splits are collected in file order
+        assertEquals(expected, values(reader.stream().parallel().collect(Collectors.toList())));
+      }
+    }
+  }
+
+  @Test
+  public void splitsCoverTheFile() throws IOException {
+    for (SeekableInput in : inputs()) {
+      try (DataFileReader<GenericRecord> reader = open(in)) {
+        Spliterator<GenericRecord> rest = reader.spliterator();
+        long size = rest.estimateSize();
+        Spliterator<GenericRecord> prefix = rest.trySplit();
+        assertNotNull(prefix);
+        assertTrue(prefix.estimateSize() < size);
+        assertTrue(rest.estimateSize() < size);
+        Spliterator<GenericRecord> quarter = prefix.trySplit();
+        assertNotNull(quarter);
+        List<GenericRecord> records = new ArrayList<>();
+        for (Spliterator<GenericRecord> split : Arrays.asList(quarter, prefix, rest)) {
+          // the first entry one at a time, and then the rest
+          assertTrue(split.tryAdvance(records::add));
+          split.forEachRemaining(records::add);
+        }
+        assertEquals(expected, values(records));
+      }
+    }
+  }
+
+  @Test
+  public void fromCurrentPosition() throws IOException {
+    try (DataFileReader<GenericRecord> reader = open(new SeekableFileInput(file))) {
+      for (int i = 0; i < 5; i++) {
+        reader.next();
+      }
+      assertEquals(expected.subList(5, COUNT), values(reader.stream().parallel().collect(Collectors.toList())));
+    }
+  }
+
+  @Test
+  public void otherInputsAreNotSplit() throws IOException {
+    SeekableInput bytes = new SeekableByteArrayInput(Files.readAllBytes(file.toPath()));
+    // an input of another kind has no views
+    SeekableInput in = new SeekableInput() {
+      @Override
+      public void seek(long p) throws IOException {
+        bytes.seek(p);
+      }
+
+      @Override
+      public long tell() throws IOException {
+        return bytes.tell();
+      }
+
+      @Override
+      public long length() throws IOException {
+        return bytes.length();
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return bytes.read(b, off, len);
+      }
+
+      @Override
+      public void close() throws IOException {
+        bytes.close();
+      }
+    };
+    try (DataFileReader<GenericRecord> reader = open(in)) {
+      Spliterator<GenericRecord> split = reader.spliterator();
+      assertNull(split.trySplit());
+      assertEquals(expected, values(reader.stream().parallel().collect(Collectors.toList())));
+    }
+  }
+}
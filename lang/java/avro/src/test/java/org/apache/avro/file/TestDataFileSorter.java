@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileSorter {
+
+  /** Sorted by key, then by value descending; seq keeps the input order. */
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields() //
+      .requiredInt("key") //
+      .name("value").orderDescending().type().stringType().noDefault() //
+      .name("seq").orderIgnore().type().longType().noDefault() //
+      .endRecord();
+  /** The schema of inputs written with another field, and no sort order. */
+  private static final Schema WRITTEN = SchemaBuilder.record("R").fields() //
+      .requiredString("extra") //
+      .requiredInt("key") //
+      .requiredString("value") //
+      .requiredLong("seq") //
+      .endRecord();
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static List<GenericRecord> records(int count, long firstSeq, Random random) {
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      // few distinct values, so that many entries are equal
+      r.put("key", random.nextInt(50) - 25);
+      r.put("value", "v" + random.nextInt(5));
+      r.put("seq", firstSeq + i);
+      records.add(r);
+    }
+    return records;
+  }
+
+  private static byte[] write(Schema schema, List<GenericRecord> records, CodecFactory codec) throws IOException {
+    List<GenericRecord> written = records;
+    if (schema == WRITTEN) {
+      written = new ArrayList<>();
+      for (GenericRecord r : records) {
+        GenericRecord w = new GenericData.Record(WRITTEN);
+        w.put("extra", "dropped");
+        w.put("key", r.get("key"));
+        w.put("value", r.get("value"));
+        w.put("seq", r.get("seq"));
+        written.add(w);
+      }
+    }
+    return DataFileFixture.write(schema, codec, 2000, Collections.singletonMap("test.source", "sorter"), written);
+  }
+
+  private static List<GenericRecord> read(byte[] file) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      reader.forEach(records::add);
+    }
+    return records;
+  }
+
+  /**
+   * The fields of records sorted in memory, by a stable sort. Records are not
+   * compared with equals(), which ignores the input order held by seq.
+   */
+  private static List<String> sorted(List<GenericRecord> records) {
+    List<GenericRecord> sorted = new ArrayList<>(records);
+    sorted.sort((a, b) -> GenericData.get().compare(a, b, SCHEMA));
+    return fields(sorted);
+  }
+
+  private static List<String> fields(List<GenericRecord> records) {
+    List<String> fields = new ArrayList<>();
+    for (GenericRecord r : records) {
+      fields.add(r.get("key") + "/" + r.get("value") + "/" + r.get("seq"));
+    }
+    return fields;
+  }
+
+  private byte[] sort(DataFileSorter sorter, byte[]... inputs) throws IOException {
+    List<InputStream> streams = new ArrayList<>();
+    for (byte[] input : inputs) {
+      streams.add(new ByteArrayInputStream(input));
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sorter.sort(streams, out);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void inMemory() throws IOException {
+    List<GenericRecord> records = records(3000, 0, new Random(1));
+    byte[] output = sort(new DataFileSorter(), write(SCHEMA, records, CodecFactory.deflateCodec(1)));
+    assertEquals(sorted(records), fields(read(output)));
+  }
+
+  @Test
+  public void spilledRunsMergedInPasses() throws IOException {
+    List<GenericRecord> records = records(5000, 0, new Random(2));
+    File temp = dir.newFolder();
+    DataFileSorter sorter = new DataFileSorter().setMemoryLimit(8 * 1024).setMergeFactor(3).setTempDirectory(temp)
+        .setSpillCodec(CodecFactory.snappyCodec()).setCodec(CodecFactory.deflateCodec(1));
+    byte[] output = sort(sorter, write(SCHEMA, records, CodecFactory.nullCodec()));
+    assertEquals(sorted(records), fields(read(output)));
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(output),
+        new GenericDatumReader<>(SCHEMA))) {
+      assertEquals(DataFileConstants.DEFLATE_CODEC, reader.getMetaString(DataFileConstants.CODEC));
+      assertEquals("sorter", reader.getMetaString("test.source"));
+    }
+    // runs are deleted
+    assertArrayEquals(new String[0], temp.list());
+  }
+
+  @Test
+  public void manyInputs() throws IOException {
+    Random random = new Random(3);
+    List<GenericRecord> first = records(1000, 0, random);
+    List<GenericRecord> second = records(1500, 1000, random);
+    List<GenericRecord> all = new ArrayList<>(first);
+    all.addAll(second);
+    DataFileSorter sorter = new DataFileSorter().setMemoryLimit(16 * 1024).setTempDirectory(dir.newFolder());
+    byte[] output = sort(sorter, write(SCHEMA, first, CodecFactory.deflateCodec(1)),
+        write(SCHEMA, second, CodecFactory.snappyCodec()));
+    assertEquals(sorted(all), fields(read(output)));
+  }
+
+  @Test
+  public void resolvedToSortSchema() throws IOException {
+    Random random = new Random(4);
+    List<GenericRecord> written = records(2000, 0, random);
+    List<GenericRecord> same = records(500, 2000, random);
+    List<GenericRecord> all = new ArrayList<>(written);
+    all.addAll(same);
+    for (long limit : new long[] { 8 * 1024, 1 << 20 }) {
+      DataFileSorter sorter = new DataFileSorter().setSchema(SCHEMA).setMemoryLimit(limit)
+          .setTempDirectory(dir.newFolder());
+      // entries of the first input are decoded, and of the second are not
+      byte[] output = sort(sorter, write(WRITTEN, written, CodecFactory.nullCodec()),
+          write(SCHEMA, same, CodecFactory.nullCodec()));
+      try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(output),
+          new GenericDatumReader<>(SCHEMA))) {
+        assertEquals(SCHEMA, reader.getSchema());
+      }
+      assertEquals(sorted(all), fields(read(output)));
+    }
+  }
+
+  @Test
+  public void files() throws IOException {
+    List<GenericRecord> records = records(1000, 0, new Random(5));
+    File input = dir.newFile();
+    Files.write(input.toPath(), write(SCHEMA, records, CodecFactory.nullCodec()));
+    File output = dir.newFile();
+    assertEquals(1000, new DataFileSorter().setMemoryLimit(4096).setTempDirectory(dir.newFolder()).sort(input, output));
+    assertEquals(sorted(records), fields(read(Files.readAllBytes(output.toPath()))));
+  }
+
+  @Test
+  public void emptyInputs() throws IOException {
+    byte[] output = sort(new DataFileSorter(), write(SCHEMA, Collections.emptyList(), CodecFactory.nullCodec()));
+    assertEquals(Collections.emptyList(), fields(read(output)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new DataFileSorter().sort(Collections.<InputStream>emptyList(), new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void invalidSettings() {
+    DataFileSorter sorter = new DataFileSorter();
+    assertThrows(IllegalArgumentException.class, () -> sorter.setMemoryLimit(0));
+    assertThrows(IllegalArgumentException.class, () -> sorter.setMergeFactor(1));
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestDataFileStreamPrefetch {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredInt("i").requiredString("s")
+      .endRecord();
+  private static final int COUNT = 2000;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static byte[] write(CodecFactory codec) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      r.put("i", i);
+      r.put("s", "record " + i);
+      records.add(r);
+    }
+    return DataFileFixture.write(SCHEMA, codec, 64, records);
+  }
+
+  private DataFileStream<GenericRecord> open(byte[] file, boolean decode) throws IOException {
+    DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA));
+    reader.setPrefetch(executor, 4, decode);
+    return reader;
+  }
+
+  /** Checks that the file holds the records from <i>first</i> on, in order. */
+  private static void check(byte[] file, int first) throws IOException {
+    int i = first;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(i, r.get("i"));
+        assertEquals("record " + i, r.get("s").toString());
+        i++;
+      }
+    }
+    assertEquals(COUNT, i);
+  }
+
+  /**
+   * Reads the first block through the prefetching reader, then appends the
+   * remaining blocks to a new file.
+   */
+  private void appendAfterFirstBlock(CodecFactory in, CodecFactory out, boolean recompress, boolean decode)
+      throws IOException {
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    int first = 0;
+    try (DataFileStream<GenericRecord> reader = open(write(in), decode);
+        DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(out);
+      writer.create(SCHEMA, copy);
+      assertEquals(0, reader.next().get("i"));
+      first = 1;
+      for (long n = reader.getBlockCount(); first < n; first++) {
+        assertEquals(first, reader.next().get("i"));
+      }
+      writer.appendAllFrom(reader, recompress);
+    }
+    check(copy.toByteArray(), first);
+  }
+
+  @Test
+  public void appendRawBlocks() throws IOException {
+    for (boolean decode : new boolean[] { false, true }) {
+      appendAfterFirstBlock(CodecFactory.nullCodec(), CodecFactory.nullCodec(), false, decode);
+      appendAfterFirstBlock(CodecFactory.deflateCodec(1), CodecFactory.deflateCodec(1), false, decode);
+    }
+  }
+
+  @Test
+  public void appendRecompressedBlocks() throws IOException {
+    for (boolean decode : new boolean[] { false, true }) {
+      appendAfterFirstBlock(CodecFactory.deflateCodec(1), CodecFactory.deflateCodec(1), true, decode);
+      appendAfterFirstBlock(CodecFactory.deflateCodec(1), CodecFactory.nullCodec(), false, decode);
+      appendAfterFirstBlock(CodecFactory.nullCodec(), CodecFactory.deflateCodec(1), false, decode);
+    }
+  }
+
+  @Test
+  public void appendBeforeReading() throws IOException {
+    ByteArrayOutputStream copy = new ByteArrayOutputStream();
+    try (DataFileStream<GenericRecord> reader = open(write(CodecFactory.deflateCodec(1)), false);
+        DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(CodecFactory.deflateCodec(1));
+      writer.create(SCHEMA, copy);
+      writer.appendAllFrom(reader, false);
+    }
+    check(copy.toByteArray(), 0);
+  }
+}
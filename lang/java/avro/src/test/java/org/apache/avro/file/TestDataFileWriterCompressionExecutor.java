@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestDataFileWriterCompressionExecutor {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredLong("l").requiredString("s")
+      .endRecord();
+  private static final byte[] SYNC = new byte[DataFileConstants.SYNC_SIZE];
+  private static final int COUNT = 3000;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static GenericRecord record(long i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("l", i);
+    r.put("s", "value " + (i % 17));
+    return r;
+  }
+
+  /**
+   * Writes the records, calling sync() and flush() in the middle, using
+   * <i>pending</i> blocks compressed in parallel.
+   */
+  private byte[] write(CodecFactory codec, int pending) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(codec);
+      writer.setSyncInterval(256);
+      writer.setCompressionExecutor(executor, pending);
+      writer.create(SCHEMA, out, SYNC);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+        if (i == COUNT / 3) {
+          writer.sync();
+        } else if (i == COUNT / 2) {
+          writer.flush();
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void check(byte[] file) throws IOException {
+    long i = 0;
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new SeekableByteArrayInput(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++), r);
+      }
+    }
+    assertEquals(COUNT, i);
+    i = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++), r);
+      }
+    }
+    assertEquals(COUNT, i);
+  }
+
+  @Test
+  public void sameFileAsSequential() throws IOException {
+    CodecFactory[] codecs = { CodecFactory.nullCodec(), CodecFactory.deflateCodec(6), CodecFactory.xzCodec(1),
+        CodecFactory.zstandardCodec(3) };
+    for (CodecFactory codec : codecs) {
+      byte[] sequential = write(codec, 0);
+      check(sequential);
+      for (int pending : new int[] { 1, 2, 8 }) {
+        byte[] parallel = write(codec, pending);
+        assertArrayEquals(codec + " with " + pending + " pending blocks", sequential, parallel);
+      }
+    }
+  }
+
+  @Test
+  public void appendAllFromDrainsPendingBlocks() throws IOException {
+    byte[] source = write(CodecFactory.deflateCodec(1), 0);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(CodecFactory.deflateCodec(1));
+      writer.setSyncInterval(256);
+      writer.setCompressionExecutor(executor, 4);
+      writer.create(SCHEMA, out);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+      }
+      try (DataFileStream<GenericRecord> in = new DataFileStream<>(new ByteArrayInputStream(source),
+          new GenericDatumReader<>(SCHEMA))) {
+        writer.appendAllFrom(in, false);
+      }
+    }
+    long i = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(out.toByteArray()),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++ % COUNT), r);
+      }
+    }
+    assertEquals(2 * COUNT, i);
+  }
+
+  @Test
+  public void invalidSettings() {
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA));
+    assertThrows(IllegalArgumentException.class, () -> writer.setCompressionExecutor(executor, -1));
+    assertThrows(IllegalArgumentException.class, () -> writer.setCompressionExecutor(null, 2));
+    writer.setCompressionExecutor(null, 0);
+  }
+}
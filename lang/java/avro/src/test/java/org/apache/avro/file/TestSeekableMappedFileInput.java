@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestSeekableMappedFileInput {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("R").fields().requiredInt("i").requiredString("s")
+      .endRecord();
+  private static final int COUNT = 1000;
+  private static final long REGION = 8192;
+  private static final long OVERLAP = 1024;
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static GenericRecord record(int i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("i", i);
+    StringBuilder s = new StringBuilder();
+    for (int j = 0; j < i % 97; j++) {
+      s.append((char) ('a' + j % 26));
+    }
+    r.put("s", s.toString());
+    return r;
+  }
+
+  private File write(CodecFactory codec) throws IOException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(codec);
+      // blocks both smaller and larger than the overlap of mappings
+      writer.setSyncInterval(900);
+      writer.create(SCHEMA, file);
+      for (int i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+      }
+    }
+    return file;
+  }
+
+  private static List<GenericRecord> readAll(SeekableInput in) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(in, new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        records.add(r);
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void readRecords() throws IOException {
+    CodecFactory[] codecs = { CodecFactory.nullCodec(), CodecFactory.deflateCodec(1), CodecFactory.snappyCodec() };
+    for (CodecFactory codec : codecs) {
+      File file = write(codec);
+      List<GenericRecord> expected = readAll(new SeekableFileInput(file));
+      assertEquals(COUNT, expected.size());
+      for (int i = 0; i < COUNT; i++) {
+        assertEquals(record(i), expected.get(i));
+      }
+      assertEquals(expected, readAll(new SeekableMappedFileInput(file)));
+      assertEquals(expected, readAll(new SeekableMappedFileInput(file, REGION, OVERLAP)));
+    }
+  }
+
+  @Test
+  public void smallBlocksAreReadFromTheMapping() throws IOException {
+    for (CodecFactory codec : new CodecFactory[] { CodecFactory.nullCodec(), CodecFactory.snappyCodec() }) {
+      File file = write(codec);
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new SeekableMappedFileInput(file),
+          new GenericDatumReader<>(SCHEMA))) {
+        int i = 0;
+        while (reader.hasNext()) {
+          // even blocks that were buffered along with the previous one
+          assertTrue(reader.blockBuffer.isDirect());
+          assertEquals(record(i++), reader.next());
+        }
+        assertEquals(COUNT, i);
+      }
+    }
+  }
+
+  @Test
+  public void syncToPositions() throws IOException {
+    File file = write(CodecFactory.nullCodec());
+    try (
+        DataFileReader<GenericRecord> expected = new DataFileReader<>(new SeekableFileInput(file),
+            new GenericDatumReader<>(SCHEMA));
+        DataFileReader<GenericRecord> mapped = new DataFileReader<>(new SeekableMappedFileInput(file, REGION, OVERLAP),
+            new GenericDatumReader<>(SCHEMA))) {
+      for (long position = file.length() - 1; position >= 0; position -= 997) {
+        expected.sync(position);
+        mapped.sync(position);
+        assertEquals(expected.tell(), mapped.tell());
+        assertEquals(expected.hasNext(), mapped.hasNext());
+        if (expected.hasNext()) {
+          assertEquals(expected.next(), mapped.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void readAcrossRegions() throws IOException {
+    File file = write(CodecFactory.nullCodec());
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    byte[] read = new byte[bytes.length];
+    try (SeekableMappedFileInput in = new SeekableMappedFileInput(file, REGION, OVERLAP)) {
+      assertEquals(bytes.length, in.length());
+      int n = 0;
+      while (n < read.length) {
+        n += in.read(read, n, Math.min(5000, read.length - n));
+      }
+      assertEquals(-1, in.read(read, 0, 1));
+      assertArrayEquals(bytes, read);
+
+      in.seek(REGION - 10);
+      byte[] chunk = new byte[20];
+      assertEquals(20, in.read(chunk, 0, 20));
+      assertEquals(REGION + 10, in.tell());
+    }
+  }
+
+  @Test
+  public void sliceWithinMappings() throws IOException {
+    File file = write(CodecFactory.nullCodec());
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    assertTrue(bytes.length > 3 * REGION);
+    try (SeekableMappedFileInput in = new SeekableMappedFileInput(file, REGION, OVERLAP)) {
+      // within the overlap of the first and the second mapping
+      ByteBuffer slice = in.slice(REGION - 100, (int) OVERLAP + 100);
+      assertNotNull(slice);
+      byte[] data = new byte[slice.remaining()];
+      slice.get(data);
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(bytes[(int) REGION - 100 + i], data[i]);
+      }
+      // larger than the overlap, and so copied by callers
+      assertNull(in.slice(REGION - 100, (int) OVERLAP + 101));
+      assertNull(in.slice(bytes.length - 10, 11));
+      assertNull(in.slice(-1, 10));
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestZstandardDictionary {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("Event").fields().requiredLong("id").requiredString("host")
+      .requiredString("message").endRecord();
+  private static final String[] HOSTS = { "web-01.example.com", "web-02.example.com", "db-01.example.com" };
+  private static final int COUNT = 2000;
+
+  private static byte[] dictionary;
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private static GenericRecord record(long i) {
+    GenericRecord r = new GenericData.Record(SCHEMA);
+    r.put("id", i);
+    r.put("host", HOSTS[(int) (i % HOSTS.length)]);
+    r.put("message", "GET /api/v1/items/" + (i * 7919 % 1000) + " HTTP/1.1 200 " + (i % 13) + "ms");
+    return r;
+  }
+
+  /** Trains the dictionary on the uncompressed blocks of a sample file. */
+  @BeforeClass
+  public static void train() throws IOException {
+    ByteArrayOutputStream sample = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setSyncInterval(512);
+      writer.create(SCHEMA, sample);
+      for (long i = 100_000; i < 120_000; i++) {
+        writer.append(record(i));
+      }
+    }
+    List<ByteBuffer> blocks = new ArrayList<>();
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(sample.toByteArray()),
+        new GenericDatumReader<>(SCHEMA))) {
+      while (reader.hasNext()) {
+        ByteBuffer block = reader.nextBlock();
+        byte[] copy = new byte[block.remaining()];
+        block.get(copy);
+        blocks.add(ByteBuffer.wrap(copy));
+      }
+    }
+    dictionary = ZstandardCodec.trainDictionary(blocks, 8192);
+    assertTrue(dictionary.length > 0);
+  }
+
+  private File write(CodecFactory codec) throws IOException {
+    File file = dir.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.setCodec(codec);
+      writer.setSyncInterval(512);
+      writer.create(SCHEMA, file);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+      }
+    }
+    return file;
+  }
+
+  private static void check(File file, long count) throws IOException {
+    long i = 0;
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++ % COUNT), r);
+      }
+    }
+    assertEquals(count, i);
+    i = 0;
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(Files.newInputStream(file.toPath()),
+        new GenericDatumReader<>(SCHEMA))) {
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++ % COUNT), r);
+      }
+    }
+    assertEquals(count, i);
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    File file = write(CodecFactory.zstandardCodec(3, dictionary));
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      assertEquals(DataFileConstants.ZSTANDARD_DICTIONARY_CODEC, reader.getMetaString(DataFileConstants.CODEC));
+      assertArrayEquals(dictionary, reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+    }
+    check(file, COUNT);
+  }
+
+  @Test
+  public void smallerThanWithoutDictionary() throws IOException {
+    long plain = write(CodecFactory.zstandardCodec(3)).length();
+    long withDictionary = write(CodecFactory.zstandardCodec(3, dictionary)).length();
+    assertTrue(withDictionary + " not smaller than " + plain, withDictionary + dictionary.length < plain);
+  }
+
+  @Test
+  public void prefetchedBlocks() throws IOException {
+    File file = write(CodecFactory.zstandardCodec(3, dictionary));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(Files.newInputStream(file.toPath()),
+        new GenericDatumReader<>(SCHEMA))) {
+      reader.setPrefetch(executor, 4, false);
+      long i = 0;
+      for (GenericRecord r : reader) {
+        assertEquals(record(i++), r);
+      }
+      assertEquals(COUNT, i);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void appendToKeepsDictionary() throws IOException {
+    File file = write(CodecFactory.zstandardCodec(3, dictionary));
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA))) {
+      writer.appendTo(file);
+      for (long i = 0; i < COUNT; i++) {
+        writer.append(record(i));
+      }
+    }
+    check(file, 2 * COUNT);
+  }
+
+  @Test
+  public void appendAllFrom() throws IOException {
+    byte[] other = ZstandardCodec.trainDictionary(blocksOf(write(CodecFactory.nullCodec())), 4096);
+    File source = write(CodecFactory.zstandardCodec(3, dictionary));
+    for (CodecFactory codec : new CodecFactory[] { CodecFactory.zstandardCodec(3, dictionary),
+        CodecFactory.zstandardCodec(3, other), CodecFactory.zstandardCodec(3) }) {
+      File file = dir.newFile();
+      try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(SCHEMA));
+          DataFileStream<GenericRecord> in = new DataFileStream<>(Files.newInputStream(source.toPath()),
+              new GenericDatumReader<>(SCHEMA))) {
+        writer.setCodec(codec);
+        writer.create(SCHEMA, file);
+        // blocks are copied as they are only with the same dictionary
+        writer.appendAllFrom(in, false);
+      }
+      check(file, COUNT);
+    }
+  }
+
+  private static List<ByteBuffer> blocksOf(File file) throws IOException {
+    List<ByteBuffer> blocks = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>(SCHEMA))) {
+      while (reader.hasNext()) {
+        ByteBuffer block = reader.nextBlock();
+        byte[] copy = new byte[block.remaining()];
+        block.get(copy);
+        blocks.add(ByteBuffer.wrap(copy));
+      }
+    }
+    return blocks;
+  }
+
+  @Test
+  public void codecsOfDictionaries() throws IOException {
+    Codec codec = CodecFactory.zstandardCodec(3, dictionary).createInstance();
+    assertEquals(DataFileConstants.ZSTANDARD_DICTIONARY_CODEC, codec.getName());
+    assertEquals(codec, CodecFactory.zstandardCodec(9, dictionary.clone()).createInstance());
+    assertNotEquals(codec, CodecFactory.zstandardCodec(3).createInstance());
+    byte[] other = dictionary.clone();
+    other[other.length - 1]++;
+    assertNotEquals(codec, CodecFactory.zstandardCodec(3, other).createInstance());
+    assertThrows(IllegalArgumentException.class, () -> CodecFactory.zstandardCodec(3, null));
+
+    // blocks are read with the dictionary of the file only
+    ByteBuffer block = ByteBuffer.wrap("some data, some more data".getBytes("UTF-8"));
+    ByteBuffer compressed = codec.compress(block);
+    Map<String, byte[]> meta = new HashMap<>();
+    Codec noDictionary = CodecFactory.fromString(DataFileConstants.ZSTANDARD_DICTIONARY_CODEC).forFile(meta)
+        .createInstance();
+    assertThrows(IOException.class, () -> noDictionary.decompress(compressed.duplicate()));
+    meta.put(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary);
+    Codec fromFile = CodecFactory.fromString(DataFileConstants.ZSTANDARD_DICTIONARY_CODEC).forFile(meta)
+        .createInstance();
+    assertEquals(block, fromFile.decompress(compressed.duplicate()));
+  }
+
+  @Test
+  public void tooFewSamples() {
+    List<ByteBuffer> samples = new ArrayList<>();
+    samples.add(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+    assertThrows(IOException.class, () -> ZstandardCodec.trainDictionary(samples, 1024));
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class TestPrimitivesArrays {
+
+  private static final Schema INT_ARRAY = Schema.createArray(Schema.create(Schema.Type.INT));
+  private static final Schema LONG_ARRAY = Schema.createArray(Schema.create(Schema.Type.LONG));
+  private static final Schema DOUBLE_ARRAY = Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+  private static final Schema BOOLEAN_ARRAY = Schema.createArray(Schema.create(Schema.Type.BOOLEAN));
+
+  @Test
+  public void newArrayPicksPrimitiveArray() {
+    GenericData data = GenericData.get();
+    assertTrue(data.newArray(null, 4, INT_ARRAY) instanceof PrimitivesArrays.IntArray);
+    assertTrue(data.newArray(null, 4, LONG_ARRAY) instanceof PrimitivesArrays.LongArray);
+    assertTrue(data.newArray(null, 4, DOUBLE_ARRAY) instanceof PrimitivesArrays.DoubleArray);
+    assertTrue(data.newArray(null, 4, BOOLEAN_ARRAY) instanceof PrimitivesArrays.BooleanArray);
+    Schema dates = Schema.createArray(LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT)));
+    assertTrue(data.newArray(null, 4, dates) instanceof GenericData.Array);
+  }
+
+  @Test
+  public void isFor() {
+    Object ints = GenericData.get().newArray(null, 4, INT_ARRAY);
+    assertTrue(PrimitivesArrays.isFor(ints, INT_ARRAY));
+    assertFalse(PrimitivesArrays.isFor(ints, LONG_ARRAY));
+    assertFalse(PrimitivesArrays.isFor(new ArrayList<Integer>(), INT_ARRAY));
+    Schema dates = Schema.createArray(LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT)));
+    assertFalse(PrimitivesArrays.isFor(ints, dates));
+  }
+
+  @Test
+  public void newArrayReusesOnlyMatchingPrimitiveArray() {
+    GenericData data = GenericData.get();
+    Object ints = data.newArray(null, 4, INT_ARRAY);
+    assertSame(ints, data.newArray(ints, 4, INT_ARRAY));
+    Object longs = data.newArray(ints, 4, LONG_ARRAY);
+    assertNotSame(ints, longs);
+    assertTrue(longs instanceof PrimitivesArrays.LongArray);
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    for (boolean fast : new boolean[] { false, true }) {
+      GenericData data = new GenericData().setFastReaderEnabled(fast).setFastWriterEnabled(fast);
+      roundTrip(data, INT_ARRAY, Arrays.asList(1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE));
+      roundTrip(data, LONG_ARRAY, Arrays.asList(1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE));
+      roundTrip(data, DOUBLE_ARRAY, Arrays.asList(1.5, -2.0, Double.NaN));
+      roundTrip(data, BOOLEAN_ARRAY, Arrays.asList(true, false, false, true));
+    }
+  }
+
+  private static void roundTrip(GenericData data, Schema schema, List<?> values) throws IOException {
+    byte[] bytes = write(new GenericDatumWriter<>(schema, data), new GenericData.Array<>(schema, values));
+    Object read = read(data, schema, schema, null, bytes);
+    assertTrue(PrimitivesArrays.isFor(read, schema));
+    assertEquals(values, read);
+    // writing the primitive array back yields the same bytes
+    assertEquals(Arrays.toString(bytes), Arrays.toString(write(new GenericDatumWriter<>(schema, data), read)));
+  }
+
+  @Test
+  public void reuseOfMismatchedArray() throws IOException {
+    for (boolean fast : new boolean[] { false, true }) {
+      GenericData data = new GenericData().setFastReaderEnabled(fast);
+      byte[] bytes = write(new GenericDatumWriter<>(LONG_ARRAY),
+          new GenericData.Array<>(LONG_ARRAY, Arrays.asList(Long.MAX_VALUE, 3L)));
+      Object old = data.newArray(null, 4, INT_ARRAY);
+      Object read = read(data, LONG_ARRAY, LONG_ARRAY, old, bytes);
+      assertNotSame(old, read);
+      assertEquals(Arrays.asList(Long.MAX_VALUE, 3L), read);
+    }
+  }
+
+  @Test
+  public void reuseWithPromotion() throws IOException {
+    for (boolean fast : new boolean[] { false, true }) {
+      GenericData data = new GenericData().setFastReaderEnabled(fast);
+      byte[] bytes = write(new GenericDatumWriter<>(INT_ARRAY),
+          new GenericData.Array<>(INT_ARRAY, Arrays.asList(1, 2, 3)));
+      // an int array reused to read ints promoted to longs
+      Object ints = data.newArray(null, 4, INT_ARRAY);
+      Object read = read(data, INT_ARRAY, LONG_ARRAY, ints, bytes);
+      assertTrue(read instanceof PrimitivesArrays.LongArray);
+      assertEquals(Arrays.asList(1L, 2L, 3L), read);
+      // a long array is reused
+      assertSame(read, read(data, INT_ARRAY, LONG_ARRAY, read, bytes));
+      assertEquals(Arrays.asList(1L, 2L, 3L), read);
+    }
+  }
+
+  @Test(expected = ConcurrentModificationException.class)
+  public void sizeMismatchIsDetected() throws IOException {
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(INT_ARRAY) {
+      @Override
+      protected long getArraySize(Object array) {
+        return super.getArraySize(array) + 1;
+      }
+    };
+    byte[] bytes = write(new GenericDatumWriter<>(INT_ARRAY), new GenericData.Array<>(INT_ARRAY, Arrays.asList(1, 2)));
+    Object ints = read(GenericData.get(), INT_ARRAY, INT_ARRAY, null, bytes);
+    assertTrue(ints instanceof PrimitivesArrays.IntArray);
+    write(writer, ints);
+  }
+
+  private static byte[] write(GenericDatumWriter<Object> writer, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(GenericData data, Schema writer, Schema reader, Object old, byte[] bytes)
+      throws IOException {
+    return new GenericDatumReader<>(writer, reader, data).read(old, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+}
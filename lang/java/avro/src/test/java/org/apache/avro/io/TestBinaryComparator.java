@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.Test;
+
+public class TestBinaryComparator {
+
+  private static final Schema ENUM = SchemaBuilder.enumeration("E").symbols("A", "B", "C");
+  private static final Schema FIXED = SchemaBuilder.fixed("F").size(2);
+  private static final Schema INNER = SchemaBuilder.record("Inner").fields().requiredLong("x").requiredFloat("y")
+      .endRecord();
+
+  private static final Schema SCHEMA = SchemaBuilder.record("Outer").fields() //
+      .requiredInt("i") //
+      .name("desc").orderDescending().type().longType().noDefault() //
+      .name("ignored").orderIgnore().type().stringType().noDefault() //
+      .requiredDouble("d") //
+      .requiredBoolean("b") //
+      .requiredString("s") //
+      .requiredBytes("bytes") //
+      .name("e").type(ENUM).noDefault() //
+      .name("f").type(FIXED).noDefault() //
+      .name("inner").type(INNER).noDefault() //
+      .name("list").type().array().items().intType().noDefault() //
+      .optionalString("opt") //
+      .endRecord();
+
+  private static GenericRecord random(Random random) {
+    // few distinct values per field, so that comparisons reach later fields
+    List<Integer> list = new ArrayList<>();
+    for (int i = random.nextInt(3); i > 0; i--) {
+      list.add(random.nextInt(3) - 1);
+    }
+    return new GenericRecordBuilder(SCHEMA) //
+        .set("i", random.nextInt(3) - 1) //
+        .set("desc", (long) random.nextInt(3)) //
+        .set("ignored", "x" + random.nextInt(100)) //
+        .set("d", random.nextInt(4) == 0 ? Double.NaN : (double) random.nextInt(3)) //
+        .set("b", random.nextBoolean()) //
+        .set("s", random.nextBoolean() ? "a" : "ab") //
+        .set("bytes", ByteBuffer.wrap(random.nextBoolean() ? new byte[] { 1 } : new byte[] { 1, (byte) 0xff })) //
+        .set("e", new GenericData.EnumSymbol(ENUM, "ABC".substring(random.nextInt(3)).substring(0, 1))) //
+        .set("f", new GenericData.Fixed(FIXED, new byte[] { (byte) random.nextInt(2), (byte) 0x80 })) //
+        .set("inner",
+            new GenericRecordBuilder(INNER).set("x", (long) random.nextInt(2)).set("y", random.nextInt(2) / 2f).build()) //
+        .set("list", list) //
+        .set("opt", random.nextBoolean() ? null : "o") //
+        .build();
+  }
+
+  private static byte[] encode(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void orderMatchesGenericData() throws IOException {
+    Random random = new Random(7);
+    BinaryComparator comparator = BinaryData.comparator(SCHEMA);
+    for (int n = 0; n < 2000; n++) {
+      GenericRecord r1 = random(random);
+      GenericRecord r2 = random(random);
+      byte[] b1 = encode(SCHEMA, r1);
+      byte[] b2 = encode(SCHEMA, r2);
+      int expected = Integer.signum(GenericData.get().compare(r1, r2, SCHEMA));
+      assertEquals(expected, Integer.signum(comparator.compare(b1, 0, b1.length, b2, 0, b2.length)));
+      assertEquals(expected, Integer.signum(BinaryData.compare(b1, 0, b2, 0, SCHEMA)));
+      assertEquals(0, comparator.compare(b1, 0, b1.length, b1, 0, b1.length));
+    }
+  }
+
+  @Test
+  public void recursiveSchema() throws IOException {
+    Schema list = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"int\"},{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+    GenericRecord tail = new GenericRecordBuilder(list).set("value", 2).set("next", null).build();
+    GenericRecord longer = new GenericRecordBuilder(list).set("value", 1).set("next", tail).build();
+    GenericRecord shorter = new GenericRecordBuilder(list).set("value", 1).set("next", null).build();
+    byte[] b1 = encode(list, longer);
+    byte[] b2 = encode(list, shorter);
+    int expected = Integer.signum(GenericData.get().compare(longer, shorter, list));
+    assertEquals(expected, Integer.signum(BinaryData.comparator(list).compare(b1, 0, b1.length, b2, 0, b2.length)));
+  }
+
+  @Test
+  public void comparatorsAreNotRetained() throws Exception {
+    int count = 200;
+    List<WeakReference<Schema>> schemas = new ArrayList<>();
+    byte[] zero = encode(Schema.create(Schema.Type.INT), 0);
+    for (int i = 0; i < count; i++) {
+      Schema schema = SchemaBuilder.record("R" + i).fields().requiredInt("a").endRecord();
+      BinaryData.comparator(schema).compare(zero, 0, zero.length, zero, 0, zero.length);
+      BinaryData.compare(zero, 0, zero, 0, schema);
+      schemas.add(new WeakReference<>(schema));
+    }
+    int live = count;
+    for (int attempt = 0; attempt < 50 && live > 0; attempt++) {
+      System.gc();
+      Thread.sleep(20);
+      live = 0;
+      for (WeakReference<Schema> schema : schemas) {
+        if (schema.get() != null) {
+          live++;
+        }
+      }
+    }
+    // the schemas compiled by this thread are not kept alive by it
+    assertEquals(0, live);
+  }
+
+  @Test
+  public void compareManySchemasInTurn() throws IOException {
+    byte[] one = encode(Schema.create(Schema.Type.INT), 1);
+    byte[] two = encode(Schema.create(Schema.Type.INT), 2);
+    List<Schema> schemas = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("S" + i).fields();
+      schemas.add(i % 2 == 0 ? fields.requiredInt("a").endRecord()
+          : fields.name("a").orderDescending().type().intType().noDefault().endRecord());
+    }
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < schemas.size(); i++) {
+        int expected = i % 2 == 0 ? -1 : 1;
+        assertEquals(expected, Integer.signum(BinaryData.compare(one, 0, two, 0, schemas.get(i))));
+        assertEquals(0, BinaryData.compare(one, 0, one, 0, schemas.get(i)));
+      }
+    }
+  }
+}
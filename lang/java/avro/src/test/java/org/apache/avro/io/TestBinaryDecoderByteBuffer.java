@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestBinaryDecoderByteBuffer {
+
+  private static final byte[] BIG = new byte[100_000];
+  static {
+    new Random(0).nextBytes(BIG);
+  }
+
+  private static byte[] encode() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    for (int i = 0; i < 1000; i++) {
+      e.writeInt(i * 31 - 500);
+      e.writeLong((long) i << 40);
+      e.writeString("s" + i);
+      e.writeDouble(i / 3.0);
+      e.writeBoolean(i % 2 == 0);
+    }
+    e.writeBytes(BIG);
+    e.writeFixed(BIG, 0, 10);
+    e.flush();
+    return out.toByteArray();
+  }
+
+  private static void check(BinaryDecoder d) throws IOException {
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i * 31 - 500, d.readInt());
+      assertEquals((long) i << 40, d.readLong());
+      assertEquals("s" + i, d.readString());
+      assertEquals(i / 3.0, d.readDouble(), 0);
+      assertEquals(i % 2 == 0, d.readBoolean());
+    }
+    assertEquals(ByteBuffer.wrap(BIG), d.readBytes(null));
+    byte[] fixed = new byte[10];
+    d.readFixed(fixed);
+    assertArrayEquals(Arrays.copyOf(BIG, 10), fixed);
+    assertTrue(d.isEnd());
+  }
+
+  /** Return the data at a non-zero position in a buffer of the named kind. */
+  private static ByteBuffer buffer(byte[] data, boolean direct, boolean readOnly) {
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(data.length + 7) : ByteBuffer.allocate(data.length + 7);
+    buffer.position(3);
+    buffer.put(data);
+    buffer.position(3);
+    buffer.limit(3 + data.length);
+    return readOnly ? buffer.asReadOnlyBuffer() : buffer;
+  }
+
+  @Test
+  public void heapBuffer() throws IOException {
+    ByteBuffer buffer = buffer(encode(), false, false);
+    check(DecoderFactory.get().binaryDecoder(buffer, null));
+    assertEquals(3, buffer.position());
+  }
+
+  @Test
+  public void directBuffer() throws IOException {
+    ByteBuffer buffer = buffer(encode(), true, false);
+    check(DecoderFactory.get().binaryDecoder(buffer, null));
+    assertEquals(3, buffer.position());
+  }
+
+  @Test
+  public void readOnlyBuffer() throws IOException {
+    ByteBuffer buffer = buffer(encode(), false, true);
+    check(DecoderFactory.get().binaryDecoder(buffer, null));
+    assertEquals(3, buffer.position());
+  }
+
+  @Test
+  public void slicedBuffer() throws IOException {
+    ByteBuffer buffer = buffer(encode(), false, false).slice();
+    check(DecoderFactory.get().binaryDecoder(buffer, null));
+  }
+
+  @Test
+  public void smallBufferSize() throws IOException {
+    DecoderFactory factory = new DecoderFactory().configureDecoderBufferSize(32);
+    check(factory.binaryDecoder(buffer(encode(), true, false), null));
+  }
+
+  @Test
+  public void reuse() throws IOException {
+    byte[] data = encode();
+    BinaryDecoder d = DecoderFactory.get().binaryDecoder(buffer(data, true, false), null);
+    check(d);
+    assertSame(d, DecoderFactory.get().binaryDecoder(buffer(data, false, false), d));
+    check(d);
+    assertSame(d, DecoderFactory.get().binaryDecoder(buffer(data, true, true), d));
+    check(d);
+  }
+
+  @Test
+  public void skip() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    e.writeBytes(BIG);
+    e.writeString("after");
+    e.flush();
+    BinaryDecoder d = DecoderFactory.get().binaryDecoder(buffer(out.toByteArray(), true, false), null);
+    d.skipBytes();
+    assertEquals("after", d.readString());
+    assertTrue(d.isEnd());
+  }
+
+  @Test(expected = EOFException.class)
+  public void truncated() throws IOException {
+    byte[] data = encode();
+    BinaryDecoder d = DecoderFactory.get().binaryDecoder(buffer(Arrays.copyOf(data, data.length - 5), true, false),
+        null);
+    check(d);
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.junit.Test;
+
+public class TestBulkPrimitives {
+
+  private static final int COUNT = 5000; // larger than encoder and decoder buffers
+
+  private static final int[] INTS = new int[COUNT];
+  private static final long[] LONGS = new long[COUNT];
+  private static final float[] FLOATS = new float[COUNT];
+  private static final double[] DOUBLES = new double[COUNT];
+  static {
+    Random random = new Random(42);
+    for (int i = 0; i < COUNT; i++) {
+      INTS[i] = i % 7 == 0 ? Integer.MIN_VALUE + i : random.nextInt() >> random.nextInt(32);
+      LONGS[i] = i % 5 == 0 ? Long.MAX_VALUE - i : random.nextLong() >> random.nextInt(64);
+      FLOATS[i] = i % 11 == 0 ? Float.NaN : random.nextFloat() * i;
+      DOUBLES[i] = i % 13 == 0 ? Double.NEGATIVE_INFINITY : random.nextGaussian() * i;
+    }
+  }
+
+  private static final Schema INT_ARRAY = Schema.createArray(Schema.create(Schema.Type.INT));
+  private static final Schema LONG_ARRAY = Schema.createArray(Schema.create(Schema.Type.LONG));
+  private static final Schema FLOAT_ARRAY = Schema.createArray(Schema.create(Schema.Type.FLOAT));
+  private static final Schema DOUBLE_ARRAY = Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+
+  private interface EncoderMaker {
+    Encoder make(ByteArrayOutputStream out) throws IOException;
+  }
+
+  private static byte[] write(EncoderMaker maker, boolean bulk, int off, int len) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = maker.make(out);
+    e.writeArrayStart();
+    e.setItemCount(len);
+    if (bulk) {
+      e.writeInts(INTS, off, len);
+    } else {
+      for (int i = off; i < off + len; i++) {
+        e.startItem();
+        e.writeInt(INTS[i]);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    if (bulk) {
+      e.writeLongs(LONGS, off, len);
+    } else {
+      for (int i = off; i < off + len; i++) {
+        e.startItem();
+        e.writeLong(LONGS[i]);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    if (bulk) {
+      e.writeFloats(FLOATS, off, len);
+    } else {
+      for (int i = off; i < off + len; i++) {
+        e.startItem();
+        e.writeFloat(FLOATS[i]);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    if (bulk) {
+      e.writeDoubles(DOUBLES, off, len);
+    } else {
+      for (int i = off; i < off + len; i++) {
+        e.startItem();
+        e.writeDouble(DOUBLES[i]);
+      }
+    }
+    e.writeArrayEnd();
+    e.flush();
+    return out.toByteArray();
+  }
+
+  private static void checkEncoder(EncoderMaker maker) throws IOException {
+    assertArrayEquals(write(maker, false, 0, COUNT), write(maker, true, 0, COUNT));
+    assertArrayEquals(write(maker, false, 17, 100), write(maker, true, 17, 100));
+    assertArrayEquals(write(maker, false, 3, 0), write(maker, true, 3, 0));
+  }
+
+  @Test
+  public void bufferedEncoder() throws IOException {
+    checkEncoder(out -> EncoderFactory.get().binaryEncoder(out, null));
+    checkEncoder(out -> new EncoderFactory().configureBufferSize(32).binaryEncoder(out, null));
+  }
+
+  @Test
+  public void directEncoder() throws IOException {
+    checkEncoder(out -> EncoderFactory.get().directBinaryEncoder(out, null));
+  }
+
+  @Test
+  public void blockingEncoder() throws IOException {
+    checkEncoder(out -> EncoderFactory.get().blockingBinaryEncoder(out, null));
+    checkEncoder(out -> new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null));
+  }
+
+  @Test
+  public void validatingEncoder() throws IOException {
+    Schema schema = record();
+    checkEncoder(out -> EncoderFactory.get().validatingEncoder(schema, EncoderFactory.get().binaryEncoder(out, null)));
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void validatingEncoderRejectsWrongType() throws IOException {
+    Encoder e = EncoderFactory.get().validatingEncoder(LONG_ARRAY,
+        EncoderFactory.get().binaryEncoder(new ByteArrayOutputStream(), null));
+    e.writeArrayStart();
+    e.setItemCount(2);
+    e.writeInts(INTS, 0, 2);
+  }
+
+  private static Schema record() {
+    return Schema.createRecord("Bulk", null, "test", false, Arrays.asList(new Schema.Field("i", INT_ARRAY),
+        new Schema.Field("l", LONG_ARRAY), new Schema.Field("f", FLOAT_ARRAY), new Schema.Field("d", DOUBLE_ARRAY)));
+  }
+
+  private interface DecoderMaker {
+    Decoder make(byte[] data) throws IOException;
+  }
+
+  /** Read the four arrays in bulk, in chunks of the named size. */
+  private static void checkDecoder(DecoderMaker maker, int chunk) throws IOException {
+    Decoder d = maker.make(write(out -> EncoderFactory.get().blockingBinaryEncoder(out, null), false, 0, COUNT));
+    int[] ints = new int[COUNT + 2];
+    int n = 0;
+    for (long l = d.readArrayStart(); l > 0; l = d.arrayNext()) {
+      for (long done = 0; done < l; done += Math.min(chunk, l - done)) {
+        int len = (int) Math.min(chunk, l - done);
+        d.readInts(ints, 1 + n, len);
+        n += len;
+      }
+    }
+    assertArrayEquals(INTS, Arrays.copyOfRange(ints, 1, COUNT + 1));
+    long[] longs = new long[COUNT];
+    n = 0;
+    for (long l = d.readArrayStart(); l > 0; l = d.arrayNext()) {
+      d.readLongs(longs, n, (int) l);
+      n += l;
+    }
+    assertArrayEquals(LONGS, longs);
+    float[] floats = new float[COUNT];
+    n = 0;
+    for (long l = d.readArrayStart(); l > 0; l = d.arrayNext()) {
+      d.readFloats(floats, n, (int) l);
+      n += l;
+    }
+    assertArrayEquals(FLOATS, floats, 0);
+    double[] doubles = new double[COUNT];
+    n = 0;
+    for (long l = d.readArrayStart(); l > 0; l = d.arrayNext()) {
+      d.readDoubles(doubles, n, (int) l);
+      n += l;
+    }
+    assertArrayEquals(DOUBLES, doubles, 0);
+  }
+
+  @Test
+  public void binaryDecoder() throws IOException {
+    checkDecoder(data -> DecoderFactory.get().binaryDecoder(data, null), COUNT);
+    checkDecoder(data -> DecoderFactory.get().binaryDecoder(new ByteArrayInputStream(data), null), 33);
+    checkDecoder(
+        data -> new DecoderFactory().configureDecoderBufferSize(32).binaryDecoder(new ByteArrayInputStream(data), null),
+        COUNT);
+  }
+
+  @Test
+  public void directDecoder() throws IOException {
+    checkDecoder(data -> DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(data), null), 7);
+  }
+
+  @Test
+  public void validatingDecoder() throws IOException {
+    checkDecoder(
+        data -> DecoderFactory.get().validatingDecoder(record(), DecoderFactory.get().binaryDecoder(data, null)), 100);
+  }
+
+  @Test
+  public void resolvingDecoder() throws IOException {
+    Schema schema = record();
+    checkDecoder(
+        data -> DecoderFactory.get().resolvingDecoder(schema, schema, DecoderFactory.get().binaryDecoder(data, null)),
+        100);
+  }
+
+  @Test(expected = AvroTypeException.class)
+  public void validatingDecoderRejectsWrongType() throws IOException {
+    byte[] data = write(out -> EncoderFactory.get().binaryEncoder(out, null), false, 0, 10);
+    Decoder d = DecoderFactory.get().validatingDecoder(LONG_ARRAY, DecoderFactory.get().binaryDecoder(data, null));
+    d.readInts(new int[10], 0, (int) d.readArrayStart());
+  }
+
+  public static class Arrays4 {
+    int[] i;
+    long[] l;
+    float[] f;
+    double[] d;
+  }
+
+  @Test
+  public void reflectArrays() throws IOException {
+    Arrays4 datum = new Arrays4();
+    datum.i = INTS;
+    datum.l = LONGS;
+    datum.f = FLOATS;
+    datum.d = DOUBLES;
+    Schema schema = ReflectData.get().getSchema(Arrays4.class);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    new ReflectDatumWriter<Arrays4>(schema).write(datum, e);
+    e.flush();
+    GenericRecord generic = new GenericDatumReader<GenericRecord>(schema).read(null,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    List<?> ints = (List<?>) generic.get("i");
+    assertEquals(COUNT, ints.size());
+    for (int i = 0; i < COUNT; i++) {
+      assertEquals(INTS[i], ints.get(i));
+    }
+    Arrays4 read = new ReflectDatumReader<Arrays4>(schema).read(null,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    assertArrayEquals(INTS, read.i);
+    assertArrayEquals(LONGS, read.l);
+    assertArrayEquals(FLOATS, read.f, 0);
+    assertArrayEquals(DOUBLES, read.d, 0);
+    assertEquals(COUNT, read.i.length);
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestCompiledRecordReaders {
+
+  private static final Schema INNER = SchemaBuilder.record("Inner").fields().requiredInt("x").endRecord();
+
+  private static final Schema WRITER = SchemaBuilder.record("Wide").fields() //
+      .requiredBoolean("b") //
+      .requiredInt("i") //
+      .requiredLong("l") //
+      .requiredFloat("f") //
+      .requiredDouble("d") //
+      .requiredString("s") //
+      .name("js").type().stringBuilder().prop(GenericData.STRING_PROP, "String").endString().noDefault() //
+      .requiredBytes("bytes") //
+      .name("n").type().nullType().noDefault() //
+      .requiredInt("toLong") //
+      .requiredInt("intToFloat") //
+      .requiredLong("longToDouble") //
+      .requiredFloat("floatToDouble") //
+      .requiredString("skipped") //
+      .name("date").type(dateSchema()).noDefault() //
+      .optionalString("opt") //
+      .name("inner").type(INNER).noDefault() //
+      .endRecord();
+
+  private static final Schema READER = SchemaBuilder.record("Wide").fields() //
+      .requiredBoolean("b") //
+      .requiredInt("i") //
+      .requiredLong("l") //
+      .requiredFloat("f") //
+      .requiredDouble("d") //
+      .requiredString("s") //
+      .name("js").type().stringBuilder().prop(GenericData.STRING_PROP, "String").endString().noDefault() //
+      .requiredBytes("bytes") //
+      .name("n").type().nullType().noDefault() //
+      .requiredLong("toLong") //
+      .requiredFloat("intToFloat") //
+      .requiredDouble("longToDouble") //
+      .requiredDouble("floatToDouble") //
+      .name("date").type(dateSchema()).noDefault() //
+      .optionalString("opt") //
+      .name("inner").type(INNER).noDefault() //
+      .name("defaultInt").type().intType().intDefault(7) //
+      .name("defaultString").type().stringType().stringDefault("dflt") //
+      .name("defaultArray").type().array().items().intType().arrayDefault(Arrays.asList(1, 2)) //
+      .endRecord();
+
+  private static Schema dateSchema() {
+    Schema date = Schema.create(Schema.Type.INT);
+    date.addProp("logicalType", "date");
+    return new Schema.Parser().parse(date.toString());
+  }
+
+  private static GenericRecord record(int seed) {
+    return new GenericRecordBuilder(WRITER) //
+        .set("b", seed % 2 == 0) //
+        .set("i", -seed) //
+        .set("l", Long.MAX_VALUE - seed) //
+        .set("f", seed / 3f) //
+        .set("d", seed / 7d) //
+        .set("s", "s" + seed) //
+        .set("js", "js" + seed) //
+        .set("bytes", ByteBuffer.wrap(new byte[] { (byte) seed })) //
+        .set("n", null) //
+        .set("toLong", seed) //
+        .set("intToFloat", seed) //
+        .set("longToDouble", (long) seed) //
+        .set("floatToDouble", seed / 2f) //
+        .set("skipped", "skip me") //
+        .set("date", LocalDate.ofEpochDay(seed)) //
+        .set("opt", seed % 3 == 0 ? null : "o" + seed) //
+        .set("inner", new GenericRecordBuilder(INNER).set("x", seed).build()) //
+        .build();
+  }
+
+  private static byte[] encode(GenericData data, Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema, data).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static GenericData dataWithConversions() {
+    GenericData data = new GenericData();
+    data.addLogicalTypeConversion(new TimeConversions.DateConversion());
+    return data;
+  }
+
+  @Test
+  public void compiledMatchesInterpreted() throws IOException {
+    GenericData data = dataWithConversions();
+    DatumReader<GenericRecord> interpreted = new FastReaderBuilder(data).createDatumReader(WRITER, READER);
+    DatumReader<GenericRecord> compiled = new FastReaderBuilder(data).withCompiledRecordsEnabled(true)
+        .createDatumReader(WRITER, READER);
+    GenericRecord reuse = null;
+    for (int seed = 0; seed < 20; seed++) {
+      byte[] bytes = encode(data, WRITER, record(seed));
+      GenericRecord expected = interpreted.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+      reuse = compiled.read(reuse, DecoderFactory.get().binaryDecoder(bytes, null));
+      assertEquals(expected, reuse);
+    }
+    assertTrue(reuse.get("s") instanceof Utf8);
+    assertTrue(reuse.get("js") instanceof String);
+    assertTrue(reuse.get("toLong") instanceof Long);
+    assertTrue(reuse.get("date") instanceof LocalDate);
+    assertEquals(7, reuse.get("defaultInt"));
+    assertEquals(Arrays.asList(1, 2), reuse.get("defaultArray"));
+  }
+
+  @Test
+  public void reflectJavaClassFields() throws IOException {
+    // a record without a Java class is read into a GenericData.Record, so the
+    // compiled path applies, but java-class still selects the field's type
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"NoSuchClass\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"int\",\"java-class\":\"java.lang.Byte\"}},"
+        + "{\"name\":\"s\",\"type\":{\"type\":\"int\",\"java-class\":\"java.lang.Short\"}},"
+        + "{\"name\":\"c\",\"type\":{\"type\":\"int\",\"java-class\":\"java.lang.Character\"}},"
+        + "{\"name\":\"i\",\"type\":\"int\"}]}");
+    GenericRecord record = new GenericRecordBuilder(schema).set("b", 1).set("s", 2).set("c", 65).set("i", 3).build();
+    byte[] bytes = encode(GenericData.get(), schema, record);
+
+    for (boolean compiled : new boolean[] { false, true }) {
+      DatumReader<GenericRecord> reader = new ReflectData().getFastReaderBuilder().withCompiledRecordsEnabled(compiled)
+          .createDatumReader(schema, schema);
+      GenericRecord read = reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+      assertEquals((byte) 1, read.get("b"));
+      assertEquals((short) 2, read.get("s"));
+      assertEquals('A', read.get("c"));
+      assertEquals(3, read.get("i"));
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.data.TimeConversions;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestFastWriterBuilder {
+
+  private static final Schema ENUM = SchemaBuilder.enumeration("Color").symbols("RED", "GREEN");
+  private static final Schema FIXED = SchemaBuilder.fixed("Four").size(4);
+
+  private static final Schema SCHEMA = SchemaBuilder.record("All").fields() //
+      .requiredBoolean("b") //
+      .requiredInt("i") //
+      .requiredLong("l") //
+      .requiredFloat("f") //
+      .requiredDouble("d") //
+      .requiredString("s") //
+      .requiredBytes("bytes") //
+      .name("n").type().nullType().noDefault() //
+      .name("e").type(ENUM).noDefault() //
+      .name("fixed").type(FIXED).noDefault() //
+      .name("ints").type().array().items().intType().noDefault() //
+      .name("strings").type().array().items().stringType().noDefault() //
+      .name("map").type().map().values().longType().noDefault() //
+      .optionalString("opt") //
+      .name("date").type(dateSchema()).noDefault() //
+      .endRecord();
+
+  private static Schema dateSchema() {
+    return new Schema.Parser().parse("{\"type\":\"int\",\"logicalType\":\"date\"}");
+  }
+
+  private static GenericRecord record(int seed) {
+    Map<String, Long> map = new LinkedHashMap<>();
+    map.put("a", (long) seed);
+    map.put("b", -1L);
+    return new GenericRecordBuilder(SCHEMA) //
+        .set("b", seed % 2 == 0) //
+        .set("i", seed * 31) //
+        .set("l", Long.MIN_VALUE + seed) //
+        .set("f", seed / 3f) //
+        .set("d", seed / 7d) //
+        .set("s", seed % 2 == 0 ? "s" + seed : new Utf8("u" + seed)) //
+        .set("bytes", ByteBuffer.wrap(new byte[] { 1, 2, (byte) seed })) //
+        .set("n", null) //
+        .set("e", new GenericData.EnumSymbol(ENUM, seed % 2 == 0 ? "RED" : "GREEN")) //
+        .set("fixed", new GenericData.Fixed(FIXED, new byte[] { 0, 1, 2, (byte) seed })) //
+        .set("ints", Arrays.asList(seed, -seed, 0)) //
+        .set("strings", Collections.singletonList("x" + seed)) //
+        .set("map", map) //
+        .set("opt", seed % 3 == 0 ? null : "o" + seed) //
+        .set("date", LocalDate.ofEpochDay(seed)) //
+        .build();
+  }
+
+  private static byte[] write(GenericDatumWriter<Object> writer, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static <T extends GenericData> T withDates(T data) {
+    data.addLogicalTypeConversion(new TimeConversions.DateConversion());
+    return data;
+  }
+
+  @Test
+  public void genericMatchesSlowWriter() throws IOException {
+    GenericData slow = withDates(new GenericData());
+    GenericData fast = withDates(new GenericData()).setFastWriterEnabled(true);
+    for (int seed = 0; seed < 10; seed++) {
+      GenericRecord record = record(seed);
+      assertArrayEquals(write(new GenericDatumWriter<>(SCHEMA, slow), record),
+          write(new GenericDatumWriter<>(SCHEMA, fast), record));
+    }
+  }
+
+  @Test
+  public void specificMatchesSlowWriter() throws IOException {
+    SpecificData slow = withDates(new SpecificData());
+    SpecificData fast = withDates(new SpecificData());
+    fast.setFastWriterEnabled(true);
+    for (int seed = 0; seed < 10; seed++) {
+      GenericRecord record = record(seed);
+      assertArrayEquals(write(new SpecificDatumWriter<>(SCHEMA, slow), record),
+          write(new SpecificDatumWriter<>(SCHEMA, fast), record));
+    }
+  }
+
+  @Test
+  public void stringableValues() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Stringables\",\"fields\":["
+        + "{\"name\":\"decimal\",\"type\":{\"type\":\"string\",\"java-class\":\"java.math.BigDecimal\"}},"
+        + "{\"name\":\"uri\",\"type\":\"string\"},"
+        + "{\"name\":\"text\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},"
+        + "{\"name\":\"unknown\",\"type\":{\"type\":\"string\",\"java-class\":\"no.such.Class\"}}]}");
+    GenericRecord record = new GenericRecordBuilder(schema) //
+        .set("decimal", new BigDecimal("12.50")) //
+        .set("uri", URI.create("http://avro.apache.org/")) //
+        .set("text", "text") //
+        .set("unknown", new Utf8("unknown")) //
+        .build();
+    SpecificData fast = new SpecificData();
+    fast.setFastWriterEnabled(true);
+    byte[] expected = write(new SpecificDatumWriter<>(schema, new SpecificData()), record);
+    assertArrayEquals(expected, write(new SpecificDatumWriter<>(schema, fast), record));
+  }
+
+  @Test
+  public void unionsOfRecordsAndPrimitives() throws IOException {
+    Schema a = SchemaBuilder.record("A").fields().requiredInt("a").endRecord();
+    Schema b = SchemaBuilder.record("B").fields().requiredString("b").endRecord();
+    Schema union = Schema.createUnion(Schema.create(Schema.Type.NULL), a, b, Schema.create(Schema.Type.STRING),
+        Schema.create(Schema.Type.LONG));
+    Schema schema = SchemaBuilder.record("U").fields().name("u").type(union).noDefault().endRecord();
+    // records of both branches have the same class, and resolve by schema
+    Object[] values = { new GenericRecordBuilder(a).set("a", 1).build(),
+        new GenericRecordBuilder(b).set("b", "x").build(), "s", new Utf8("u"), 2L, null };
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    GenericDatumWriter<Object> fastWriter = new GenericDatumWriter<>(schema, fast);
+    for (int i = 0; i < 3 * values.length; i++) {
+      GenericRecord record = new GenericRecordBuilder(schema).set("u", values[i % values.length]).build();
+      assertArrayEquals(write(new GenericDatumWriter<>(schema), record), write(fastWriter, record));
+    }
+  }
+
+  @Test
+  public void errorsMatchSlowWriter() throws IOException {
+    Schema inner = SchemaBuilder.record("Inner").fields().requiredInt("x").endRecord();
+    Schema schema = SchemaBuilder.record("Errors").fields() //
+        .requiredInt("i") //
+        .name("ints").type().array().items().intType().noDefault() //
+        .name("map").type().map().values().longType().noDefault() //
+        .name("opt").type().unionOf().nullType().and().array().items().intType().endUnion().noDefault() //
+        .name("inner").type(inner).noDefault() //
+        .name("e").type(ENUM).noDefault() //
+        .endRecord();
+    Map<String, Long> map = new LinkedHashMap<>();
+    map.put("k", 1L);
+    Map<String, Long> nullKey = new LinkedHashMap<>(map);
+    nullKey.put(null, 2L);
+    Map<String, Long> nullValue = new LinkedHashMap<>(map);
+    nullValue.put("v", null);
+    GenericRecordBuilder valid = new GenericRecordBuilder(schema) //
+        .set("i", 1) //
+        .set("ints", Arrays.asList(1, 2)) //
+        .set("map", map) //
+        .set("opt", null) //
+        .set("inner", new GenericRecordBuilder(inner).set("x", 3).build()) //
+        .set("e", new GenericData.EnumSymbol(ENUM, "RED"));
+    GenericRecord[] invalid = new GenericRecord[8];
+    for (int i = 0; i < invalid.length; i++) {
+      invalid[i] = new GenericData.Record(valid.build(), true);
+    }
+    invalid[0].put("i", null);
+    invalid[1].put("ints", Arrays.asList(1, "two"));
+    invalid[2].put("map", nullKey);
+    invalid[3].put("map", nullValue);
+    invalid[4].put("opt", Arrays.asList(1, null));
+    invalid[5].put("opt", "neither");
+    ((GenericRecord) invalid[6].get("inner")).put("x", "three");
+    invalid[7].put("e", "RED");
+
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    for (GenericRecord record : invalid) {
+      RuntimeException expected = writeError(new GenericDatumWriter<>(schema), record);
+      RuntimeException actual = writeError(new GenericDatumWriter<>(schema, fast), record);
+      assertEquals(expected.getClass(), actual.getClass());
+      assertEquals(expected.getMessage(), actual.getMessage());
+    }
+  }
+
+  private static RuntimeException writeError(GenericDatumWriter<Object> writer, Object datum) throws IOException {
+    try {
+      write(writer, datum);
+    } catch (RuntimeException e) {
+      return e;
+    }
+    throw new AssertionError("no error writing " + datum);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.Test;
+
+public class TestResolverCache {
+
+  private static Schema writer() {
+    return SchemaBuilder.record("R").fields().requiredInt("a").requiredString("b").endRecord();
+  }
+
+  private static Schema reader() {
+    return SchemaBuilder.record("R").fields().requiredLong("a").name("c").type().intType().intDefault(5).endRecord();
+  }
+
+  @Test
+  public void equalSchemasShareEntries() {
+    ResolverCache cache = new ResolverCache(10);
+    ResolverCache.Entry entry = cache.getEntry(writer(), reader());
+    assertSame(entry, cache.getEntry(writer(), reader()));
+    assertEquals(1, cache.size());
+    assertNotSame(entry, cache.getEntry(reader(), reader()));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void modifiedSchemaGetsNewEntry() {
+    ResolverCache cache = new ResolverCache(10);
+    Schema writer = writer();
+    Schema reader = reader();
+    ResolverCache.Entry entry = cache.getEntry(writer, reader);
+    reader.addProp("extra", "value");
+    assertNotSame(entry, cache.getEntry(writer, reader));
+  }
+
+  @Test
+  public void leastRecentlyUsedEntriesAreEvicted() {
+    ResolverCache cache = new ResolverCache(2);
+    Schema[] writers = { writer(), reader(), Schema.create(Schema.Type.INT) };
+    ResolverCache.Entry first = cache.getEntry(writers[0], writers[0]);
+    cache.getEntry(writers[1], writers[1]);
+    cache.getEntry(writers[0], writers[0]); // most recently used now
+    cache.getEntry(writers[2], writers[2]);
+    assertEquals(2, cache.size());
+    assertSame(first, cache.getEntry(writers[0], writers[0]));
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidSize() {
+    new ResolverCache(0);
+  }
+
+  @Test
+  public void releasedDecodersAreReused() throws IOException {
+    ResolverCache.Entry entry = new ResolverCache(10).getEntry(writer(), reader());
+    ResolvingDecoder decoder = entry.acquire(DecoderFactory.get().binaryDecoder(new byte[0], null));
+    entry.release(decoder);
+    assertSame(decoder, entry.acquire(DecoderFactory.get().binaryDecoder(new byte[0], null)));
+  }
+
+  @Test
+  public void actionsArePerDataModel() {
+    ResolverCache.Entry entry = new ResolverCache(10).getEntry(writer(), reader());
+    GenericData data = new GenericData();
+    assertSame(entry.getAction(data), entry.getAction(data));
+    assertNotSame(entry.getAction(data), entry.getAction(new GenericData()));
+  }
+
+  private static class ExposedReader extends GenericDatumReader<GenericRecord> {
+    ExposedReader(Schema writer, Schema reader) {
+      super(writer, reader);
+    }
+
+    ResolvingDecoder resolver() throws IOException {
+      return getResolver(getSchema(), getExpected());
+    }
+  }
+
+  @Test
+  public void getResolverKeepsOneDecoderPerThread() throws Exception {
+    ExposedReader reader = new ExposedReader(writer(), reader());
+    assertSame(reader.resolver(), reader.resolver());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      ResolvingDecoder other = executor.submit(reader::resolver).get();
+      assertSame(other, executor.submit(reader::resolver).get());
+      assertNotSame(other, reader.resolver());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void concurrentReads() throws Exception {
+    Schema writer = writer();
+    GenericDatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(writer);
+    List<byte[]> encoded = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+      datumWriter.write(new GenericRecordBuilder(writer).set("a", i).set("b", "b" + i).build(), encoder);
+      encoder.flush();
+      encoded.add(out.toByteArray());
+    }
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(writer, reader(),
+        new GenericData().setFastReaderEnabled(false));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < encoded.size(); i++) {
+            GenericRecord record = reader.read(null, DecoderFactory.get().binaryDecoder(encoded.get(i), null));
+            assertEquals((long) i, record.get("a"));
+            assertEquals(5, record.get("c"));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.Test;
+
+public class TestSortableEncoding {
+
+  private static final Schema ENUM = SchemaBuilder.enumeration("E").symbols("A", "B", "C");
+  private static final Schema FIXED = SchemaBuilder.fixed("F").size(3);
+
+  private static final Schema SCHEMA = SchemaBuilder.record("Key").fields() //
+      .requiredInt("i") //
+      .name("desc").orderDescending().type().stringType().noDefault() //
+      .name("ignored").orderIgnore().type().stringType().noDefault() //
+      .requiredLong("l") //
+      .requiredFloat("f") //
+      .requiredDouble("d") //
+      .requiredBoolean("b") //
+      .requiredBytes("bytes") //
+      .name("e").type(ENUM).noDefault() //
+      .name("fixed").orderDescending().type(FIXED).noDefault() //
+      .name("list").type().array().items().intType().noDefault() //
+      .name("map").orderIgnore().type().map().values().intType().noDefault() //
+      .optionalString("opt") //
+      .endRecord();
+
+  private static String string(Random random) {
+    // zero characters are encoded as zero bytes, which are escaped
+    StringBuilder s = new StringBuilder();
+    for (int n = random.nextInt(4) == 0 ? random.nextInt(600) : random.nextInt(4); n > 0; n--) {
+      s.append("\u0000abÿ".charAt(random.nextInt(4)));
+    }
+    return s.toString();
+  }
+
+  private static GenericRecord random(Random random) {
+    List<Integer> list = new ArrayList<>();
+    for (int i = random.nextInt(3); i > 0; i--) {
+      list.add(random.nextInt(3) - 1);
+    }
+    Map<String, Integer> map = new HashMap<>();
+    map.put(string(random), random.nextInt());
+    byte[] fixed = new byte[3];
+    fixed[random.nextInt(3)] = (byte) random.nextInt(3);
+    byte[] bytes = new byte[random.nextInt(3)];
+    random.nextBytes(bytes);
+    return new GenericRecordBuilder(SCHEMA) //
+        .set("i", random.nextInt(3) - 1) //
+        .set("desc", string(random)) //
+        .set("ignored", string(random)) //
+        .set("l", random.nextBoolean() ? Long.MIN_VALUE : (long) random.nextInt(2)) //
+        .set("f", random.nextInt(3) - 1.5f) //
+        .set("d", random.nextInt(5) == 0 ? Double.NaN : random.nextInt(3) * -0.5) //
+        .set("b", random.nextBoolean()) //
+        .set("bytes", ByteBuffer.wrap(bytes)) //
+        .set("e", new GenericData.EnumSymbol(ENUM, "ABC".substring(random.nextInt(3), 3).substring(0, 1))) //
+        .set("fixed", new GenericData.Fixed(FIXED, fixed)) //
+        .set("list", list) //
+        .set("map", map) //
+        .set("opt", random.nextBoolean() ? null : string(random)) //
+        .build();
+  }
+
+  private static byte[] binary(GenericRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(SCHEMA).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static byte[] sortable(SortableEncoding encoding, List<GenericRecord> records) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    DatumWriter<GenericRecord> writer = encoding.writer(new GenericDatumWriter<>(SCHEMA));
+    for (GenericRecord record : records) {
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<GenericRecord> records(int count, long seed) {
+    Random random = new Random(seed);
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      records.add(random(random));
+    }
+    return records;
+  }
+
+  @Test
+  public void orderMatchesBinaryData() throws IOException {
+    SortableEncoding encoding = new SortableEncoding(SCHEMA);
+    List<GenericRecord> records = records(400, 1);
+    for (int i = 1; i < records.size(); i++) {
+      byte[] b1 = binary(records.get(i - 1));
+      byte[] b2 = binary(records.get(i));
+      byte[] s1 = sortable(encoding, records.subList(i - 1, i));
+      byte[] s2 = sortable(encoding, records.subList(i, i + 1));
+      assertEquals(Integer.signum(BinaryData.compare(b1, 0, b2, 0, SCHEMA)),
+          Integer.signum(encoding.compare(s1, 0, s1.length, s2, 0, s2.length)));
+    }
+  }
+
+  private static void assertRoundTrip(SortableEncoding encoding, List<GenericRecord> records, Decoder in)
+      throws IOException {
+    DatumReader<GenericRecord> reader = encoding.reader(new GenericDatumReader<>(SCHEMA));
+    GenericRecord reuse = null;
+    for (GenericRecord record : records) {
+      reuse = reader.read(reuse, in);
+      assertEquals(record, reuse);
+    }
+  }
+
+  @Test
+  public void roundTripBuffered() throws IOException {
+    SortableEncoding encoding = new SortableEncoding(SCHEMA);
+    List<GenericRecord> records = records(200, 2);
+    byte[] bytes = sortable(encoding, records);
+    assertRoundTrip(encoding, records, DecoderFactory.get().binaryDecoder(bytes, null));
+    // a small buffer, refilled in the middle of runs
+    DecoderFactory small = new DecoderFactory().configureDecoderBufferSize(32);
+    assertRoundTrip(encoding, records, small.binaryDecoder(new ByteArrayInputStream(bytes), null));
+  }
+
+  @Test
+  public void roundTripDirect() throws IOException {
+    SortableEncoding encoding = new SortableEncoding(SCHEMA);
+    List<GenericRecord> records = records(200, 3);
+    byte[] bytes = sortable(encoding, records);
+    // reads ahead through the input stream, which supports mark
+    assertRoundTrip(encoding, records, DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(bytes), null));
+    // reads one byte at a time
+    InputStream unmarkable = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+    };
+    assertRoundTrip(encoding, records, DecoderFactory.get().directBinaryDecoder(unmarkable, null));
+  }
+}
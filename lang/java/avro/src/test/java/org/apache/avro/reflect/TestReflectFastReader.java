@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class TestReflectFastReader {
+
+  public static class Inner {
+    int x;
+    String label;
+  }
+
+  public static class Pojo {
+    int i;
+    long l;
+    double d;
+    boolean flag;
+    byte b;
+    short s;
+    char c;
+    Byte boxedByte;
+    Short boxedShort;
+    Character boxedChar;
+    @Nullable
+    Integer maybe;
+    String text;
+    BigDecimal decimal;
+    @Stringable
+    URI uri;
+    byte[] raw;
+    int[] ints;
+    double[] doubles;
+    List<String> names;
+    Map<String, Long> counts;
+    Inner inner;
+    Inner[] inners;
+    @AvroEncode(using = DateAsLongEncoding.class)
+    Date date;
+    Optional<String> optional;
+  }
+
+  private static Pojo pojo(int seed) {
+    Pojo pojo = new Pojo();
+    pojo.i = seed;
+    pojo.l = Long.MAX_VALUE - seed;
+    pojo.d = seed / 3d;
+    pojo.flag = seed % 2 == 0;
+    pojo.b = (byte) seed;
+    pojo.s = (short) (seed * 1000);
+    pojo.c = (char) ('a' + seed);
+    pojo.boxedByte = (byte) -seed;
+    pojo.boxedShort = (short) -seed;
+    pojo.boxedChar = (char) ('A' + seed);
+    pojo.maybe = seed % 3 == 0 ? null : seed;
+    pojo.text = "text" + seed;
+    pojo.decimal = new BigDecimal(seed + ".25");
+    pojo.uri = URI.create("http://example.org/" + seed);
+    pojo.raw = new byte[] { 1, (byte) seed };
+    pojo.ints = new int[] { seed, -seed, 42 };
+    pojo.doubles = new double[] { seed, 0.5 };
+    pojo.names = new ArrayList<>(Arrays.asList("a" + seed, "b"));
+    pojo.counts = new HashMap<>();
+    pojo.counts.put("k" + seed, (long) seed);
+    pojo.inner = new Inner();
+    pojo.inner.x = seed;
+    pojo.inner.label = "inner";
+    pojo.inners = new Inner[] { pojo.inner };
+    pojo.date = new Date(1000L * seed);
+    pojo.optional = seed % 2 == 0 ? Optional.empty() : Optional.of("o" + seed);
+    return pojo;
+  }
+
+  private static byte[] write(ReflectData data, Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new ReflectDatumWriter<>(schema, data).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static <T> T read(ReflectData data, Schema writer, Schema reader, T reuse, byte[] bytes) throws IOException {
+    return new ReflectDatumReader<T>(writer, reader, data).read(reuse, DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void fastReadMatchesSlowRead() throws IOException {
+    ReflectData slow = new ReflectData();
+    slow.setFastReaderEnabled(false);
+    ReflectData fast = new ReflectData();
+    fast.setFastReaderEnabled(true);
+    assertTrue(fast.isFastReaderEnabled());
+    Schema schema = slow.getSchema(Pojo.class);
+    Pojo reuse = null;
+    for (int seed = 0; seed < 10; seed++) {
+      byte[] bytes = write(slow, schema, pojo(seed));
+      Pojo expected = read(slow, schema, schema, null, bytes);
+      reuse = read(fast, schema, schema, reuse, bytes);
+      assertEquals(Byte.valueOf((byte) -seed), reuse.boxedByte);
+      assertEquals(Short.valueOf((short) -seed), reuse.boxedShort);
+      assertEquals(Character.valueOf((char) ('A' + seed)), reuse.boxedChar);
+      assertEquals(expected.uri, reuse.uri);
+      assertEquals(expected.decimal, reuse.decimal);
+      assertEquals(expected.date, reuse.date);
+      assertEquals(expected.optional, reuse.optional);
+      assertArrayEquals(expected.ints, reuse.ints);
+      // everything else is compared through its encoding
+      assertArrayEquals(bytes, write(slow, schema, reuse));
+    }
+  }
+
+  public static class Narrow {
+    int i;
+    @AvroDefault("\"none\"")
+    String added;
+    long[] values;
+  }
+
+  @Test
+  public void schemaEvolution() throws IOException {
+    ReflectData fast = new ReflectData();
+    fast.setFastReaderEnabled(true);
+    Schema reader = fast.getSchema(Narrow.class);
+    Schema writer = SchemaBuilder.record(reader.getName()).namespace(reader.getNamespace()).fields() //
+        .requiredInt("i") //
+        .requiredString("dropped") //
+        .name("values").type().array().items().intType().noDefault() //
+        .endRecord();
+    GenericRecord record = new GenericRecordBuilder(writer).set("i", 7).set("dropped", "x")
+        .set("values", Arrays.asList(1, 2, 3)).build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(writer).write(record, encoder);
+    encoder.flush();
+
+    Narrow narrow = read(fast, writer, reader, null, out.toByteArray());
+    assertEquals(7, narrow.i);
+    assertEquals("none", narrow.added);
+    assertArrayEquals(new long[] { 1, 2, 3 }, narrow.values);
+  }
+}
@@ -405,6 +405,8 @@ public class AvroSequenceFile {
         if (null != mValueWriterSchema) {
           AvroSerialization.setValueWriterSchema(confWithAvro, mValueWriterSchema);
         }
+        // Sortable keys are only meant for the shuffle, never for files.
+        AvroSerialization.setKeySortable(confWithAvro, false);
         AvroSerialization.addToConfiguration(confWithAvro);
         return confWithAvro;
       }
@@ -685,6 +687,7 @@ public class AvroSequenceFile {
 
         // Configure schemas and add Avro serialization to the configuration.
         Configuration confWithAvro = new Configuration(conf);
+        AvroSerialization.setKeySortable(confWithAvro, false);
         AvroSerialization.addToConfiguration(confWithAvro);
 
         // Read the metadata header from the SequenceFile to get the writer schemas.
@@ -25,6 +25,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.SortableEncoding;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapred.AvroValue;
 import org.apache.avro.mapred.AvroWrapper;
@@ -67,6 +68,12 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
    */
   private static final String CONF_VALUE_READER_SCHEMA = "avro.serialization.value.reader.schema";
 
+  /**
+   * Conf key for whether AvroKey datums are serialized in the byte comparable
+   * {@link SortableEncoding}.
+   */
+  private static final String CONF_KEY_SORTABLE = "avro.serialization.key.sortable";
+
   /** Conf key for the data model implementation class. */
   private static final String CONF_DATA_MODEL = "avro.serialization.data.model";
 
@@ -91,6 +98,9 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
       Schema readerSchema = getKeyReaderSchema(conf);
       DatumReader<T> datumReader = (readerSchema != null) ? dataModel.createDatumReader(writerSchema, readerSchema)
           : dataModel.createDatumReader(writerSchema);
+      if (isKeySortable(conf)) {
+        datumReader = new SortableEncoding(writerSchema).reader(datumReader);
+      }
       return new AvroKeyDeserializer<>(writerSchema, readerSchema, datumReader);
     } else if (AvroValue.class.isAssignableFrom(c)) {
       Schema writerSchema = getValueWriterSchema(conf);
@@ -113,8 +123,10 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
   public Serializer<AvroWrapper<T>> getSerializer(Class<AvroWrapper<T>> c) {
     Configuration conf = getConf();
     Schema schema;
+    boolean sortable = false;
     if (AvroKey.class.isAssignableFrom(c)) {
       schema = getKeyWriterSchema(conf);
+      sortable = isKeySortable(conf);
     } else if (AvroValue.class.isAssignableFrom(c)) {
       schema = getValueWriterSchema(conf);
     } else {
@@ -122,6 +134,9 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
     }
     GenericData dataModel = createDataModel(conf);
     DatumWriter<T> datumWriter = dataModel.createDatumWriter(schema);
+    if (sortable) {
+      datumWriter = new SortableEncoding(schema).writer(datumWriter);
+    }
     return new AvroSerializer<>(schema, datumWriter);
   }
 
@@ -190,6 +205,23 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
     conf.set(CONF_VALUE_READER_SCHEMA, schema.toString());
   }
 
+  /**
+   * Sets whether AvroKey datums are serialized in the {@link SortableEncoding},
+   * so that {@link AvroKeyComparator} compares them as plain bytes.
+   *
+   * <p>
+   * This is meant for map output keys only: {@link AvroSequenceFile} always
+   * writes and reads keys in the standard binary encoding, whatever this setting
+   * is, so files never depend on it.
+   * </p>
+   *
+   * @param conf     The configuration.
+   * @param sortable Whether keys are serialized in the sortable encoding.
+   */
+  public static void setKeySortable(Configuration conf, boolean sortable) {
+    conf.setBoolean(CONF_KEY_SORTABLE, sortable);
+  }
+
   /**
    * Sets the data model class for de/serialization.
    *
@@ -248,6 +280,16 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
     return null == json ? null : new Schema.Parser().parse(json);
   }
 
+  /**
+   * Gets whether AvroKey datums are serialized in the {@link SortableEncoding}.
+   *
+   * @param conf The configuration.
+   * @return Whether keys are serialized in the sortable encoding.
+   */
+  public static boolean isKeySortable(Configuration conf) {
+    return conf.getBoolean(CONF_KEY_SORTABLE, false);
+  }
+
   /**
    * Gets the data model class for de/serialization.
    *
@@ -62,6 +62,8 @@ public class AvroJob {
   public static final String INPUT_IS_REFLECT = "avro.input.is.reflect";
   /** The configuration key for reflection-based map output representation. */
   public static final String MAP_OUTPUT_IS_REFLECT = "avro.map.output.is.reflect";
+  /** The configuration key for byte comparable map output keys. */
+  public static final String MAP_OUTPUT_KEY_SORTABLE = "avro.map.output.key.sortable";
   /** The configuration key for the data model implementation class. */
   private static final String CONF_DATA_MODEL = "avro.serialization.data.model";
 
@@ -146,6 +148,20 @@ public class AvroJob {
     job.setBoolean(MAP_OUTPUT_IS_REFLECT, true);
   }
 
+  /**
+   * Indicate whether a job's map output keys are serialized in the byte
+   * comparable {@link org.apache.avro.io.SortableEncoding}, so that they are
+   * sorted and grouped by comparing their bytes, rather than by decoding them.
+   */
+  public static void setMapOutputKeySortable(JobConf job, boolean sortable) {
+    job.setBoolean(MAP_OUTPUT_KEY_SORTABLE, sortable);
+  }
+
+  /** Return whether a job's map output keys are serialized sortable. */
+  public static boolean isMapOutputKeySortable(Configuration job) {
+    return job.getBoolean(MAP_OUTPUT_KEY_SORTABLE, false);
+  }
+
   /** Return a job's output key schema. */
   public static Schema getOutputSchema(Configuration job) {
     return new Schema.Parser().parse(job.get(OUTPUT_SCHEMA));
@@ -23,24 +23,35 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.conf.Configuration;
 
 import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryComparator;
 import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.SortableEncoding;
 import org.apache.avro.reflect.ReflectData;
 
 /** The {@link RawComparator} used by jobs configured with {@link AvroJob}. */
 public class AvroKeyComparator<T> extends Configured implements RawComparator<AvroWrapper<T>> {
 
   private Schema schema;
+  private BinaryComparator comparator;
+  /** The encoding of keys, if they are serialized in the sortable encoding. */
+  private SortableEncoding sortableEncoding;
 
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
-    if (conf != null)
+    if (conf != null) {
       schema = Pair.getKeySchema(AvroJob.getMapOutputSchema(conf));
+      comparator = BinaryData.comparator(schema);
+      sortableEncoding = AvroJob.isMapOutputKeySortable(conf) ? new SortableEncoding(schema) : null;
+    }
   }
 
   @Override
   public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-    return BinaryData.compare(b1, s1, l1, b2, s2, l2, schema);
+    if (sortableEncoding != null) {
+      return sortableEncoding.compare(b1, s1, l1, b2, s2, l2);
+    }
+    return comparator.compare(b1, s1, l1, b2, s2, l2);
   }
 
   @Override
@@ -36,6 +36,7 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.SortableEncoding;
 
 /** The {@link Serialization} used by jobs configured with {@link AvroJob}. */
 public class AvroSerialization<T> extends Configured implements Serialization<AvroWrapper<T>> {
@@ -57,6 +58,9 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
         : Pair.getValueSchema(AvroJob.getMapOutputSchema(conf));
     GenericData dataModel = AvroJob.createMapOutputDataModel(conf);
     DatumReader<T> datumReader = dataModel.createDatumReader(schema);
+    if (isKey && AvroJob.isMapOutputKeySortable(conf)) {
+      datumReader = new SortableEncoding(schema).reader(datumReader);
+    }
     return new AvroWrapperDeserializer(datumReader, isKey);
   }
 
@@ -106,7 +110,11 @@ public class AvroSerialization<T> extends Configured implements Serialization<Av
         : (AvroKey.class.isAssignableFrom(c) ? Pair.getKeySchema(AvroJob.getMapOutputSchema(conf))
             : Pair.getValueSchema(AvroJob.getMapOutputSchema(conf)));
     GenericData dataModel = AvroJob.createDataModel(conf);
-    return new AvroWrapperSerializer(dataModel.createDatumWriter(schema));
+    DatumWriter<T> datumWriter = dataModel.createDatumWriter(schema);
+    if (!isFinalOutput && AvroKey.class.isAssignableFrom(c) && AvroJob.isMapOutputKeySortable(conf)) {
+      datumWriter = new SortableEncoding(schema).writer(datumWriter);
+    }
+    return new AvroWrapperSerializer(datumWriter);
   }
 
   private class AvroWrapperSerializer implements Serializer<AvroWrapper<T>> {
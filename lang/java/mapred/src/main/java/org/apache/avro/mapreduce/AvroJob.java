@@ -105,6 +105,18 @@ public final class AvroJob {
     AvroSerialization.addToConfiguration(job.getConfiguration());
   }
 
+  /**
+   * Sets whether map output keys are serialized in the byte comparable
+   * {@link org.apache.avro.io.SortableEncoding}, so that they are sorted and
+   * grouped by comparing their bytes, rather than by decoding them.
+   *
+   * @param job      The job to configure.
+   * @param sortable Whether map output keys are serialized sortable.
+   */
+  public static void setMapOutputKeySortable(Job job, boolean sortable) {
+    AvroSerialization.setKeySortable(job.getConfiguration(), sortable);
+  }
+
   /**
    * Sets the map output value schema.
    *
@@ -42,8 +42,8 @@ public class Main {
         new DataFileGetSchemaTool(), new DataFileRepairTool(), new IdlTool(), new IdlToSchemataTool(),
         new RecodecTool(), new ConcatTool(), new RpcReceiveTool(), new RpcSendTool(), new RpcProtocolTool(),
         new FromTextTool(), new ToTextTool(), new ToTrevniTool(), new TetherTool(), new TrevniCreateRandomTool(),
-        new TrevniMetadataTool(), new TrevniToJsonTool(), new SchemaNormalizationTool(),
-        new SchemaFingerprintTool() }) {
+        new TrevniMetadataTool(), new TrevniToJsonTool(), new SchemaNormalizationTool(), new SchemaFingerprintTool(),
+        new SortTool() }) {
       Tool prev = tools.put(tool.getName(), tool);
       if (prev != null) {
         throw new AssertionError("Two tools with identical names: " + tool + ", " + prev);
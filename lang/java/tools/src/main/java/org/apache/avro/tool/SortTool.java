@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.tool;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileSorter;
+import org.apache.hadoop.fs.Path;
+
+/** Tool to sort the records of Avro data files. */
+public class SortTool implements Tool {
+  @Override
+  public int run(InputStream in, PrintStream out, PrintStream err, List<String> args) throws Exception {
+    OptionParser optParser = new OptionParser();
+    OptionSpec<String> schemaFileOpt = optParser
+        .accepts("schema-file", "Schema to sort with, by its fields' order attributes (default: the input schema)")
+        .withRequiredArg().ofType(String.class);
+    OptionSpec<Long> memoryOpt = optParser.accepts("memory", "Megabytes of records to sort in memory").withRequiredArg()
+        .ofType(Long.class).defaultsTo(Long.valueOf(64));
+    OptionSpec<Integer> mergeOpt = optParser.accepts("merge-factor", "Maximum number of sorted runs to merge at once")
+        .withRequiredArg().ofType(Integer.class).defaultsTo(Integer.valueOf(64));
+    OptionSpec<String> tmpDirOpt = optParser.accepts("tmpdir", "Directory for sorted runs").withRequiredArg()
+        .ofType(String.class);
+    OptionSpec<String> codecOpt = Util.compressionCodecOptionWithDefault(optParser, DataFileConstants.NULL_CODEC);
+    OptionSpec<Integer> levelOpt = Util.compressionLevelOption(optParser);
+    OptionSet opts = optParser.parse(args.toArray(new String[0]));
+
+    List<String> nargs = (List<String>) opts.nonOptionArguments();
+    if (nargs.size() < 2) {
+      err.println("Expected one or more input files and an output file.");
+      printHelp(err);
+      optParser.printHelpOn(err);
+      return 1;
+    }
+
+    DataFileSorter sorter = new DataFileSorter().setMemoryLimit(opts.valueOf(memoryOpt) * 1024 * 1024)
+        .setMergeFactor(opts.valueOf(mergeOpt))
+        .setCodec(Util.codecFactory(opts, codecOpt, levelOpt, DataFileConstants.NULL_CODEC));
+    if (opts.has(schemaFileOpt)) {
+      sorter.setSchema(Util.parseSchemaFromFS(opts.valueOf(schemaFileOpt)));
+    }
+    if (opts.has(tmpDirOpt)) {
+      sorter.setTempDirectory(new File(opts.valueOf(tmpDirOpt)));
+    }
+
+    List<InputStream> inputs = new ArrayList<>();
+    for (String arg : nargs.subList(0, nargs.size() - 1)) {
+      if (arg.equals("-")) {
+        inputs.add(Util.fileOrStdin(arg, in));
+      } else {
+        for (Path path : Util.getFiles(arg)) {
+          inputs.add(Util.openFromFS(path));
+        }
+      }
+    }
+    String outputFile = nargs.get(nargs.size() - 1);
+    OutputStream output = Util.fileOrStdout(outputFile, out);
+    try {
+      sorter.sort(inputs, output);
+    } finally {
+      if (outputFile.equals("-")) {
+        output.flush();
+      } else {
+        output.close();
+      }
+    }
+    return 0;
+  }
+
+  private void printHelp(PrintStream out) {
+    out.println("sort [options] input-file... output-file");
+    out.println();
+    out.println("Sorts the records of one or more input files into a new output file,");
+    out.println("in the order given by the field order attributes of the schema. Records");
+    out.println("that do not fit in memory are sorted in runs written to temporary files,");
+    out.println("then merged. A dash ('-') can be given as an input file to use stdin,");
+    out.println("and as an output file to use stdout. If a directory is given as an");
+    out.println("input-file all the files within this directory are used.");
+  }
+
+  @Override
+  public String getName() {
+    return "sort";
+  }
+
+  @Override
+  public String getShortDescription() {
+    return "Sorts the records of avro files by their schema.";
+  }
+}
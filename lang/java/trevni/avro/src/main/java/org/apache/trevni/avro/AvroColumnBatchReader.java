@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.trevni.BytesBatch;
+import org.apache.trevni.ColumnFileReader;
+import org.apache.trevni.ColumnValues;
+import org.apache.trevni.TrevniRuntimeException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+
+/**
+ * Read files written with {@link AvroColumnWriter} in batches of rows, each
+ * field into an array of primitives, without allocating an object per value.
+ * Suited to tight loops over the values of a few columns, as in aggregations.
+ *
+ * <p>
+ * The read schema must be a record whose fields all have a simple type. The
+ * values of boolean, int, long, float and double fields are read into arrays of
+ * the corresponding primitive, enums into arrays of their ordinals, and
+ * strings, bytes and fixed into {@link BytesBatch}es. Fields not in the file
+ * are given their default value.
+ */
+public class AvroColumnBatchReader implements Closeable {
+  /** The default number of rows in a batch, 1024. */
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final ColumnFileReader reader;
+  private final Schema fileSchema;
+  private final Schema readSchema;
+  private final int batchSize;
+
+  private final ColumnValues[] values; // null for fields not in the file
+  private final Object[] vectors;
+  private final byte[][] defaults; // bytes of defaults for fields not in file
+  private final Map<String, Integer> positions = new HashMap<>();
+
+  private long row;
+  private int size;
+
+  /** Construct a reader of batches of the default size. */
+  public AvroColumnBatchReader(AvroColumnReader.Params params) throws IOException {
+    this(params, DEFAULT_BATCH_SIZE);
+  }
+
+  /** Construct a reader of batches of at most <i>batchSize</i> rows. */
+  public AvroColumnBatchReader(AvroColumnReader.Params params, int batchSize) throws IOException {
+    if (batchSize <= 0)
+      throw new TrevniRuntimeException("Invalid batch size: " + batchSize);
+    this.reader = new ColumnFileReader(params.input);
+    this.fileSchema = new Schema.Parser().parse(reader.getMetaData().getString(AvroColumnWriter.SCHEMA_KEY));
+    this.readSchema = params.schema == null ? fileSchema : params.schema;
+    this.batchSize = batchSize;
+    if (readSchema.getType() != Schema.Type.RECORD)
+      throw new TrevniRuntimeException("Schema is not a record: " + readSchema);
+
+    List<Field> fields = readSchema.getFields();
+    this.values = new ColumnValues[fields.size()];
+    this.vectors = new Object[fields.size()];
+    this.defaults = new byte[fields.size()][];
+    for (Field f : fields) {
+      int i = f.pos();
+      positions.put(f.name(), i);
+      vectors[i] = newVector(f.schema());
+      Field g = fileSchema.getField(f.name());
+      if (g == null) {
+        setDefault(i, params.model.getDefaultValue(f));
+      } else {
+        if (g.schema().getType() != f.schema().getType())
+          throw new TrevniRuntimeException("Type mismatch: " + f.schema() + " & " + g.schema());
+        values[i] = reader.getValues(f.name());
+        if (params.executor != null)
+          values[i].setExecutor(params.executor);
+      }
+    }
+  }
+
+  private Object newVector(Schema s) {
+    switch (s.getType()) {
+    case BOOLEAN:
+      return new boolean[batchSize];
+    case INT:
+    case ENUM:
+      return new int[batchSize];
+    case LONG:
+      return new long[batchSize];
+    case FLOAT:
+      return new float[batchSize];
+    case DOUBLE:
+      return new double[batchSize];
+    case STRING:
+    case BYTES:
+    case FIXED:
+      return new BytesBatch(batchSize);
+    default:
+      throw new TrevniRuntimeException("Not a simple type: " + s);
+    }
+  }
+
+  // fill a vector once with the default, as it is never read into
+  private void setDefault(int i, Object value) {
+    Object vector = vectors[i];
+    if (vector instanceof boolean[])
+      Arrays.fill((boolean[]) vector, (Boolean) value);
+    else if (vector instanceof int[])
+      Arrays.fill((int[]) vector,
+          value instanceof GenericEnumSymbol ? readSchema.getFields().get(i).schema().getEnumOrdinal(value.toString())
+              : (Integer) value);
+    else if (vector instanceof long[])
+      Arrays.fill((long[]) vector, (Long) value);
+    else if (vector instanceof float[])
+      Arrays.fill((float[]) vector, (Float) value);
+    else if (vector instanceof double[])
+      Arrays.fill((double[]) vector, (Double) value);
+    else if (value instanceof ByteBuffer)
+      defaults[i] = toArray((ByteBuffer) value);
+    else if (value instanceof GenericFixed)
+      defaults[i] = ((GenericFixed) value).bytes();
+    else
+      defaults[i] = value.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  /** Return the schema for data in this file. */
+  public Schema getFileSchema() {
+    return fileSchema;
+  }
+
+  /** Return the schema batches are read with. */
+  public Schema getSchema() {
+    return readSchema;
+  }
+
+  /** Return the number of rows in this file. */
+  public long getRowCount() {
+    return reader.getRowCount();
+  }
+
+  /**
+   * Read the next batch of rows, replacing the values of the previous batch.
+   * Returns the number of rows read, zero at the end of the file.
+   */
+  public int nextBatch() throws IOException {
+    size = (int) Math.min(batchSize, reader.getRowCount() - row);
+    for (int i = 0; i < vectors.length; i++) {
+      Object vector = vectors[i];
+      ColumnValues column = values[i];
+      if (column == null) {
+        if (defaults[i] != null) {
+          BytesBatch batch = (BytesBatch) vector;
+          if (batch.size() != size) {
+            batch.clear();
+            for (int j = 0; j < size; j++)
+              batch.add(defaults[i], 0, defaults[i].length);
+          }
+        }
+        continue;
+      }
+      int n;
+      if (vector instanceof boolean[])
+        n = column.nextBooleans((boolean[]) vector, 0, size);
+      else if (vector instanceof int[])
+        n = column.nextInts((int[]) vector, 0, size);
+      else if (vector instanceof long[])
+        n = column.nextLongs((long[]) vector, 0, size);
+      else if (vector instanceof float[])
+        n = column.nextFloats((float[]) vector, 0, size);
+      else if (vector instanceof double[])
+        n = column.nextDoubles((double[]) vector, 0, size);
+      else
+        n = column.nextBytes((BytesBatch) vector);
+      if (n != size)
+        throw new TrevniRuntimeException("Column shorter than file: " + readSchema.getFields().get(i).name());
+    }
+    row += size;
+    return size;
+  }
+
+  /** Return the number of rows in the current batch. */
+  public int size() {
+    return size;
+  }
+
+  /** Return the values of a boolean field in the current batch. */
+  public boolean[] getBooleans(String field) {
+    return vector(field, boolean[].class);
+  }
+
+  /** Return the values of an int field, or the ordinals of an enum field. */
+  public int[] getInts(String field) {
+    return vector(field, int[].class);
+  }
+
+  /** Return the values of a long field in the current batch. */
+  public long[] getLongs(String field) {
+    return vector(field, long[].class);
+  }
+
+  /** Return the values of a float field in the current batch. */
+  public float[] getFloats(String field) {
+    return vector(field, float[].class);
+  }
+
+  /** Return the values of a double field in the current batch. */
+  public double[] getDoubles(String field) {
+    return vector(field, double[].class);
+  }
+
+  /** Return the values of a string, bytes or fixed field. */
+  public BytesBatch getBytes(String field) {
+    return vector(field, BytesBatch.class);
+  }
+
+  private <T> T vector(String field, Class<T> type) {
+    Integer i = positions.get(field);
+    if (i == null)
+      throw new TrevniRuntimeException("No field named: " + field);
+    if (!type.isInstance(vectors[i]))
+      throw new TrevniRuntimeException("Field " + field + " is " + readSchema.getField(field).schema());
+    return type.cast(vectors[i]);
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+}
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.trevni.ColumnMetaData;
 import org.apache.trevni.ColumnFileReader;
@@ -58,11 +59,14 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
 
   private Map<String, Map<String, Object>> defaults = new HashMap<>();
 
+  private Executor executor;
+
   /** Parameters for reading an Avro column file. */
   public static class Params {
     Input input;
     Schema schema;
     GenericData model = GenericData.get();
+    Executor executor;
 
     /** Construct reading from a file. */
     public Params(File file) throws IOException {
@@ -85,12 +89,23 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
       this.model = model;
       return this;
     }
+
+    /**
+     * Decompress and decode the blocks of different columns concurrently on an
+     * executor, while rows are assembled by the reading thread. Worthwhile for
+     * projections of many columns.
+     */
+    public Params setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
   }
 
   /** Construct a reader for a file. */
   public AvroColumnReader(Params params) throws IOException {
     this.reader = new ColumnFileReader(params.input);
     this.model = params.model;
+    this.executor = params.executor;
     this.fileSchema = new Schema.Parser().parse(reader.getMetaData().getString(AvroColumnWriter.SCHEMA_KEY));
     this.readSchema = params.schema == null ? fileSchema : params.schema;
     initialize();
@@ -116,8 +131,12 @@ public class AvroColumnReader<D> implements Iterator<D>, Iterable<D>, Closeable
     int j = 0;
     for (ColumnMetaData c : readColumns) {
       Integer n = fileColumnNumbers.get(c.getName());
-      if (n != null)
-        values[j++] = reader.getValues(n);
+      if (n != null) {
+        values[j] = reader.getValues(n);
+        if (executor != null)
+          values[j].setExecutor(executor);
+        j++;
+      }
     }
     findDefaults(readSchema, fileSchema);
   }
@@ -17,6 +17,7 @@
  */
 package org.apache.trevni.avro;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.File;
 import java.io.OutputStream;
@@ -44,9 +45,11 @@ import static org.apache.trevni.avro.AvroColumnator.isSimple;
  * <p>
  * Output is buffered until {@link #writeTo(OutputStream)} is called. The
  * {@link #sizeEstimate()} indicates both the amount of data buffered and the
- * size of the file that will be written.
+ * size of the file that will be written. Alternately, when constructed with an
+ * output stream, rows are written to it in row groups as they are added, and
+ * the file is finished by {@link #close()}.
  */
-public class AvroColumnWriter<D> {
+public class AvroColumnWriter<D> implements Closeable {
   private Schema schema;
   private GenericData model;
   private ColumnFileWriter writer;
@@ -67,6 +70,27 @@ public class AvroColumnWriter<D> {
     this.model = model;
   }
 
+  /**
+   * Construct writing rows to an output stream in row groups, with bounded
+   * memory. The file is finished by {@link #close()}.
+   */
+  public AvroColumnWriter(Schema s, ColumnFileMetaData meta, GenericData model, OutputStream out) throws IOException {
+    this.schema = s;
+    AvroColumnator columnator = new AvroColumnator(s);
+    meta.set(SCHEMA_KEY, s.toString()); // save schema in file
+    this.writer = new ColumnFileWriter(out, meta, columnator.getColumns());
+    this.arrayWidths = columnator.getArrayWidths();
+    this.model = model;
+  }
+
+  /**
+   * Set the size of the data to buffer before it is written as a row group, when
+   * writing to an output stream.
+   */
+  public void setRowGroupSize(long rowGroupSize) {
+    writer.setRowGroupSize(rowGroupSize);
+  }
+
   /**
    * Return the approximate size of the file that will be written. Tries to
    * slightly over-estimate. Indicates both the size in memory of the buffered
@@ -87,6 +111,15 @@ public class AvroColumnWriter<D> {
     writer.writeTo(file);
   }
 
+  /**
+   * Finish a file written in row groups and close its output stream. Does nothing
+   * when rows are written by {@link #writeTo(OutputStream)}.
+   */
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
   /** Add a row to the file. */
   public void write(D value) throws IOException {
     writer.startRow();
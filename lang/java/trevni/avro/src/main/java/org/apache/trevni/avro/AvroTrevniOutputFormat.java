@@ -56,11 +56,22 @@ public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>,
 
   public static final String META_PREFIX = "trevni.meta.";
 
+  /** The job property for the size of row groups, if written. */
+  public static final String ROW_GROUP_SIZE = "trevni.output.row.group.size";
+
   /** Add metadata to job output files. */
   public static void setMeta(JobConf job, String key, String value) {
     job.set(META_PREFIX + key, value);
   }
 
+  /**
+   * Write each task's output to a single file in row groups of a size, with
+   * bounded memory, instead of buffering a file per HDFS block.
+   */
+  public static void setRowGroupSize(JobConf job, long bytes) {
+    job.setLong(ROW_GROUP_SIZE, bytes);
+  }
+
   @Override
   public RecordWriter<AvroWrapper<T>, NullWritable> getRecordWriter(FileSystem ignore, final JobConf job,
       final String name, Progressable prog) throws IOException {
@@ -75,6 +86,23 @@ public class AvroTrevniOutputFormat<T> extends FileOutputFormat<AvroWrapper<T>,
     if (!fs.mkdirs(dir))
       throw new IOException("Failed to create directory: " + dir);
     final long blockSize = fs.getDefaultBlockSize(dir);
+    final long rowGroupSize = job.getLong(ROW_GROUP_SIZE, 0);
+
+    if (rowGroupSize > 0) { // stream a single file
+      final AvroColumnWriter<T> writer = new AvroColumnWriter<>(schema, meta, ReflectData.get(),
+          fs.create(new Path(dir, "part-0" + EXT)));
+      writer.setRowGroupSize(rowGroupSize);
+      return new RecordWriter<AvroWrapper<T>, NullWritable>() {
+        @Override
+        public void write(AvroWrapper<T> wrapper, NullWritable ignore) throws IOException {
+          writer.write(wrapper.datum());
+        }
+
+        public void close(Reporter reporter) throws IOException {
+          writer.close();
+        }
+      };
+    }
 
     return new RecordWriter<AvroWrapper<T>, NullWritable>() {
       private int part = 0;
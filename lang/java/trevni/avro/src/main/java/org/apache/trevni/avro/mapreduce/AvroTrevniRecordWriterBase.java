@@ -51,6 +51,12 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
   /** prefix of job configs that we care about */
   public static final String META_PREFIX = "trevni.meta.";
 
+  /**
+   * job config for the size of row groups. When set, a single file is written in
+   * row groups, with bounded memory.
+   */
+  public static final String ROW_GROUP_SIZE = "trevni.output.row.group.size";
+
   /**
    * Counter that increments as new trevni files are create because the current
    * file has exceeded the block size
@@ -69,6 +75,9 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
   /** Current configured blocksize */
   final long blockSize;
 
+  /** Configured row group size, or zero if not writing row groups */
+  final long rowGroupSize;
+
   /** Provided avro schema from the context */
   protected Schema schema;
 
@@ -85,7 +94,6 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
 
     schema = initSchema(context);
     meta = filterMetadata(context.getConfiguration());
-    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
 
     Path outputPath = FileOutputFormat.getOutputPath(context);
 
@@ -94,7 +102,19 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
     fs = dirPath.getFileSystem(context.getConfiguration());
     fs.mkdirs(dirPath);
 
-    blockSize = fs.getDefaultBlockSize(dirPath);
+    rowGroupSize = context.getConfiguration().getLong(ROW_GROUP_SIZE, 0);
+    // files written in row groups are not split by block
+    blockSize = rowGroupSize > 0 ? Long.MAX_VALUE : fs.getDefaultBlockSize(dirPath);
+    writer = newWriter();
+  }
+
+  private AvroColumnWriter<T> newWriter() throws IOException {
+    if (rowGroupSize <= 0)
+      return new AvroColumnWriter<>(schema, meta, ReflectData.get());
+    AvroColumnWriter<T> result = new AvroColumnWriter<>(schema, meta, ReflectData.get(),
+        fs.create(new Path(dirPath, "part-" + (part++) + EXT)));
+    result.setRowGroupSize(rowGroupSize);
+    return result;
   }
 
   /**
@@ -110,16 +130,23 @@ public abstract class AvroTrevniRecordWriterBase<K, V, T> extends RecordWriter<K
    * @throws IOException
    */
   public void flush() throws IOException {
-    try (OutputStream out = fs.create(new Path(dirPath, "part-" + (part++) + EXT))) {
-      writer.writeTo(out);
+    if (rowGroupSize > 0) {
+      writer.close();
+    } else {
+      try (OutputStream out = fs.create(new Path(dirPath, "part-" + (part++) + EXT))) {
+        writer.writeTo(out);
+      }
     }
-    writer = new AvroColumnWriter<>(schema, meta, ReflectData.get());
+    writer = newWriter();
   }
 
   /** {@inheritDoc} */
   @Override
   public void close(TaskAttemptContext arg0) throws IOException, InterruptedException {
-    flush();
+    if (rowGroupSize > 0)
+      writer.close();
+    else
+      flush();
   }
 
   static ColumnFileMetaData filterMetadata(final Configuration configuration) {
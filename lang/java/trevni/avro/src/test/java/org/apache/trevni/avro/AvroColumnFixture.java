@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.trevni.ColumnFileMetaData;
+
+/** Writes the column files that the tests of this package read. */
+final class AvroColumnFixture {
+
+  private AvroColumnFixture() {
+  }
+
+  /** Returns a file of records, buffered in memory until written. */
+  static <D> byte[] write(Schema schema, ColumnFileMetaData meta, Iterable<? extends D> records) throws IOException {
+    AvroColumnWriter<D> writer = new AvroColumnWriter<>(schema, meta);
+    for (D r : records)
+      writer.write(r);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.writeTo(out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.trevni.BytesBatch;
+import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.InputBytes;
+import org.apache.trevni.TrevniRuntimeException;
+import org.junit.jupiter.api.Test;
+
+public class TestAvroColumnBatchReader {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[" + "{\"name\":\"b\",\"type\":\"boolean\"},"
+          + "{\"name\":\"i\",\"type\":\"int\"}," + "{\"name\":\"l\",\"type\":\"long\"},"
+          + "{\"name\":\"f\",\"type\":\"float\"}," + "{\"name\":\"d\",\"type\":\"double\"},"
+          + "{\"name\":\"s\",\"type\":\"string\"}," + "{\"name\":\"y\",\"type\":\"bytes\"},"
+          + "{\"name\":\"x\",\"type\":{\"type\":\"fixed\",\"name\":\"X\",\"size\":2}},"
+          + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}}]}");
+
+  private static final int COUNT = 20000;
+
+  private static List<GenericRecord> records() {
+    Schema fixed = SCHEMA.getField("x").schema();
+    Schema e = SCHEMA.getField("e").schema();
+    List<GenericRecord> result = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      r.put("b", i % 2 == 0);
+      r.put("i", i);
+      r.put("l", (long) i * 1000);
+      r.put("f", i / 2.0f);
+      r.put("d", i / 3.0);
+      r.put("s", "s" + i);
+      r.put("y", ByteBuffer.wrap(new byte[] { (byte) i }));
+      r.put("x", new GenericData.Fixed(fixed, new byte[] { (byte) i, (byte) (i >> 8) }));
+      r.put("e", new GenericData.EnumSymbol(e, e.getEnumSymbols().get(i % 3)));
+      result.add(r);
+    }
+    return result;
+  }
+
+  private static byte[] write(List<GenericRecord> records) throws IOException {
+    return AvroColumnFixture.write(SCHEMA, new ColumnFileMetaData(), records);
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+
+  private static void checkBatches(AvroColumnBatchReader reader, List<GenericRecord> records, int batchSize)
+      throws IOException {
+    assertEquals(COUNT, reader.getRowCount());
+    int row = 0;
+    for (int n; (n = reader.nextBatch()) > 0;) {
+      assertEquals(Math.min(batchSize, COUNT - row), n);
+      assertEquals(n, reader.size());
+      BytesBatch strings = reader.getBytes("s");
+      BytesBatch bytes = reader.getBytes("y");
+      BytesBatch fixed = reader.getBytes("x");
+      for (int j = 0; j < n; j++, row++) {
+        GenericRecord r = records.get(row);
+        assertEquals(r.get("b"), reader.getBooleans("b")[j]);
+        assertEquals(r.get("i"), reader.getInts("i")[j]);
+        assertEquals(r.get("l"), reader.getLongs("l")[j]);
+        assertEquals(r.get("f"), reader.getFloats("f")[j]);
+        assertEquals(r.get("d"), reader.getDoubles("d")[j]);
+        assertEquals(r.get("s"), strings.getString(j));
+        assertEquals(r.get("y"), bytes.getByteBuffer(j));
+        assertArrayEquals(((GenericData.Fixed) r.get("x")).bytes(), toArray(fixed.getByteBuffer(j)));
+        assertEquals(row % 3, reader.getInts("e")[j]);
+      }
+    }
+    assertEquals(COUNT, row);
+  }
+
+  @Test
+  void batches() throws Exception {
+    List<GenericRecord> records = records();
+    byte[] bytes = write(records);
+    try (AvroColumnBatchReader reader = new AvroColumnBatchReader(new AvroColumnReader.Params(new InputBytes(bytes)))) {
+      assertEquals(SCHEMA, reader.getFileSchema());
+      checkBatches(reader, records, AvroColumnBatchReader.DEFAULT_BATCH_SIZE);
+    }
+    try (AvroColumnBatchReader reader = new AvroColumnBatchReader(new AvroColumnReader.Params(new InputBytes(bytes)),
+        333)) {
+      checkBatches(reader, records, 333);
+    }
+  }
+
+  @Test
+  void batchesOnExecutor() throws Exception {
+    List<GenericRecord> records = records();
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try (AvroColumnBatchReader reader = new AvroColumnBatchReader(
+        new AvroColumnReader.Params(new InputBytes(write(records))).setExecutor(pool), 500)) {
+      checkBatches(reader, records, 500);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void projectionWithDefaults() throws Exception {
+    Schema projection = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"l\",\"type\":\"long\"}," + "{\"name\":\"missing\",\"type\":\"int\",\"default\":7},"
+        + "{\"name\":\"label\",\"type\":\"string\",\"default\":\"none\"}]}");
+    try (AvroColumnBatchReader reader = new AvroColumnBatchReader(
+        new AvroColumnReader.Params(new InputBytes(write(records()))).setSchema(projection), 1000)) {
+      assertEquals(projection, reader.getSchema());
+      int row = 0;
+      for (int n; (n = reader.nextBatch()) > 0;) {
+        for (int j = 0; j < n; j++, row++) {
+          assertEquals((long) row * 1000, reader.getLongs("l")[j]);
+          assertEquals(7, reader.getInts("missing")[j]);
+          assertEquals("none", reader.getBytes("label").getString(j));
+        }
+        assertEquals(n, reader.getBytes("label").size());
+      }
+      assertEquals(COUNT, row);
+      assertThrows(TrevniRuntimeException.class, () -> reader.getInts("i"));
+      assertThrows(TrevniRuntimeException.class, () -> reader.getInts("l"));
+    }
+  }
+
+  @Test
+  void invalidSchemas() throws Exception {
+    byte[] bytes = write(records().subList(0, 10));
+    Schema mismatch = new Schema.Parser()
+        .parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"i\",\"type\":\"long\"}]}");
+    Schema nested = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+        + "{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"int\"},\"default\":[]}]}");
+    assertThrows(TrevniRuntimeException.class,
+        () -> new AvroColumnBatchReader(new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(mismatch)));
+    assertThrows(TrevniRuntimeException.class,
+        () -> new AvroColumnBatchReader(new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(nested)));
+    assertThrows(TrevniRuntimeException.class, () -> new AvroColumnBatchReader(
+        new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(Schema.create(Schema.Type.INT))));
+    assertThrows(TrevniRuntimeException.class,
+        () -> new AvroColumnBatchReader(new AvroColumnReader.Params(new InputBytes(bytes)), 0));
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.InputBytes;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestAvroColumnEncodings {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"time\",\"type\":\"long\"},"
+          + "{\"name\":\"country\",\"type\":\"string\"},"
+          + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+          + "{\"name\":\"attrs\",\"type\":{\"type\":\"map\",\"values\":\"string\"}},"
+          + "{\"name\":\"flag\",\"type\":[\"null\",\"boolean\"]}]}");
+
+  private static final String[] COUNTRIES = { "de", "fr", "jp", "us" };
+  private static final int COUNT = 20000;
+
+  private static List<GenericRecord> records() {
+    List<GenericRecord> result = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      r.put("time", 1600000000000L + i * 10L);
+      r.put("country", COUNTRIES[i / 100 % COUNTRIES.length]);
+      List<Integer> tags = new ArrayList<>();
+      for (int j = 0; j < i % 3; j++)
+        tags.add(j);
+      r.put("tags", tags);
+      Map<String, String> attrs = new TreeMap<>();
+      if (i % 2 == 0)
+        attrs.put("k", "v" + i % 5);
+      r.put("attrs", attrs);
+      r.put("flag", i % 4 == 0 ? null : i % 3 == 0);
+      result.add(r);
+    }
+    return result;
+  }
+
+  private static byte[] write(List<GenericRecord> records, String encoding) throws IOException {
+    return AvroColumnFixture.write(SCHEMA, new ColumnFileMetaData().setEncoding(encoding), records);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "plain", "dictionary", "rle", "delta", "auto" })
+  void roundTrip(String encoding) throws Exception {
+    List<GenericRecord> records = records();
+    byte[] bytes = write(records, encoding);
+    int i = 0;
+    try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(
+        new AvroColumnReader.Params(new InputBytes(bytes)))) {
+      for (GenericRecord r : reader)
+        assertEquals(records.get(i++).toString(), r.toString());
+    }
+    assertEquals(COUNT, i);
+    if (!"plain".equals(encoding))
+      assertTrue(bytes.length < write(records, "plain").length);
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.InputBytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestAvroColumnReaderExecutor {
+  private static final Schema ITEM = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"Item\",\"fields\":[{\"name\":\"a\",\"type\":\"int\"},"
+          + "{\"name\":\"b\",\"type\":\"boolean\"}]}");
+  private static final Schema SCHEMA = Schema.createRecord("R", null, null, false);
+  static {
+    List<Schema.Field> fields = new ArrayList<>();
+    fields.add(new Schema.Field("id", Schema.create(Schema.Type.INT)));
+    fields.add(new Schema.Field("name", Schema.create(Schema.Type.STRING)));
+    fields.add(new Schema.Field("items", Schema.createArray(ITEM)));
+    fields.add(new Schema.Field("note",
+        Schema.createUnion(Schema.create(Schema.Type.NULL), Schema.create(Schema.Type.STRING))));
+    SCHEMA.setFields(fields);
+  }
+
+  private static final int COUNT = 20000;
+
+  private ExecutorService pool;
+
+  @BeforeEach
+  void createPool() {
+    pool = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterEach
+  void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  private static byte[] write() throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      r.put("id", i);
+      r.put("name", "name-" + i);
+      List<GenericRecord> items = new ArrayList<>();
+      for (int j = 0; j < i % 3; j++) {
+        GenericRecord item = new GenericData.Record(ITEM);
+        item.put("a", i * j);
+        item.put("b", j % 2 == 0);
+        items.add(item);
+      }
+      r.put("items", items);
+      r.put("note", i % 7 == 0 ? "note-" + i : null);
+      records.add(r);
+    }
+    return AvroColumnFixture.write(SCHEMA, new ColumnFileMetaData().setCodec("deflate"), records);
+  }
+
+  private static List<String> read(AvroColumnReader.Params params) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(params)) {
+      for (GenericRecord r : reader)
+        result.add(r.toString());
+    }
+    return result;
+  }
+
+  @Test
+  void sameRecords() throws Exception {
+    byte[] bytes = write();
+    List<String> expected = read(new AvroColumnReader.Params(new InputBytes(bytes)));
+    assertEquals(COUNT, expected.size());
+    assertEquals(expected, read(new AvroColumnReader.Params(new InputBytes(bytes)).setExecutor(pool)));
+  }
+
+  @Test
+  void sameProjection() throws Exception {
+    byte[] bytes = write();
+    Schema projection = Schema.createRecord("R", null, null, false);
+    List<Schema.Field> fields = new ArrayList<>();
+    fields.add(new Schema.Field("items", Schema.createArray(ITEM)));
+    fields.add(new Schema.Field("name", Schema.create(Schema.Type.STRING)));
+    projection.setFields(fields);
+    List<String> expected = read(new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(projection));
+    assertEquals(expected,
+        read(new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(projection).setExecutor(pool)));
+  }
+
+}
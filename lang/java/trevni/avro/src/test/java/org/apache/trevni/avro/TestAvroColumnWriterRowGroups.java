@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni.avro;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.trevni.ColumnFileMetaData;
+import org.apache.trevni.InputBytes;
+import org.junit.jupiter.api.Test;
+
+public class TestAvroColumnWriterRowGroups {
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"R\",\"fields\":[{\"name\":\"id\",\"type\":\"long\"},"
+          + "{\"name\":\"name\",\"type\":\"string\"},"
+          + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+          + "{\"name\":\"score\",\"type\":[\"null\",\"double\"]}]}");
+
+  private static final int COUNT = 20000;
+
+  private static List<GenericRecord> records() {
+    List<GenericRecord> result = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      GenericRecord r = new GenericData.Record(SCHEMA);
+      r.put("id", (long) i);
+      r.put("name", "name-" + i);
+      List<String> tags = new ArrayList<>();
+      for (int j = 0; j < i % 4; j++)
+        tags.add("tag-" + j);
+      r.put("tags", tags);
+      r.put("score", i % 5 == 0 ? null : i / 10.0);
+      result.add(r);
+    }
+    return result;
+  }
+
+  private static byte[] writeBuffered(List<GenericRecord> records) throws IOException {
+    return AvroColumnFixture.write(SCHEMA, new ColumnFileMetaData(), records);
+  }
+
+  private static byte[] writeRowGroups(List<GenericRecord> records, long rowGroupSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (AvroColumnWriter<GenericRecord> writer = new AvroColumnWriter<>(SCHEMA, new ColumnFileMetaData(),
+        GenericData.get(), out)) {
+      writer.setRowGroupSize(rowGroupSize);
+      for (GenericRecord r : records)
+        writer.write(r);
+    }
+    return out.toByteArray();
+  }
+
+  private static List<GenericRecord> read(byte[] bytes) throws IOException {
+    List<GenericRecord> result = new ArrayList<>();
+    try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(
+        new AvroColumnReader.Params(new InputBytes(bytes)).setSchema(SCHEMA))) {
+      assertEquals(COUNT, reader.getRowCount());
+      for (GenericRecord r : reader)
+        result.add(r);
+    }
+    return result;
+  }
+
+  private static void assertRecordsEqual(List<GenericRecord> expected, List<GenericRecord> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++)
+      assertEquals(expected.get(i).toString(), actual.get(i).toString(), "record " + i);
+  }
+
+  @Test
+  void rowGroupsMatchBufferedFile() throws Exception {
+    List<GenericRecord> records = records();
+    byte[] buffered = writeBuffered(records);
+    byte[] groups = writeRowGroups(records, 1);
+    assertEquals(2, buffered[3]);
+    assertEquals(3, groups[3]);
+    assertRecordsEqual(records, read(buffered));
+    assertRecordsEqual(records, read(groups));
+  }
+
+  @Test
+  void defaultRowGroupSize() throws Exception {
+    List<GenericRecord> records = records();
+    assertRecordsEqual(records, read(writeRowGroups(records, Long.MAX_VALUE)));
+  }
+
+  @Test
+  void rowGroupsWrittenBeforeClose() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AvroColumnWriter<GenericRecord> writer = new AvroColumnWriter<>(SCHEMA, new ColumnFileMetaData(), GenericData.get(),
+        out);
+    writer.setRowGroupSize(1);
+    for (GenericRecord r : records())
+      writer.write(r);
+    int written = out.size();
+    assertTrue(written > 4, "written before close: " + written);
+    writer.close();
+    assertTrue(out.size() > written);
+  }
+
+  @Test
+  void schemaStoredInFooter() throws Exception {
+    byte[] bytes = writeRowGroups(Arrays.asList(records().get(1)), 1);
+    try (AvroColumnReader<GenericRecord> reader = new AvroColumnReader<>(
+        new AvroColumnReader.Params(new InputBytes(bytes)))) {
+      assertEquals(SCHEMA, reader.getFileSchema());
+      assertTrue(reader.hasNext());
+      assertEquals("name-1", reader.next().get("name").toString());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+}
@@ -48,7 +48,7 @@ class ArrayColumnOutputBuffer extends ColumnOutputBuffer {
       runLength = 1; // start a run
       runValue = l;
     } else {
-      getBuffer().writeLength(l); // not a run
+      getLengthBuffer().writeLength(l); // not a run
     }
   }
 
@@ -57,7 +57,7 @@ class ArrayColumnOutputBuffer extends ColumnOutputBuffer {
     assert length > 0;
     if (getMeta().getType() != ValueType.NULL) {
       flushRun();
-      getBuffer().writeValue(value, getMeta().getType());
+      addValue(value);
     }
     length -= 1;
   }
@@ -72,9 +72,9 @@ class ArrayColumnOutputBuffer extends ColumnOutputBuffer {
     if (runLength == 0) // not in run
       return;
     else if (runLength == 1) // single value
-      getBuffer().writeLength(runValue);
+      getLengthBuffer().writeLength(runValue);
     else // a run
-      getBuffer().writeLength((3 - runValue) - (runLength << 1));
+      getLengthBuffer().writeLength((3 - runValue) - (runLength << 1));
 
     runLength = 0; // reset
     runValue = NONE;
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the values of a block of a column. Values are first written plain,
+ * and the bounds of each are noted, so that when the block is complete its
+ * statistics can be computed and the values rewritten with the encoding chosen.
+ */
+class BlockEncoder {
+  private static final int MIN_RUN = 3; // shorter runs are written as literals
+  private static final int MAX_DICTIONARY_SIZE = 1 << 16; // when choosing
+
+  private final String encoding;
+  private final boolean integral;
+
+  private int[] ends = new int[1024]; // end of each value in the plain buffer
+  private long[] numbers; // values of integer columns
+  private int count;
+
+  BlockEncoder(String encoding, ValueType type) {
+    this.encoding = encoding;
+    this.integral = Encoding.isIntegral(type);
+    if (integral)
+      this.numbers = new long[ends.length];
+  }
+
+  /** Note a value just written to the plain buffer. */
+  void add(Object value, OutputBuffer values) {
+    if (count == ends.length) {
+      ends = Arrays.copyOf(ends, count * 2);
+      if (integral)
+        numbers = Arrays.copyOf(numbers, count * 2);
+    }
+    ends[count] = values.size();
+    if (integral)
+      numbers[count] = ((Number) value).longValue();
+    count++;
+  }
+
+  /** Forget the values of the previous block. */
+  void reset() {
+    count = 0;
+  }
+
+  /**
+   * Encode a block: an encoding id, the count of values, for array columns the
+   * size and bytes of their lengths, and the values.
+   */
+  ByteBuffer encode(OutputBuffer values, OutputBuffer lengths) throws IOException {
+    byte[] plain = values.asByteBuffer().array();
+    int plainSize = values.size();
+
+    // gather statistics
+    int[] indexes = null;
+    Map<ByteBuffer, Integer> dictionary = null;
+    int dictionarySize = 0;
+    if (Encoding.DICTIONARY.equals(encoding) || Encoding.AUTO.equals(encoding)) {
+      indexes = new int[count];
+      dictionary = new HashMap<>();
+      for (int i = 0; i < count; i++) {
+        ByteBuffer value = ByteBuffer.wrap(plain, start(i), size(i));
+        Integer index = dictionary.get(value);
+        if (index == null) {
+          if (Encoding.AUTO.equals(encoding) && dictionary.size() == MAX_DICTIONARY_SIZE) {
+            dictionary = null; // too many values to be worthwhile
+            break;
+          }
+          index = dictionary.size();
+          dictionary.put(value, index);
+          dictionarySize += size(i);
+        }
+        indexes[i] = index;
+      }
+    }
+    long[] deltas = null;
+    if (integral && (Encoding.DELTA.equals(encoding) || Encoding.AUTO.equals(encoding))) {
+      deltas = new long[count];
+      for (int i = 1; i < count; i++)
+        deltas[i] = numbers[i] - numbers[i - 1];
+    }
+
+    // choose an encoding
+    int id;
+    switch (encoding) {
+    case Encoding.DICTIONARY:
+      id = Encoding.DICTIONARY_ID;
+      break;
+    case Encoding.RLE:
+      id = Encoding.RLE_ID;
+      break;
+    case Encoding.DELTA:
+      id = Encoding.DELTA_ID;
+      break;
+    default:
+      id = Encoding.PLAIN_ID;
+      long best = plainSize;
+      if (dictionary != null) {
+        long size = varintSize(dictionary.size()) + dictionarySize + runs(indexRuns(indexes), null);
+        if (size < best) {
+          id = Encoding.DICTIONARY_ID;
+          best = size;
+        }
+      }
+      long size = runs(valueRuns(plain), null);
+      if (size < best) {
+        id = Encoding.RLE_ID;
+        best = size;
+      }
+      if (deltas != null && count > 0) {
+        size = varintSize(numbers[0]) + runs(deltaRuns(deltas), null);
+        if (size < best)
+          id = Encoding.DELTA_ID;
+      }
+    }
+
+    // write the block
+    OutputBuffer out = new OutputBuffer(plainSize + (lengths != null ? lengths.size() : 0) + 16);
+    out.write(id);
+    out.writeInt(count);
+    if (lengths != null) {
+      out.writeInt(lengths.size());
+      lengths.writeTo(out);
+    }
+    switch (id) {
+    case Encoding.PLAIN_ID:
+      out.write(plain, 0, plainSize);
+      break;
+    case Encoding.DICTIONARY_ID:
+      out.writeInt(dictionary.size());
+      int[] entries = new int[dictionary.size()]; // first occurrence of each
+      for (int i = count - 1; i >= 0; i--)
+        entries[indexes[i]] = i;
+      for (int i : entries)
+        out.write(plain, start(i), size(i));
+      runs(indexRuns(indexes), out);
+      break;
+    case Encoding.RLE_ID:
+      runs(valueRuns(plain), out);
+      break;
+    case Encoding.DELTA_ID:
+      if (count > 0) {
+        out.writeLong(numbers[0]);
+        runs(deltaRuns(deltas), out);
+      }
+      break;
+    default:
+      throw new TrevniRuntimeException("Unknown encoding: " + id);
+    }
+    return out.asByteBuffer();
+  }
+
+  private int start(int i) {
+    return i == 0 ? 0 : ends[i - 1];
+  }
+
+  private int size(int i) {
+    return ends[i] - start(i);
+  }
+
+  /** Values written in runs. */
+  private interface Runs {
+    int count();
+
+    boolean equal(int i, int j);
+
+    int size(int i);
+
+    void write(int i, OutputBuffer out) throws IOException;
+  }
+
+  private Runs valueRuns(byte[] plain) {
+    return new Runs() {
+      @Override
+      public int count() {
+        return count;
+      }
+
+      @Override
+      public boolean equal(int i, int j) {
+        int s = size(i);
+        if (s != size(j))
+          return false;
+        for (int a = start(i), b = start(j), end = a + s; a < end; a++, b++)
+          if (plain[a] != plain[b])
+            return false;
+        return true;
+      }
+
+      @Override
+      public int size(int i) {
+        return BlockEncoder.this.size(i);
+      }
+
+      @Override
+      public void write(int i, OutputBuffer out) {
+        out.write(plain, start(i), BlockEncoder.this.size(i));
+      }
+    };
+  }
+
+  private Runs indexRuns(int[] indexes) {
+    return new Runs() {
+      @Override
+      public int count() {
+        return count;
+      }
+
+      @Override
+      public boolean equal(int i, int j) {
+        return indexes[i] == indexes[j];
+      }
+
+      @Override
+      public int size(int i) {
+        return varintSize(indexes[i]);
+      }
+
+      @Override
+      public void write(int i, OutputBuffer out) {
+        out.writeInt(indexes[i]);
+      }
+    };
+  }
+
+  private Runs deltaRuns(long[] deltas) { // skips the first value
+    return new Runs() {
+      @Override
+      public int count() {
+        return Math.max(0, count - 1);
+      }
+
+      @Override
+      public boolean equal(int i, int j) {
+        return deltas[i + 1] == deltas[j + 1];
+      }
+
+      @Override
+      public int size(int i) {
+        return varintSize(deltas[i + 1]);
+      }
+
+      @Override
+      public void write(int i, OutputBuffer out) throws IOException {
+        out.writeLong(deltas[i + 1]);
+      }
+    };
+  }
+
+  /**
+   * Write values as runs, returning the number of bytes written, or only count
+   * them when out is null. Each run starts with an int: a positive count of
+   * repetitions of the single value that follows, or a negated count of the
+   * values that follow.
+   */
+  private static long runs(Runs values, OutputBuffer out) throws IOException {
+    long size = 0;
+    int n = values.count();
+    int literals = 0; // start of values not yet written
+    int i = 0;
+    while (i < n) {
+      int j = i + 1;
+      while (j < n && values.equal(i, j))
+        j++;
+      if (j - i >= MIN_RUN) {
+        size += literals(values, literals, i, out);
+        size += varintSize(j - i) + values.size(i);
+        if (out != null) {
+          out.writeInt(j - i);
+          values.write(i, out);
+        }
+        literals = j;
+      }
+      i = j;
+    }
+    return size + literals(values, literals, n, out);
+  }
+
+  private static long literals(Runs values, int start, int end, OutputBuffer out) throws IOException {
+    if (start == end)
+      return 0;
+    long size = varintSize(start - end);
+    if (out != null)
+      out.writeInt(start - end);
+    for (int i = start; i < end; i++) {
+      size += values.size(i);
+      if (out != null)
+        values.write(i, out);
+    }
+    return size;
+  }
+
+  // the size of a zig-zag varint
+  private static int varintSize(long n) {
+    long z = (n << 1) ^ (n >> 63);
+    return Math.max(1, (70 - Long.numberOfLeadingZeros(z)) / 7);
+  }
+
+}
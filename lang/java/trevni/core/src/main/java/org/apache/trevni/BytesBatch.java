@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A batch of string or bytes values read by
+ * {@link ColumnValues#nextBytes(BytesBatch)}. The bytes of the values are
+ * concatenated in a single array, value <i>i</i> being those from
+ * {@link #getOffset(int) getOffset(i)} to {@link #getOffset(int)
+ * getOffset(i+1)}. A batch is reused by each read into it.
+ */
+public class BytesBatch {
+  private final int[] offsets;
+  private byte[] bytes = new byte[1024];
+  private int size;
+
+  /** Construct holding at most <i>capacity</i> values. */
+  public BytesBatch(int capacity) {
+    if (capacity <= 0)
+      throw new TrevniRuntimeException("Invalid capacity: " + capacity);
+    this.offsets = new int[capacity + 1];
+  }
+
+  /** Return the largest number of values held. */
+  public int capacity() {
+    return offsets.length - 1;
+  }
+
+  /** Return the number of values held. */
+  public int size() {
+    return size;
+  }
+
+  /** Return the bytes of the values held, concatenated. */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Return the offsets of the values held, one more than their number, the last
+   * being the end of the last value.
+   */
+  public int[] getOffsets() {
+    return offsets;
+  }
+
+  /** Return where the named value starts in {@link #getBytes()}. */
+  public int getOffset(int i) {
+    return offsets[i];
+  }
+
+  /** Return the length in bytes of the named value. */
+  public int getLength(int i) {
+    return offsets[i + 1] - offsets[i];
+  }
+
+  /** Return the named value decoded as UTF-8. */
+  public String getString(int i) {
+    return new String(bytes, offsets[i], getLength(i), StandardCharsets.UTF_8);
+  }
+
+  /** Return the named value, wrapping this batch's bytes. */
+  public ByteBuffer getByteBuffer(int i) {
+    return ByteBuffer.wrap(bytes, offsets[i], getLength(i)).slice();
+  }
+
+  /** Remove all values. */
+  public void clear() {
+    size = 0;
+  }
+
+  void read(InputBuffer in) throws IOException {
+    int length = in.readInt();
+    int start = reserve(length);
+    in.readFully(bytes, start, length);
+  }
+
+  /** Add a value, copying its bytes. */
+  public void add(byte[] b, int start, int length) {
+    int offset = reserve(length);
+    System.arraycopy(b, start, bytes, offset, length);
+  }
+
+  private int reserve(int length) {
+    if (size == capacity())
+      throw new TrevniRuntimeException("Batch is full: " + size);
+    int start = offsets[size];
+    if (length < 0 || start + (long) length > Integer.MAX_VALUE - 8)
+      throw new TrevniRuntimeException("Invalid length: " + length);
+    if (start + length > bytes.length)
+      bytes = Arrays.copyOf(bytes,
+          (int) Math.min(Integer.MAX_VALUE - 8, Math.max(start + (long) length, 2L * bytes.length)));
+    offsets[++size] = start + length;
+    return start;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * An {@link Input} that reads another through a {@link PageCache}. The other
+ * input is read a page at a time, so that the small reads of the columns of a
+ * scan become fewer, larger and mostly sequential ones, and ranges read by
+ * several cursors are read once.
+ */
+public class CachedInput implements Input {
+  private final Input in;
+  private final PageCache cache;
+  private final long length;
+
+  /** Construct reading through a cache of its own, of the default size. */
+  public CachedInput(Input in) throws IOException {
+    this(in, new PageCache());
+  }
+
+  /** Construct reading through a cache that may be shared with other inputs. */
+  public CachedInput(Input in, PageCache cache) throws IOException {
+    this.in = in;
+    this.cache = cache;
+    this.length = in.length();
+  }
+
+  /** Return the cache read through. */
+  public PageCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(long position, byte[] b, int start, int len) throws IOException {
+    if (position >= length)
+      return -1;
+    len = (int) Math.min(len, length - position);
+    int pageSize = cache.getPageSize();
+    int total = 0;
+    while (total < len) {
+      long page = (position + total) / pageSize;
+      byte[] data = page(page, pageSize);
+      int offset = (int) (position + total - page * pageSize);
+      int n = Math.min(len - total, data.length - offset);
+      System.arraycopy(data, offset, b, start + total, n);
+      total += n;
+    }
+    return total;
+  }
+
+  private byte[] page(long page, int pageSize) throws IOException {
+    byte[] data = cache.get(this, page);
+    if (data == null) {
+      long start = page * pageSize;
+      data = new byte[(int) Math.min(pageSize, length - start)];
+      int total = 0;
+      while (total < data.length) {
+        int n = in.read(start + total, data, total, data.length - total);
+        if (n < 0)
+          throw new EOFException("Input shorter than its length: " + (start + total));
+        total += n;
+      }
+      cache.put(this, page, data);
+    }
+    return data;
+  }
+
+  /** Close the input read, and remove its pages from the cache. */
+  @Override
+  public void close() throws IOException {
+    cache.remove(this);
+    in.close();
+  }
+
+}
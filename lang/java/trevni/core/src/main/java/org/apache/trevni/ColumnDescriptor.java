@@ -81,20 +81,43 @@ class ColumnDescriptor<T extends Comparable> {
     }
     dataStart = in.tell();
 
-    // compute blockStarts and firstRows
+    // compute blockStarts
     Checksum checksum = Checksum.get(metaData);
     blockStarts = new long[blocks.length];
-    firstRows = new long[blocks.length];
     long startPosition = dataStart;
-    long row = 0;
     for (int i = 0; i < blockCount; i++) {
-      BlockDescriptor b = blocks[i];
       blockStarts[i] = startPosition;
-      firstRows[i] = row;
-      startPosition += b.compressedSize + checksum.size();
-      row += b.rowCount;
+      startPosition += blocks[i].compressedSize + checksum.size();
+    }
+    computeFirstRows(blocks);
+    this.blocks = blocks;
+  }
+
+  /** Read the block index of a column in a row group file. */
+  public void readBlockIndex(InputBuffer in) throws IOException {
+    int blockCount = in.readFixed32();
+    BlockDescriptor[] blocks = new BlockDescriptor[blockCount];
+    if (metaData.hasIndexValues())
+      firstValues = (T[]) new Comparable[blockCount];
+    blockStarts = new long[blockCount];
+
+    for (int i = 0; i < blockCount; i++) {
+      blocks[i] = BlockDescriptor.read(in);
+      if (metaData.hasIndexValues())
+        firstValues[i] = in.readValue(metaData.getType());
+      blockStarts[i] = in.readFixed64();
     }
+    computeFirstRows(blocks);
     this.blocks = blocks;
   }
 
+  private void computeFirstRows(BlockDescriptor[] blocks) {
+    firstRows = new long[blocks.length];
+    long row = 0;
+    for (int i = 0; i < blocks.length; i++) {
+      firstRows[i] = row;
+      row += blocks[i].rowCount;
+    }
+  }
+
 }
@@ -98,7 +98,11 @@ public class ColumnFileReader implements Closeable {
 
   private void readHeader() throws IOException {
     InputBuffer in = new InputBuffer(file, 0);
-    readMagic(in);
+    boolean rowGroups = readMagic(in);
+    if (rowGroups) { // the header is a footer
+      InputBuffer tail = new InputBuffer(file, file.length() - 8);
+      in = new InputBuffer(file, tail.readFixed64());
+    }
     this.rowCount = in.readFixed64();
     this.columnCount = in.readFixed32();
     this.metaData = ColumnFileMetaData.read(in);
@@ -106,19 +110,26 @@ public class ColumnFileReader implements Closeable {
 
     columns = new ColumnDescriptor[columnCount];
     readColumnMetaData(in);
-    readColumnStarts(in);
+    if (rowGroups)
+      readBlockIndexes(in);
+    else
+      readColumnStarts(in);
   }
 
-  private void readMagic(InputBuffer in) throws IOException {
+  /** Returns true if the file is written in row groups. */
+  private boolean readMagic(InputBuffer in) throws IOException {
     byte[] magic = new byte[ColumnFileWriter.MAGIC.length];
     try {
       in.readFully(magic);
     } catch (IOException e) {
       throw new IOException("Not a data file.");
     }
-    if (!(Arrays.equals(ColumnFileWriter.MAGIC, magic) || !Arrays.equals(ColumnFileWriter.MAGIC_1, magic)
-        || !Arrays.equals(ColumnFileWriter.MAGIC_0, magic)))
+    if (Arrays.equals(ColumnFileWriter.MAGIC_ROW_GROUPS, magic))
+      return true;
+    if (!(Arrays.equals(ColumnFileWriter.MAGIC, magic) || Arrays.equals(ColumnFileWriter.MAGIC_1, magic)
+        || Arrays.equals(ColumnFileWriter.MAGIC_0, magic)))
       throw new IOException("Not a data file.");
+    return false;
   }
 
   private void readColumnMetaData(InputBuffer in) throws IOException {
@@ -137,6 +148,11 @@ public class ColumnFileReader implements Closeable {
       columns[i].start = in.readFixed64();
   }
 
+  private void readBlockIndexes(InputBuffer in) throws IOException {
+    for (int i = 0; i < columnCount; i++)
+      columns[i].readBlockIndex(in);
+  }
+
   /** Return an iterator over values in the named column. */
   public <T extends Comparable> ColumnValues<T> getValues(String columnName) throws IOException {
     return new ColumnValues<>(getColumn(columnName));
@@ -17,6 +17,7 @@
  */
 package org.apache.trevni;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -26,13 +27,19 @@ import java.util.HashSet;
 
 /**
  * Writes data to a column file. All data is buffered until
- * {@link #writeTo(File)} is called.
+ * {@link #writeTo(File)} is called, unless the writer is constructed with an
+ * output stream, in which case rows are written to it in row groups as they are
+ * added, and the file is finished by {@link #close()}.
  */
-public class ColumnFileWriter {
+public class ColumnFileWriter implements Closeable {
 
   static final byte[] MAGIC_0 = new byte[] { 'T', 'r', 'v', 0 };
   static final byte[] MAGIC_1 = new byte[] { 'T', 'r', 'v', 1 };
   static final byte[] MAGIC = new byte[] { 'T', 'r', 'v', 2 };
+  static final byte[] MAGIC_ROW_GROUPS = new byte[] { 'T', 'r', 'v', 3 };
+
+  /** The default size of the blocks buffered for a row group, 64MB. */
+  public static final long DEFAULT_ROW_GROUP_SIZE = 64 * 1024 * 1024;
 
   private ColumnFileMetaData metaData;
   private ColumnOutputBuffer[] columns;
@@ -41,6 +48,11 @@ public class ColumnFileWriter {
   private int columnCount;
   private long size;
 
+  private OutputStream out; // null unless writing row groups
+  private long position; // bytes written to out
+  private long rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+  private long bufferedSize; // completed blocks not yet written to out
+
   /** Construct given metadata for each column in the file. */
   public ColumnFileWriter(ColumnFileMetaData fileMeta, ColumnMetaData... columnMeta) throws IOException {
     checkColumns(columnMeta);
@@ -55,6 +67,28 @@ public class ColumnFileWriter {
     }
   }
 
+  /**
+   * Construct given metadata for each column in the file, writing rows to an
+   * output stream in row groups. The file is finished by {@link #close()}.
+   */
+  public ColumnFileWriter(OutputStream out, ColumnFileMetaData fileMeta, ColumnMetaData... columnMeta)
+      throws IOException {
+    this(fileMeta, columnMeta);
+    this.out = out;
+    out.write(MAGIC_ROW_GROUPS);
+    this.position = MAGIC_ROW_GROUPS.length;
+  }
+
+  /**
+   * Set the size of the completed blocks to buffer before they are written as a
+   * row group. Only applies to writers constructed with an output stream.
+   */
+  public void setRowGroupSize(long rowGroupSize) {
+    if (rowGroupSize <= 0)
+      throw new TrevniRuntimeException("Invalid row group size: " + rowGroupSize);
+    this.rowGroupSize = rowGroupSize;
+  }
+
   private void checkColumns(ColumnMetaData[] columnMeta) {
     Set<String> seen = new HashSet<>();
     for (ColumnMetaData c : columnMeta) {
@@ -70,13 +104,15 @@ public class ColumnFileWriter {
 
   void incrementSize(int n) {
     size += n;
+    bufferedSize += n;
   }
 
   /**
    * Return the approximate size of the file that will be written. Tries to
    * slightly over-estimate. Indicates both the size in memory of the buffered
    * data as well as the size of the file that will be written by
-   * {@link #writeTo(OutputStream)}.
+   * {@link #writeTo(OutputStream)}. When writing row groups, indicates the size
+   * of the file written so far and of the buffered data.
    */
   public long sizeEstimate() {
     return size;
@@ -129,6 +165,50 @@ public class ColumnFileWriter {
     for (int column = 0; column < columnCount; column++)
       columns[column].endRow();
     rowCount++;
+    if (out != null && bufferedSize >= rowGroupSize)
+      flushRowGroup();
+  }
+
+  /**
+   * Expert: Write the rows added since the last row group as a new row group.
+   * Only applies to writers constructed with an output stream.
+   */
+  public void flushRowGroup() throws IOException {
+    checkRowGroups();
+    for (ColumnOutputBuffer column : columns)
+      position += column.writeBlocks(out, position);
+    bufferedSize = 0;
+  }
+
+  /**
+   * Write the last row group and the file footer, and close the output stream.
+   * Does nothing for writers that are not constructed with an output stream.
+   */
+  @Override
+  public void close() throws IOException {
+    if (out == null)
+      return;
+    try {
+      flushRowGroup();
+      OutputBuffer footer = new OutputBuffer();
+      footer.writeFixed64(rowCount); // row count
+      footer.writeFixed32(columnCount); // column count
+      metaData.write(footer); // file metadata
+      for (ColumnOutputBuffer column : columns)
+        column.getMeta().write(footer); // column metadata
+      for (ColumnOutputBuffer column : columns)
+        column.writeBlockIndex(footer); // block positions
+      footer.writeFixed64(position); // footer start
+      footer.writeTo(out);
+    } finally {
+      out.close();
+      out = null;
+    }
+  }
+
+  private void checkRowGroups() {
+    if (out == null)
+      throw new TrevniRuntimeException("Not writing row groups to an output stream");
   }
 
   /** Write all rows added to the named file. */
@@ -140,6 +220,8 @@ public class ColumnFileWriter {
 
   /** Write all rows added to the named output stream. */
   public void writeTo(OutputStream out) throws IOException {
+    if (this.out != null)
+      throw new TrevniRuntimeException("Rows are written in row groups, finish with close()");
     writeHeader(out);
 
     for (int column = 0; column < columnCount; column++)
@@ -29,9 +29,12 @@ class ColumnOutputBuffer {
   private Codec codec;
   private Checksum checksum;
   private OutputBuffer buffer;
+  private BlockEncoder encoder; // null unless values are encoded
+  private OutputBuffer lengths; // array lengths, when values are encoded
   private List<BlockDescriptor> blockDescriptors;
   private List<byte[]> blockData;
   private List<byte[]> firstValues;
+  private List<Long> blockStarts; // when writing row groups
   private int rowCount;
   private long size = 4; // room for block count
 
@@ -41,6 +44,12 @@ class ColumnOutputBuffer {
     this.codec = Codec.get(meta);
     this.checksum = Checksum.get(meta);
     this.buffer = new OutputBuffer();
+    String encoding = Encoding.get(meta);
+    if (encoding != null) {
+      this.encoder = new BlockEncoder(encoding, meta.getType());
+      if (meta.isArray())
+        this.lengths = new OutputBuffer();
+    }
     this.blockDescriptors = new ArrayList<>();
     this.blockData = new ArrayList<>();
     if (meta.hasIndexValues())
@@ -55,8 +64,13 @@ class ColumnOutputBuffer {
     return buffer;
   }
 
+  /** Return the buffer array lengths are written to. */
+  OutputBuffer getLengthBuffer() {
+    return lengths != null ? lengths : buffer;
+  }
+
   public void startRow() throws IOException {
-    if (buffer.isFull())
+    if (buffer.size() + (lengths != null ? lengths.size() : 0) >= OutputBuffer.BLOCK_SIZE)
       flushBuffer();
   }
 
@@ -65,11 +79,18 @@ class ColumnOutputBuffer {
   }
 
   public void writeValue(Object value) throws IOException {
-    buffer.writeValue(value, meta.getType());
+    addValue(value);
     if (meta.hasIndexValues() && rowCount == 0)
       firstValues.add(buffer.toByteArray());
   }
 
+  /** Write a value to the buffer. */
+  void addValue(Object value) throws IOException {
+    buffer.writeValue(value, meta.getType());
+    if (encoder != null)
+      encoder.add(value, buffer);
+  }
+
   public void endRow() throws IOException {
     rowCount++;
   }
@@ -77,7 +98,7 @@ class ColumnOutputBuffer {
   void flushBuffer() throws IOException {
     if (rowCount == 0)
       return;
-    ByteBuffer raw = buffer.asByteBuffer();
+    ByteBuffer raw = encoder != null ? encoder.encode(buffer, lengths) : buffer.asByteBuffer();
     ByteBuffer c = codec.compress(raw);
 
     blockDescriptors.add(new BlockDescriptor(rowCount, raw.remaining(), c.remaining()));
@@ -97,6 +118,11 @@ class ColumnOutputBuffer {
     size += sizeIncrement;
 
     buffer = new OutputBuffer();
+    if (encoder != null) {
+      encoder.reset();
+      if (lengths != null)
+        lengths = new OutputBuffer();
+    }
     rowCount = 0;
   }
 
@@ -105,6 +131,35 @@ class ColumnOutputBuffer {
     return size;
   }
 
+  /**
+   * Flush the buffer and write the blocks not yet written to an output stream, at
+   * a position in the file. Returns the number of bytes written.
+   */
+  long writeBlocks(OutputStream out, long position) throws IOException {
+    flushBuffer();
+    if (blockStarts == null)
+      blockStarts = new ArrayList<>();
+    long written = 0;
+    for (byte[] data : blockData) {
+      blockStarts.add(position + written);
+      out.write(data);
+      written += data.length;
+    }
+    blockData.clear();
+    return written;
+  }
+
+  /** Write the descriptors and positions of the blocks written. */
+  void writeBlockIndex(OutputBuffer out) throws IOException {
+    out.writeFixed32(blockDescriptors.size());
+    for (int i = 0; i < blockDescriptors.size(); i++) {
+      blockDescriptors.get(i).writeTo(out);
+      if (meta.hasIndexValues())
+        out.write(firstValues.get(i));
+      out.writeFixed64(blockStarts.get(i));
+    }
+  }
+
   public void writeTo(OutputStream out) throws IOException {
     OutputBuffer header = new OutputBuffer();
     header.writeFixed32(blockDescriptors.size());
@@ -19,7 +19,12 @@ package org.apache.trevni;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /** An iterator over column values. */
 public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable<T> {
@@ -29,6 +34,7 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
   private final Codec codec;
   private final Checksum checksum;
   private final InputBuffer in;
+  private final boolean encoded;
 
   private InputBuffer values;
   private int block = -1;
@@ -37,12 +43,17 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
 
   private int arrayLength;
 
+  private Executor executor; // reads blocks ahead, when set
+  private FutureTask<DecodedBlock> ahead; // the block being read ahead
+  private DecodedBlock decoded; // the current block, when values are decoded
+
   ColumnValues(ColumnDescriptor column) throws IOException {
     this.column = column;
     this.type = column.metaData.getType();
     this.codec = Codec.get(column.metaData);
     this.checksum = Checksum.get(column.metaData);
     this.in = new InputBuffer(column.file);
+    this.encoded = Encoding.get(column.metaData) != null;
 
     column.ensureBlocksRead();
   }
@@ -52,12 +63,24 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     return row;
   }
 
+  /**
+   * Expert: Read blocks ahead on an executor. While the values of a block are
+   * read, the next block is read, decompressed and, where possible, decoded by a
+   * task, so that the blocks of several columns are decoded concurrently.
+   */
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
   /** Seek to the named row. */
   public void seek(long r) throws IOException {
     if (r < row || r >= column.lastRow(block)) // not in current block
       startBlock(column.findBlock(r)); // seek to block start
     while (r > row && hasNext()) { // skip within block
-      values.skipValue(type);
+      if (decoded == null)
+        values.skipValue(type);
+      else if (type != ValueType.NULL)
+        decoded.valueIndex++;
       row++;
     }
     previous = null;
@@ -74,10 +97,13 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
       startBlock(column.findBlock(v)); // seek to block start
 
     while (hasNext()) { // scan block
-      long savedPosition = values.tell();
+      long savedPosition = decoded == null ? values.tell() : decoded.valueIndex;
       T savedPrevious = previous;
       if (next().compareTo(v) >= 0) {
-        values.seek(savedPosition);
+        if (decoded == null)
+          values.seek(savedPosition);
+        else
+          decoded.valueIndex = (int) savedPosition;
         previous = savedPrevious;
         row--;
         return;
@@ -89,6 +115,39 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     this.block = block;
     this.row = column.firstRows[block];
 
+    if (executor == null) {
+      if (!encoded) {
+        values = new InputBuffer(new InputBytes(readBlock(block)));
+        decoded = null;
+      } else {
+        DecodedBlock next = decodeBlock(block);
+        values = next.values;
+        decoded = next.values == null ? next : null;
+      }
+      return;
+    }
+
+    // at most one block is read ahead, so the codec is never shared
+    DecodedBlock next = null;
+    if (ahead != null) {
+      DecodedBlock done = await(ahead);
+      ahead = null;
+      if (done.index == block)
+        next = done;
+    }
+    if (next == null)
+      next = decodeBlock(block);
+    values = next.values;
+    decoded = next.values == null ? next : null;
+
+    if (block + 1 < column.blockCount()) {
+      final int index = block + 1;
+      ahead = new FutureTask<>(() -> decodeBlock(index));
+      executor.execute(ahead);
+    }
+  }
+
+  private ByteBuffer readBlock(int block) throws IOException {
     in.seek(column.blockStarts[block]);
     int end = column.blocks[block].compressedSize;
     byte[] raw = new byte[end + checksum.size()];
@@ -96,7 +155,293 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     ByteBuffer data = codec.decompress(ByteBuffer.wrap(raw, 0, end));
     if (!checksum.compute(data).equals(ByteBuffer.wrap(raw, end, checksum.size())))
       throw new IOException("Checksums mismatch.");
-    values = new InputBuffer(new InputBytes(data));
+    return data;
+  }
+
+  private static DecodedBlock await(FutureTask<DecodedBlock> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new TrevniRuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Read a block and decode its lengths and values. Booleans in arrays are packed
+   * so that the end of a block cannot be found without its rows, so such blocks
+   * are only decompressed.
+   */
+  private DecodedBlock decodeBlock(int block) throws IOException {
+    DecodedBlock result = new DecodedBlock(block, type, column.blocks[block].rowCount);
+    InputBuffer data = new InputBuffer(new InputBytes(readBlock(block)));
+    ColumnMetaData meta = column.metaData;
+    boolean nested = meta.isArray() || meta.getParent() != null;
+    if (encoded)
+      return decodeEncoded(result, data, nested);
+    if (type == ValueType.BOOLEAN && nested) {
+      result.values = data;
+    } else if (!nested) {
+      int count = column.blocks[block].rowCount;
+      for (int i = 0; i < count; i++)
+        result.read(data);
+    } else if (type != ValueType.NULL || meta.isArray()) {
+      while (!data.isEnd()) {
+        if (meta.isArray()) {
+          int length = data.readLength();
+          result.addLength(length);
+          if (type != ValueType.NULL)
+            for (int i = 0; i < length; i++)
+              result.read(data);
+        } else {
+          result.read(data);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Decode a block of an encoded column. Plain values of columns that are not
+   * nested are left in their buffer, after the block's header. Repeated strings
+   * and bytes share their decoded bytes.
+   */
+  private DecodedBlock decodeEncoded(DecodedBlock result, InputBuffer data, boolean nested) throws IOException {
+    int encoding = data.read();
+    int count = data.readInt();
+    if (column.metaData.isArray()) {
+      byte[] bytes = new byte[data.readInt()];
+      data.readFully(bytes);
+      InputBuffer lengths = new InputBuffer(new InputBytes(bytes));
+      while (!lengths.isEnd())
+        result.addLength(lengths.readLength());
+    }
+    if (nested || encoding != Encoding.PLAIN_ID)
+      result.reserve(count);
+    switch (encoding) {
+    case Encoding.PLAIN_ID:
+      if (!nested) {
+        result.values = data;
+        break;
+      }
+      for (int i = 0; i < count; i++)
+        result.read(data);
+      break;
+    case Encoding.DICTIONARY_ID:
+      int size = data.readInt();
+      DecodedBlock dictionary = new DecodedBlock(-1, type, size);
+      for (int i = 0; i < size; i++)
+        dictionary.read(data);
+      result.shareTable(dictionary);
+      while (result.valueCount < count) {
+        int n = data.readInt();
+        if (n > 0) {
+          int entry = data.readInt();
+          for (int i = 0; i < n; i++)
+            result.copy(dictionary, entry);
+        } else {
+          for (int i = 0; i < -n; i++)
+            result.copy(dictionary, data.readInt());
+        }
+      }
+      break;
+    case Encoding.RLE_ID:
+      while (result.valueCount < count) {
+        int n = data.readInt();
+        if (n > 0) {
+          result.read(data);
+          for (int i = 1; i < n; i++)
+            result.copy(result, result.valueCount - 1);
+        } else {
+          for (int i = 0; i < -n; i++)
+            result.read(data);
+        }
+      }
+      break;
+    case Encoding.DELTA_ID:
+      if (count == 0)
+        break;
+      if (result.longs == null)
+        throw new IOException("Delta encoded " + type + " column: " + column.metaData.getName());
+      long value = data.readLong();
+      result.addLong(value);
+      while (result.valueCount < count) {
+        int n = data.readInt();
+        if (n > 0) {
+          long delta = data.readLong();
+          for (int i = 0; i < n; i++)
+            result.addLong(value += delta);
+        } else {
+          for (int i = 0; i < -n; i++)
+            result.addLong(value += data.readLong());
+        }
+      }
+      break;
+    default:
+      throw new IOException("Unknown encoding: " + encoding);
+    }
+    return result;
+  }
+
+  /**
+   * The values of a block, decoded or else in their buffer. Integers are decoded
+   * into longs and floats into doubles. Strings and bytes are decoded into a
+   * table of their bytes and the index of each value in that table, so that
+   * batches are read without an object per value.
+   */
+  private static class DecodedBlock {
+    final int index;
+    final ValueType type;
+    InputBuffer values;
+    long[] longs; // values of int, fixed32, long and fixed64 columns
+    double[] doubles; // values of float and double columns
+    int[] indexes; // values of string and bytes columns, as positions in table
+    byte[][] table; // the bytes of string and bytes values
+    int tableCount;
+    String[] strings; // the table as strings, decoded when first read
+    Object[] valueArray; // values of other columns
+    int[] lengths = new int[16];
+    int valueIndex;
+    int valueCount;
+    int lengthIndex;
+    int lengthCount;
+
+    DecodedBlock(int index, ValueType type, int capacity) {
+      this.index = index;
+      this.type = type;
+      switch (type) {
+      case INT:
+      case FIXED32:
+      case LONG:
+      case FIXED64:
+        longs = new long[capacity];
+        break;
+      case FLOAT:
+      case DOUBLE:
+        doubles = new double[capacity];
+        break;
+      case STRING:
+      case BYTES:
+        indexes = new int[capacity];
+        table = new byte[capacity][];
+        break;
+      default:
+        valueArray = new Object[capacity];
+      }
+    }
+
+    /** Read the next value from a buffer. */
+    void read(InputBuffer data) throws IOException {
+      reserve(valueCount + 1);
+      switch (type) {
+      case INT:
+        longs[valueCount] = data.readInt();
+        break;
+      case FIXED32:
+        longs[valueCount] = data.readFixed32();
+        break;
+      case LONG:
+        longs[valueCount] = data.readLong();
+        break;
+      case FIXED64:
+        longs[valueCount] = data.readFixed64();
+        break;
+      case FLOAT:
+        doubles[valueCount] = data.readFloat();
+        break;
+      case DOUBLE:
+        doubles[valueCount] = data.readDouble();
+        break;
+      case STRING:
+      case BYTES:
+        if (tableCount == table.length)
+          table = Arrays.copyOf(table, Math.max(16, tableCount * 2));
+        table[tableCount] = data.readBytes();
+        indexes[valueCount] = tableCount++;
+        break;
+      default:
+        valueArray[valueCount] = data.readValue(type);
+      }
+      valueCount++;
+    }
+
+    /** Append a value of a block that shares this block's table. */
+    void copy(DecodedBlock from, int i) {
+      reserve(valueCount + 1);
+      if (longs != null)
+        longs[valueCount] = from.longs[i];
+      else if (doubles != null)
+        doubles[valueCount] = from.doubles[i];
+      else if (indexes != null)
+        indexes[valueCount] = from.indexes[i];
+      else
+        valueArray[valueCount] = from.valueArray[i];
+      valueCount++;
+    }
+
+    void addLong(long value) {
+      reserve(valueCount + 1);
+      longs[valueCount++] = value;
+    }
+
+    /** Use the table of a dictionary, whose values are then copied. */
+    void shareTable(DecodedBlock dictionary) {
+      table = dictionary.table;
+      tableCount = dictionary.tableCount;
+    }
+
+    void reserve(int count) {
+      int capacity = longs != null ? longs.length
+          : doubles != null ? doubles.length : indexes != null ? indexes.length : valueArray.length;
+      if (count <= capacity)
+        return;
+      capacity = Math.max(count, capacity * 2);
+      if (longs != null)
+        longs = Arrays.copyOf(longs, capacity);
+      else if (doubles != null)
+        doubles = Arrays.copyOf(doubles, capacity);
+      else if (indexes != null)
+        indexes = Arrays.copyOf(indexes, capacity);
+      else
+        valueArray = Arrays.copyOf(valueArray, capacity);
+    }
+
+    /** The value at a position, boxed. */
+    Object value(int i) {
+      switch (type) {
+      case INT:
+      case FIXED32:
+        return (int) longs[i];
+      case LONG:
+      case FIXED64:
+        return longs[i];
+      case FLOAT:
+        return (float) doubles[i];
+      case DOUBLE:
+        return doubles[i];
+      case STRING:
+        if (strings == null)
+          strings = new String[tableCount];
+        int entry = indexes[i];
+        if (strings[entry] == null)
+          strings[entry] = new String(table[entry], StandardCharsets.UTF_8);
+        return strings[entry];
+      case BYTES:
+        return ByteBuffer.wrap(table[indexes[i]]);
+      default:
+        return valueArray[i];
+      }
+    }
+
+    void addLength(int length) {
+      if (lengthCount == lengths.length)
+        lengths = Arrays.copyOf(lengths, lengthCount * 2);
+      lengths[lengthCount++] = length;
+    }
   }
 
   @Override
@@ -139,15 +484,198 @@ public class ColumnValues<T extends Comparable> implements Iterator<T>, Iterable
     if (!column.metaData.isArray())
       throw new TrevniRuntimeException("Column is not array: " + column.metaData.getName());
     assert arrayLength == 0;
+    if (decoded != null)
+      return arrayLength = decoded.lengths[decoded.lengthIndex++];
     return arrayLength = values.readLength();
   }
 
   /** Expert: Returns the next value in a column. */
   public T nextValue() throws IOException {
     arrayLength--;
+    if (decoded != null)
+      return previous = type == ValueType.NULL ? null : (T) decoded.value(decoded.valueIndex++);
     return previous = values.readValue(type);
   }
 
+  /**
+   * Read the values of the next rows of an {@link ValueType#INT} or
+   * {@link ValueType#FIXED32} column into an array, without allocating an object
+   * per value. Returns the number of values read, less than the length of the
+   * array only at the end of the column.
+   */
+  public int nextInts(int[] dst) throws IOException {
+    return nextInts(dst, 0, dst.length);
+  }
+
+  /** Read values into part of an array. See {@link #nextInts(int[])}. */
+  public int nextInts(int[] dst, int start, int len) throws IOException {
+    checkBatch(ValueType.INT, ValueType.FIXED32);
+    int count = 0;
+    for (int n; (n = startBatch(len - count)) > 0; count += n) {
+      int offset = start + count;
+      if (decoded != null)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = (int) decoded.longs[decoded.valueIndex++];
+      else if (type == ValueType.INT)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readInt();
+      else
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readFixed32();
+      row += n;
+    }
+    return count;
+  }
+
+  /**
+   * Read the values of the next rows of a {@link ValueType#LONG} or
+   * {@link ValueType#FIXED64} column into an array. See {@link #nextInts(int[])}.
+   */
+  public int nextLongs(long[] dst) throws IOException {
+    return nextLongs(dst, 0, dst.length);
+  }
+
+  /** Read values into part of an array. See {@link #nextLongs(long[])}. */
+  public int nextLongs(long[] dst, int start, int len) throws IOException {
+    checkBatch(ValueType.LONG, ValueType.FIXED64);
+    int count = 0;
+    for (int n; (n = startBatch(len - count)) > 0; count += n) {
+      int offset = start + count;
+      if (decoded != null)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = decoded.longs[decoded.valueIndex++];
+      else if (type == ValueType.LONG)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readLong();
+      else
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readFixed64();
+      row += n;
+    }
+    return count;
+  }
+
+  /**
+   * Read the values of the next rows of a {@link ValueType#FLOAT} column into an
+   * array. See {@link #nextInts(int[])}.
+   */
+  public int nextFloats(float[] dst) throws IOException {
+    return nextFloats(dst, 0, dst.length);
+  }
+
+  /** Read values into part of an array. See {@link #nextFloats(float[])}. */
+  public int nextFloats(float[] dst, int start, int len) throws IOException {
+    checkBatch(ValueType.FLOAT, ValueType.FLOAT);
+    int count = 0;
+    for (int n; (n = startBatch(len - count)) > 0; count += n) {
+      int offset = start + count;
+      if (decoded != null)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = (float) decoded.doubles[decoded.valueIndex++];
+      else
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readFloat();
+      row += n;
+    }
+    return count;
+  }
+
+  /**
+   * Read the values of the next rows of a {@link ValueType#DOUBLE} column into an
+   * array. See {@link #nextInts(int[])}.
+   */
+  public int nextDoubles(double[] dst) throws IOException {
+    return nextDoubles(dst, 0, dst.length);
+  }
+
+  /** Read values into part of an array. See {@link #nextDoubles(double[])}. */
+  public int nextDoubles(double[] dst, int start, int len) throws IOException {
+    checkBatch(ValueType.DOUBLE, ValueType.DOUBLE);
+    int count = 0;
+    for (int n; (n = startBatch(len - count)) > 0; count += n) {
+      int offset = start + count;
+      if (decoded != null)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = decoded.doubles[decoded.valueIndex++];
+      else
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readDouble();
+      row += n;
+    }
+    return count;
+  }
+
+  /**
+   * Read the values of the next rows of a {@link ValueType#BOOLEAN} column into
+   * an array. See {@link #nextInts(int[])}.
+   */
+  public int nextBooleans(boolean[] dst) throws IOException {
+    return nextBooleans(dst, 0, dst.length);
+  }
+
+  /** Read values into part of an array. See {@link #nextBooleans(boolean[])}. */
+  public int nextBooleans(boolean[] dst, int start, int len) throws IOException {
+    checkBatch(ValueType.BOOLEAN, ValueType.BOOLEAN);
+    int count = 0;
+    for (int n; (n = startBatch(len - count)) > 0; count += n) {
+      int offset = start + count;
+      if (decoded != null)
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = (Boolean) decoded.valueArray[decoded.valueIndex++];
+      else
+        for (int i = 0; i < n; i++)
+          dst[offset + i] = values.readBoolean();
+      row += n;
+    }
+    return count;
+  }
+
+  /**
+   * Replace the values of a batch with those of the next rows of a
+   * {@link ValueType#STRING} or {@link ValueType#BYTES} column, up to its
+   * capacity. The bytes of the values are copied into the batch, with no object
+   * allocated per value. Returns the number of values read, less than the
+   * capacity of the batch only at the end of the column.
+   */
+  public int nextBytes(BytesBatch batch) throws IOException {
+    checkBatch(ValueType.STRING, ValueType.BYTES);
+    batch.clear();
+    for (int n; (n = startBatch(batch.capacity() - batch.size())) > 0;) {
+      if (decoded != null) {
+        for (int i = 0; i < n; i++) {
+          byte[] bytes = decoded.table[decoded.indexes[decoded.valueIndex++]];
+          batch.add(bytes, 0, bytes.length);
+        }
+      } else {
+        for (int i = 0; i < n; i++)
+          batch.read(values);
+      }
+      row += n;
+    }
+    return batch.size();
+  }
+
+  private void checkBatch(ValueType a, ValueType b) {
+    if (column.metaData.isArray() || column.metaData.getParent() != null)
+      throw new TrevniRuntimeException("Column is array: " + column.metaData.getName());
+    if (type != a && type != b)
+      throw new TrevniRuntimeException("Column is " + type + ": " + column.metaData.getName());
+    previous = null;
+  }
+
+  // returns the number of values, at most max, that can next be read from the
+  // current block, starting the next block if the current one is exhausted
+  private int startBatch(int max) throws IOException {
+    if (max <= 0)
+      return 0;
+    while (row >= column.lastRow(block)) {
+      if (block >= column.blockCount() - 1)
+        return 0;
+      startBlock(block + 1);
+    }
+    return (int) Math.min(max, column.lastRow(block) - row);
+  }
+
   @Override
   public void remove() {
     throw new UnsupportedOperationException();
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+/** The encodings of the values in the blocks of a column. */
+class Encoding {
+  static final String PLAIN = "plain";
+  static final String DICTIONARY = "dictionary";
+  static final String RLE = "rle";
+  static final String DELTA = "delta";
+  static final String AUTO = "auto";
+
+  // written at the start of each block of an encoded column
+  static final int PLAIN_ID = 0;
+  static final int DICTIONARY_ID = 1;
+  static final int RLE_ID = 2;
+  static final int DELTA_ID = 3;
+
+  private Encoding() {
+  }
+
+  /**
+   * Return the name of a column's encoding, or null if its blocks are written
+   * plain, without an encoding. Boolean and null columns are never encoded, nor
+   * are columns of other than integers with delta.
+   */
+  static String get(ColumnMetaData meta) {
+    String name = meta.getEncoding();
+    if (name == null || PLAIN.equals(name))
+      return null;
+    if (!(DICTIONARY.equals(name) || RLE.equals(name) || DELTA.equals(name) || AUTO.equals(name)))
+      throw new TrevniRuntimeException("Unknown encoding: " + name);
+    ValueType type = meta.getType();
+    if (type == ValueType.NULL || type == ValueType.BOOLEAN)
+      return null;
+    if (DELTA.equals(name) && !isIntegral(type))
+      return null;
+    return name;
+  }
+
+  /** Return true if values of a type may be delta encoded. */
+  static boolean isIntegral(ValueType type) {
+    return type == ValueType.INT || type == ValueType.LONG || type == ValueType.FIXED32 || type == ValueType.FIXED64;
+  }
+
+}
@@ -80,6 +80,11 @@ class InputBuffer {
     return inLength;
   }
 
+  /** Returns true if all values are read, including the lengths of any run. */
+  public boolean isEnd() {
+    return tell() >= inLength && runLength == 0;
+  }
+
   public <T extends Comparable> T readValue(ValueType type) throws IOException {
     switch (type) {
     case NULL:
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link Input} for a memory-mapped file. Reads copy from the mapping,
+ * without calling the operating system, and may be made concurrently.
+ *
+ * <p>
+ * Files larger than 1GB are mapped as a sequence of 1GB regions. Each mapping
+ * overlaps the next one by 64MB, so that reads of blocks that are not larger
+ * than that are always within a single mapping. Reads that cross the end of a
+ * mapping return the bytes before it, as {@link Input} allows.
+ */
+public class InputMappedFile implements Input {
+
+  private static final long REGION_SIZE = 1L << 30;
+  private static final long OVERLAP = 1L << 26;
+
+  private final FileChannel channel;
+  private final long length;
+  private final long regionSize;
+  private final MappedByteBuffer[] mappings;
+
+  /** Construct for the given file. */
+  public InputMappedFile(File file) throws IOException {
+    this(file, REGION_SIZE, OVERLAP);
+  }
+
+  /**
+   * Maps <i>file</i> as regions of <i>regionSize</i> bytes, each mapped with the
+   * <i>overlap</i> bytes after it. For tests.
+   */
+  InputMappedFile(File file, long regionSize, long overlap) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.regionSize = regionSize;
+    try {
+      this.length = channel.size();
+      int count = (int) Math.max(1, (length + regionSize - 1) / regionSize);
+      this.mappings = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * regionSize;
+        mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize + overlap, length - start));
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(long position, byte[] b, int start, int len) throws IOException {
+    if (position >= length)
+      return -1;
+    int region = (int) (position / regionSize);
+    ByteBuffer mapping = mappings[region].duplicate();
+    int offset = (int) (position - region * regionSize);
+    int n = Math.min(len, mapping.capacity() - offset);
+    ((Buffer) mapping).position(offset);
+    mapping.get(b, start, n);
+    return n;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the mappings are released once they are garbage collected
+    channel.close();
+  }
+
+}
@@ -29,6 +29,7 @@ public class MetaData<T extends MetaData> extends LinkedHashMap<String, byte[]>
 
   static final String CODEC_KEY = RESERVED_KEY_PREFIX + "codec";
   static final String CHECKSUM_KEY = RESERVED_KEY_PREFIX + "checksum";
+  static final String ENCODING_KEY = RESERVED_KEY_PREFIX + "encoding";
 
   private MetaData<?> defaults;
 
@@ -58,6 +59,20 @@ public class MetaData<T extends MetaData> extends LinkedHashMap<String, byte[]>
     return (T) this;
   }
 
+  /** Return the value encoding name. */
+  public String getEncoding() {
+    return getString(ENCODING_KEY);
+  }
+
+  /**
+   * Set the value encoding name: "plain", "dictionary", "rle", "delta", or "auto"
+   * to choose one for each block.
+   */
+  public T setEncoding(String encoding) {
+    setReserved(ENCODING_KEY, encoding);
+    return (T) this;
+  }
+
   /** Return the value of a metadata property as a String. */
   public String getString(String key) {
     byte[] value = get(key);
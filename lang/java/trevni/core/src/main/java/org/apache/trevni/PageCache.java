@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of fixed-size pages of {@link Input}s, shared by
+ * the {@link CachedInput}s that read through it. Safe for concurrent use.
+ */
+public class PageCache {
+  /** The default page size, 1MB. */
+  public static final int DEFAULT_PAGE_SIZE = 1 << 20;
+  /** The default capacity, 64MB. */
+  public static final long DEFAULT_CAPACITY = 64L << 20;
+
+  private final int pageSize;
+  private final long capacity;
+  private final LinkedHashMap<Key, byte[]> pages = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /** Construct with the default page size and capacity. */
+  public PageCache() {
+    this(DEFAULT_PAGE_SIZE, DEFAULT_CAPACITY);
+  }
+
+  /** Construct holding at most <i>capacity</i> bytes of pages. */
+  public PageCache(int pageSize, long capacity) {
+    if (pageSize <= 0)
+      throw new TrevniRuntimeException("Invalid page size: " + pageSize);
+    if (capacity < pageSize)
+      throw new TrevniRuntimeException("Capacity smaller than a page: " + capacity);
+    this.pageSize = pageSize;
+    this.capacity = capacity;
+  }
+
+  /** Return the size of pages. */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /** Return the number of reads of pages that were cached. */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /** Return the number of reads of pages that were not cached. */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /** Return the number of pages removed to make room for others. */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /** Return the number of bytes of pages cached. */
+  public synchronized long size() {
+    return size;
+  }
+
+  /** Return a cached page, or null, counting a hit or a miss. */
+  synchronized byte[] get(Object input, long page) {
+    byte[] result = pages.get(new Key(input, page));
+    if (result != null)
+      hits++;
+    else
+      misses++;
+    return result;
+  }
+
+  /** Add a page, removing the least recently used ones to make room. */
+  synchronized void put(Object input, long page, byte[] data) {
+    byte[] previous = pages.put(new Key(input, page), data);
+    size += data.length - (previous != null ? previous.length : 0);
+    Iterator<byte[]> eldest = pages.values().iterator();
+    while (size > capacity && eldest.hasNext()) {
+      size -= eldest.next().length;
+      eldest.remove();
+      evictions++;
+    }
+  }
+
+  /** Remove the pages of an input. */
+  synchronized void remove(Object input) {
+    Iterator<Map.Entry<Key, byte[]>> i = pages.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<Key, byte[]> entry = i.next();
+      if (entry.getKey().input == input) {
+        size -= entry.getValue().length;
+        i.remove();
+      }
+    }
+  }
+
+  private static final class Key {
+    private final Object input;
+    private final long page;
+
+    Key(Object input, long page) {
+      this.input = input;
+      this.page = page;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key))
+        return false;
+      Key that = (Key) o;
+      return input == that.input && page == that.page;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(input) + Long.hashCode(page);
+    }
+  }
+
+}
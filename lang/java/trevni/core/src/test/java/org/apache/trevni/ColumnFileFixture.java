@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** Writes the column files that the tests of this package read. */
+final class ColumnFileFixture {
+
+  /** Writes the values of a row. */
+  interface RowWriter {
+    void write(ColumnFileWriter writer, int row) throws IOException;
+  }
+
+  private ColumnFileFixture() {
+  }
+
+  /** Returns a file of rows, each written between startRow() and endRow(). */
+  static byte[] write(ColumnFileMetaData meta, ColumnMetaData[] columns, int count, RowWriter rows) throws IOException {
+    ColumnFileWriter writer = new ColumnFileWriter(meta, columns);
+    for (int i = 0; i < count; i++) {
+      writer.startRow();
+      rows.write(writer, i);
+      writer.endRow();
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.writeTo(out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestCachedInput {
+  private static final int COUNT = 30000;
+
+  /** Counts the reads made of the bytes. */
+  private static class CountingInput extends InputBytes {
+    int reads;
+
+    CountingInput(byte[] data) {
+      super(data);
+    }
+
+    @Override
+    public int read(long pos, byte[] b, int start, int len) throws IOException {
+      reads++;
+      return super.read(pos, b, start, len);
+    }
+  }
+
+  private static byte[] random(int length) {
+    byte[] data = new byte[length];
+    new Random(42).nextBytes(data);
+    return data;
+  }
+
+  @Test
+  void readsMatchInput() throws Exception {
+    byte[] data = random(10000);
+    try (CachedInput in = new CachedInput(new InputBytes(data), new PageCache(1024, 4096))) {
+      assertEquals(data.length, in.length());
+      for (long position : new long[] { 0, 1000, 1023, 5000, 9999 }) {
+        byte[] b = new byte[3000];
+        int n = in.read(position, b, 0, b.length);
+        assertEquals(Math.min(b.length, data.length - position), n);
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, (int) position + n), Arrays.copyOf(b, n));
+      }
+      assertEquals(-1, in.read(data.length, new byte[1], 0, 1));
+    }
+  }
+
+  @Test
+  void hitsAndMisses() throws Exception {
+    CountingInput counting = new CountingInput(random(10000));
+    PageCache cache = new PageCache(1024, 1 << 20);
+    try (CachedInput in = new CachedInput(counting, cache)) {
+      byte[] b = new byte[10];
+      in.read(0, b, 0, b.length);
+      assertEquals(0, cache.getHits());
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, counting.reads);
+
+      in.read(100, b, 0, b.length); // same page
+      assertEquals(1, cache.getHits());
+      assertEquals(1, counting.reads);
+
+      in.read(1020, b, 0, b.length); // spans two pages
+      assertEquals(2, cache.getHits());
+      assertEquals(2, cache.getMisses());
+      assertEquals(2, counting.reads);
+      assertEquals(2048, cache.size());
+
+      in.read(9990, b, 0, b.length); // the last, short page
+      assertEquals(2048 + 10000 - 9 * 1024, cache.size());
+    }
+  }
+
+  @Test
+  void evictions() throws Exception {
+    PageCache cache = new PageCache(1024, 2048);
+    try (CachedInput in = new CachedInput(new InputBytes(random(10000)), cache)) {
+      byte[] b = new byte[1];
+      in.read(0, b, 0, 1);
+      in.read(1024, b, 0, 1);
+      in.read(0, b, 0, 1); // page 0 is now the most recently used
+      in.read(2048, b, 0, 1); // evicts page 1
+      assertEquals(1, cache.getEvictions());
+      assertEquals(2048, cache.size());
+      long misses = cache.getMisses();
+      in.read(0, b, 0, 1);
+      assertEquals(misses, cache.getMisses());
+      in.read(1024, b, 0, 1);
+      assertEquals(misses + 1, cache.getMisses());
+      assertEquals(2, cache.getEvictions());
+    }
+  }
+
+  @Test
+  void sharedCache() throws Exception {
+    byte[] a = random(5000);
+    byte[] b = new byte[5000];
+    Arrays.fill(b, (byte) 7);
+    PageCache cache = new PageCache(1024, 1 << 20);
+    CachedInput inA = new CachedInput(new InputBytes(a), cache);
+    CachedInput inB = new CachedInput(new InputBytes(b), cache);
+    assertSame(cache, inA.getCache());
+
+    byte[] readA = new byte[5000];
+    byte[] readB = new byte[5000];
+    inA.read(0, readA, 0, readA.length);
+    inB.read(0, readB, 0, readB.length);
+    assertArrayEquals(a, readA); // pages of different inputs are distinct
+    assertArrayEquals(b, readB);
+    assertEquals(10000, cache.size());
+
+    inA.close(); // removes only the pages of the input closed
+    assertEquals(5000, cache.size());
+    long misses = cache.getMisses();
+    inB.read(0, readB, 0, readB.length);
+    assertEquals(misses, cache.getMisses());
+    inB.close();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  void invalidCache() {
+    assertThrows(TrevniRuntimeException.class, () -> new PageCache(0, 1024));
+    assertThrows(TrevniRuntimeException.class, () -> new PageCache(1024, 1000));
+  }
+
+  @Test
+  void defaultCache() throws Exception {
+    try (CachedInput in = new CachedInput(new InputBytes(new byte[10]))) {
+      assertEquals(PageCache.DEFAULT_PAGE_SIZE, in.getCache().getPageSize());
+    }
+  }
+
+  @Test
+  void columnFile() throws Exception {
+    ColumnMetaData[] columns = { new ColumnMetaData("i", ValueType.INT), new ColumnMetaData("s", ValueType.STRING) };
+    byte[] file = ColumnFileFixture.write(new ColumnFileMetaData(), columns, COUNT, (writer, i) -> {
+      writer.writeValue(i, 0);
+      writer.writeValue("value-" + i, 1);
+    });
+
+    CountingInput counting = new CountingInput(file);
+    PageCache cache = new PageCache(4096, 1 << 20);
+    try (ColumnFileReader reader = new ColumnFileReader(new CachedInput(counting, cache))) {
+      ColumnValues<Integer> ints = reader.getValues("i");
+      ColumnValues<String> strings = reader.getValues("s");
+      for (int i = 0; i < COUNT; i++) {
+        assertEquals(i, (int) ints.next());
+        assertEquals("value-" + i, strings.next());
+      }
+      // each page is read once
+      assertEquals((file.length + 4095) / 4096, counting.reads);
+      assertTrue(cache.getHits() > 0);
+    }
+    assertEquals(0, cache.size());
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestColumnFileRowGroups {
+  private static final int COUNT = 50000;
+
+  @TempDir
+  File dir;
+
+  private static ColumnMetaData[] columns() {
+    ColumnMetaData id = new ColumnMetaData("id", ValueType.LONG).hasIndexValues(true);
+    ColumnMetaData name = new ColumnMetaData("name", ValueType.STRING);
+    ColumnMetaData ints = new ColumnMetaData("ints", ValueType.INT).isArray(true);
+    return new ColumnMetaData[] { id, name, ints };
+  }
+
+  private static void writeRow(ColumnFileWriter writer, int i) throws IOException {
+    writer.writeValue((long) i * 2, 0);
+    writer.writeValue("row-" + i, 1);
+    writer.writeLength(i % 3, 2);
+    for (int j = 0; j < i % 3; j++)
+      writer.writeValue(i + j, 2);
+  }
+
+  private static void writeRows(ColumnFileWriter writer) throws IOException {
+    for (int i = 0; i < COUNT; i++) {
+      writer.startRow();
+      writeRow(writer, i);
+      writer.endRow();
+    }
+  }
+
+  private static byte[] writePlain() throws IOException {
+    return ColumnFileFixture.write(new ColumnFileMetaData(), columns(), COUNT, TestColumnFileRowGroups::writeRow);
+  }
+
+  private static byte[] writeRowGroups(long rowGroupSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnFileWriter writer = new ColumnFileWriter(out, new ColumnFileMetaData(), columns());
+    writer.setRowGroupSize(rowGroupSize);
+    writeRows(writer);
+    writer.close();
+    return out.toByteArray();
+  }
+
+  private static void checkRows(ColumnFileReader reader) throws IOException {
+    assertEquals(COUNT, reader.getRowCount());
+    assertEquals(3, reader.getColumnCount());
+    ColumnValues<Long> ids = reader.getValues("id");
+    ColumnValues<String> names = reader.getValues("name");
+    ColumnValues<Integer> ints = reader.getValues("ints");
+    for (int i = 0; i < COUNT; i++) {
+      assertTrue(ids.hasNext());
+      assertEquals((long) i * 2, (long) ids.next());
+      assertEquals("row-" + i, names.next());
+      ints.startRow();
+      assertEquals(i % 3, ints.nextLength());
+      for (int j = 0; j < i % 3; j++)
+        assertEquals(i + j, (int) ints.nextValue());
+    }
+    assertFalse(ids.hasNext());
+    assertFalse(names.hasNext());
+  }
+
+  @Test
+  void plainFile() throws Exception {
+    byte[] bytes = writePlain();
+    assertArrayEquals(ColumnFileWriter.MAGIC, Arrays.copyOf(bytes, 4));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      checkRows(reader);
+    }
+  }
+
+  @Test
+  void rowGroupFile() throws Exception {
+    byte[] bytes = writeRowGroups(100 * 1024);
+    assertArrayEquals(ColumnFileWriter.MAGIC_ROW_GROUPS, Arrays.copyOf(bytes, 4));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      checkRows(reader);
+    }
+  }
+
+  @Test
+  void singleRowGroup() throws Exception {
+    byte[] bytes = writeRowGroups(ColumnFileWriter.DEFAULT_ROW_GROUP_SIZE);
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      checkRows(reader);
+    }
+  }
+
+  @Test
+  void rowGroupFileOnDisk() throws Exception {
+    File file = new File(dir, "groups.trv");
+    try (OutputStream out = new FileOutputStream(file)) {
+      ColumnFileWriter writer = new ColumnFileWriter(out, new ColumnFileMetaData(), columns());
+      writer.setRowGroupSize(1);
+      writeRows(writer);
+      writer.close();
+    }
+    try (ColumnFileReader reader = new ColumnFileReader(file)) {
+      checkRows(reader);
+    }
+  }
+
+  @Test
+  void rowGroupsWrittenBeforeClose() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnFileWriter writer = new ColumnFileWriter(out, new ColumnFileMetaData(), columns());
+    writer.setRowGroupSize(1);
+    writeRows(writer);
+    int written = out.size();
+    assertTrue(written > 64 * 1024, "written before close: " + written);
+    writer.close();
+    assertTrue(out.size() > written);
+  }
+
+  @Test
+  void emptyRowGroupFile() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new ColumnFileWriter(out, new ColumnFileMetaData(), columns()).close();
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(out.toByteArray()))) {
+      assertEquals(0, reader.getRowCount());
+      assertFalse(reader.getValues("id").hasNext());
+    }
+  }
+
+  @Test
+  void seekRow() throws Exception {
+    for (byte[] bytes : new byte[][] { writePlain(), writeRowGroups(1) }) {
+      try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+        ColumnValues<String> names = reader.getValues("name");
+        for (long r : new long[] { 40000, 7, COUNT - 1, 25000 }) {
+          names.seek(r);
+          assertEquals(r, names.getRow());
+          assertEquals("row-" + r, names.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  void seekValue() throws Exception {
+    for (byte[] bytes : new byte[][] { writePlain(), writeRowGroups(1) }) {
+      try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+        ColumnValues<Long> ids = reader.getValues("id");
+        for (long v : new long[] { 60000L, 11L, 30001L, 99998L }) {
+          ids.seek(Long.valueOf(v)); // not seek(long), which seeks to a row
+          long expected = (v + 1) / 2 * 2; // the first even id not less than v
+          assertEquals(expected / 2, ids.getRow());
+          assertEquals(expected, (long) ids.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  void metaDataRoundTrip() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnFileMetaData meta = new ColumnFileMetaData().setCodec("deflate").setChecksum("crc32");
+    meta.set("user", "value");
+    ColumnFileWriter writer = new ColumnFileWriter(out, meta, columns());
+    writeRows(writer);
+    writer.close();
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(out.toByteArray()))) {
+      assertEquals("deflate", reader.getMetaData().getCodec());
+      assertEquals("value", reader.getMetaData().getString("user"));
+      assertTrue(reader.getColumnMetaData("ints").isArray());
+      assertTrue(reader.getColumnMetaData("id").hasIndexValues());
+      checkRows(reader);
+    }
+  }
+
+  @Test
+  void notADataFile() {
+    byte[] bytes = new byte[] { 'T', 'r', 'v', 9, 0, 0, 0, 0 };
+    IOException e = assertThrows(IOException.class, () -> new ColumnFileReader(new InputBytes(bytes)));
+    assertEquals("Not a data file.", e.getMessage());
+  }
+
+  @Test
+  void invalidRowGroupSize() throws Exception {
+    ColumnFileWriter writer = new ColumnFileWriter(new ByteArrayOutputStream(), new ColumnFileMetaData(), columns());
+    assertThrows(TrevniRuntimeException.class, () -> writer.setRowGroupSize(0));
+  }
+
+  @Test
+  void rowGroupsOnlyWhenStreaming() throws Exception {
+    ColumnFileWriter plain = new ColumnFileWriter(new ColumnFileMetaData(), columns());
+    assertThrows(TrevniRuntimeException.class, plain::flushRowGroup);
+
+    ColumnFileWriter streaming = new ColumnFileWriter(new ByteArrayOutputStream(), new ColumnFileMetaData(), columns());
+    assertThrows(TrevniRuntimeException.class, () -> streaming.writeTo(new ByteArrayOutputStream()));
+  }
+
+}
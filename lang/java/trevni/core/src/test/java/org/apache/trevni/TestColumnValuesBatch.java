@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class TestColumnValuesBatch {
+  private static final int COUNT = 30000;
+  private static final int BATCH = 777; // not a divisor of the rows of a block
+
+  private static ColumnMetaData[] columns() {
+    return new ColumnMetaData[] { new ColumnMetaData("int", ValueType.INT),
+        new ColumnMetaData("fixed32", ValueType.FIXED32), new ColumnMetaData("long", ValueType.LONG),
+        new ColumnMetaData("fixed64", ValueType.FIXED64), new ColumnMetaData("float", ValueType.FLOAT),
+        new ColumnMetaData("double", ValueType.DOUBLE), new ColumnMetaData("boolean", ValueType.BOOLEAN),
+        new ColumnMetaData("string", ValueType.STRING), new ColumnMetaData("bytes", ValueType.BYTES),
+        new ColumnMetaData("ints", ValueType.INT).isArray(true) };
+  }
+
+  private static byte[] bytes(int i) {
+    return new byte[] { (byte) i, (byte) (i >> 8), (byte) (i >> 16) };
+  }
+
+  private static byte[] write(ColumnFileMetaData meta) throws IOException {
+    return ColumnFileFixture.write(meta, columns(), COUNT, (writer, i) -> {
+      writer.writeValue(i - COUNT / 2, 0);
+      writer.writeValue(i * 31, 1);
+      writer.writeValue((long) i << 33, 2);
+      writer.writeValue((long) -i, 3);
+      writer.writeValue(i / 4.0f, 4);
+      writer.writeValue(i / 8.0, 5);
+      writer.writeValue(i % 3 == 0, 6);
+      writer.writeValue("string-" + i, 7);
+      writer.writeValue(ByteBuffer.wrap(bytes(i)), 8);
+      writer.writeLength(1, 9);
+      writer.writeValue(i, 9);
+    });
+  }
+
+  private static void checkBatches(ColumnFileReader reader) throws IOException {
+    int[] ints = new int[BATCH];
+    int[] fixed32s = new int[BATCH];
+    long[] longs = new long[BATCH];
+    long[] fixed64s = new long[BATCH];
+    float[] floats = new float[BATCH];
+    double[] doubles = new double[BATCH];
+    boolean[] booleans = new boolean[BATCH];
+    BytesBatch strings = new BytesBatch(BATCH);
+    BytesBatch bytes = new BytesBatch(BATCH);
+    ColumnValues<?>[] values = new ColumnValues<?>[9];
+    for (int c = 0; c < values.length; c++)
+      values[c] = reader.getValues(c);
+
+    int row = 0;
+    while (row < COUNT) {
+      int n = values[0].nextInts(ints);
+      assertEquals(Math.min(BATCH, COUNT - row), n);
+      assertEquals(n, values[1].nextInts(fixed32s));
+      assertEquals(n, values[2].nextLongs(longs));
+      assertEquals(n, values[3].nextLongs(fixed64s));
+      assertEquals(n, values[4].nextFloats(floats));
+      assertEquals(n, values[5].nextDoubles(doubles));
+      assertEquals(n, values[6].nextBooleans(booleans));
+      assertEquals(n, values[7].nextBytes(strings));
+      assertEquals(n, values[8].nextBytes(bytes));
+      for (int j = 0; j < n; j++, row++) {
+        assertEquals(row - COUNT / 2, ints[j]);
+        assertEquals(row * 31, fixed32s[j]);
+        assertEquals((long) row << 33, longs[j]);
+        assertEquals(-row, fixed64s[j]);
+        assertEquals(row / 4.0f, floats[j]);
+        assertEquals(row / 8.0, doubles[j]);
+        assertEquals(row % 3 == 0, booleans[j]);
+        assertEquals("string-" + row, strings.getString(j));
+        assertArrayEquals(bytes(row), toArray(bytes.getByteBuffer(j)));
+      }
+      assertEquals(row, values[0].getRow());
+    }
+    assertEquals(0, values[0].nextInts(ints));
+    assertEquals(0, values[7].nextBytes(strings));
+    assertEquals(0, strings.size());
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+
+  @Test
+  void batches() throws Exception {
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(write(new ColumnFileMetaData())))) {
+      checkBatches(reader);
+    }
+  }
+
+  @Test
+  void batchesCompressed() throws Exception {
+    byte[] file = write(new ColumnFileMetaData().setCodec("deflate").setChecksum("crc32"));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(file))) {
+      checkBatches(reader);
+    }
+  }
+
+  @Test
+  void batchesOnExecutor() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(write(new ColumnFileMetaData())))) {
+      // values decoded ahead are read from arrays rather than from buffers
+      int[] ints = new int[BATCH];
+      BytesBatch strings = new BytesBatch(BATCH);
+      ColumnValues<Integer> intValues = reader.getValues("int");
+      ColumnValues<String> stringValues = reader.getValues("string");
+      intValues.setExecutor(pool);
+      stringValues.setExecutor(pool);
+      for (int row = 0; row < COUNT;) {
+        int n = intValues.nextInts(ints);
+        assertEquals(n, stringValues.nextBytes(strings));
+        for (int j = 0; j < n; j++, row++) {
+          assertEquals(row - COUNT / 2, ints[j]);
+          assertEquals("string-" + row, strings.getString(j));
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void mixedWithValues() throws Exception {
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(write(new ColumnFileMetaData())))) {
+      ColumnValues<Long> values = reader.getValues("long");
+      long[] longs = new long[BATCH];
+      assertEquals(0L, (long) values.next());
+      assertEquals(BATCH, values.nextLongs(longs, 0, BATCH));
+      assertEquals(1L << 33, longs[0]);
+      assertEquals(((long) BATCH + 1) << 33, (long) values.next());
+
+      values.seek(25000);
+      assertEquals(3, values.nextLongs(longs, 10, 3));
+      assertEquals(25000L << 33, longs[10]);
+      assertEquals(25002L << 33, longs[12]);
+      assertEquals(25003L << 33, (long) values.next());
+    }
+  }
+
+  @Test
+  void wrongColumns() throws Exception {
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(write(new ColumnFileMetaData())))) {
+      assertThrows(TrevniRuntimeException.class, () -> reader.getValues("long").nextInts(new int[1]));
+      assertThrows(TrevniRuntimeException.class, () -> reader.getValues("int").nextBytes(new BytesBatch(1)));
+      assertThrows(TrevniRuntimeException.class, () -> reader.getValues("ints").nextInts(new int[1]));
+    }
+  }
+
+  @Test
+  void bytesBatch() {
+    BytesBatch batch = new BytesBatch(3);
+    assertEquals(3, batch.capacity());
+    byte[] big = new byte[5000]; // larger than the initial array
+    big[4999] = 9;
+    batch.add("ab".getBytes(StandardCharsets.UTF_8), 0, 2);
+    batch.add(big, 0, big.length);
+    batch.add("xyz".getBytes(StandardCharsets.UTF_8), 1, 2);
+    assertEquals(3, batch.size());
+    assertEquals("ab", batch.getString(0));
+    assertEquals(2, batch.getOffset(1));
+    assertEquals(5000, batch.getLength(1));
+    assertEquals(9, batch.getByteBuffer(1).get(4999));
+    assertEquals("yz", batch.getString(2));
+    assertEquals(5004, batch.getOffsets()[3]);
+    assertThrows(TrevniRuntimeException.class, () -> batch.add(big, 0, 1));
+
+    batch.clear();
+    assertEquals(0, batch.size());
+    batch.add(big, 4999, 1);
+    assertEquals(9, batch.getBytes()[batch.getOffset(0)]);
+    assertThrows(TrevniRuntimeException.class, () -> new BytesBatch(0));
+  }
+
+}
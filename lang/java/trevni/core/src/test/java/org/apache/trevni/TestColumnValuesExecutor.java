@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestColumnValuesExecutor {
+  private static final int COUNT = 30000;
+
+  private ExecutorService pool;
+  private AtomicInteger tasks;
+
+  @BeforeEach
+  void createPool() {
+    pool = Executors.newFixedThreadPool(2);
+    tasks = new AtomicInteger();
+  }
+
+  @AfterEach
+  void shutdownPool() {
+    pool.shutdownNow();
+  }
+
+  private void execute(Runnable task) {
+    tasks.incrementAndGet();
+    pool.execute(task);
+  }
+
+  private static ColumnMetaData[] columns() {
+    return new ColumnMetaData[] { new ColumnMetaData("int", ValueType.INT), new ColumnMetaData("long", ValueType.LONG),
+        new ColumnMetaData("string", ValueType.STRING), new ColumnMetaData("bytes", ValueType.BYTES),
+        new ColumnMetaData("boolean", ValueType.BOOLEAN), new ColumnMetaData("null", ValueType.NULL),
+        new ColumnMetaData("ints", ValueType.INT).isArray(true),
+        new ColumnMetaData("booleans", ValueType.BOOLEAN).isArray(true) };
+  }
+
+  private static byte[] write(ColumnFileMetaData meta) throws IOException {
+    return ColumnFileFixture.write(meta, columns(), COUNT, (writer, i) -> {
+      writer.writeValue(i, 0);
+      writer.writeValue((long) i << 20, 1);
+      writer.writeValue("string-" + i, 2);
+      writer.writeValue(ByteBuffer.wrap(new byte[] { (byte) i, (byte) (i >> 8) }), 3);
+      writer.writeValue(i % 3 == 0, 4);
+      writer.writeValue(null, 5);
+      writer.writeLength(i % 4, 6);
+      for (int j = 0; j < i % 4; j++)
+        writer.writeValue(i + j, 6);
+      writer.writeLength(i % 5, 7);
+      for (int j = 0; j < i % 5; j++)
+        writer.writeValue(j % 2 == 0, 7);
+    });
+  }
+
+  private static List<Object> readAll(ColumnValues<?> values, boolean array) throws IOException {
+    List<Object> result = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      values.startRow();
+      int length = array ? values.nextLength() : 1;
+      if (array)
+        result.add(length);
+      for (int j = 0; j < length; j++)
+        result.add(values.nextValue());
+    }
+    return result;
+  }
+
+  private void checkSameValues(byte[] bytes) throws IOException {
+    try (ColumnFileReader plain = new ColumnFileReader(new InputBytes(bytes));
+        ColumnFileReader ahead = new ColumnFileReader(new InputBytes(bytes))) {
+      for (int c = 0; c < plain.getColumnCount(); c++) {
+        boolean array = plain.getColumnMetaData(c).isArray();
+        ColumnValues<?> values = ahead.getValues(c);
+        values.setExecutor(this::execute);
+        assertEquals(readAll(plain.getValues(c), array), readAll(values, array), plain.getColumnMetaData(c).getName());
+      }
+    }
+    assertTrue(tasks.get() > columns().length, "blocks read ahead: " + tasks.get());
+  }
+
+  @Test
+  void sameValues() throws Exception {
+    checkSameValues(write(new ColumnFileMetaData()));
+  }
+
+  @Test
+  void sameValuesCompressed() throws Exception {
+    checkSameValues(write(new ColumnFileMetaData().setCodec("deflate").setChecksum("crc32")));
+  }
+
+  @Test
+  void sameValuesRowGroups() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnFileWriter writer = new ColumnFileWriter(out, new ColumnFileMetaData(),
+        new ColumnMetaData("string", ValueType.STRING));
+    writer.setRowGroupSize(1);
+    for (int i = 0; i < COUNT; i++)
+      writer.writeRow("string-" + i);
+    writer.close();
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(out.toByteArray()))) {
+      ColumnValues<String> values = reader.getValues(0);
+      values.setExecutor(this::execute);
+      for (int i = 0; i < COUNT; i++)
+        assertEquals("string-" + i, values.next());
+    }
+  }
+
+  @Test
+  void seek() throws Exception {
+    byte[] bytes = write(new ColumnFileMetaData());
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      ColumnValues<String> values = reader.getValues("string");
+      values.setExecutor(this::execute);
+      // forwards past the block read ahead, backwards, then into the next block
+      for (long r : new long[] { 5, 25000, 100, 101, 12000, COUNT - 1 }) {
+        values.seek(r);
+        assertEquals("string-" + r, values.next());
+      }
+    }
+  }
+
+  @Test
+  void corruptBlock() throws Exception {
+    ColumnFileMetaData meta = new ColumnFileMetaData().setChecksum("crc32");
+    byte[] bytes = ColumnFileFixture.write(meta,
+        new ColumnMetaData[] { new ColumnMetaData("string", ValueType.STRING) }, COUNT,
+        (writer, i) -> writer.writeValue("string-" + i, 0));
+    bytes[bytes.length - 10] ^= 1; // in the last block
+
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      ColumnValues<String> values = reader.getValues(0);
+      values.setExecutor(this::execute);
+      TrevniRuntimeException e = assertThrows(TrevniRuntimeException.class, () -> {
+        while (values.hasNext())
+          values.next();
+      });
+      assertEquals("Checksums mismatch.", e.getCause().getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class TestEncodings {
+  private static final int COUNT = 20000;
+
+  private static final ValueType[] TYPES = { ValueType.INT, ValueType.LONG, ValueType.FIXED32, ValueType.FIXED64,
+      ValueType.FLOAT, ValueType.DOUBLE, ValueType.STRING, ValueType.BYTES, ValueType.BOOLEAN, ValueType.NULL };
+
+  private static final String[] PATTERNS = { "runs", "cycle", "sequence", "random" };
+
+  /** Returns the numbers of a pattern, which values of each type are made of. */
+  private static long[] numbers(String pattern) {
+    long[] result = new long[COUNT];
+    Random random = new Random(42);
+    for (int i = 0; i < COUNT; i++) {
+      switch (pattern) {
+      case "runs":
+        result[i] = i / 50;
+        break;
+      case "cycle":
+        result[i] = i % 7;
+        break;
+      case "sequence":
+        result[i] = 1000L + i * 3L;
+        break;
+      default:
+        result[i] = i % 100 == 0 ? (i % 200 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE) : random.nextLong();
+      }
+    }
+    return result;
+  }
+
+  private static Object value(ValueType type, long n) {
+    switch (type) {
+    case INT:
+    case FIXED32:
+      return (int) n;
+    case LONG:
+    case FIXED64:
+      return n;
+    case FLOAT:
+      return (float) n;
+    case DOUBLE:
+      return n / 2.0;
+    case STRING:
+      return "v" + n;
+    case BYTES:
+      return ByteBuffer.wrap(("v" + n).getBytes(StandardCharsets.UTF_8));
+    case BOOLEAN:
+      return (n & 1) == 0;
+    default:
+      return null;
+    }
+  }
+
+  private static ColumnMetaData[] columns(String encoding) {
+    List<ColumnMetaData> result = new ArrayList<>();
+    for (ValueType type : TYPES)
+      for (String pattern : PATTERNS) {
+        result.add(new ColumnMetaData(type + "-" + pattern, type).setEncoding(encoding));
+        result.add(new ColumnMetaData(type + "-" + pattern + "[]", type).isArray(true).setEncoding(encoding));
+      }
+    return result.toArray(new ColumnMetaData[0]);
+  }
+
+  private static byte[] write(ColumnFileMetaData meta, ColumnMetaData... columns) throws IOException {
+    List<long[]> numbers = new ArrayList<>();
+    for (ColumnMetaData c : columns)
+      numbers.add(numbers(pattern(c)));
+    return ColumnFileFixture.write(meta, columns, COUNT, (writer, i) -> {
+      for (int c = 0; c < columns.length; c++) {
+        ValueType type = columns[c].getType();
+        long n = numbers.get(c)[i];
+        if (columns[c].isArray()) {
+          writer.writeLength(i % 3, c);
+          for (int j = 0; j < i % 3; j++)
+            writer.writeValue(value(type, n), c);
+        } else {
+          writer.writeValue(value(type, n), c);
+        }
+      }
+    });
+  }
+
+  private static String pattern(ColumnMetaData c) {
+    String name = c.getName();
+    return name.substring(name.indexOf('-') + 1).replace("[]", "");
+  }
+
+  private static void checkValues(ColumnFileReader reader, boolean ahead) throws IOException {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      for (ColumnMetaData c : reader.getColumnMetaData()) {
+        ValueType type = c.getType();
+        long[] numbers = numbers(pattern(c));
+        ColumnValues<?> values = reader.getValues(c.getName());
+        if (ahead)
+          values.setExecutor(pool);
+        for (int i = 0; i < COUNT; i++) {
+          Object expected = value(type, numbers[i]);
+          if (c.isArray()) {
+            values.startRow();
+            assertEquals(i % 3, values.nextLength(), c.getName());
+            for (int j = 0; j < i % 3; j++)
+              assertEquals(expected, values.nextValue(), c.getName());
+          } else {
+            assertEquals(expected, values.next(), c.getName() + " row " + i);
+          }
+        }
+        assertTrue(!values.hasNext(), c.getName());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "plain", "dictionary", "rle", "delta", "auto" })
+  void roundTrip(String encoding) throws Exception {
+    byte[] bytes = write(new ColumnFileMetaData(), columns(encoding));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      assertEquals(encoding, reader.getColumnMetaData("INT-runs").getEncoding());
+      checkValues(reader, false);
+      checkValues(reader, true);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "dictionary", "rle", "delta", "auto" })
+  void roundTripCompressed(String encoding) throws Exception {
+    byte[] bytes = write(new ColumnFileMetaData().setCodec("deflate").setChecksum("crc32"), columns(encoding));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      checkValues(reader, false);
+    }
+  }
+
+  @Test
+  void fileDefault() throws Exception {
+    ColumnMetaData column = new ColumnMetaData("LONG-sequence", ValueType.LONG);
+    byte[] bytes = write(new ColumnFileMetaData().setEncoding("delta"), column);
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      assertEquals("delta", reader.getMetaData().getEncoding());
+      assertNull(reader.getColumnMetaData(0).get(MetaData.ENCODING_KEY));
+      checkValues(reader, false);
+    }
+    assertTrue(bytes.length < size("plain", ValueType.LONG, "sequence") / 10);
+  }
+
+  @Test
+  void rowGroups() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ColumnFileWriter writer = new ColumnFileWriter(out, new ColumnFileMetaData().setEncoding("auto"),
+        new ColumnMetaData("STRING-cycle", ValueType.STRING), new ColumnMetaData("LONG-sequence", ValueType.LONG));
+    writer.setRowGroupSize(1);
+    long[] cycle = numbers("cycle");
+    long[] sequence = numbers("sequence");
+    for (int i = 0; i < COUNT; i++)
+      writer.writeRow(value(ValueType.STRING, cycle[i]), sequence[i]);
+    writer.close();
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(out.toByteArray()))) {
+      checkValues(reader, false);
+    }
+  }
+
+  private static int size(String encoding, ValueType type, String pattern) throws IOException {
+    return write(new ColumnFileMetaData(), new ColumnMetaData(type + "-" + pattern, type).setEncoding(encoding)).length;
+  }
+
+  @Test
+  void smallerThanPlain() throws Exception {
+    assertTrue(size("dictionary", ValueType.STRING, "cycle") < size("plain", ValueType.STRING, "cycle") / 2);
+    assertTrue(size("rle", ValueType.DOUBLE, "runs") < size("plain", ValueType.DOUBLE, "runs") / 10);
+    assertTrue(size("delta", ValueType.FIXED64, "sequence") < size("plain", ValueType.FIXED64, "sequence") / 10);
+    assertTrue(size("auto", ValueType.STRING, "cycle") <= size("dictionary", ValueType.STRING, "cycle"));
+    assertTrue(size("auto", ValueType.INT, "sequence") <= size("delta", ValueType.INT, "sequence"));
+    // plain is chosen when nothing is smaller, at the cost of a block header
+    assertTrue(size("auto", ValueType.LONG, "random") <= size("plain", ValueType.LONG, "random") + 100);
+  }
+
+  @Test
+  void notEncoded() throws Exception {
+    // booleans and nulls are never encoded, nor are values other than integers
+    // with delta: files differ only by the name of the encoding in the metadata
+    assertEquals(size("plain", ValueType.BOOLEAN, "cycle") - "plain".length() + "rle".length(),
+        size("rle", ValueType.BOOLEAN, "cycle"));
+    assertEquals(size("plain", ValueType.STRING, "sequence") - "plain".length() + "delta".length(),
+        size("delta", ValueType.STRING, "sequence"));
+  }
+
+  private static final int BATCH = 777;
+
+  @ParameterizedTest
+  @ValueSource(strings = { "dictionary", "rle", "delta", "auto" })
+  void batches(String encoding) throws Exception {
+    List<ColumnMetaData> columns = new ArrayList<>();
+    for (ValueType type : TYPES)
+      if (type != ValueType.BOOLEAN && type != ValueType.NULL)
+        for (String pattern : PATTERNS)
+          columns.add(new ColumnMetaData(type + "-" + pattern, type).setEncoding(encoding));
+    byte[] bytes = write(new ColumnFileMetaData(), columns.toArray(new ColumnMetaData[0]));
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      for (ColumnMetaData c : reader.getColumnMetaData()) {
+        ValueType type = c.getType();
+        long[] numbers = numbers(pattern(c));
+        ColumnValues<?> values = reader.getValues(c.getName());
+        long[] longs = new long[BATCH];
+        int[] ints = new int[BATCH];
+        double[] doubles = new double[BATCH];
+        float[] floats = new float[BATCH];
+        BytesBatch batch = new BytesBatch(BATCH);
+        for (int row = 0; row < COUNT;) {
+          int n;
+          switch (type) {
+          case INT:
+          case FIXED32:
+            n = values.nextInts(ints);
+            for (int j = 0; j < n; j++)
+              longs[j] = ints[j];
+            break;
+          case LONG:
+          case FIXED64:
+            n = values.nextLongs(longs);
+            break;
+          case FLOAT:
+            n = values.nextFloats(floats);
+            for (int j = 0; j < n; j++)
+              doubles[j] = floats[j];
+            break;
+          case DOUBLE:
+            n = values.nextDoubles(doubles);
+            break;
+          default:
+            n = values.nextBytes(batch);
+          }
+          assertEquals(Math.min(BATCH, COUNT - row), n, c.getName());
+          for (int j = 0; j < n; j++, row++) {
+            Object expected = value(type, numbers[row]);
+            if (type == ValueType.INT || type == ValueType.FIXED32)
+              assertEquals(expected, (int) longs[j], c.getName() + " row " + row);
+            else if (type == ValueType.LONG || type == ValueType.FIXED64)
+              assertEquals(expected, longs[j], c.getName() + " row " + row);
+            else if (type == ValueType.FLOAT)
+              assertEquals(expected, (float) doubles[j], c.getName() + " row " + row);
+            else if (type == ValueType.DOUBLE)
+              assertEquals(expected, doubles[j], c.getName() + " row " + row);
+            else if (type == ValueType.STRING)
+              assertEquals(expected, batch.getString(j), c.getName() + " row " + row);
+            else
+              assertEquals(expected, batch.getByteBuffer(j), c.getName() + " row " + row);
+          }
+        }
+        assertTrue(!values.hasNext(), c.getName());
+      }
+    }
+  }
+
+  @Test
+  void repeatedBytesAreNotShared() throws Exception {
+    ColumnMetaData column = new ColumnMetaData("BYTES-runs", ValueType.BYTES).setEncoding("rle");
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(write(new ColumnFileMetaData(), column)))) {
+      ColumnValues<ByteBuffer> values = reader.getValues(0);
+      ByteBuffer first = values.next();
+      first.get(); // a reader's position is not seen by the next value
+      assertEquals(value(ValueType.BYTES, 0), values.next());
+    }
+  }
+
+  @Test
+  void seekAndBatches() throws Exception {
+    ColumnMetaData ints = new ColumnMetaData("INT-runs", ValueType.INT).setEncoding("rle");
+    ColumnMetaData strings = new ColumnMetaData("STRING-cycle", ValueType.STRING).setEncoding("dictionary")
+        .hasIndexValues(true);
+    ColumnMetaData longs = new ColumnMetaData("LONG-sequence", ValueType.LONG).setEncoding("delta")
+        .hasIndexValues(true);
+    byte[] bytes = write(new ColumnFileMetaData(), ints, strings, longs);
+    try (ColumnFileReader reader = new ColumnFileReader(new InputBytes(bytes))) {
+      ColumnValues<Integer> intValues = reader.getValues(0);
+      intValues.seek(12345);
+      int[] batch = new int[1000];
+      assertEquals(1000, intValues.nextInts(batch));
+      for (int i = 0; i < batch.length; i++)
+        assertEquals((12345 + i) / 50, batch[i]);
+
+      ColumnValues<String> stringValues = reader.getValues(1);
+      stringValues.seek(19999);
+      assertEquals("v" + 19999 % 7, stringValues.next());
+      stringValues.seek(3);
+      BytesBatch strs = new BytesBatch(10);
+      assertEquals(10, stringValues.nextBytes(strs));
+      assertEquals("v3", strs.getString(0));
+      assertEquals("v" + 12 % 7, strs.getString(9));
+
+      ColumnValues<Long> longValues = reader.getValues(2);
+      longValues.seek(Long.valueOf(1000L + 15000 * 3L)); // a value, not a row
+      assertEquals(15000, longValues.getRow());
+      assertEquals(1000L + 15000 * 3L, (long) longValues.next());
+    }
+  }
+
+  @Test
+  void unknownEncoding() {
+    assertThrows(TrevniRuntimeException.class, () -> new ColumnFileWriter(new ColumnFileMetaData(),
+        new ColumnMetaData("c", ValueType.INT).setEncoding("zip")));
+    assertThrows(TrevniRuntimeException.class, () -> new ColumnFileWriter(new ColumnFileMetaData().setEncoding("zip"),
+        new ColumnMetaData("c", ValueType.INT)));
+  }
+
+}
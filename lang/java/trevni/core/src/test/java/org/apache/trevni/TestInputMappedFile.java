@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestInputMappedFile {
+  private static final int COUNT = 30000;
+
+  @TempDir
+  File dir;
+
+  private File write(byte[] data) throws IOException {
+    File file = new File(dir, "data");
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+
+  private static byte[] random(int length) {
+    byte[] data = new byte[length];
+    new Random(42).nextBytes(data);
+    return data;
+  }
+
+  @Test
+  void readsMatchFile() throws Exception {
+    byte[] data = random(100000);
+    File file = write(data);
+    try (Input mapped = new InputMappedFile(file); Input plain = new InputFile(file)) {
+      assertEquals(data.length, mapped.length());
+      for (long position : new long[] { 0, 1, 4095, 50000, 99990 }) {
+        byte[] a = new byte[100];
+        byte[] b = new byte[100];
+        int n = mapped.read(position, a, 0, a.length);
+        assertEquals(plain.read(position, b, 0, b.length), n);
+        assertArrayEquals(Arrays.copyOf(b, n), Arrays.copyOf(a, n));
+        assertArrayEquals(Arrays.copyOfRange(data, (int) position, (int) position + n), Arrays.copyOf(a, n));
+      }
+      assertEquals(-1, mapped.read(data.length, new byte[1], 0, 1));
+    }
+  }
+
+  @Test
+  void emptyFile() throws Exception {
+    try (Input mapped = new InputMappedFile(write(new byte[0]))) {
+      assertEquals(0, mapped.length());
+      assertEquals(-1, mapped.read(0, new byte[1], 0, 1));
+    }
+  }
+
+  @Test
+  void regions() throws Exception {
+    byte[] data = random(100000);
+    try (Input mapped = new InputMappedFile(write(data), 16384, 4096)) {
+      // within the overlap of a region and the next one
+      byte[] b = new byte[4000];
+      assertEquals(b.length, mapped.read(16000, b, 0, b.length));
+      assertArrayEquals(Arrays.copyOfRange(data, 16000, 16000 + b.length), b);
+
+      // beyond the overlap, the bytes before the end of the mapping are read
+      b = new byte[8000];
+      int n = mapped.read(16000, b, 0, b.length);
+      assertEquals(16384 + 4096 - 16000, n);
+      assertArrayEquals(Arrays.copyOfRange(data, 16000, 16000 + n), Arrays.copyOf(b, n));
+
+      // the last region
+      b = new byte[100];
+      assertEquals(b.length, mapped.read(99900, b, 0, b.length));
+      assertArrayEquals(Arrays.copyOfRange(data, 99900, 100000), b);
+    }
+  }
+
+  private File writeColumnFile() throws IOException {
+    File file = new File(dir, "columns.trv");
+    ColumnFileWriter writer = new ColumnFileWriter(new ColumnFileMetaData(), new ColumnMetaData("i", ValueType.INT),
+        new ColumnMetaData("s", ValueType.STRING));
+    for (int i = 0; i < COUNT; i++)
+      writer.writeRow(i, "value-" + i);
+    writer.writeTo(file);
+    return file;
+  }
+
+  private static void checkColumnFile(Input input) throws IOException {
+    try (ColumnFileReader reader = new ColumnFileReader(input)) {
+      assertEquals(COUNT, reader.getRowCount());
+      ColumnValues<Integer> ints = reader.getValues("i");
+      ColumnValues<String> strings = reader.getValues("s");
+      for (int i = 0; i < COUNT; i++) {
+        assertEquals(i, (int) ints.next());
+        assertEquals("value-" + i, strings.next());
+      }
+      assertTrue(!ints.hasNext() && !strings.hasNext());
+    }
+  }
+
+  @Test
+  void columnFile() throws Exception {
+    File file = writeColumnFile();
+    checkColumnFile(new InputFile(file));
+    checkColumnFile(new InputMappedFile(file));
+  }
+
+  @Test
+  void columnFileInRegions() throws Exception {
+    File file = writeColumnFile();
+    assertTrue(file.length() > 4 * 32768);
+    checkColumnFile(new InputMappedFile(file, 32768, 16384));
+  }
+
+}